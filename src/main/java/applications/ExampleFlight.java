@@ -8,9 +8,13 @@ import taskexecutor.Task;
 import taskexecutor.TaskExecutor;
 import taskexecutor.TaskExecutorService;
 import taskexecutor.interruptors.KeyboardEmergency;
+import taskexecutor.interruptors.SeparationMonitor;
 import taskexecutor.interruptors.XBox360ControllerEmergency;
 import time.RosTime;
 
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * This class illustrates an example flight. The drone will execute a fly {@link Task} while
  * listening to xbox emergency button and keyboard emergency button.
@@ -22,6 +26,7 @@ public final class ExampleFlight {
   private final ConnectedNode connectedNode;
   private final Task flyTask;
   private final Task emergencyTask;
+  private final Collection<SeparationMonitor> separationMonitors = new CopyOnWriteArrayList<>();
 
   private ExampleFlight(ConnectedNode connectedNode, Task flyTask, Task emergencyTask) {
     this.connectedNode = connectedNode;
@@ -42,6 +47,16 @@ public final class ExampleFlight {
     return new ExampleFlight(connectedNode, flyTask, emergencyTask);
   }
 
+  /**
+   * Registers a separation monitor which will submit the emergency task of this flight when the
+   * drone comes too close to another drone. Must be called before {@link #fly()}.
+   *
+   * @param separationMonitor the separation monitor
+   */
+  public void registerSeparationMonitor(SeparationMonitor separationMonitor) {
+    separationMonitors.add(separationMonitor);
+  }
+
   /** Starts flying. */
   public void fly() {
     // task to execute in case of emergency
@@ -53,6 +68,9 @@ public final class ExampleFlight {
     final TaskExecutor taskExecutor = TaskExecutorService.create();
     keyboardEmergencyNotifier.registerTaskExecutor(taskExecutor);
     xBox360ControllerEmergency.registerTaskExecutor(taskExecutor);
+    for (final SeparationMonitor separationMonitor : separationMonitors) {
+      separationMonitor.registerTaskExecutor(taskExecutor, emergencyTask);
+    }
 
     // start fly task
     taskExecutor.submitTask(flyTask);
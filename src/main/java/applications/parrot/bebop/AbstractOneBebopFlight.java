@@ -10,8 +10,9 @@ import commands.bebopcommands.BebopFollowTrajectory;
 import commands.bebopcommands.BebopHover;
 import commands.bebopcommands.BebopLand;
 import commands.bebopcommands.BebopTakeOff;
+import control.DesiredStateSampler;
 import control.FiniteTrajectory4d;
-import control.DroneVelocityController;
+import control.FusedPidController4d;
 import control.PidParameters;
 import control.VelocityController4d;
 import control.VelocityController4dLogger;
@@ -182,9 +183,10 @@ public abstract class AbstractOneBebopFlight extends AbstractNodeMain implements
         BebopHover.create(5, RosTime.create(connectedNode), velocity4dService, stateEstimator);
     commands.add(hoverFiveSeconds);
 
+    final DesiredStateSampler desiredStateSampler = DesiredStateSampler.create(trajectory4d);
     VelocityController4d velocityController4d =
-        DroneVelocityController.pidBuilder()
-            .withTrajectory4d(trajectory4d)
+        FusedPidController4d.builder()
+            .withDesiredStateSampler(desiredStateSampler)
             .withLinearXParameters(pidLinearX)
             .withLinearYParameters(pidLinearY)
             .withLinearZParameters(pidLinearZ)
@@ -193,7 +195,7 @@ public abstract class AbstractOneBebopFlight extends AbstractNodeMain implements
 
     velocityController4d =
         VelocityController4dLogger.create(
-            velocityController4d, trajectory4d, RosTime.create(connectedNode), DRONE_NAME);
+            velocityController4d, desiredStateSampler, RosTime.create(connectedNode), DRONE_NAME);
 
     final Command followTrajectory =
         BebopFollowTrajectory.builder()
@@ -1,9 +1,11 @@
 package applications.parrot.bebop;
 
+import com.google.common.collect.ImmutableList;
 import control.FiniteTrajectory4d;
 import org.ros.namespace.GraphName;
 import org.ros.node.AbstractNodeMain;
 import org.ros.node.ConnectedNode;
+import taskexecutor.interruptors.SeparationMonitor;
 
 import java.util.concurrent.Executors;
 
@@ -46,6 +48,24 @@ public abstract class AbstractTwoBebopFlight extends AbstractNodeMain {
             connectedNode,
             secondBebopPoseTopic);
 
+    // lands both drones if they come too close to each other
+    final SeparationMonitor separationMonitor =
+        SeparationMonitor.builder()
+            .withStateEstimators(
+                ImmutableList.of(
+                    firstBebopFlight.getMeasuredStateEstimator(),
+                    secondBebopFlight.getMeasuredStateEstimator()))
+            .withMinimumDistance(
+                connectedNode
+                    .getParameterTree()
+                    .getDouble(
+                        "beswarm/minimum_separation",
+                        SeparationMonitor.DEFAULT_MINIMUM_DISTANCE))
+            .build();
+    firstBebopFlight.registerSeparationMonitor(separationMonitor);
+    secondBebopFlight.registerSeparationMonitor(separationMonitor);
+    separationMonitor.start();
+
     startFlying(firstBebopFlight);
     startFlying(secondBebopFlight);
   }
@@ -8,16 +8,19 @@ import commands.bebopcommands.BebopFollowTrajectory;
 import commands.bebopcommands.BebopHover;
 import commands.bebopcommands.BebopLand;
 import commands.bebopcommands.BebopTakeOff;
+import control.DesiredStateSampler;
 import control.FiniteTrajectory4d;
-import control.DroneVelocityController;
+import control.FusedPidController4d;
 import control.PidParameters;
 import control.VelocityController4d;
 import control.VelocityController4dLogger;
 import control.localization.BebopStateEstimatorWithPoseStampedAndOdom;
+import control.localization.LatencyCompensatingStateEstimator;
 import control.localization.StateEstimator;
 import geometry_msgs.PoseStamped;
 import nav_msgs.Odometry;
 import org.ros.node.ConnectedNode;
+import org.ros.node.parameter.ParameterTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import services.FlyingStateService;
@@ -31,6 +34,7 @@ import services.parrot.ParrotServiceFactory;
 import services.rossubscribers.MessagesSubscriberService;
 import taskexecutor.Task;
 import taskexecutor.TaskType;
+import taskexecutor.interruptors.SeparationMonitor;
 import time.RosTime;
 
 import java.util.ArrayList;
@@ -40,6 +44,7 @@ import java.util.concurrent.TimeUnit;
 /** @author Hoang Tung Dinh */
 final class BebopFlight {
   private static final Logger logger = LoggerFactory.getLogger(BebopFlight.class);
+  private final StateEstimator measuredStateEstimator;
   private final ExampleFlight exampleFlight;
 
   private BebopFlight(
@@ -47,7 +52,12 @@ final class BebopFlight {
       FiniteTrajectory4d trajectory,
       ConnectedNode connectedNode,
       String poseTopic) {
-    exampleFlight = constructFlight(connectedNode, droneName, trajectory, poseTopic);
+    measuredStateEstimator =
+        BebopStateEstimatorWithPoseStampedAndOdom.create(
+            getPoseSubscriber(connectedNode, poseTopic),
+            getOdometrySubscriber(connectedNode, droneName));
+    final StateEstimator stateEstimator = compensateLatency(connectedNode, measuredStateEstimator);
+    exampleFlight = constructFlight(connectedNode, droneName, trajectory, stateEstimator);
   }
 
   public static BebopFlight create(
@@ -58,6 +68,24 @@ final class BebopFlight {
     return new BebopFlight(droneName, trajectory, connectedNode, poseTopic);
   }
 
+  /**
+   * Projects the states of the estimator to the current time if the parameter {@code
+   * beswarm/latency_compensation} is true.
+   */
+  private static StateEstimator compensateLatency(
+      ConnectedNode connectedNode, StateEstimator stateEstimator) {
+    final ParameterTree parameterTree = connectedNode.getParameterTree();
+    if (!parameterTree.getBoolean("beswarm/latency_compensation", false)) {
+      return stateEstimator;
+    }
+
+    return LatencyCompensatingStateEstimator.builder()
+        .withStateEstimator(stateEstimator)
+        .withTimeProvider(RosTime.create(connectedNode))
+        .withAdditionalLatencyInSeconds(parameterTree.getDouble("beswarm/additional_latency", 0))
+        .build();
+  }
+
   private static PidParameters getPidParameters(
       ConnectedNode connectedNode, String argKp, String argKd, String argKi) {
     final double pidLinearXKp = connectedNode.getParameterTree().getDouble(argKp);
@@ -91,7 +119,7 @@ final class BebopFlight {
       ConnectedNode connectedNode,
       String droneName,
       FiniteTrajectory4d trajectory,
-      String poseTopic) {
+      StateEstimator stateEstimator) {
     final PidParameters pidLinearX =
         getPidParameters(
             connectedNode,
@@ -126,10 +154,6 @@ final class BebopFlight {
             parrotServiceFactory.createVelocity4dService(), 0.000015);
     final TakeOffService takeOffService = parrotServiceFactory.createTakeOffService();
     final ResetService resetService = parrotServiceFactory.createResetService();
-    final StateEstimator stateEstimator =
-        BebopStateEstimatorWithPoseStampedAndOdom.create(
-            getPoseSubscriber(connectedNode, poseTopic),
-            getOdometrySubscriber(connectedNode, droneName));
     final Task flyTask =
         createFlyTask(
             connectedNode,
@@ -165,6 +189,27 @@ final class BebopFlight {
     exampleFlight.fly();
   }
 
+  /**
+   * Gets the state estimator of the measured states of the drone of this flight, without the
+   * latency compensation of the controller. Reading it does not affect the metrics of the latency
+   * compensation.
+   *
+   * @return the state estimator
+   */
+  public StateEstimator getMeasuredStateEstimator() {
+    return measuredStateEstimator;
+  }
+
+  /**
+   * Registers a separation monitor which will land the drone when it comes too close to another
+   * drone. Must be called before {@link #startFlying()}.
+   *
+   * @param separationMonitor the separation monitor
+   */
+  public void registerSeparationMonitor(SeparationMonitor separationMonitor) {
+    exampleFlight.registerSeparationMonitor(separationMonitor);
+  }
+
   private static Task createEmergencyTask(
       LandService landService, FlyingStateService flyingStateService) {
     final Command land = BebopLand.create(landService, flyingStateService);
@@ -195,9 +240,10 @@ final class BebopFlight {
         BebopHover.create(5, RosTime.create(connectedNode), velocity4dService, stateEstimator);
     commands.add(hoverFiveSecond);
 
+    final DesiredStateSampler desiredStateSampler = DesiredStateSampler.create(trajectory);
     VelocityController4d velocityController4d =
-        DroneVelocityController.pidBuilder()
-            .withTrajectory4d(trajectory)
+        FusedPidController4d.builder()
+            .withDesiredStateSampler(desiredStateSampler)
             .withLinearXParameters(pidLinearX)
             .withLinearYParameters(pidLinearY)
             .withLinearZParameters(pidLinearZ)
@@ -206,7 +252,7 @@ final class BebopFlight {
 
     velocityController4d =
         VelocityController4dLogger.create(
-            velocityController4d, trajectory, RosTime.create(connectedNode), droneName);
+            velocityController4d, desiredStateSampler, RosTime.create(connectedNode), droneName);
 
     final Command followTrajectory =
         BebopFollowTrajectory.builder()
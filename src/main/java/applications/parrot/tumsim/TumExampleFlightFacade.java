@@ -11,18 +11,18 @@ import commands.tumsimcommands.TumSimHover;
 import commands.tumsimcommands.TumSimLand;
 import commands.tumsimcommands.TumSimTakeoff;
 import control.VelocityController4dLogger;
+import control.DesiredStateSampler;
 import control.FiniteTrajectory4d;
+import control.FusedPidController4d;
 import control.PidCoFilter4d;
-import control.DroneVelocityController;
 import control.PidParameters;
 import control.VelocityController4d;
 import control.dto.DroneStateStamped;
 import control.localization.FakeStateEstimatorDecorator;
 import control.localization.GazeboModelStateEstimator;
+import control.localization.NoiseStreams;
 import control.localization.StateEstimator;
 import gazebo_msgs.ModelStates;
-import org.apache.commons.math3.random.GaussianRandomGenerator;
-import org.apache.commons.math3.random.MersenneTwister;
 import org.ros.node.ConnectedNode;
 import org.ros.node.parameter.ParameterTree;
 import org.slf4j.Logger;
@@ -112,9 +112,10 @@ final class TumExampleFlightFacade {
         TumSimHover.create(5, RosTime.create(connectedNode), velocity4dService, stateEstimator);
     commands.add(hoverFiveSecond);
 
+    final DesiredStateSampler desiredStateSampler = DesiredStateSampler.create(trajectory4d);
     VelocityController4d velocityController4d =
-        DroneVelocityController.pidBuilder()
-            .withTrajectory4d(trajectory4d)
+        FusedPidController4d.builder()
+            .withDesiredStateSampler(desiredStateSampler)
             .withLinearXParameters(pidLinearX)
             .withLinearYParameters(pidLinearY)
             .withLinearZParameters(pidLinearZ)
@@ -130,7 +131,7 @@ final class TumExampleFlightFacade {
 
     velocityController4d =
         VelocityController4dLogger.create(
-            velocityController4d, trajectory4d, RosTime.create(connectedNode), "drone");
+            velocityController4d, desiredStateSampler, RosTime.create(connectedNode), "drone");
 
     final Command followTrajectory =
         TumSimFollowTrajectory.builder()
@@ -238,13 +239,11 @@ final class TumExampleFlightFacade {
     final int numberOfAveragedPoses =
         parameterTree.getInteger(nodeName + "/localization_average_poses");
 
-    final GaussianRandomGenerator noiseGenerator =
-        new GaussianRandomGenerator(new MersenneTwister(localizationNoiseSeed));
-
+    // every drone gets its own noise stream, which only depends on the seed and the node name
     return FakeStateEstimatorDecorator.create(
         stateEstimator,
         localizationFrequency,
-        noiseGenerator,
+        NoiseStreams.create(localizationNoiseSeed).createGenerator(nodeName),
         localizationNoiseMean,
         localizationNoiseDeviation,
         numberOfAveragedPoses);
@@ -5,6 +5,10 @@ import applications.trajectory.geom.point.Point4D;
 /**
  * Basic trajectories to be executed and synced at the time set by the user.
  *
+ * <p>The motion primitives of this package are evaluated at the time since their start and do not
+ * use the start time of this class, which is only latched by subclasses calling {@link
+ * #getRelativeTime(double)} or {@link #setStartTime(double)}.
+ *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
 public abstract class BasicTrajectory {
@@ -41,16 +41,59 @@ final class CircleTrajectory2D extends PeriodicTrajectory implements Trajectory2
 
   @Override
   public double getDesiredPositionAbscissa(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
     return getLinearDisplacement().getX()
-        + getRadius() * StrictMath.cos(freq2pi * currentTime + getPhaseDisplacement());
+        + getRadius() * StrictMath.cos(freq2pi * timeInSeconds + getPhaseDisplacement());
   }
 
   @Override
   public double getDesiredPositionOrdinate(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
     return getLinearDisplacement().getY()
-        + getRadius() * StrictMath.sin(freq2pi * currentTime + getPhaseDisplacement());
+        + getRadius() * StrictMath.sin(freq2pi * timeInSeconds + getPhaseDisplacement());
+  }
+
+  /**
+   * Evaluates the positions at the points in time {@code startTimeInSeconds + i *
+   * timeStepInSeconds}. The phase of a sample is shared by both axes.
+   */
+  void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] abscissa,
+      double[] ordinate) {
+    final double originAbscissa = getLinearDisplacement().getX();
+    final double originOrdinate = getLinearDisplacement().getY();
+    final double radius = getRadius();
+    final double phaseDisplacement = getPhaseDisplacement();
+    for (int i = 0; i < abscissa.length; i++) {
+      final double phase =
+          freq2pi * (startTimeInSeconds + i * timeStepInSeconds) + phaseDisplacement;
+      abscissa[i] = originAbscissa + radius * StrictMath.cos(phase);
+      ordinate[i] = originOrdinate + radius * StrictMath.sin(phase);
+    }
+  }
+
+  double getDesiredVelocityAbscissa(double timeInSeconds) {
+    return -getRadius()
+        * freq2pi
+        * StrictMath.sin(freq2pi * timeInSeconds + getPhaseDisplacement());
+  }
+
+  double getDesiredVelocityOrdinate(double timeInSeconds) {
+    return getRadius() * freq2pi * StrictMath.cos(freq2pi * timeInSeconds + getPhaseDisplacement());
+  }
+
+  double getDesiredAccelerationAbscissa(double timeInSeconds) {
+    return -getRadius()
+        * freq2pi
+        * freq2pi
+        * StrictMath.cos(freq2pi * timeInSeconds + getPhaseDisplacement());
+  }
+
+  double getDesiredAccelerationOrdinate(double timeInSeconds) {
+    return -getRadius()
+        * freq2pi
+        * freq2pi
+        * StrictMath.sin(freq2pi * timeInSeconds + getPhaseDisplacement());
   }
 
   static class Builder {
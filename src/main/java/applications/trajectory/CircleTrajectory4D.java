@@ -2,8 +2,9 @@ package applications.trajectory;
 
 import applications.trajectory.geom.point.Point3D;
 import applications.trajectory.geom.point.Point4D;
-import control.Trajectory1d;
-import control.Trajectory4d;
+import control.BatchSampledTrajectory4d;
+import control.DifferentiableTrajectory1d;
+import control.DifferentiableTrajectory4d;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -15,11 +16,12 @@ import static com.google.common.base.Preconditions.checkArgument;
  *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
-final class CircleTrajectory4D extends PeriodicTrajectory implements Trajectory4d {
+final class CircleTrajectory4D extends PeriodicTrajectory
+    implements DifferentiableTrajectory4d, BatchSampledTrajectory4d {
   private final Point3D location;
   private final CircleTrajectory2D xycircle;
   private final double scaleFactor;
-  private final Trajectory1d angularMotion;
+  private final DifferentiableTrajectory1d angularMotion;
 
   private CircleTrajectory4D(
       Point3D location, double phase, double radius, double frequency, double planeAngle) {
@@ -38,7 +40,7 @@ final class CircleTrajectory4D extends PeriodicTrajectory implements Trajectory4
       double radius,
       double frequency,
       double planeAngle,
-      Trajectory1d yawTrajectory) {
+      DifferentiableTrajectory1d yawTrajectory) {
     super(phase, Point4D.from(location, 0), radius, frequency);
     this.location = location;
     this.scaleFactor = StrictMath.sin(planeAngle);
@@ -95,6 +97,65 @@ final class CircleTrajectory4D extends PeriodicTrajectory implements Trajectory4
     return angularMotion.getDesiredPosition(timeInSeconds);
   }
 
+  @Override
+  public void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] x,
+      double[] y,
+      double[] z,
+      double[] yaw) {
+    xycircle.getDesiredPositions(startTimeInSeconds, timeStepInSeconds, x, y);
+    final double originY = location.getY();
+    final double originZ = location.getZ();
+    for (int i = 0; i < x.length; i++) {
+      final double ordinate = y[i] - originY;
+      y[i] = (1 - scaleFactor) * ordinate + originY;
+      z[i] = scaleFactor * ordinate + originZ;
+      yaw[i] = angularMotion.getDesiredPosition(startTimeInSeconds + i * timeStepInSeconds);
+    }
+  }
+
+  @Override
+  public double getDesiredVelocityX(double timeInSeconds) {
+    return xycircle.getDesiredVelocityAbscissa(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredVelocityY(double timeInSeconds) {
+    return (1 - scaleFactor) * xycircle.getDesiredVelocityOrdinate(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredVelocityZ(double timeInSeconds) {
+    return scaleFactor * xycircle.getDesiredVelocityOrdinate(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAngularVelocityZ(double timeInSeconds) {
+    return angularMotion.getDesiredVelocity(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAccelerationX(double timeInSeconds) {
+    return xycircle.getDesiredAccelerationAbscissa(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAccelerationY(double timeInSeconds) {
+    return (1 - scaleFactor) * xycircle.getDesiredAccelerationOrdinate(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAccelerationZ(double timeInSeconds) {
+    return scaleFactor * xycircle.getDesiredAccelerationOrdinate(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAngularAccelerationZ(double timeInSeconds) {
+    return angularMotion.getDesiredAcceleration(timeInSeconds);
+  }
+
   @Override
   public String toString() {
     return "CircleTrajectory4D{"
@@ -0,0 +1,883 @@
+package applications.trajectory;
+
+import applications.trajectory.geom.LineSegment;
+import applications.trajectory.geom.point.Point3D;
+import choreo.Choreography;
+import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import control.FiniteTrajectory4d;
+import control.Trajectory4d;
+import utils.math.SpatialHashGrid;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Pre-flight checker for the trajectories of a multi-drone show. The trajectories are sampled on a
+ * uniform time grid and, for every pair of drones and every time step, the distance between the two
+ * line segments flown during that step is compared with the minimum distance.
+ *
+ * <p>Checking every pair is quadratic in the number of drones, so a broad phase first bins the
+ * drones of every time step in a {@link SpatialHashGrid} whose cells are at least as large as the
+ * minimum distance. Only the drones in the same or in neighbouring cells can be too close to each
+ * other, and only those pairs go to the exact segment distance test. In a show where every drone
+ * has a bounded number of close neighbours, the check scales linearly with the number of drones.
+ *
+ * <p>Sparse formations are checked faster with conservative advancement, see {@link
+ * Builder#withConservativeAdvancement(boolean)}. Every pair of drones is then followed on its own:
+ * as long as the drones are far apart, the time steps which cannot bring them too close to each
+ * other, given the maximum speed of the drones, are skipped without sampling. The time steps are
+ * only checked one by one when the drones approach each other. This finds the same collisions as
+ * checking every time step, provided that no drone flies faster than the maximum speed.
+ *
+ * <p>The time grid is split in windows, and every window is sampled and checked by a task of a
+ * fork-join pool. With conservative advancement, the pairs of drones are split over the pool
+ * instead. The trajectories are therefore evaluated concurrently, at any point in time: they must
+ * be thread-safe and must not depend on the order of evaluation. This is the case for the
+ * trajectories built by {@link Trajectories}. A {@link Choreography} is checked through its {@link
+ * Choreography#asRandomAccess()} view.
+ *
+ * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
+ */
+public final class CollisionDetector {
+  private static final double DEFAULT_MINIMUM_DISTANCE = 1;
+  private static final double DEFAULT_TIME_DELTA = 0.01;
+  private static final int DEFAULT_STEPS_PER_WINDOW = 500;
+  private static final double EPS = 0.001;
+
+  private final List<FiniteTrajectory4d> trajectories;
+  private final List<Trajectory4d> sampledTrajectories;
+  private final double minimumDistance;
+  private final double timeDeltaInSeconds;
+  private final int stepsPerWindow;
+  private final int parallelism;
+  private final boolean conservativeAdvancement;
+  private final double maximumSpeed;
+  private final AtomicLong numberOfSegmentChecks = new AtomicLong();
+
+  private CollisionDetector(Builder builder) {
+    this.trajectories = ImmutableList.copyOf(builder.trajectories);
+    this.minimumDistance = builder.minimumDistance;
+    this.timeDeltaInSeconds = builder.timeDeltaInSeconds;
+    this.stepsPerWindow = builder.stepsPerWindow;
+    this.parallelism = builder.parallelism;
+    this.conservativeAdvancement = builder.conservativeAdvancement;
+    this.maximumSpeed = builder.maximumSpeed;
+
+    this.sampledTrajectories = Lists.newArrayList();
+    for (FiniteTrajectory4d trajectory : trajectories) {
+      sampledTrajectories.add(
+          trajectory instanceof Choreography
+              ? ((Choreography) trajectory).asRandomAccess()
+              : trajectory);
+    }
+  }
+
+  /**
+   * Creates a detector with the default minimum distance of 1 meter.
+   *
+   * @param trajectories the trajectories to check
+   */
+  public CollisionDetector(List<FiniteTrajectory4d> trajectories) {
+    this(trajectories, DEFAULT_MINIMUM_DISTANCE);
+  }
+
+  /**
+   * Creates a detector with the default settings and the given minimum distance.
+   *
+   * @param trajectories the trajectories to check
+   * @param minimumDistance the minimum allowed distance between two drones
+   */
+  public CollisionDetector(List<FiniteTrajectory4d> trajectories, double minimumDistance) {
+    this(builder().withTrajectories(trajectories).withMinimumDistance(minimumDistance).validate());
+  }
+
+  /**
+   * Gets a builder of this class.
+   *
+   * @return a builder instance
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Creates a detector with the default settings for the trajectories of all drones of a show.
+   *
+   * @param server the server of the trajectories of the show
+   * @return a detector for the show
+   */
+  public static CollisionDetector forServer(MultiTrajectoryServer server) {
+    final List<FiniteTrajectory4d> trajectories = Lists.newArrayList();
+    for (TrajectoryServer trajectoryServer : server.getAllDifferentTrajectories()) {
+      trajectories.add(trajectoryServer.getConcreteTrajectory());
+    }
+    return builder().withTrajectories(trajectories).build();
+  }
+
+  /**
+   * Finds every time step at which two drones come too close to each other.
+   *
+   * @return the collisions ordered by time
+   */
+  public List<Collision> findCollisions() {
+    final List<Violation> violations = scan();
+    Collections.sort(
+        violations,
+        new Comparator<Violation>() {
+          @Override
+          public int compare(Violation first, Violation second) {
+            if (first.step != second.step) {
+              return Integer.compare(first.step, second.step);
+            }
+            return first.first != second.first
+                ? Integer.compare(first.first, second.first)
+                : Integer.compare(first.second, second.second);
+          }
+        });
+    final List<Collision> collisions = Lists.newArrayList();
+    for (Violation violation : violations) {
+      collisions.add(
+          Collision.create(
+              violation.step * timeDeltaInSeconds,
+              violation.segmentDistance,
+              trajectories.get(violation.first),
+              trajectories.get(violation.second)));
+    }
+    return collisions;
+  }
+
+  /**
+   * Finds every conflict between two drones. A conflict is a maximal time interval during which the
+   * two drones are too close to each other at every time step. It is reported with the time and the
+   * distance of the closest approach of the drones within the interval.
+   *
+   * @return the conflicts ordered by pair of drones and by time
+   */
+  public List<Conflict> findConflicts() {
+    final List<Violation> violations = scan();
+    Collections.sort(
+        violations,
+        new Comparator<Violation>() {
+          @Override
+          public int compare(Violation first, Violation second) {
+            if (first.first != second.first) {
+              return Integer.compare(first.first, second.first);
+            }
+            return first.second != second.second
+                ? Integer.compare(first.second, second.second)
+                : Integer.compare(first.step, second.step);
+          }
+        });
+
+    final List<Conflict> conflicts = Lists.newArrayList();
+    int start = 0;
+    for (int i = 1; i <= violations.size(); i++) {
+      if (i == violations.size() || !isSameConflict(violations.get(i - 1), violations.get(i))) {
+        conflicts.add(createConflict(violations.subList(start, i)));
+        start = i;
+      }
+    }
+    return conflicts;
+  }
+
+  private static boolean isSameConflict(Violation previous, Violation next) {
+    return previous.first == next.first
+        && previous.second == next.second
+        && previous.step + 1 == next.step;
+  }
+
+  private Conflict createConflict(List<Violation> run) {
+    Violation closest = run.get(0);
+    for (Violation violation : run) {
+      if (violation.closestDistance < closest.closestDistance) {
+        closest = violation;
+      }
+    }
+    return Conflict.create(
+        trajectories.get(closest.first),
+        trajectories.get(closest.second),
+        run.get(0).step * timeDeltaInSeconds,
+        (run.get(run.size() - 1).step + 1) * timeDeltaInSeconds,
+        closest.closestTime,
+        closest.closestDistance);
+  }
+
+  /**
+   * Gets the number of exact segment distance tests of the last scan, which is the number of pairs
+   * of drones that passed the broad phase, summed over the time steps. With conservative
+   * advancement, it is the number of time steps of all pairs which were not skipped.
+   */
+  @VisibleForTesting
+  long getNumberOfSegmentChecks() {
+    return numberOfSegmentChecks.get();
+  }
+
+  private List<Violation> scan() {
+    numberOfSegmentChecks.set(0);
+    final int numberOfSteps = getNumberOfSteps();
+    if (numberOfSteps == 0 || trajectories.size() < 2) {
+      return Lists.newArrayList();
+    }
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      return conservativeAdvancement
+          ? pool.invoke(new AdvancementTask(0, getNumberOfPairs(), numberOfSteps))
+          : pool.invoke(new WindowTask(0, numberOfSteps));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private int getNumberOfSteps() {
+    double lastTimePoint = 0;
+    for (FiniteTrajectory4d trajectory : trajectories) {
+      lastTimePoint = Math.max(lastTimePoint, trajectory.getTrajectoryDuration());
+    }
+    return (int) Math.ceil(lastTimePoint / timeDeltaInSeconds);
+  }
+
+  private int getNumberOfPairs() {
+    return sampledTrajectories.size() * (sampledTrajectories.size() - 1) / 2;
+  }
+
+  /**
+   * Gets the distance below which the segments flown by two drones during a time step are a
+   * collision. The margin accounts for the motion of the drones between the samples.
+   */
+  private double getBoundary() {
+    return minimumDistance - timeDeltaInSeconds * maximumSpeed - EPS;
+  }
+
+  /**
+   * Checks the segments flown by two drones during a time step, given by the slope of each segment
+   * and the difference of their start points.
+   */
+  private void checkSegments(
+      int first,
+      int second,
+      int step,
+      double ux,
+      double uy,
+      double uz,
+      double vx,
+      double vy,
+      double vz,
+      double wx,
+      double wy,
+      double wz,
+      List<Violation> violations) {
+    final double segmentDistance = distance(ux, uy, uz, vx, vy, vz, wx, wy, wz);
+    if (segmentDistance < getBoundary()) {
+      violations.add(
+          createViolation(
+              first, second, step, segmentDistance, ux - vx, uy - vy, uz - vz, wx, wy, wz));
+    }
+  }
+
+  /**
+   * The closest approach within a step is found on the relative motion of the drones, which is
+   * linear within the step: w + s * r for s in [0, 1].
+   */
+  private Violation createViolation(
+      int first,
+      int second,
+      int step,
+      double segmentDistance,
+      double rx,
+      double ry,
+      double rz,
+      double wx,
+      double wy,
+      double wz) {
+    final double rr = rx * rx + ry * ry + rz * rz;
+    final double s = rr == 0 ? 0 : Math.max(0, Math.min(1, -(wx * rx + wy * ry + wz * rz) / rr));
+    final double dx = wx + s * rx;
+    final double dy = wy + s * ry;
+    final double dz = wz + s * rz;
+    return new Violation(
+        first,
+        second,
+        step,
+        segmentDistance,
+        (step + s) * timeDeltaInSeconds,
+        Math.sqrt(dx * dx + dy * dy + dz * dz));
+  }
+
+  /**
+   * Computes the distance between two line segments, given by the start point and the slope of
+   * each segment.
+   *
+   * @see <a href="http://geomalgorithms.com/a07-_distance.html#dist3D_Segment_to_Segment()">
+   *     Distance between segments</a>
+   */
+  static double distance(LineSegment firstSeg, LineSegment secondSeg) {
+    final Point3D u = firstSeg.getSlope();
+    final Point3D v = secondSeg.getSlope();
+    final Point3D w = Point3D.minus(firstSeg.getStartPoint(), secondSeg.getStartPoint());
+    return distance(
+        u.getX(), u.getY(), u.getZ(), v.getX(), v.getY(), v.getZ(), w.getX(), w.getY(), w.getZ());
+  }
+
+  private static double distance(
+      double ux,
+      double uy,
+      double uz,
+      double vx,
+      double vy,
+      double vz,
+      double wx,
+      double wy,
+      double wz) {
+    final double a = ux * ux + uy * uy + uz * uz;
+    final double b = ux * vx + uy * vy + uz * vz;
+    final double c = vx * vx + vy * vy + vz * vz;
+    final double d = ux * wx + uy * wy + uz * wz;
+    final double e = vx * wx + vy * wy + vz * wz;
+    final double D = a * c - b * b;
+    double sN;
+    double sD = D;
+    double tN;
+    double tD = D;
+
+    if (D < EPS) {
+      sN = 0D;
+      sD = 1D;
+      tN = e;
+      tD = c;
+    } else {
+      sN = (b * e - c * d);
+      tN = (a * e - b * d);
+      if (sN < 0D) {
+        sN = 0D;
+        tN = e;
+        tD = c;
+      } else if (sN > sD) {
+        sN = sD;
+        tN = e + b;
+        tD = c;
+      }
+    }
+
+    if (tN < 0D) {
+      tN = 0D;
+      if (-d < 0D) {
+        sN = 0D;
+      } else if (-d > a) {
+        sN = sD;
+      } else {
+        sN = -d;
+        sD = a;
+      }
+    } else if (tN > tD) {
+      tN = tD;
+      if ((-d + b) < 0D) {
+        sN = 0D;
+      } else if ((-d + b > a)) {
+        sN = sD;
+      } else {
+        sN = (-d + b);
+        sD = a;
+      }
+    }
+    final double sc = Math.abs(sN) < EPS ? 0.0 : sN / sD;
+    final double tc = Math.abs(tN) < EPS ? 0.0 : tN / tD;
+
+    final double dx = wx + sc * ux - tc * vx;
+    final double dy = wy + sc * uy - tc * vy;
+    final double dz = wz + sc * uz - tc * vz;
+    return Math.sqrt(dx * dx + dy * dy + dz * dz);
+  }
+
+  /**
+   * Samples a window of the time grid and checks its steps one by one. Windows longer than {@code
+   * stepsPerWindow} are split in two.
+   */
+  private final class WindowTask extends RecursiveTask<List<Violation>> {
+    private final int firstStep;
+    private final int endStep;
+
+    private WindowTask(int firstStep, int endStep) {
+      this.firstStep = firstStep;
+      this.endStep = endStep;
+    }
+
+    @Override
+    protected List<Violation> compute() {
+      if (endStep - firstStep > stepsPerWindow) {
+        final int middle = (firstStep + endStep) >>> 1;
+        final WindowTask later = new WindowTask(middle, endStep);
+        later.fork();
+        final List<Violation> violations = new WindowTask(firstStep, middle).compute();
+        violations.addAll(later.join());
+        return violations;
+      }
+
+      // one more point than steps: a step goes from its point to the next one
+      final int numberOfPoints = endStep - firstStep + 1;
+      final double[][] x = new double[sampledTrajectories.size()][numberOfPoints];
+      final double[][] y = new double[sampledTrajectories.size()][numberOfPoints];
+      final double[][] z = new double[sampledTrajectories.size()][numberOfPoints];
+      final double[] yaw = new double[numberOfPoints];
+      for (int i = 0; i < sampledTrajectories.size(); i++) {
+        TrajectoryUtils.sampleTrajectory(
+            sampledTrajectories.get(i),
+            firstStep * timeDeltaInSeconds,
+            timeDeltaInSeconds,
+            x[i],
+            y[i],
+            z[i],
+            yaw);
+      }
+
+      final List<Violation> violations = Lists.newArrayList();
+      final SpatialHashGrid grid = new SpatialHashGrid(sampledTrajectories.size());
+      long segmentChecks = 0;
+      for (int k = 0; k < numberOfPoints - 1; k++) {
+        segmentChecks += checkStep(k, x, y, z, grid, violations);
+      }
+      numberOfSegmentChecks.addAndGet(segmentChecks);
+      return violations;
+    }
+
+    /**
+     * Bins the drones by the midpoint of the segment they fly during a step. Two segments closer
+     * than the boundary have midpoints closer than the boundary plus the half lengths of both
+     * segments, so with cells at least that large, the drones are in the same or in neighbouring
+     * cells.
+     *
+     * @return the number of pairs of drones checked
+     */
+    private int checkStep(
+        int k,
+        double[][] x,
+        double[][] y,
+        double[][] z,
+        SpatialHashGrid grid,
+        List<Violation> violations) {
+      final double boundary = getBoundary();
+      if (boundary <= 0) {
+        return 0;
+      }
+      double maximumLength = 0;
+      for (int i = 0; i < x.length; i++) {
+        final double ux = x[i][k + 1] - x[i][k];
+        final double uy = y[i][k + 1] - y[i][k];
+        final double uz = z[i][k + 1] - z[i][k];
+        maximumLength = Math.max(maximumLength, Math.sqrt(ux * ux + uy * uy + uz * uz));
+      }
+
+      grid.clear(Math.max(minimumDistance, boundary + maximumLength));
+      for (int i = 0; i < x.length; i++) {
+        grid.insert(
+            i,
+            (x[i][k] + x[i][k + 1]) / 2,
+            (y[i][k] + y[i][k + 1]) / 2,
+            (z[i][k] + z[i][k + 1]) / 2);
+      }
+
+      int checkedPairs = 0;
+      for (int i = 0; i < x.length; i++) {
+        for (long cellX = grid.getCellX(i) - 1; cellX <= grid.getCellX(i) + 1; cellX++) {
+          for (long cellY = grid.getCellY(i) - 1; cellY <= grid.getCellY(i) + 1; cellY++) {
+            for (long cellZ = grid.getCellZ(i) - 1; cellZ <= grid.getCellZ(i) + 1; cellZ++) {
+              for (int j = grid.getFirstInCell(cellX, cellY, cellZ);
+                  j >= 0;
+                  j = grid.getNextInCell(j)) {
+                // every pair is found from both drones, it is only checked from the first one
+                if (j > i) {
+                  checkPair(i, j, k, x, y, z, violations);
+                  checkedPairs++;
+                }
+              }
+            }
+          }
+        }
+      }
+      return checkedPairs;
+    }
+
+    private void checkPair(
+        int i, int j, int k, double[][] x, double[][] y, double[][] z, List<Violation> violations) {
+      checkSegments(
+          i,
+          j,
+          firstStep + k,
+          x[i][k + 1] - x[i][k],
+          y[i][k + 1] - y[i][k],
+          z[i][k + 1] - z[i][k],
+          x[j][k + 1] - x[j][k],
+          y[j][k + 1] - y[j][k],
+          z[j][k + 1] - z[j][k],
+          x[i][k] - x[j][k],
+          y[i][k] - y[j][k],
+          z[i][k] - z[j][k],
+          violations);
+    }
+  }
+
+  /**
+   * Follows a range of pairs of drones by conservative advancement. The pairs (i, j) with i < j are
+   * numbered row by row, so that every task gets the same number of pairs whatever the index of
+   * their first drone. Ranges of more than one pair are split in two.
+   */
+  private final class AdvancementTask extends RecursiveTask<List<Violation>> {
+    private final int firstPair;
+    private final int endPair;
+    private final int numberOfSteps;
+
+    private AdvancementTask(int firstPair, int endPair, int numberOfSteps) {
+      this.firstPair = firstPair;
+      this.endPair = endPair;
+      this.numberOfSteps = numberOfSteps;
+    }
+
+    @Override
+    protected List<Violation> compute() {
+      if (endPair - firstPair > 1) {
+        final int middle = (firstPair + endPair) >>> 1;
+        final AdvancementTask later = new AdvancementTask(middle, endPair, numberOfSteps);
+        later.fork();
+        final List<Violation> violations =
+            new AdvancementTask(firstPair, middle, numberOfSteps).compute();
+        violations.addAll(later.join());
+        return violations;
+      }
+
+      final List<Violation> violations = Lists.newArrayList();
+      final int numberOfDrones = sampledTrajectories.size();
+      int i = getFirstDrone(firstPair, numberOfDrones);
+      int j = (int) (firstPair - getFirstPairOfDrone(i, numberOfDrones)) + i + 1;
+      long segmentChecks = 0;
+      for (int pair = firstPair; pair < endPair; pair++) {
+        segmentChecks += advance(i, j, violations);
+        j++;
+        if (j == numberOfDrones) {
+          i++;
+          j = i + 1;
+        }
+      }
+      numberOfSegmentChecks.addAndGet(segmentChecks);
+      return violations;
+    }
+
+    /** Gets the number of the first pair of a drone, which is its pair with the next drone. */
+    private long getFirstPairOfDrone(int drone, int numberOfDrones) {
+      return (long) drone * (2L * numberOfDrones - drone - 1) / 2;
+    }
+
+    /** Gets the first drone of a pair by inverting {@link #getFirstPairOfDrone(int, int)}. */
+    private int getFirstDrone(int pair, int numberOfDrones) {
+      final double b = 2.0 * numberOfDrones - 1;
+      int drone = (int) Math.max(0, Math.floor((b - Math.sqrt(b * b - 8.0 * pair)) / 2));
+      // correct the rounding of the square root
+      while (drone > 0 && getFirstPairOfDrone(drone, numberOfDrones) > pair) {
+        drone--;
+      }
+      while (getFirstPairOfDrone(drone + 1, numberOfDrones) <= pair) {
+        drone++;
+      }
+      return drone;
+    }
+
+    /**
+     * The distance between two drones shrinks by at most twice the maximum speed times the
+     * duration, and the segments flown during a step are at most the distance at the start of the
+     * step minus their lengths apart. A step is thus only checked when the distance at the start
+     * of the step could make the segments closer than the boundary; otherwise all the steps which
+     * are safe for that distance are skipped at once.
+     *
+     * @return the number of time steps which were checked
+     */
+    private int advance(int i, int j, List<Violation> violations) {
+      final Trajectory4d first = sampledTrajectories.get(i);
+      final Trajectory4d second = sampledTrajectories.get(j);
+      final double boundary = getBoundary();
+      if (boundary <= 0) {
+        return 0;
+      }
+      final double closingPerStep = 2 * maximumSpeed * timeDeltaInSeconds;
+
+      int step = 0;
+      int checkedSteps = 0;
+      boolean sampled = false;
+      double x0 = 0;
+      double y0 = 0;
+      double z0 = 0;
+      double x1 = 0;
+      double y1 = 0;
+      double z1 = 0;
+      while (step < numberOfSteps) {
+        final double timeInSeconds = step * timeDeltaInSeconds;
+        if (!sampled) {
+          x0 = first.getDesiredPositionX(timeInSeconds);
+          y0 = first.getDesiredPositionY(timeInSeconds);
+          z0 = first.getDesiredPositionZ(timeInSeconds);
+          x1 = second.getDesiredPositionX(timeInSeconds);
+          y1 = second.getDesiredPositionY(timeInSeconds);
+          z1 = second.getDesiredPositionZ(timeInSeconds);
+        }
+        final double wx = x0 - x1;
+        final double wy = y0 - y1;
+        final double wz = z0 - z1;
+        final double safeSteps =
+            Math.floor((Math.sqrt(wx * wx + wy * wy + wz * wz) - boundary) / closingPerStep);
+        if (safeSteps >= 1) {
+          step = (int) Math.min(numberOfSteps, step + safeSteps);
+          sampled = false;
+          continue;
+        }
+
+        final double nextTimeInSeconds = (step + 1) * timeDeltaInSeconds;
+        final double nextX0 = first.getDesiredPositionX(nextTimeInSeconds);
+        final double nextY0 = first.getDesiredPositionY(nextTimeInSeconds);
+        final double nextZ0 = first.getDesiredPositionZ(nextTimeInSeconds);
+        final double nextX1 = second.getDesiredPositionX(nextTimeInSeconds);
+        final double nextY1 = second.getDesiredPositionY(nextTimeInSeconds);
+        final double nextZ1 = second.getDesiredPositionZ(nextTimeInSeconds);
+        checkSegments(
+            i,
+            j,
+            step,
+            nextX0 - x0,
+            nextY0 - y0,
+            nextZ0 - z0,
+            nextX1 - x1,
+            nextY1 - y1,
+            nextZ1 - z1,
+            wx,
+            wy,
+            wz,
+            violations);
+
+        // the end of this step is the start of the next one
+        x0 = nextX0;
+        y0 = nextY0;
+        z0 = nextZ0;
+        x1 = nextX1;
+        y1 = nextY1;
+        z1 = nextZ1;
+        sampled = true;
+        step++;
+        checkedSteps++;
+      }
+      return checkedSteps;
+    }
+  }
+
+  private static final class Violation {
+    private final int first;
+    private final int second;
+    private final int step;
+    private final double segmentDistance;
+    private final double closestTime;
+    private final double closestDistance;
+
+    private Violation(
+        int first,
+        int second,
+        int step,
+        double segmentDistance,
+        double closestTime,
+        double closestDistance) {
+      this.first = first;
+      this.second = second;
+      this.step = step;
+      this.segmentDistance = segmentDistance;
+      this.closestTime = closestTime;
+      this.closestDistance = closestDistance;
+    }
+  }
+
+  /** A time step at which two trajectories come too close to each other. */
+  @AutoValue
+  public abstract static class Collision {
+    public static Collision create(
+        double time, double distance, Trajectory4d first, Trajectory4d second) {
+      return new AutoValue_CollisionDetector_Collision(time, distance, first, second);
+    }
+
+    /** @return the start time of the time step */
+    public abstract double getTimePoint();
+
+    /** @return the distance between the paths of the drones during the time step */
+    public abstract double getActualDistance();
+
+    public abstract Trajectory4d getFirstCollidingTrajectory();
+
+    public abstract Trajectory4d getSecondCollidingTrajectory();
+  }
+
+  /** A time interval during which two trajectories are too close to each other. */
+  @AutoValue
+  public abstract static class Conflict {
+    static Conflict create(
+        Trajectory4d first,
+        Trajectory4d second,
+        double startTime,
+        double endTime,
+        double closestApproachTime,
+        double closestApproachDistance) {
+      return new AutoValue_CollisionDetector_Conflict(
+          first, second, startTime, endTime, closestApproachTime, closestApproachDistance);
+    }
+
+    public abstract Trajectory4d getFirstTrajectory();
+
+    public abstract Trajectory4d getSecondTrajectory();
+
+    /** @return the start time of the first time step of the conflict */
+    public abstract double getStartTime();
+
+    /** @return the end time of the last time step of the conflict */
+    public abstract double getEndTime();
+
+    /** @return the time at which the drones are the closest to each other during the conflict */
+    public abstract double getClosestApproachTime();
+
+    /** @return the distance between the drones at their closest approach */
+    public abstract double getClosestApproachDistance();
+  }
+
+  /** {@code CollisionDetector} builder static inner class. */
+  public static final class Builder {
+    private List<FiniteTrajectory4d> trajectories = ImmutableList.of();
+    private double minimumDistance = DEFAULT_MINIMUM_DISTANCE;
+    private double timeDeltaInSeconds = DEFAULT_TIME_DELTA;
+    private int stepsPerWindow = DEFAULT_STEPS_PER_WINDOW;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean conservativeAdvancement;
+    private double maximumSpeed = BasicTrajectory.MAX_ABSOLUTE_VELOCITY;
+
+    private Builder() {}
+
+    /**
+     * Sets the trajectories to check and returns a reference to this Builder so that the methods
+     * can be chained together.
+     *
+     * @param val the trajectories of the drones, which all start at time zero
+     * @return a reference to this Builder
+     */
+    public Builder withTrajectories(List<? extends FiniteTrajectory4d> val) {
+      trajectories = ImmutableList.copyOf(val);
+      return this;
+    }
+
+    /**
+     * Sets the {@code minimumDistance} and returns a reference to this Builder so that the methods
+     * can be chained together. The default value is 1 meter.
+     *
+     * @param val the {@code minimumDistance} to set
+     * @return a reference to this Builder
+     */
+    public Builder withMinimumDistance(double val) {
+      minimumDistance = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code timeDeltaInSeconds} and returns a reference to this Builder so that the
+     * methods can be chained together. It is the time step of the sampling grid. The default value
+     * is 0.01 seconds.
+     *
+     * @param val the {@code timeDeltaInSeconds} to set
+     * @return a reference to this Builder
+     */
+    public Builder withTimeDeltaInSeconds(double val) {
+      timeDeltaInSeconds = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code stepsPerWindow} and returns a reference to this Builder so that the methods
+     * can be chained together. It is the maximum number of time steps sampled and checked by one
+     * task. The default value is 500.
+     *
+     * @param val the {@code stepsPerWindow} to set
+     * @return a reference to this Builder
+     */
+    public Builder withStepsPerWindow(int val) {
+      stepsPerWindow = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code parallelism} and returns a reference to this Builder so that the methods can
+     * be chained together. It is the parallelism of the fork-join pool. The default value is the
+     * number of available processors.
+     *
+     * @param val the {@code parallelism} to set
+     * @return a reference to this Builder
+     */
+    public Builder withParallelism(int val) {
+      parallelism = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code conservativeAdvancement} and returns a reference to this Builder so that the
+     * methods can be chained together. If set, every pair of drones is followed on its own and the
+     * time steps which cannot bring the drones too close to each other are skipped, which saves
+     * most of the sampling when the drones are far apart. This relies on the maximum speed, so the
+     * trajectories must not jump. The default value is false: every time step is checked.
+     *
+     * @param val the {@code conservativeAdvancement} to set
+     * @return a reference to this Builder
+     */
+    public Builder withConservativeAdvancement(boolean val) {
+      conservativeAdvancement = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code maximumSpeed} and returns a reference to this Builder so that the methods can
+     * be chained together. It is the highest speed of any drone. It sets the margin for the motion
+     * of the drones within a time step, and the number of steps skipped by conservative
+     * advancement. The default value is {@link BasicTrajectory#MAX_ABSOLUTE_VELOCITY}.
+     *
+     * @param val the {@code maximumSpeed} to set, in meters per second
+     * @return a reference to this Builder
+     */
+    public Builder withMaximumSpeed(double val) {
+      maximumSpeed = val;
+      return this;
+    }
+
+    private Builder validate() {
+      checkArgument(
+          minimumDistance > 0,
+          String.format("Minimum distance must be positive, but it is %f.", minimumDistance));
+      checkArgument(
+          timeDeltaInSeconds > 0,
+          String.format("Time delta must be positive, but it is %f.", timeDeltaInSeconds));
+      checkArgument(
+          stepsPerWindow >= 1,
+          String.format("Steps per window must be at least 1, but it is %d.", stepsPerWindow));
+      checkArgument(
+          parallelism >= 1,
+          String.format("Parallelism must be at least 1, but it is %d.", parallelism));
+      checkArgument(
+          maximumSpeed > 0,
+          String.format("Maximum speed must be positive, but it is %f.", maximumSpeed));
+      return this;
+    }
+
+    /**
+     * Returns a {@code CollisionDetector} built from the parameters previously set.
+     *
+     * @return a {@code CollisionDetector} built with parameters of this {@code
+     *     CollisionDetector.Builder}
+     */
+    public CollisionDetector build() {
+      return new CollisionDetector(validate());
+    }
+  }
+}
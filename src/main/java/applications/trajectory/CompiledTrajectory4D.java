@@ -0,0 +1,277 @@
+package applications.trajectory;
+
+import control.BatchSampledTrajectory4d;
+import control.DifferentiableTrajectory4d;
+import control.FiniteTrajectory4d;
+
+/**
+ * A trajectory pre-sampled by a {@link TrajectoryCompiler}. The samples are stored on a uniform
+ * time grid in one packed array, and the trajectory between two samples is the cubic Hermite spline
+ * through their positions and velocities. Every lookup therefore costs the same constant time,
+ * whatever the trajectory it was compiled from.
+ *
+ * <p>Like the trajectories built by {@link Trajectories}, a compiled trajectory is immutable and
+ * thread-safe. The time argument is the time since the start of the trajectory. Before the start,
+ * the trajectory holds its first pose. After its duration, it holds its last pose.
+ *
+ * <p>The yaw is stored unwrapped, so that the interpolation is continuous. It can therefore differ
+ * from the yaw of the original trajectory by a multiple of 2 pi.
+ *
+ * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
+ */
+public final class CompiledTrajectory4D
+    implements FiniteTrajectory4d, DifferentiableTrajectory4d, BatchSampledTrajectory4d {
+  static final int X = 0;
+  static final int Y = 1;
+  static final int Z = 2;
+  static final int YAW = 3;
+  static final int NUMBER_OF_AXES = 4;
+  static final int STRIDE = 2 * NUMBER_OF_AXES;
+
+  private final double[] samples;
+  private final int numberOfSamples;
+  private final double sampleIntervalInSeconds;
+  private final double durationInSeconds;
+  private final double maximumPositionError;
+  private final double maximumAngleError;
+
+  /**
+   * The samples are packed per point in time: the positions of the four axes followed by their
+   * velocities. The array is not copied and must not be modified afterwards.
+   */
+  CompiledTrajectory4D(
+      double[] samples,
+      double sampleIntervalInSeconds,
+      double maximumPositionError,
+      double maximumAngleError) {
+    this.samples = samples;
+    this.numberOfSamples = samples.length / STRIDE;
+    this.sampleIntervalInSeconds = sampleIntervalInSeconds;
+    this.durationInSeconds = (numberOfSamples - 1) * sampleIntervalInSeconds;
+    this.maximumPositionError = maximumPositionError;
+    this.maximumAngleError = maximumAngleError;
+  }
+
+  /**
+   * Gets the time between two consecutive samples.
+   *
+   * @return the sample interval in seconds
+   */
+  public double getSampleIntervalInSeconds() {
+    return sampleIntervalInSeconds;
+  }
+
+  /**
+   * Gets the number of samples of this trajectory.
+   *
+   * @return the number of samples
+   */
+  public int getNumberOfSamples() {
+    return numberOfSamples;
+  }
+
+  /**
+   * Gets the maximum distance in the x-y-z space between the compiled trajectory and the original
+   * trajectory. The distance is measured halfway between every two consecutive samples only, so it
+   * is an estimate of the maximum error rather than a bound.
+   *
+   * @return the maximum position error in meters
+   */
+  public double getMaximumPositionError() {
+    return maximumPositionError;
+  }
+
+  /**
+   * Gets the maximum yaw distance between the compiled trajectory and the original trajectory,
+   * measured in the same way as {@link #getMaximumPositionError()}.
+   *
+   * @return the maximum angle error in radians
+   */
+  public double getMaximumAngleError() {
+    return maximumAngleError;
+  }
+
+  @Override
+  public double getTrajectoryDuration() {
+    return durationInSeconds;
+  }
+
+  @Override
+  public double getDesiredPositionX(double timeInSeconds) {
+    return interpolatePosition(X, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredPositionY(double timeInSeconds) {
+    return interpolatePosition(Y, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredPositionZ(double timeInSeconds) {
+    return interpolatePosition(Z, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAngleZ(double timeInSeconds) {
+    return interpolatePosition(YAW, timeInSeconds);
+  }
+
+  /**
+   * The interval and the Hermite basis of a sample are computed once and shared by the four axes.
+   */
+  @Override
+  public void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] x,
+      double[] y,
+      double[] z,
+      double[] yaw) {
+    for (int i = 0; i < x.length; i++) {
+      final double timeInSeconds = startTimeInSeconds + i * timeStepInSeconds;
+      if (isOutside(timeInSeconds)) {
+        final int offset = timeInSeconds <= 0 ? 0 : (numberOfSamples - 1) * STRIDE;
+        x[i] = samples[offset + X];
+        y[i] = samples[offset + Y];
+        z[i] = samples[offset + Z];
+        yaw[i] = samples[offset + YAW];
+        continue;
+      }
+
+      final int index = getIntervalIndex(timeInSeconds);
+      final double s = timeInSeconds / sampleIntervalInSeconds - index;
+      final double s2 = s * s;
+      final double s3 = s2 * s;
+      final double startWeight = 2 * s3 - 3 * s2 + 1;
+      final double startVelocityWeight = (s3 - 2 * s2 + s) * sampleIntervalInSeconds;
+      final double endWeight = -2 * s3 + 3 * s2;
+      final double endVelocityWeight = (s3 - s2) * sampleIntervalInSeconds;
+      final int offset = index * STRIDE;
+      x[i] = hermite(offset + X, startWeight, startVelocityWeight, endWeight, endVelocityWeight);
+      y[i] = hermite(offset + Y, startWeight, startVelocityWeight, endWeight, endVelocityWeight);
+      z[i] = hermite(offset + Z, startWeight, startVelocityWeight, endWeight, endVelocityWeight);
+      yaw[i] =
+          hermite(offset + YAW, startWeight, startVelocityWeight, endWeight, endVelocityWeight);
+    }
+  }
+
+  private double hermite(
+      int offset,
+      double startWeight,
+      double startVelocityWeight,
+      double endWeight,
+      double endVelocityWeight) {
+    return startWeight * samples[offset]
+        + startVelocityWeight * samples[offset + NUMBER_OF_AXES]
+        + endWeight * samples[offset + STRIDE]
+        + endVelocityWeight * samples[offset + STRIDE + NUMBER_OF_AXES];
+  }
+
+  @Override
+  public double getDesiredVelocityX(double timeInSeconds) {
+    return interpolateVelocity(X, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredVelocityY(double timeInSeconds) {
+    return interpolateVelocity(Y, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredVelocityZ(double timeInSeconds) {
+    return interpolateVelocity(Z, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAngularVelocityZ(double timeInSeconds) {
+    return interpolateVelocity(YAW, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAccelerationX(double timeInSeconds) {
+    return interpolateAcceleration(X, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAccelerationY(double timeInSeconds) {
+    return interpolateAcceleration(Y, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAccelerationZ(double timeInSeconds) {
+    return interpolateAcceleration(Z, timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAngularAccelerationZ(double timeInSeconds) {
+    return interpolateAcceleration(YAW, timeInSeconds);
+  }
+
+  private boolean isOutside(double timeInSeconds) {
+    return timeInSeconds < 0 || timeInSeconds > durationInSeconds || numberOfSamples == 1;
+  }
+
+  private int getIntervalIndex(double timeInSeconds) {
+    return Math.min((int) (timeInSeconds / sampleIntervalInSeconds), numberOfSamples - 2);
+  }
+
+  private double interpolatePosition(int axis, double timeInSeconds) {
+    if (isOutside(timeInSeconds)) {
+      return timeInSeconds <= 0 ? samples[axis] : samples[(numberOfSamples - 1) * STRIDE + axis];
+    }
+
+    final int index = getIntervalIndex(timeInSeconds);
+    final double s = timeInSeconds / sampleIntervalInSeconds - index;
+    final double s2 = s * s;
+    final double s3 = s2 * s;
+    final int offset = index * STRIDE + axis;
+    return (2 * s3 - 3 * s2 + 1) * samples[offset]
+        + (s3 - 2 * s2 + s) * sampleIntervalInSeconds * samples[offset + NUMBER_OF_AXES]
+        + (-2 * s3 + 3 * s2) * samples[offset + STRIDE]
+        + (s3 - s2) * sampleIntervalInSeconds * samples[offset + STRIDE + NUMBER_OF_AXES];
+  }
+
+  private double interpolateVelocity(int axis, double timeInSeconds) {
+    if (isOutside(timeInSeconds)) {
+      return 0;
+    }
+
+    final int index = getIntervalIndex(timeInSeconds);
+    final double s = timeInSeconds / sampleIntervalInSeconds - index;
+    final double s2 = s * s;
+    final int offset = index * STRIDE + axis;
+    return ((6 * s2 - 6 * s) * samples[offset] + (-6 * s2 + 6 * s) * samples[offset + STRIDE])
+            / sampleIntervalInSeconds
+        + (3 * s2 - 4 * s + 1) * samples[offset + NUMBER_OF_AXES]
+        + (3 * s2 - 2 * s) * samples[offset + STRIDE + NUMBER_OF_AXES];
+  }
+
+  private double interpolateAcceleration(int axis, double timeInSeconds) {
+    if (isOutside(timeInSeconds)) {
+      return 0;
+    }
+
+    final int index = getIntervalIndex(timeInSeconds);
+    final double s = timeInSeconds / sampleIntervalInSeconds - index;
+    final int offset = index * STRIDE + axis;
+    return ((12 * s - 6) * samples[offset] + (-12 * s + 6) * samples[offset + STRIDE])
+            / (sampleIntervalInSeconds * sampleIntervalInSeconds)
+        + ((6 * s - 4) * samples[offset + NUMBER_OF_AXES]
+                + (6 * s - 2) * samples[offset + STRIDE + NUMBER_OF_AXES])
+            / sampleIntervalInSeconds;
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledTrajectory4D{"
+        + "durationInSeconds="
+        + durationInSeconds
+        + ", numberOfSamples="
+        + numberOfSamples
+        + ", maximumPositionError="
+        + maximumPositionError
+        + ", maximumAngleError="
+        + maximumAngleError
+        + '}';
+  }
+}
@@ -39,8 +39,7 @@ class ConstantSwingTrajectory1D extends PeriodicTrajectory implements Trajectory
 
   @Override
   public double getDesiredPosition(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
     return getLinearDisplacement().getX()
-        + getRadius() * StrictMath.cos(freq2pi * currentTime + getPhaseDisplacement());
+        + getRadius() * StrictMath.cos(freq2pi * timeInSeconds + getPhaseDisplacement());
   }
 }
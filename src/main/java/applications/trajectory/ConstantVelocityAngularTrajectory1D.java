@@ -2,7 +2,7 @@ package applications.trajectory;
 
 import applications.trajectory.geom.point.Point4D;
 import com.google.common.annotations.VisibleForTesting;
-import control.Trajectory1d;
+import control.DifferentiableTrajectory1d;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -12,7 +12,8 @@ import static com.google.common.base.Preconditions.checkArgument;
  *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
-class ConstantVelocityAngularTrajectory1D extends PeriodicTrajectory implements Trajectory1d {
+class ConstantVelocityAngularTrajectory1D extends PeriodicTrajectory
+    implements DifferentiableTrajectory1d {
   private static final double TWOPI = Math.PI * 2;
 
   /**
@@ -38,7 +39,17 @@ class ConstantVelocityAngularTrajectory1D extends PeriodicTrajectory implements
 
   @Override
   public double getDesiredPosition(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    return (TWOPI * getFrequency() * currentTime + getPhaseDisplacement()) % TWOPI;
+    return (TWOPI * getFrequency() * timeInSeconds + getPhaseDisplacement()) % TWOPI;
+  }
+
+  /** The velocity is constant. Unlike the position, it is not affected by the wrapping at 2pi. */
+  @Override
+  public double getDesiredVelocity(double timeInSeconds) {
+    return TWOPI * getFrequency();
+  }
+
+  @Override
+  public double getDesiredAcceleration(double timeInSeconds) {
+    return 0;
   }
 }
@@ -3,10 +3,11 @@ package applications.trajectory;
 import applications.trajectory.geom.point.Point3D;
 import applications.trajectory.geom.point.Point4D;
 import com.google.auto.value.AutoValue;
+import control.BatchSampledTrajectory4d;
+import control.DifferentiableTrajectory4d;
 import control.FiniteTrajectory4d;
-import control.Trajectory2d;
+import utils.math.Rotation;
 import utils.math.RotationOrder;
-import utils.math.Transformations;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -16,21 +17,27 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * radius as perpendicular distance to the straight line (origin-destination) and a frequency to
  * specify the number of revolutions.
  *
+ * <p>The trajectory is immutable and can be shared between threads. The last evaluated position,
+ * velocity and acceleration are memoized in immutable holders, so that the four components of a
+ * point in time are computed only once.
+ *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
-public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements FiniteTrajectory4d {
+public final class CorkscrewTrajectory4D extends PeriodicTrajectory
+    implements FiniteTrajectory4d, DifferentiableTrajectory4d, BatchSampledTrajectory4d {
 
   private static final double EPSILON = 0.00000001d;
   private static final String VELOCITY_ERROR_MESSAGE =
       "velocity component is higher than 1 for the given origin-destination points, "
           + "velocity, radius and frequency values.";
   private final UnitTrajectory unitTrajectory;
-  private final double aroundX;
-  private final double aroundY;
+  private final Rotation rotation;
   private final Point4D origin;
   private final Point3D destination;
 
-  private Point4DCache cache;
+  private volatile Point4DCache cache;
+  private volatile Point4DCache velocityCache;
+  private volatile Point4DCache accelerationCache;
 
   private CorkscrewTrajectory4D(
       Point4D origin,
@@ -55,10 +62,10 @@ public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements F
             speed,
             distance);
 
-    //translate origin to get angles to unit vectors.
+    // translate origin to get angles to unit vectors.
     Point4D translated = destinationProjection.minus(origin);
 
-    //find angles to unit trajectory and check components for excessive speeds.
+    // find angles to unit trajectory and check components for excessive speeds.
     Point3D speedComponent = Point3D.scale(Point3D.project(translated), speed / distance);
 
     checkArgument(
@@ -85,16 +92,18 @@ public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements F
       arx = ((Math.PI / 2) - (StrictMath.acos(translated.getY() / zyNorm)));
     }
 
-    this.aroundX = arx;
-
-    //          this.aroundX = (Math.PI / 2) - (Math.atan(translated.getZ() / translated.getY()));
+    //          arx = (Math.PI / 2) - (Math.atan(translated.getZ() / translated.getY()));
 
-    this.aroundY =
+    double ary =
         StrictMath.acos(
             translated.getX()
                 / StrictMath.sqrt(Math.pow(translated.getX(), 2) + StrictMath.pow(zyNorm, 2)));
-    //set initial cache
-    this.cache = newCache(Point4D.origin(), -1);
+    // the angles are fixed, so the rotation from the unit trajectory is computed only once
+    this.rotation = Rotation.createReverse(arx, ary, 0, RotationOrder.XYZ);
+    // set initial cache, which matches no point in time
+    this.cache = newCache(Point4D.origin(), Double.NaN);
+    this.velocityCache = newCache(Point4D.origin(), Double.NaN);
+    this.accelerationCache = newCache(Point4D.origin(), Double.NaN);
   }
 
   private static double stableAtan(double y, double x) {
@@ -145,43 +154,65 @@ public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements F
 
   @Override
   public double getDesiredPositionX(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    refreshCache(currentTime);
-    return translationTransform(getCachePoint()).getX();
+    return getPosition(timeInSeconds).getX();
   }
 
-  private void refreshCache(double time) {
-    if (!isEqual(cache.getTimeMark(), time)) {
-      Point4D beforeTransPoint =
-          Point4D.create(
-              unitTrajectory.getDesiredPositionX(time),
-              unitTrajectory.getDesiredPositionY(time),
-              unitTrajectory.getDesiredPositionZ(time),
-              unitTrajectory.getDesiredAngleZ(time));
-      setCache(beforeTransPoint, time);
+  /**
+   * Each cache is read once and replaced as a whole, so concurrent callers at worst compute the
+   * same point twice.
+   */
+  private Point4D getPosition(double time) {
+    final Point4DCache current = cache;
+    if (isEqual(current.getTimeMark(), time)) {
+      return current.getDestinationPoint();
     }
+    final Point4D point =
+        translationTransform(
+            Point4D.create(
+                unitTrajectory.getDesiredPositionX(time),
+                unitTrajectory.getDesiredPositionY(time),
+                unitTrajectory.getDesiredPositionZ(time),
+                unitTrajectory.getDesiredAngleZ(time)));
+    cache = newCache(point, time);
+    return point;
   }
 
-  private Point4D translationTransform(Point4D toTrans) {
-    return rotationTransform(toTrans, aroundX, aroundY).plus(origin);
+  /** The derivatives are rotated like the positions, but not translated. */
+  private Point4D getVelocity(double time) {
+    final Point4DCache current = velocityCache;
+    if (isEqual(current.getTimeMark(), time)) {
+      return current.getDestinationPoint();
+    }
+    final Point4D velocity =
+        rotationTransform(unitTrajectory.getDesiredVelocity(time));
+    velocityCache = newCache(velocity, time);
+    return velocity;
   }
 
-  private Point4D getCachePoint() {
-    return this.cache.getDestinationPoint();
+  private Point4D getAcceleration(double time) {
+    final Point4DCache current = accelerationCache;
+    if (isEqual(current.getTimeMark(), time)) {
+      return current.getDestinationPoint();
+    }
+    final Point4D acceleration =
+        rotationTransform(unitTrajectory.getDesiredAcceleration(time));
+    accelerationCache = newCache(acceleration, time);
+    return acceleration;
   }
 
-  private static boolean isEqual(double a, double b) {
-    return Math.abs(a - b) < EPSILON;
+  private Point4D translationTransform(Point4D toTrans) {
+    return rotationTransform(toTrans).plus(origin);
   }
 
-  private void setCache(Point4D beforeTransPoint, double time) {
-    this.cache = newCache(beforeTransPoint, time);
+  private static boolean isEqual(double a, double b) {
+    return Math.abs(a - b) < EPSILON;
   }
 
-  private static Point4D rotationTransform(Point4D toTrans, double aroundX, double aroundY) {
-    return Point4D.from(
-        Transformations.reverseRotation(
-            Point3D.project(toTrans), aroundX, aroundY, 0, RotationOrder.XYZ),
+  private Point4D rotationTransform(Point4D toTrans) {
+    return Point4D.create(
+        rotation.applyX(toTrans.getX(), toTrans.getY(), toTrans.getZ()),
+        rotation.applyY(toTrans.getX(), toTrans.getY(), toTrans.getZ()),
+        rotation.applyZ(toTrans.getX(), toTrans.getY(), toTrans.getZ()),
         0);
   }
 
@@ -203,9 +234,7 @@ public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements F
 
   @Override
   public double getDesiredPositionY(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    refreshCache(currentTime);
-    return translationTransform(getCachePoint()).getY();
+    return getPosition(timeInSeconds).getY();
   }
 
   private Point4D getOrigin() {
@@ -214,9 +243,7 @@ public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements F
 
   @Override
   public double getDesiredPositionZ(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    refreshCache(currentTime);
-    return translationTransform(getCachePoint()).getZ();
+    return getPosition(timeInSeconds).getZ();
   }
 
   private Point3D getDestination() {
@@ -225,9 +252,68 @@ public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements F
 
   @Override
   public double getDesiredAngleZ(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    refreshCache(currentTime);
-    return translationTransform(getCachePoint()).getAngle();
+    return getPosition(timeInSeconds).getAngle();
+  }
+
+  /** The batch bypasses the caches, which only hold one point in time. */
+  @Override
+  public void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] x,
+      double[] y,
+      double[] z,
+      double[] yaw) {
+    unitTrajectory.getDesiredPositions(startTimeInSeconds, timeStepInSeconds, x, y, z, yaw);
+    for (int i = 0; i < x.length; i++) {
+      final double unitX = x[i];
+      final double unitY = y[i];
+      final double unitZ = z[i];
+      x[i] = rotation.applyX(unitX, unitY, unitZ) + origin.getX();
+      y[i] = rotation.applyY(unitX, unitY, unitZ) + origin.getY();
+      z[i] = rotation.applyZ(unitX, unitY, unitZ) + origin.getZ();
+      yaw[i] = origin.getAngle();
+    }
+  }
+
+  @Override
+  public double getDesiredVelocityX(double timeInSeconds) {
+    return getVelocity(timeInSeconds).getX();
+  }
+
+  @Override
+  public double getDesiredVelocityY(double timeInSeconds) {
+    return getVelocity(timeInSeconds).getY();
+  }
+
+  @Override
+  public double getDesiredVelocityZ(double timeInSeconds) {
+    return getVelocity(timeInSeconds).getZ();
+  }
+
+  @Override
+  public double getDesiredAngularVelocityZ(double timeInSeconds) {
+    return getVelocity(timeInSeconds).getAngle();
+  }
+
+  @Override
+  public double getDesiredAccelerationX(double timeInSeconds) {
+    return getAcceleration(timeInSeconds).getX();
+  }
+
+  @Override
+  public double getDesiredAccelerationY(double timeInSeconds) {
+    return getAcceleration(timeInSeconds).getY();
+  }
+
+  @Override
+  public double getDesiredAccelerationZ(double timeInSeconds) {
+    return getAcceleration(timeInSeconds).getZ();
+  }
+
+  @Override
+  public double getDesiredAngularAccelerationZ(double timeInSeconds) {
+    return getAcceleration(timeInSeconds).getAngle();
   }
 
   @AutoValue
@@ -335,14 +421,12 @@ public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements F
     private final double speed;
     private final double frequency;
     private final double radius;
-    private Trajectory2d circlePlane;
-    private boolean atEnd;
+    private final CircleTrajectory2D circle;
 
     private UnitTrajectory(CircleTrajectory2D circlePlane, double speed, double endPoint) {
       this.linear = new LinearTrajectory1D(0, speed);
-      this.circlePlane = circlePlane;
+      this.circle = circlePlane;
       this.endPoint = endPoint;
-      this.atEnd = false;
       this.speed = speed;
       this.frequency = circlePlane.getFrequency();
       this.radius = circlePlane.getRadius();
@@ -354,50 +438,54 @@ public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements F
 
     @Override
     public double getDesiredPositionX(double timeInSeconds) {
-      if (atEnd) {
-        return endPoint;
-      }
-      if (linear.getDesiredPosition(timeInSeconds) > endPoint) {
-        markEnd();
+      if (isAtEnd(timeInSeconds)) {
         return endPoint;
       }
       return linear.getDesiredPosition(timeInSeconds);
     }
 
-    private double getRadius() {
-      return radius;
+    private boolean isAtEnd(double timeInSeconds) {
+      return linear.getDesiredPosition(timeInSeconds) > endPoint;
     }
 
-    private void markEnd() {
-      this.atEnd = true;
-      this.circlePlane = new NoMovement2DTrajectory();
+    Point4D getDesiredVelocity(double timeInSeconds) {
+      if (isAtEnd(timeInSeconds)) {
+        return Point4D.origin();
+      }
+      return Point4D.create(
+          linear.getDesiredVelocity(timeInSeconds),
+          circle.getDesiredVelocityOrdinate(timeInSeconds),
+          circle.getDesiredVelocityAbscissa(timeInSeconds),
+          0);
     }
 
-    double getFrequency() {
-      return frequency;
+    Point4D getDesiredAcceleration(double timeInSeconds) {
+      if (isAtEnd(timeInSeconds)) {
+        return Point4D.origin();
+      }
+      return Point4D.create(
+          linear.getDesiredAcceleration(timeInSeconds),
+          circle.getDesiredAccelerationOrdinate(timeInSeconds),
+          circle.getDesiredAccelerationAbscissa(timeInSeconds),
+          0);
     }
 
-    private class NoMovement2DTrajectory implements Trajectory2d {
-
-      @Override
-      public double getDesiredPositionAbscissa(double timeInSeconds) {
-        return 0;
-      }
+    private double getRadius() {
+      return radius;
+    }
 
-      @Override
-      public double getDesiredPositionOrdinate(double timeInSeconds) {
-        return 0;
-      }
+    double getFrequency() {
+      return frequency;
     }
 
     @Override
     public double getDesiredPositionY(double timeInSeconds) {
-      return circlePlane.getDesiredPositionOrdinate(timeInSeconds);
+      return isAtEnd(timeInSeconds) ? 0 : circle.getDesiredPositionOrdinate(timeInSeconds);
     }
 
     @Override
     public double getDesiredPositionZ(double timeInSeconds) {
-      return circlePlane.getDesiredPositionAbscissa(timeInSeconds);
+      return isAtEnd(timeInSeconds) ? 0 : circle.getDesiredPositionAbscissa(timeInSeconds);
     }
 
     @Override
@@ -405,6 +493,26 @@ public final class CorkscrewTrajectory4D extends PeriodicTrajectory implements F
       return 0;
     }
 
+    /** The circle is evaluated for all samples at once and replaced by zero past the end. */
+    void getDesiredPositions(
+        double startTimeInSeconds,
+        double timeStepInSeconds,
+        double[] x,
+        double[] y,
+        double[] z,
+        double[] yaw) {
+      circle.getDesiredPositions(startTimeInSeconds, timeStepInSeconds, z, y);
+      linear.getDesiredPositions(startTimeInSeconds, timeStepInSeconds, x);
+      for (int i = 0; i < x.length; i++) {
+        if (x[i] > endPoint) {
+          x[i] = endPoint;
+          y[i] = 0;
+          z[i] = 0;
+        }
+        yaw[i] = 0;
+      }
+    }
+
     @Override
     public double getTrajectoryDuration() {
       return endPoint / speed;
@@ -0,0 +1,113 @@
+package applications.trajectory;
+
+import control.DifferentiableTrajectory4d;
+import control.Trajectory4d;
+
+/**
+ * Adapts a {@link Trajectory4d} without closed form derivatives to a {@link
+ * DifferentiableTrajectory4d} by estimating its derivatives with forward differences. The time step
+ * equals the one the controllers used before closed form derivatives were available.
+ *
+ * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
+ */
+final class FiniteDifferenceTrajectory4D implements DifferentiableTrajectory4d {
+  private static final double DELTA_TIME_IN_SECONDS = 0.1;
+  private final Trajectory4d target;
+
+  FiniteDifferenceTrajectory4D(Trajectory4d target) {
+    this.target = target;
+  }
+
+  private static double firstDifference(double first, double second) {
+    return (second - first) / DELTA_TIME_IN_SECONDS;
+  }
+
+  private static double secondDifference(double first, double second, double third) {
+    return (third - 2 * second + first) / (DELTA_TIME_IN_SECONDS * DELTA_TIME_IN_SECONDS);
+  }
+
+  @Override
+  public double getDesiredPositionX(double timeInSeconds) {
+    return target.getDesiredPositionX(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredPositionY(double timeInSeconds) {
+    return target.getDesiredPositionY(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredPositionZ(double timeInSeconds) {
+    return target.getDesiredPositionZ(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAngleZ(double timeInSeconds) {
+    return target.getDesiredAngleZ(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredVelocityX(double timeInSeconds) {
+    return firstDifference(
+        target.getDesiredPositionX(timeInSeconds),
+        target.getDesiredPositionX(timeInSeconds + DELTA_TIME_IN_SECONDS));
+  }
+
+  @Override
+  public double getDesiredVelocityY(double timeInSeconds) {
+    return firstDifference(
+        target.getDesiredPositionY(timeInSeconds),
+        target.getDesiredPositionY(timeInSeconds + DELTA_TIME_IN_SECONDS));
+  }
+
+  @Override
+  public double getDesiredVelocityZ(double timeInSeconds) {
+    return firstDifference(
+        target.getDesiredPositionZ(timeInSeconds),
+        target.getDesiredPositionZ(timeInSeconds + DELTA_TIME_IN_SECONDS));
+  }
+
+  @Override
+  public double getDesiredAngularVelocityZ(double timeInSeconds) {
+    return firstDifference(
+        target.getDesiredAngleZ(timeInSeconds),
+        target.getDesiredAngleZ(timeInSeconds + DELTA_TIME_IN_SECONDS));
+  }
+
+  @Override
+  public double getDesiredAccelerationX(double timeInSeconds) {
+    return secondDifference(
+        target.getDesiredPositionX(timeInSeconds),
+        target.getDesiredPositionX(timeInSeconds + DELTA_TIME_IN_SECONDS),
+        target.getDesiredPositionX(timeInSeconds + 2 * DELTA_TIME_IN_SECONDS));
+  }
+
+  @Override
+  public double getDesiredAccelerationY(double timeInSeconds) {
+    return secondDifference(
+        target.getDesiredPositionY(timeInSeconds),
+        target.getDesiredPositionY(timeInSeconds + DELTA_TIME_IN_SECONDS),
+        target.getDesiredPositionY(timeInSeconds + 2 * DELTA_TIME_IN_SECONDS));
+  }
+
+  @Override
+  public double getDesiredAccelerationZ(double timeInSeconds) {
+    return secondDifference(
+        target.getDesiredPositionZ(timeInSeconds),
+        target.getDesiredPositionZ(timeInSeconds + DELTA_TIME_IN_SECONDS),
+        target.getDesiredPositionZ(timeInSeconds + 2 * DELTA_TIME_IN_SECONDS));
+  }
+
+  @Override
+  public double getDesiredAngularAccelerationZ(double timeInSeconds) {
+    return secondDifference(
+        target.getDesiredAngleZ(timeInSeconds),
+        target.getDesiredAngleZ(timeInSeconds + DELTA_TIME_IN_SECONDS),
+        target.getDesiredAngleZ(timeInSeconds + 2 * DELTA_TIME_IN_SECONDS));
+  }
+
+  @Override
+  public String toString() {
+    return target.toString();
+  }
+}
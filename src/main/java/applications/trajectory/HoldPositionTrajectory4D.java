@@ -1,10 +1,12 @@
 package applications.trajectory;
 
 import applications.trajectory.geom.point.Point4D;
-import control.Trajectory4d;
+import control.BatchSampledTrajectory4d;
+
+import java.util.Arrays;
 
 /** @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be> */
-class HoldPositionTrajectory4D implements Trajectory4d {
+class HoldPositionTrajectory4D implements BatchSampledTrajectory4d {
   private final Point4D targetPoint;
 
   HoldPositionTrajectory4D(Point4D targetpoint) {
@@ -31,6 +33,20 @@ class HoldPositionTrajectory4D implements Trajectory4d {
     return targetPoint.getAngle();
   }
 
+  @Override
+  public void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] x,
+      double[] y,
+      double[] z,
+      double[] yaw) {
+    Arrays.fill(x, targetPoint.getX());
+    Arrays.fill(y, targetPoint.getY());
+    Arrays.fill(z, targetPoint.getZ());
+    Arrays.fill(yaw, targetPoint.getAngle());
+  }
+
   @Override
   public String toString() {
     return "HoldPositionTrajectory4D{" + "target point=" + targetPoint + '}';
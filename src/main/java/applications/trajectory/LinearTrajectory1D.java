@@ -1,13 +1,13 @@
 package applications.trajectory;
 
-import control.Trajectory1d;
+import control.DifferentiableTrajectory1d;
 
 /**
  * A linear trajectory in one dimension.
  *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
-class LinearTrajectory1D extends BasicTrajectory implements Trajectory1d {
+class LinearTrajectory1D extends BasicTrajectory implements DifferentiableTrajectory1d {
   private final double startComp;
   private final double speedComp;
 
@@ -18,8 +18,27 @@ class LinearTrajectory1D extends BasicTrajectory implements Trajectory1d {
 
   @Override
   public double getDesiredPosition(double timeInSeconds) {
-    setStartTime(timeInSeconds);
-    final double currentTime = timeInSeconds - getStartTime();
-    return startComp + speedComp * currentTime;
+    return startComp + speedComp * timeInSeconds;
+  }
+
+  /**
+   * Evaluates the positions at the points in time {@code startTimeInSeconds + i *
+   * timeStepInSeconds}.
+   */
+  void getDesiredPositions(
+      double startTimeInSeconds, double timeStepInSeconds, double[] positions) {
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = startComp + speedComp * (startTimeInSeconds + i * timeStepInSeconds);
+    }
+  }
+
+  @Override
+  public double getDesiredVelocity(double timeInSeconds) {
+    return speedComp;
+  }
+
+  @Override
+  public double getDesiredAcceleration(double timeInSeconds) {
+    return 0;
   }
 }
@@ -1,20 +1,19 @@
 package applications.trajectory;
 
 import applications.trajectory.geom.point.Point4D;
-import control.Trajectory1d;
-import control.Trajectory4d;
+import control.BatchSampledTrajectory4d;
 
 /**
  * A linear trajectory in four dimensions as a composite of four 1d linear components.
  *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
-class LinearTrajectory4D extends BasicTrajectory implements Trajectory4d {
+class LinearTrajectory4D extends BasicTrajectory implements BatchSampledTrajectory4d {
 
-  private final Trajectory1d linearX;
-  private final Trajectory1d linearY;
-  private final Trajectory1d linearZ;
-  private final Trajectory1d angleZ;
+  private final LinearTrajectory1D linearX;
+  private final LinearTrajectory1D linearY;
+  private final LinearTrajectory1D linearZ;
+  private final LinearTrajectory1D angleZ;
 
   LinearTrajectory4D(Point4D startComponent, Point4D speedComponent) {
     this.linearX = new LinearTrajectory1D(startComponent.getX(), speedComponent.getX());
@@ -25,29 +24,35 @@ class LinearTrajectory4D extends BasicTrajectory implements Trajectory4d {
 
   @Override
   public double getDesiredPositionX(double timeInSeconds) {
-    setStartTime(timeInSeconds);
-    final double currentTime = timeInSeconds - getStartTime();
-    return this.linearX.getDesiredPosition(currentTime);
+    return this.linearX.getDesiredPosition(timeInSeconds);
   }
 
   @Override
   public double getDesiredPositionY(double timeInSeconds) {
-    setStartTime(timeInSeconds);
-    final double currentTime = timeInSeconds - getStartTime();
-    return this.linearY.getDesiredPosition(currentTime);
+    return this.linearY.getDesiredPosition(timeInSeconds);
   }
 
   @Override
   public double getDesiredPositionZ(double timeInSeconds) {
-    setStartTime(timeInSeconds);
-    final double currentTime = timeInSeconds - getStartTime();
-    return this.linearZ.getDesiredPosition(currentTime);
+    return this.linearZ.getDesiredPosition(timeInSeconds);
   }
 
   @Override
   public double getDesiredAngleZ(double timeInSeconds) {
-    setStartTime(timeInSeconds);
-    final double currentTime = timeInSeconds - getStartTime();
-    return this.angleZ.getDesiredPosition(currentTime);
+    return this.angleZ.getDesiredPosition(timeInSeconds);
+  }
+
+  @Override
+  public void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] x,
+      double[] y,
+      double[] z,
+      double[] yaw) {
+    this.linearX.getDesiredPositions(startTimeInSeconds, timeStepInSeconds, x);
+    this.linearY.getDesiredPositions(startTimeInSeconds, timeStepInSeconds, y);
+    this.linearZ.getDesiredPositions(startTimeInSeconds, timeStepInSeconds, z);
+    this.angleZ.getDesiredPositions(startTimeInSeconds, timeStepInSeconds, yaw);
   }
 }
@@ -1,7 +1,7 @@
 package applications.trajectory;
 
 import applications.trajectory.geom.point.Point4D;
-import control.Trajectory1d;
+import control.DifferentiableTrajectory1d;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -13,7 +13,7 @@ import static com.google.common.base.Preconditions.checkArgument;
  *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
-class PendulumSwingTrajectory1D extends PeriodicTrajectory implements Trajectory1d {
+class PendulumSwingTrajectory1D extends PeriodicTrajectory implements DifferentiableTrajectory1d {
   private static final double MAXRANGE_VELOCITY_PERIODIC_PART = 0.649091;
 
   /**
@@ -39,11 +39,34 @@ class PendulumSwingTrajectory1D extends PeriodicTrajectory implements Trajectory
 
   @Override
   public double getDesiredPosition(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
     return getLinearDisplacement().getX()
         + getRadius()
             * StrictMath.cos(
-                TrajectoryUtils.pendulumAngleFromTime(currentTime, getFrequency())
+                TrajectoryUtils.pendulumAngleFromTime(timeInSeconds, getFrequency())
                     + getPhaseDisplacement());
   }
+
+  @Override
+  public double getDesiredVelocity(double timeInSeconds) {
+    final double angle =
+        TrajectoryUtils.pendulumAngleFromTime(timeInSeconds, getFrequency())
+            + getPhaseDisplacement();
+    return -getRadius()
+        * StrictMath.sin(angle)
+        * TrajectoryUtils.pendulumAngularVelocityFromTime(timeInSeconds, getFrequency());
+  }
+
+  @Override
+  public double getDesiredAcceleration(double timeInSeconds) {
+    final double angle =
+        TrajectoryUtils.pendulumAngleFromTime(timeInSeconds, getFrequency())
+            + getPhaseDisplacement();
+    final double angularVelocity =
+        TrajectoryUtils.pendulumAngularVelocityFromTime(timeInSeconds, getFrequency());
+    final double angularAcceleration =
+        TrajectoryUtils.pendulumAngularAccelerationFromTime(timeInSeconds, getFrequency());
+    return -getRadius()
+        * (StrictMath.cos(angle) * angularVelocity * angularVelocity
+            + StrictMath.sin(angle) * angularAcceleration);
+  }
 }
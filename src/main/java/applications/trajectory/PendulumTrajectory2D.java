@@ -1,7 +1,7 @@
 package applications.trajectory;
 
 import applications.trajectory.geom.point.Point4D;
-import control.Trajectory1d;
+import control.DifferentiableTrajectory1d;
 import control.Trajectory2d;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -14,8 +14,8 @@ import static com.google.common.base.Preconditions.checkArgument;
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
 public final class PendulumTrajectory2D extends PeriodicTrajectory implements Trajectory2d {
-  private final Trajectory1d linearMovement;
-  private final Trajectory1d pendulumOrdinate;
+  private final PendulumSwingTrajectory1D linearMovement;
+  private final PendulumOrdinate pendulumOrdinate;
 
   /**
    * Constructor
@@ -50,6 +50,46 @@ public final class PendulumTrajectory2D extends PeriodicTrajectory implements Tr
     return this.pendulumOrdinate.getDesiredPosition(timeInSeconds);
   }
 
+  /**
+   * Evaluates the positions at the points in time {@code startTimeInSeconds + i *
+   * timeStepInSeconds}. The pendulum angle of a sample is shared by both axes.
+   */
+  void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] abscissa,
+      double[] ordinate) {
+    final double originAbscissa = getLinearDisplacement().getX();
+    final double originOrdinate = getLinearDisplacement().getZ();
+    final double radius = getRadius();
+    final double frequency = getFrequency();
+    final double abscissaPhase = linearMovement.getPhaseDisplacement();
+    final double ordinatePhase = getPhaseDisplacement();
+    for (int i = 0; i < abscissa.length; i++) {
+      final double angle =
+          TrajectoryUtils.pendulumAngleFromTime(
+              startTimeInSeconds + i * timeStepInSeconds, frequency);
+      abscissa[i] = originAbscissa + radius * StrictMath.cos(angle + abscissaPhase);
+      ordinate[i] = originOrdinate + radius * StrictMath.sin(angle + ordinatePhase);
+    }
+  }
+
+  double getDesiredVelocityAbscissa(double timeInSeconds) {
+    return this.linearMovement.getDesiredVelocity(timeInSeconds);
+  }
+
+  double getDesiredVelocityOrdinate(double timeInSeconds) {
+    return this.pendulumOrdinate.getDesiredVelocity(timeInSeconds);
+  }
+
+  double getDesiredAccelerationAbscissa(double timeInSeconds) {
+    return this.linearMovement.getDesiredAcceleration(timeInSeconds);
+  }
+
+  double getDesiredAccelerationOrdinate(double timeInSeconds) {
+    return this.pendulumOrdinate.getDesiredAcceleration(timeInSeconds);
+  }
+
   /** Builder class for 2D pendulum trajectories. */
   public static final class Builder {
     private double radius;
@@ -113,17 +153,37 @@ public final class PendulumTrajectory2D extends PeriodicTrajectory implements Tr
     }
   }
 
-  private class PendulumOrdinate implements Trajectory1d {
+  private class PendulumOrdinate implements DifferentiableTrajectory1d {
     @Override
     public double getDesiredPosition(double timeInSeconds) {
-      setStartTime(timeInSeconds);
-
-      final double currentTime = timeInSeconds - getStartTime();
       return getLinearDisplacement().getZ()
           + getRadius()
               * StrictMath.sin(
-                  TrajectoryUtils.pendulumAngleFromTime(currentTime, getFrequency())
+                  TrajectoryUtils.pendulumAngleFromTime(timeInSeconds, getFrequency())
                       + getPhaseDisplacement());
     }
+
+    @Override
+    public double getDesiredVelocity(double timeInSeconds) {
+      return getRadius()
+          * StrictMath.cos(
+              TrajectoryUtils.pendulumAngleFromTime(timeInSeconds, getFrequency())
+                  + getPhaseDisplacement())
+          * TrajectoryUtils.pendulumAngularVelocityFromTime(timeInSeconds, getFrequency());
+    }
+
+    @Override
+    public double getDesiredAcceleration(double timeInSeconds) {
+      final double angle =
+          TrajectoryUtils.pendulumAngleFromTime(timeInSeconds, getFrequency())
+              + getPhaseDisplacement();
+      final double angularVelocity =
+          TrajectoryUtils.pendulumAngularVelocityFromTime(timeInSeconds, getFrequency());
+      final double angularAcceleration =
+          TrajectoryUtils.pendulumAngularAccelerationFromTime(timeInSeconds, getFrequency());
+      return getRadius()
+          * (StrictMath.cos(angle) * angularAcceleration
+              - StrictMath.sin(angle) * angularVelocity * angularVelocity);
+    }
   }
 }
@@ -2,6 +2,8 @@ package applications.trajectory;
 
 import applications.trajectory.geom.point.Point3D;
 import applications.trajectory.geom.point.Point4D;
+import control.BatchSampledTrajectory4d;
+import control.DifferentiableTrajectory4d;
 import control.FiniteTrajectory4d;
 import control.Trajectory4d;
 
@@ -16,17 +18,22 @@ import static com.google.common.base.Preconditions.checkArgument;
  * will cause overshooting behavior. Choose a value < 1 to trigger the controller to start braking
  * sooner.
  *
+ * <p>The trajectory is immutable: whether it is moving or holding position only depends on the time
+ * since its start.
+ *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
-class StraightLineTrajectory4D extends BasicTrajectory implements FiniteTrajectory4d {
+class StraightLineTrajectory4D extends BasicTrajectory
+    implements FiniteTrajectory4d, DifferentiableTrajectory4d, BatchSampledTrajectory4d {
   private final Point4D srcpoint;
   private final Point4D targetpoint;
   private final double velocity;
   private final Trajectory4d moveTraj;
   private final Trajectory4d holdTraj;
   private final double endTime;
+  private final double cutoffTime;
   private final double totalDistance;
-  private Trajectory4d currentTraj;
+  private final Point4D speedComponent;
 
   StraightLineTrajectory4D(Point4D srcpoint, Point4D targetpoint, double velocity) {
     this(srcpoint, targetpoint, velocity, 1);
@@ -49,44 +56,116 @@ class StraightLineTrajectory4D extends BasicTrajectory implements FiniteTrajecto
     double speed = velocity;
     checkArgument(totalDistance > 0, "Distance to travel cannot be zero.");
     this.endTime = totalDistance / speed;
-    Point4D speedComponent =
+    this.speedComponent =
         Point4D.create(
             velocity * (diff.getX() / totalDistance),
             velocity * (diff.getY() / totalDistance),
             velocity * (diff.getZ() / totalDistance),
             diff.getAngle() / endTime);
     this.holdTraj = new HoldPositionTrajectory4D(targetpoint);
-    this.moveTraj =
-        new HoldPositionForwarder(srcpoint, speedComponent, endTime * velocityCutoffTimePercentage);
-    this.currentTraj = moveTraj;
+    this.moveTraj = new LinearTrajectory4D(srcpoint, speedComponent);
+    this.cutoffTime = endTime * velocityCutoffTimePercentage;
   }
 
   @Override
   public double getDesiredPositionX(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    return getCurrentTrajectory().getDesiredPositionX(currentTime);
+    return getCurrentTrajectory(timeInSeconds).getDesiredPositionX(timeInSeconds);
   }
 
   @Override
   public double getDesiredPositionY(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    return getCurrentTrajectory().getDesiredPositionY(currentTime);
+    return getCurrentTrajectory(timeInSeconds).getDesiredPositionY(timeInSeconds);
   }
 
   @Override
   public double getDesiredPositionZ(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    return getCurrentTrajectory().getDesiredPositionZ(currentTime);
+    return getCurrentTrajectory(timeInSeconds).getDesiredPositionZ(timeInSeconds);
   }
 
   @Override
   public double getDesiredAngleZ(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    return getCurrentTrajectory().getDesiredAngleZ(currentTime);
+    return getCurrentTrajectory(timeInSeconds).getDesiredAngleZ(timeInSeconds);
+  }
+
+  @Override
+  public void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] x,
+      double[] y,
+      double[] z,
+      double[] yaw) {
+    final double srcX = srcpoint.getX();
+    final double srcY = srcpoint.getY();
+    final double srcZ = srcpoint.getZ();
+    final double srcAngle = srcpoint.getAngle();
+    final double speedX = speedComponent.getX();
+    final double speedY = speedComponent.getY();
+    final double speedZ = speedComponent.getZ();
+    final double speedAngle = speedComponent.getAngle();
+    for (int i = 0; i < x.length; i++) {
+      final double time = startTimeInSeconds + i * timeStepInSeconds;
+      if (isMoving(time)) {
+        x[i] = srcX + speedX * time;
+        y[i] = srcY + speedY * time;
+        z[i] = srcZ + speedZ * time;
+        yaw[i] = srcAngle + speedAngle * time;
+      } else {
+        x[i] = targetpoint.getX();
+        y[i] = targetpoint.getY();
+        z[i] = targetpoint.getZ();
+        yaw[i] = targetpoint.getAngle();
+      }
+    }
+  }
+
+  @Override
+  public double getDesiredVelocityX(double timeInSeconds) {
+    return isMoving(timeInSeconds) ? speedComponent.getX() : 0;
+  }
+
+  @Override
+  public double getDesiredVelocityY(double timeInSeconds) {
+    return isMoving(timeInSeconds) ? speedComponent.getY() : 0;
+  }
+
+  @Override
+  public double getDesiredVelocityZ(double timeInSeconds) {
+    return isMoving(timeInSeconds) ? speedComponent.getZ() : 0;
+  }
+
+  @Override
+  public double getDesiredAngularVelocityZ(double timeInSeconds) {
+    return isMoving(timeInSeconds) ? speedComponent.getAngle() : 0;
+  }
+
+  /** The velocity is piecewise constant, so the acceleration is zero except at the cutoff. */
+  @Override
+  public double getDesiredAccelerationX(double timeInSeconds) {
+    return 0;
   }
 
-  protected Trajectory4d getCurrentTrajectory() {
-    return currentTraj;
+  @Override
+  public double getDesiredAccelerationY(double timeInSeconds) {
+    return 0;
+  }
+
+  @Override
+  public double getDesiredAccelerationZ(double timeInSeconds) {
+    return 0;
+  }
+
+  @Override
+  public double getDesiredAngularAccelerationZ(double timeInSeconds) {
+    return 0;
+  }
+
+  private boolean isMoving(double timeInSeconds) {
+    return timeInSeconds < cutoffTime;
+  }
+
+  private Trajectory4d getCurrentTrajectory(double timeInSeconds) {
+    return isMoving(timeInSeconds) ? moveTraj : holdTraj;
   }
 
   @Override
@@ -121,28 +200,4 @@ class StraightLineTrajectory4D extends BasicTrajectory implements FiniteTrajecto
   public final double getTotalDistance() {
     return totalDistance;
   }
-
-  private class HoldPositionForwarder extends Trajectory4DForwardingDecorator {
-    private final double endTime;
-
-    HoldPositionForwarder(Point4D srcComp, Point4D speedComp, double endTime) {
-      super(new LinearTrajectory4D(srcComp, speedComp));
-      this.endTime = endTime;
-    }
-
-    @Override
-    protected void positionDelegate(double timeInSeconds) {
-      if (timeInSeconds >= endTime) {
-        setHoldPosition(true);
-      }
-    }
-
-    private void setHoldPosition(boolean shouldHold) {
-      if (shouldHold) {
-        currentTraj = holdTraj;
-      } else {
-        currentTraj = moveTraj;
-      }
-    }
-  }
 }
@@ -1,20 +1,21 @@
 package applications.trajectory;
 
 import applications.trajectory.geom.point.Point4D;
-import control.Trajectory1d;
-import control.Trajectory2d;
-import control.Trajectory4d;
+import control.BatchSampledTrajectory4d;
+import control.DifferentiableTrajectory1d;
+import control.DifferentiableTrajectory4d;
 
 /**
  * Swing trajectory in 3D space as a 4D trajectory.
  *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
-class SwingTrajectory4D extends PeriodicTrajectory implements Trajectory4d {
-  private final Trajectory2d swing;
+class SwingTrajectory4D extends PeriodicTrajectory
+    implements DifferentiableTrajectory4d, BatchSampledTrajectory4d {
+  private final PendulumTrajectory2D swing;
   private final double yFactor;
   private final double xFactor;
-  private final Trajectory1d angularMotion;
+  private final DifferentiableTrajectory1d angularMotion;
 
   SwingTrajectory4D(
       Point4D origin, double phase, double xzPlaneAngle, double radius, double frequency) {
@@ -27,7 +28,7 @@ class SwingTrajectory4D extends PeriodicTrajectory implements Trajectory4d {
             .setFrequency(frequency)
             .setOrigin(origin)
             .build();
-    //keep constant yaw: use ConstantVelocityAngularTrajectory1D(0, 0)
+    // keep constant yaw: use ConstantVelocityAngularTrajectory1D(0, 0)
     this.angularMotion = new LinearTrajectory1D(origin.getAngle(), 0);
   }
 
@@ -56,6 +57,64 @@ class SwingTrajectory4D extends PeriodicTrajectory implements Trajectory4d {
     return angularMotion.getDesiredPosition(timeInSeconds);
   }
 
+  @Override
+  public void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] x,
+      double[] y,
+      double[] z,
+      double[] yaw) {
+    swing.getDesiredPositions(startTimeInSeconds, timeStepInSeconds, x, z);
+    final double originY = this.getLinearDisplacement().getY();
+    for (int i = 0; i < x.length; i++) {
+      final double abscissa = x[i];
+      x[i] = xFactor * abscissa;
+      y[i] = yFactor * abscissa + originY;
+      yaw[i] = angularMotion.getDesiredPosition(startTimeInSeconds + i * timeStepInSeconds);
+    }
+  }
+
+  @Override
+  public double getDesiredVelocityX(double timeInSeconds) {
+    return xFactor * swing.getDesiredVelocityAbscissa(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredVelocityY(double timeInSeconds) {
+    return yFactor * swing.getDesiredVelocityAbscissa(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredVelocityZ(double timeInSeconds) {
+    return swing.getDesiredVelocityOrdinate(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAngularVelocityZ(double timeInSeconds) {
+    return angularMotion.getDesiredVelocity(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAccelerationX(double timeInSeconds) {
+    return xFactor * swing.getDesiredAccelerationAbscissa(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAccelerationY(double timeInSeconds) {
+    return yFactor * swing.getDesiredAccelerationAbscissa(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAccelerationZ(double timeInSeconds) {
+    return swing.getDesiredAccelerationOrdinate(timeInSeconds);
+  }
+
+  @Override
+  public double getDesiredAngularAccelerationZ(double timeInSeconds) {
+    return angularMotion.getDesiredAcceleration(timeInSeconds);
+  }
+
   @Override
   public String toString() {
     return "CircleTrajectory4D{"
@@ -8,6 +8,11 @@ import control.Trajectory4d;
 /**
  * Utility factory class for creating motion primitives.
  *
+ * <p>The motion primitives are immutable and thread-safe. The time argument of their methods is the
+ * time since the start of the motion, so the same instance can be sampled, validated, logged and
+ * flown at the same time. A {@link choreo.Choreography} of motion primitives latches its start time
+ * at its first evaluation, but its {@link choreo.Choreography#asRandomAccess()} view does not.
+ *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
 public final class Trajectories {
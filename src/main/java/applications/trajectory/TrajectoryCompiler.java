@@ -0,0 +1,436 @@
+package applications.trajectory;
+
+import choreo.Choreography;
+import choreo.RandomAccessChoreography;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import control.DifferentiableTrajectory4d;
+import control.FiniteTrajectory4d;
+import control.Trajectory4d;
+import utils.math.EulerAngle;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Compiles finite trajectories into {@link CompiledTrajectory4D}s, which serve constant time
+ * lookups whatever the cost of evaluating the original trajectories.
+ *
+ * <p>The original trajectories are evaluated once, in increasing order of time starting at time
+ * zero, as a control loop would do. A {@link Choreography} is split into its segments, which are
+ * compiled in parallel like the trajectories of a sequence; the choreography itself is not
+ * evaluated. The velocities of a {@link DifferentiableTrajectory4d} are taken from its closed form
+ * derivatives; the velocities of other trajectories are estimated from the samples.
+ *
+ * <p>The interpolation error is measured halfway between every two consecutive samples. It is an
+ * estimate of the maximum error rather than a bound: the error between two samples may be larger
+ * elsewhere if the original trajectory changes quickly compared to the sample interval.
+ *
+ * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
+ */
+public final class TrajectoryCompiler {
+  private static final double TWO_PI = 2 * Math.PI;
+
+  private final double sampleIntervalInSeconds;
+  private final int parallelism;
+
+  private TrajectoryCompiler(Builder builder) {
+    sampleIntervalInSeconds = builder.sampleIntervalInSeconds;
+    parallelism = builder.parallelism;
+  }
+
+  /**
+   * Gets a builder of this class.
+   *
+   * @return a builder instance
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Compiles one trajectory.
+   *
+   * @param trajectory the trajectory to be compiled
+   * @return the compiled trajectory
+   */
+  public CompiledTrajectory4D compile(FiniteTrajectory4d trajectory) {
+    return compileSequence(ImmutableList.of(trajectory));
+  }
+
+  /**
+   * Compiles a sequence of trajectories, which are executed one after the other for their
+   * durations, into one trajectory. The trajectories, and the segments of the choreographies among
+   * them, are sampled in parallel.
+   *
+   * @param trajectories the trajectories to be compiled. They must be different instances.
+   * @return the compiled trajectory
+   */
+  public CompiledTrajectory4D compileSequence(List<? extends FiniteTrajectory4d> trajectories) {
+    checkArgument(!trajectories.isEmpty(), "There must be at least one trajectory to compile.");
+    final Set<FiniteTrajectory4d> distinctTrajectories = Sets.newIdentityHashSet();
+    distinctTrajectories.addAll(trajectories);
+    checkArgument(
+        distinctTrajectories.size() == trajectories.size(),
+        "A trajectory instance cannot be compiled twice in one sequence.");
+
+    final List<Trajectory4d> segments = Lists.newArrayList();
+    final List<Double> durations = Lists.newArrayList();
+    for (final FiniteTrajectory4d trajectory : trajectories) {
+      if (trajectory instanceof Choreography) {
+        final RandomAccessChoreography choreography = ((Choreography) trajectory).asRandomAccess();
+        for (int i = 0; i < choreography.getNumberOfSegments(); i++) {
+          segments.add(choreography.getSegmentTrajectory(i));
+          durations.add(
+              choreography.getSegmentStartTime(i + 1) - choreography.getSegmentStartTime(i));
+        }
+      } else {
+        segments.add(trajectory);
+        durations.add(trajectory.getTrajectoryDuration());
+      }
+    }
+
+    final double[] startTimes = new double[segments.size() + 1];
+    for (int i = 0; i < segments.size(); i++) {
+      final double duration = durations.get(i);
+      checkArgument(
+          duration >= 0,
+          String.format("Trajectory duration must be non-negative, but it is %f.", duration));
+      startTimes[i + 1] = startTimes[i] + duration;
+    }
+
+    final double totalDuration = startTimes[segments.size()];
+    checkArgument(totalDuration > 0, "The total duration of the trajectories must be positive.");
+    final int numberOfIntervals =
+        Math.max(1, (int) Math.ceil(totalDuration / sampleIntervalInSeconds));
+    final double interval = totalDuration / numberOfIntervals;
+    final SampleTable table = new SampleTable(numberOfIntervals + 1, interval);
+
+    // the segments of a trajectory which occurs more than once are sampled by the same task
+    final Map<Trajectory4d, SequentialTask> tasks = Maps.newIdentityHashMap();
+    for (int i = 0; i < segments.size(); i++) {
+      final boolean isLast = i == segments.size() - 1;
+      SequentialTask task = tasks.get(segments.get(i));
+      if (task == null) {
+        task = new SequentialTask();
+        tasks.put(segments.get(i), task);
+      }
+      task.samplers.add(
+          new SegmentSampler(
+              segments.get(i),
+              startTimes[i],
+              firstIndexAfter(startTimes[i], interval, 0),
+              isLast ? numberOfIntervals : firstIndexAfter(startTimes[i + 1], interval, 0) - 1,
+              firstIndexAfter(startTimes[i], interval, 0.5),
+              isLast
+                  ? numberOfIntervals - 1
+                  : firstIndexAfter(startTimes[i + 1], interval, 0.5) - 1,
+              table));
+    }
+    runAll(Lists.<Callable<Void>>newArrayList(tasks.values()));
+
+    return table.finish();
+  }
+
+  /**
+   * Gets the index of the first point of the grid {@code (index + offset) * interval} which is not
+   * before the given time. The same small tolerance is used for the start and the end of every
+   * segment, so the segments partition the grid.
+   */
+  private static int firstIndexAfter(double timeInSeconds, double interval, double offset) {
+    return Math.max(0, (int) Math.ceil(timeInSeconds / interval - offset - 1.0e-9));
+  }
+
+  private void runAll(List<Callable<Void>> tasks) {
+    if (tasks.size() == 1 || parallelism == 1) {
+      for (final Callable<Void> task : tasks) {
+        call(task);
+      }
+      return;
+    }
+
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(parallelism, tasks.size()),
+            new ThreadFactoryBuilder()
+                .setNameFormat("trajectory-compiler-%d")
+                .setDaemon(true)
+                .build());
+    try {
+      final List<Future<Void>> futures = Lists.newArrayList();
+      for (final Callable<Void> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (final Future<Void> future : futures) {
+        Futures.getUnchecked(future);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void call(Callable<Void> task) {
+    try {
+      task.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Samples segments of the same trajectory one after the other, in increasing order of time. */
+  private static final class SequentialTask implements Callable<Void> {
+    private final List<SegmentSampler> samplers = Lists.newArrayList();
+
+    @Override
+    public Void call() {
+      for (final SegmentSampler sampler : samplers) {
+        sampler.call();
+      }
+      return null;
+    }
+  }
+
+  /**
+   * The samples of a compilation. Each segment writes the samples of its own time range, so the
+   * segments can be sampled concurrently. The midpoints between two samples are only used to
+   * measure the interpolation error.
+   */
+  private static final class SampleTable {
+    private final double[] samples;
+    private final double[] midpoints;
+    private final boolean[] hasVelocity;
+    private final int numberOfSamples;
+    private final double interval;
+
+    private SampleTable(int numberOfSamples, double interval) {
+      this.numberOfSamples = numberOfSamples;
+      this.interval = interval;
+      this.samples = new double[numberOfSamples * CompiledTrajectory4D.STRIDE];
+      this.midpoints = new double[(numberOfSamples - 1) * CompiledTrajectory4D.NUMBER_OF_AXES];
+      this.hasVelocity = new boolean[numberOfSamples];
+    }
+
+    private static double unwrap(double angle, double previousAngle) {
+      return angle - TWO_PI * Math.round((angle - previousAngle) / TWO_PI);
+    }
+
+    /** Completes the table once all segments have been sampled. */
+    private CompiledTrajectory4D finish() {
+      unwrapYaw();
+      estimateMissingVelocities();
+      // the errors are measured on the compiled trajectory itself
+      final CompiledTrajectory4D trajectory = new CompiledTrajectory4D(samples, interval, 0, 0);
+
+      double maximumPositionError = 0;
+      double maximumAngleError = 0;
+      for (int i = 0; i < numberOfSamples - 1; i++) {
+        final double time = (i + 0.5) * interval;
+        final int offset = i * CompiledTrajectory4D.NUMBER_OF_AXES;
+        final double dx =
+            trajectory.getDesiredPositionX(time) - midpoints[offset + CompiledTrajectory4D.X];
+        final double dy =
+            trajectory.getDesiredPositionY(time) - midpoints[offset + CompiledTrajectory4D.Y];
+        final double dz =
+            trajectory.getDesiredPositionZ(time) - midpoints[offset + CompiledTrajectory4D.Z];
+        maximumPositionError =
+            Math.max(maximumPositionError, Math.sqrt(dx * dx + dy * dy + dz * dz));
+        maximumAngleError =
+            Math.max(
+                maximumAngleError,
+                Math.abs(
+                    EulerAngle.computeAngleDistance(
+                        trajectory.getDesiredAngleZ(time),
+                        midpoints[offset + CompiledTrajectory4D.YAW])));
+      }
+
+      return new CompiledTrajectory4D(samples, interval, maximumPositionError, maximumAngleError);
+    }
+
+    private void unwrapYaw() {
+      for (int i = 1; i < numberOfSamples; i++) {
+        final int offset = i * CompiledTrajectory4D.STRIDE + CompiledTrajectory4D.YAW;
+        samples[offset] = unwrap(samples[offset], samples[offset - CompiledTrajectory4D.STRIDE]);
+      }
+    }
+
+    /** Central differences of the samples, or one-sided differences at both ends. */
+    private void estimateMissingVelocities() {
+      if (numberOfSamples == 1) {
+        return;
+      }
+
+      for (int i = 0; i < numberOfSamples; i++) {
+        if (hasVelocity[i]) {
+          continue;
+        }
+        final int previous = Math.max(0, i - 1);
+        final int next = Math.min(numberOfSamples - 1, i + 1);
+        for (int axis = 0; axis < CompiledTrajectory4D.NUMBER_OF_AXES; axis++) {
+          samples[i * CompiledTrajectory4D.STRIDE + CompiledTrajectory4D.NUMBER_OF_AXES + axis] =
+              (samples[next * CompiledTrajectory4D.STRIDE + axis]
+                      - samples[previous * CompiledTrajectory4D.STRIDE + axis])
+                  / ((next - previous) * interval);
+        }
+      }
+    }
+  }
+
+  /**
+   * Samples one segment of a sequence. The samples and the midpoints of the segment are evaluated
+   * in increasing order of time, since a {@link Choreography} latches the time of its first
+   * evaluation.
+   */
+  private static final class SegmentSampler implements Callable<Void> {
+    private final Trajectory4d trajectory;
+    private final double startTime;
+    private final int firstSample;
+    private final int lastSample;
+    private final int firstMidpoint;
+    private final int lastMidpoint;
+    private final SampleTable table;
+
+    private SegmentSampler(
+        Trajectory4d trajectory,
+        double startTime,
+        int firstSample,
+        int lastSample,
+        int firstMidpoint,
+        int lastMidpoint,
+        SampleTable table) {
+      this.trajectory = trajectory;
+      this.startTime = startTime;
+      this.firstSample = firstSample;
+      this.lastSample = lastSample;
+      this.firstMidpoint = firstMidpoint;
+      this.lastMidpoint = lastMidpoint;
+      this.table = table;
+    }
+
+    @Override
+    public Void call() {
+      // the time of the first evaluation is the start time of the trajectory
+      trajectory.getDesiredPositionX(0);
+      trajectory.getDesiredPositionY(0);
+      trajectory.getDesiredPositionZ(0);
+      trajectory.getDesiredAngleZ(0);
+
+      int sample = firstSample;
+      int midpoint = firstMidpoint;
+      while (sample <= lastSample || midpoint <= lastMidpoint) {
+        if (sample <= lastSample && (midpoint > lastMidpoint || sample <= midpoint)) {
+          sample(sample);
+          sample++;
+        } else {
+          sampleMidpoint(midpoint);
+          midpoint++;
+        }
+      }
+      return null;
+    }
+
+    private double getLocalTime(double timeInSeconds) {
+      return Math.max(0, timeInSeconds - startTime);
+    }
+
+    private void sample(int index) {
+      final double time = getLocalTime(index * table.interval);
+      final double[] samples = table.samples;
+      final int offset = index * CompiledTrajectory4D.STRIDE;
+      samples[offset + CompiledTrajectory4D.X] = trajectory.getDesiredPositionX(time);
+      samples[offset + CompiledTrajectory4D.Y] = trajectory.getDesiredPositionY(time);
+      samples[offset + CompiledTrajectory4D.Z] = trajectory.getDesiredPositionZ(time);
+      samples[offset + CompiledTrajectory4D.YAW] = trajectory.getDesiredAngleZ(time);
+      if (trajectory instanceof DifferentiableTrajectory4d) {
+        sampleVelocity((DifferentiableTrajectory4d) trajectory, time, samples, offset);
+        table.hasVelocity[index] = true;
+      }
+    }
+
+    private void sampleMidpoint(int index) {
+      final double time = getLocalTime((index + 0.5) * table.interval);
+      final double[] midpoints = table.midpoints;
+      final int offset = index * CompiledTrajectory4D.NUMBER_OF_AXES;
+      midpoints[offset + CompiledTrajectory4D.X] = trajectory.getDesiredPositionX(time);
+      midpoints[offset + CompiledTrajectory4D.Y] = trajectory.getDesiredPositionY(time);
+      midpoints[offset + CompiledTrajectory4D.Z] = trajectory.getDesiredPositionZ(time);
+      midpoints[offset + CompiledTrajectory4D.YAW] = trajectory.getDesiredAngleZ(time);
+    }
+
+    private static void sampleVelocity(
+        DifferentiableTrajectory4d trajectory, double time, double[] samples, int offset) {
+      final int velocityOffset = offset + CompiledTrajectory4D.NUMBER_OF_AXES;
+      samples[velocityOffset + CompiledTrajectory4D.X] = trajectory.getDesiredVelocityX(time);
+      samples[velocityOffset + CompiledTrajectory4D.Y] = trajectory.getDesiredVelocityY(time);
+      samples[velocityOffset + CompiledTrajectory4D.Z] = trajectory.getDesiredVelocityZ(time);
+      samples[velocityOffset + CompiledTrajectory4D.YAW] =
+          trajectory.getDesiredAngularVelocityZ(time);
+    }
+  }
+
+  /** {@code TrajectoryCompiler} builder static inner class. */
+  public static final class Builder {
+    private static final double DEFAULT_SAMPLE_INTERVAL_IN_SECONDS = 0.01;
+
+    private double sampleIntervalInSeconds = DEFAULT_SAMPLE_INTERVAL_IN_SECONDS;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private Builder() {}
+
+    /**
+     * Sets the {@code sampleIntervalInSeconds} and returns a reference to this Builder so that the
+     * methods can be chained together. The interval of a compiled trajectory is the largest
+     * interval not greater than this value which divides the duration of the trajectory. The
+     * default value is 0.01 seconds.
+     *
+     * @param val the {@code sampleIntervalInSeconds} to set
+     * @return a reference to this Builder
+     */
+    public Builder withSampleIntervalInSeconds(double val) {
+      sampleIntervalInSeconds = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code parallelism} and returns a reference to this Builder so that the methods can
+     * be chained together. It is the maximum number of threads sampling the trajectories of a
+     * sequence. The default value is the number of available processors.
+     *
+     * @param val the {@code parallelism} to set
+     * @return a reference to this Builder
+     */
+    public Builder withParallelism(int val) {
+      parallelism = val;
+      return this;
+    }
+
+    /**
+     * Returns a {@code TrajectoryCompiler} built from the parameters previously set.
+     *
+     * @return a {@code TrajectoryCompiler} built with parameters of this {@code
+     *     TrajectoryCompiler.Builder}
+     */
+    public TrajectoryCompiler build() {
+      checkArgument(
+          sampleIntervalInSeconds > 0,
+          String.format(
+              "Sample interval must be a positive value, but it is %f.", sampleIntervalInSeconds));
+      checkArgument(
+          parallelism >= 1,
+          String.format("Parallelism must be at least 1, but it is %d.", parallelism));
+      return new TrajectoryCompiler(this);
+    }
+  }
+}
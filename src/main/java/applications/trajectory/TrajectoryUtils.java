@@ -1,9 +1,14 @@
 package applications.trajectory;
 
 import applications.trajectory.geom.point.Point4D;
+import control.BatchSampledTrajectory4d;
+import control.DifferentiableTrajectory1d;
+import control.DifferentiableTrajectory4d;
 import control.Trajectory1d;
 import control.Trajectory4d;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Utility class for static utilities used in defining trajectories.
  *
@@ -23,13 +28,60 @@ public final class TrajectoryUtils {
         * StrictMath.cos(PeriodicTrajectory.TWOPI * frequency * currentTime);
   }
 
+  /**
+   * @param currentTime The time point in the motion.
+   * @param frequency The frequency of the pendulum movement.
+   * @return The time derivative of {@link #pendulumAngleFromTime(double, double)}.
+   */
+  public static double pendulumAngularVelocityFromTime(double currentTime, double frequency) {
+    return -PeriodicTrajectory.PISQUARED
+        * frequency
+        * StrictMath.sin(PeriodicTrajectory.TWOPI * frequency * currentTime);
+  }
+
+  /**
+   * @param currentTime The time point in the motion.
+   * @param frequency The frequency of the pendulum movement.
+   * @return The second time derivative of {@link #pendulumAngleFromTime(double, double)}.
+   */
+  public static double pendulumAngularAccelerationFromTime(double currentTime, double frequency) {
+    return -PeriodicTrajectory.TWOPI
+        * PeriodicTrajectory.PISQUARED
+        * frequency
+        * frequency
+        * StrictMath.cos(PeriodicTrajectory.TWOPI * frequency * currentTime);
+  }
+
   /**
    * Gets the one-dimensional trajectory linear x from a four-dimensional trajectory.
    *
    * @param trajectory4d the four-dimensional trajectory
-   * @return an one-dimensional trajectory represents the trajectory in the x coordinate
+   * @return an one-dimensional trajectory represents the trajectory in the x coordinate. It is a
+   *     {@link DifferentiableTrajectory1d} if the four-dimensional trajectory is a {@link
+   *     DifferentiableTrajectory4d}.
    */
   public static Trajectory1d getTrajectoryLinearX(final Trajectory4d trajectory4d) {
+    if (trajectory4d instanceof DifferentiableTrajectory4d) {
+      final DifferentiableTrajectory4d differentiableTrajectory4d =
+          (DifferentiableTrajectory4d) trajectory4d;
+      return new DifferentiableTrajectory1d() {
+        @Override
+        public double getDesiredPosition(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredPositionX(timeInSeconds);
+        }
+
+        @Override
+        public double getDesiredVelocity(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredVelocityX(timeInSeconds);
+        }
+
+        @Override
+        public double getDesiredAcceleration(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredAccelerationX(timeInSeconds);
+        }
+      };
+    }
+
     return new Trajectory1d() {
       @Override
       public double getDesiredPosition(double timeInSeconds) {
@@ -45,6 +97,27 @@ public final class TrajectoryUtils {
    * @return an one-dimensional trajectory represents the trajectory in the y coordinate
    */
   public static Trajectory1d getTrajectoryLinearY(final Trajectory4d trajectory4d) {
+    if (trajectory4d instanceof DifferentiableTrajectory4d) {
+      final DifferentiableTrajectory4d differentiableTrajectory4d =
+          (DifferentiableTrajectory4d) trajectory4d;
+      return new DifferentiableTrajectory1d() {
+        @Override
+        public double getDesiredPosition(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredPositionY(timeInSeconds);
+        }
+
+        @Override
+        public double getDesiredVelocity(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredVelocityY(timeInSeconds);
+        }
+
+        @Override
+        public double getDesiredAcceleration(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredAccelerationY(timeInSeconds);
+        }
+      };
+    }
+
     return new Trajectory1d() {
       @Override
       public double getDesiredPosition(double timeInSeconds) {
@@ -60,6 +133,27 @@ public final class TrajectoryUtils {
    * @return an one-dimensional trajectory represents the trajectory in the z coordinate
    */
   public static Trajectory1d getTrajectoryLinearZ(final Trajectory4d trajectory4d) {
+    if (trajectory4d instanceof DifferentiableTrajectory4d) {
+      final DifferentiableTrajectory4d differentiableTrajectory4d =
+          (DifferentiableTrajectory4d) trajectory4d;
+      return new DifferentiableTrajectory1d() {
+        @Override
+        public double getDesiredPosition(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredPositionZ(timeInSeconds);
+        }
+
+        @Override
+        public double getDesiredVelocity(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredVelocityZ(timeInSeconds);
+        }
+
+        @Override
+        public double getDesiredAcceleration(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredAccelerationZ(timeInSeconds);
+        }
+      };
+    }
+
     return new Trajectory1d() {
       @Override
       public double getDesiredPosition(double timeInSeconds) {
@@ -76,6 +170,27 @@ public final class TrajectoryUtils {
    *     coordinate
    */
   public static Trajectory1d getTrajectoryAngularZ(final Trajectory4d trajectory4d) {
+    if (trajectory4d instanceof DifferentiableTrajectory4d) {
+      final DifferentiableTrajectory4d differentiableTrajectory4d =
+          (DifferentiableTrajectory4d) trajectory4d;
+      return new DifferentiableTrajectory1d() {
+        @Override
+        public double getDesiredPosition(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredAngleZ(timeInSeconds);
+        }
+
+        @Override
+        public double getDesiredVelocity(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredAngularVelocityZ(timeInSeconds);
+        }
+
+        @Override
+        public double getDesiredAcceleration(double timeInSeconds) {
+          return differentiableTrajectory4d.getDesiredAngularAccelerationZ(timeInSeconds);
+        }
+      };
+    }
+
     return new Trajectory1d() {
       @Override
       public double getDesiredPosition(double timeInSeconds) {
@@ -84,6 +199,21 @@ public final class TrajectoryUtils {
     };
   }
 
+  /**
+   * Gets a view of a trajectory which provides its derivatives. If the trajectory does not provide
+   * closed form derivatives, they are estimated with forward differences.
+   *
+   * @param trajectory4d the four-dimensional trajectory
+   * @return the trajectory itself if it is a {@link DifferentiableTrajectory4d}, otherwise a
+   *     differentiable view of the trajectory
+   */
+  public static DifferentiableTrajectory4d toDifferentiableTrajectory(Trajectory4d trajectory4d) {
+    if (trajectory4d instanceof DifferentiableTrajectory4d) {
+      return (DifferentiableTrajectory4d) trajectory4d;
+    }
+    return new FiniteDifferenceTrajectory4D(trajectory4d);
+  }
+
   /**
    * Sample a trajectory for a given time.
    *
@@ -96,4 +226,43 @@ public final class TrajectoryUtils {
         trajectory.getDesiredPositionX(time), trajectory.getDesiredPositionY(time),
         trajectory.getDesiredPositionZ(time), trajectory.getDesiredAngleZ(time));
   }
+
+  /**
+   * Sample a trajectory on a uniform time grid. The position at time {@code startTimeInSeconds + i
+   * * timeStepInSeconds} is written at index {@code i} of the arrays. Trajectories implementing
+   * {@link BatchSampledTrajectory4d} fill the arrays themselves, the others are evaluated one point
+   * in time at a time.
+   *
+   * @param trajectory the trajectory to sample.
+   * @param startTimeInSeconds the first time point to sample.
+   * @param timeStepInSeconds the time between two consecutive samples.
+   * @param x the output array of the positions along the x axis.
+   * @param y the output array of the positions along the y axis.
+   * @param z the output array of the positions along the z axis.
+   * @param yaw the output array of the yaw angles.
+   */
+  public static void sampleTrajectory(
+      Trajectory4d trajectory,
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] x,
+      double[] y,
+      double[] z,
+      double[] yaw) {
+    checkArgument(
+        y.length == x.length && z.length == x.length && yaw.length == x.length,
+        "The output arrays should have the same length.");
+    if (trajectory instanceof BatchSampledTrajectory4d) {
+      ((BatchSampledTrajectory4d) trajectory)
+          .getDesiredPositions(startTimeInSeconds, timeStepInSeconds, x, y, z, yaw);
+      return;
+    }
+    for (int i = 0; i < x.length; i++) {
+      final double time = startTimeInSeconds + i * timeStepInSeconds;
+      x[i] = trajectory.getDesiredPositionX(time);
+      y[i] = trajectory.getDesiredPositionY(time);
+      z[i] = trajectory.getDesiredPositionZ(time);
+      yaw[i] = trajectory.getDesiredAngleZ(time);
+    }
+  }
 }
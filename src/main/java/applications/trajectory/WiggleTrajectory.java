@@ -42,7 +42,7 @@ public class WiggleTrajectory extends BasicTrajectory implements FiniteTrajector
           .withTrajectory(Trajectories.newHoldPositionTrajectory(centerPoint))
           .forTime(TIME_TO_REST_AT_ORIGIN);
     }
-    target = builder.build();
+    target = builder.build().asRandomAccess();
   }
 
   @Override
@@ -4,7 +4,6 @@ import applications.trajectory.geom.point.Point4D;
 import choreo.Choreography;
 import com.google.common.collect.Lists;
 import control.FiniteTrajectory4d;
-import control.Trajectory4d;
 
 import java.util.List;
 
@@ -38,10 +37,14 @@ public class ZDropLineTrajectory extends BasicTrajectory implements FiniteTrajec
     List<Point4D> dropPoints = Lists.newArrayList();
     FiniteTrajectory4d traj = Trajectories.newStraightLineTrajectory(before, after, 1);
     double duration = traj.getTrajectoryDuration();
-    initTraj(traj);
-    for (int i = 0; i < drops; i++) {
-      double mark = (duration / drops) * i;
-      points.add(sampleTrajectory(traj, mark));
+    int numberOfMarks = (int) Math.max(0, Math.ceil(drops));
+    double[] x = new double[numberOfMarks];
+    double[] y = new double[numberOfMarks];
+    double[] z = new double[numberOfMarks];
+    double[] yaw = new double[numberOfMarks];
+    sampleTrajectory(traj, 0, duration / drops, x, y, z, yaw);
+    for (int i = 0; i < numberOfMarks; i++) {
+      points.add(Point4D.create(x[i], y[i], z[i], yaw[i]));
     }
     points.add(after);
     for (Point4D p : points) {
@@ -53,38 +56,27 @@ public class ZDropLineTrajectory extends BasicTrajectory implements FiniteTrajec
       builder.withTrajectory(
           Trajectories.newStraightLineTrajectory(dropPoints.get(i), points.get(i + 1), 1));
     }
-    target = builder.build();
-  }
-
-  private static final void initTraj(Trajectory4d traj) {
-    traj.getDesiredPositionX(0);
-    traj.getDesiredPositionY(0);
-    traj.getDesiredPositionZ(0);
-    traj.getDesiredAngleZ(0);
+    target = builder.build().asRandomAccess();
   }
 
   @Override
   public double getDesiredPositionX(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    return getTargetTrajectory().getDesiredPositionX(currentTime);
+    return getTargetTrajectory().getDesiredPositionX(timeInSeconds);
   }
 
   @Override
   public double getDesiredPositionY(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    return getTargetTrajectory().getDesiredPositionY(currentTime);
+    return getTargetTrajectory().getDesiredPositionY(timeInSeconds);
   }
 
   @Override
   public double getDesiredPositionZ(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    return getTargetTrajectory().getDesiredPositionZ(currentTime);
+    return getTargetTrajectory().getDesiredPositionZ(timeInSeconds);
   }
 
   @Override
   public double getDesiredAngleZ(double timeInSeconds) {
-    final double currentTime = getRelativeTime(timeInSeconds);
-    return getTargetTrajectory().getDesiredAngleZ(currentTime);
+    return getTargetTrajectory().getDesiredAngleZ(timeInSeconds);
   }
 
   private FiniteTrajectory4d getTargetTrajectory() {
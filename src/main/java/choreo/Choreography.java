@@ -4,12 +4,12 @@ import applications.trajectory.BasicTrajectory;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Queues;
+import applications.trajectory.TrajectoryUtils;
+import control.DifferentiableTrajectory4d;
 import control.FiniteTrajectory4d;
 import control.Trajectory4d;
 
 import java.util.List;
-import java.util.Queue;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -20,21 +20,27 @@ import static org.slf4j.LoggerFactory.getLogger;
  * from the lower level control point-of-view. Using the builder, one can create choreography
  * instances and configure them with different trajectories to be executed in sequence.
  *
- * <p>A choreography can and should only be consumed once and cannot be reused.
+ * <p>The velocities and accelerations of a choreography are those of its current segment. Segments
+ * whose trajectory does not provide closed form derivatives are differentiated numerically.
+ *
+ * <p>Like the other trajectories, a choreography latches the time of its first evaluation as its
+ * start time. Each segment is evaluated at the time since the start of that segment, and the
+ * segment of a point in time is looked up in constant time for increasing times and in logarithmic
+ * time otherwise. Use {@link #asRandomAccess()} to sample the choreography independently of its
+ * start time, for instance to visualize or validate it.
  *
  * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
  */
-public final class Choreography extends BasicTrajectory implements FiniteTrajectory4d {
+public final class Choreography extends BasicTrajectory
+    implements FiniteTrajectory4d, DifferentiableTrajectory4d {
   private final ImmutableList<ChoreoSegment> initialSegments;
-  private final Queue<ChoreoSegment> segments;
-  private double timeWindowShift;
-  private boolean hasRun;
+  private final RandomAccessChoreography segments;
+  private int lastLoggedSegmentIndex = -1;
 
   private Choreography(List<ChoreoSegment> segmentsArg) {
     super();
     initialSegments = ImmutableList.copyOf(segmentsArg);
-    segments = Queues.newArrayDeque(segmentsArg);
-    timeWindowShift = 0d;
+    segments = new RandomAccessChoreography(segmentsArg);
   }
 
   /** @return A choreography builder instance. */
@@ -42,68 +48,96 @@ public final class Choreography extends BasicTrajectory implements FiniteTraject
     return new Builder();
   }
 
-  private void checkChoreoSegments(double timeInSeconds) {
-    logFirstTime();
-    double normTime = normalize(timeInSeconds);
-    if (normTime >= getCurrentSegment().getDuration()) {
-      shiftSegments();
-    }
+  /**
+   * Gets a stateless view on the segments of this choreography, in which the time is the time since
+   * the start of the choreography. Unlike this choreography, the view does not latch a start time
+   * and can be sampled at any point in time.
+   *
+   * @return the random access view on this choreography
+   */
+  public RandomAccessChoreography asRandomAccess() {
+    return segments;
   }
 
-  private void logFirstTime() {
-    if (!hasRun && getLogger(Choreography.class).isDebugEnabled()) {
-      hasRun = true;
-      getLogger(Choreography.class).debug("Executing first choreo segment: " + segments.peek());
+  private double getChoreographyTime(double timeInSeconds) {
+    final double currentTime = getRelativeTime(timeInSeconds);
+    if (getLogger(Choreography.class).isDebugEnabled()) {
+      logSegmentChange(currentTime);
+    }
+    return currentTime;
+  }
+
+  private void logSegmentChange(double currentTime) {
+    final int segmentIndex = segments.getSegmentIndex(currentTime);
+    if (segmentIndex != lastLoggedSegmentIndex) {
+      getLogger(Choreography.class)
+          .debug(
+              "Executing "
+                  + (lastLoggedSegmentIndex < 0 ? "first" : "next")
+                  + " choreo segment: "
+                  + initialSegments.get(segmentIndex));
+      lastLoggedSegmentIndex = segmentIndex;
     }
   }
 
-  private void shiftSegments() {
-    if (this.segments.size() > 1) {
-      this.timeWindowShift += segments.poll().getDuration();
-      if (getLogger(Choreography.class).isDebugEnabled()) {
-        getLogger(Choreography.class).debug("Executing next choreo segment: " + segments.peek());
-      }
-    }
+  @Override
+  public double getDesiredPositionX(double timeInSeconds) {
+    return segments.getDesiredPositionX(getChoreographyTime(timeInSeconds));
   }
 
-  private double normalize(double timeInSeconds) {
-    return timeInSeconds - timeWindowShift;
+  @Override
+  public double getDesiredPositionY(double timeInSeconds) {
+    return segments.getDesiredPositionY(getChoreographyTime(timeInSeconds));
   }
 
-  private ChoreoSegment getCurrentSegment() {
-    return segments.peek();
+  @Override
+  public double getDesiredPositionZ(double timeInSeconds) {
+    return segments.getDesiredPositionZ(getChoreographyTime(timeInSeconds));
   }
 
   @Override
-  public double getDesiredPositionX(double timeInSeconds) {
-    setStartTime(timeInSeconds);
-    final double currentTime = timeInSeconds - getStartTime();
-    checkChoreoSegments(currentTime);
-    return getCurrentSegment().getTarget().getDesiredPositionX(currentTime);
+  public double getDesiredAngleZ(double timeInSeconds) {
+    return segments.getDesiredAngleZ(getChoreographyTime(timeInSeconds));
   }
 
   @Override
-  public double getDesiredPositionY(double timeInSeconds) {
-    setStartTime(timeInSeconds);
-    final double currentTime = timeInSeconds - getStartTime();
-    checkChoreoSegments(currentTime);
-    return getCurrentSegment().getTarget().getDesiredPositionY(currentTime);
+  public double getDesiredVelocityX(double timeInSeconds) {
+    return segments.getDesiredVelocityX(getChoreographyTime(timeInSeconds));
   }
 
   @Override
-  public double getDesiredPositionZ(double timeInSeconds) {
-    setStartTime(timeInSeconds);
-    final double currentTime = timeInSeconds - getStartTime();
-    checkChoreoSegments(currentTime);
-    return getCurrentSegment().getTarget().getDesiredPositionZ(currentTime);
+  public double getDesiredVelocityY(double timeInSeconds) {
+    return segments.getDesiredVelocityY(getChoreographyTime(timeInSeconds));
   }
 
   @Override
-  public double getDesiredAngleZ(double timeInSeconds) {
-    setStartTime(timeInSeconds);
-    final double currentTime = timeInSeconds - getStartTime();
-    checkChoreoSegments(currentTime);
-    return getCurrentSegment().getTarget().getDesiredAngleZ(currentTime);
+  public double getDesiredVelocityZ(double timeInSeconds) {
+    return segments.getDesiredVelocityZ(getChoreographyTime(timeInSeconds));
+  }
+
+  @Override
+  public double getDesiredAngularVelocityZ(double timeInSeconds) {
+    return segments.getDesiredAngularVelocityZ(getChoreographyTime(timeInSeconds));
+  }
+
+  @Override
+  public double getDesiredAccelerationX(double timeInSeconds) {
+    return segments.getDesiredAccelerationX(getChoreographyTime(timeInSeconds));
+  }
+
+  @Override
+  public double getDesiredAccelerationY(double timeInSeconds) {
+    return segments.getDesiredAccelerationY(getChoreographyTime(timeInSeconds));
+  }
+
+  @Override
+  public double getDesiredAccelerationZ(double timeInSeconds) {
+    return segments.getDesiredAccelerationZ(getChoreographyTime(timeInSeconds));
+  }
+
+  @Override
+  public double getDesiredAngularAccelerationZ(double timeInSeconds) {
+    return segments.getDesiredAngularAccelerationZ(getChoreographyTime(timeInSeconds));
   }
 
   @Override
@@ -113,11 +147,7 @@ public final class Choreography extends BasicTrajectory implements FiniteTraject
 
   @Override
   public double getTrajectoryDuration() {
-    double totalDuration = 0;
-    for (ChoreoSegment s : initialSegments) {
-      totalDuration += s.getDuration();
-    }
-    return totalDuration;
+    return segments.getTrajectoryDuration();
   }
 
   /** Step builder instance that can be built or further configured with trajectories. */
@@ -154,7 +184,7 @@ public final class Choreography extends BasicTrajectory implements FiniteTraject
   @AutoValue
   abstract static class ChoreoSegment {
     /** @return The trajectory to be executed in this segment. */
-    public abstract Trajectory4d getTarget();
+    public abstract DifferentiableTrajectory4d getTarget();
 
     /** @return The duration this trajectory should be executed for. */
     public abstract double getDuration();
@@ -210,7 +240,9 @@ public final class Choreography extends BasicTrajectory implements FiniteTraject
 
     private void addSegmentWithDuration(Trajectory4d target, double duration) {
       if (hasTempState()) {
-        segments.add(new AutoValue_Choreography_ChoreoSegment(target, duration));
+        segments.add(
+            new AutoValue_Choreography_ChoreoSegment(
+                TrajectoryUtils.toDifferentiableTrajectory(target), duration));
       }
       reset();
     }
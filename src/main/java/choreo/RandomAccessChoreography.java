@@ -0,0 +1,201 @@
+package choreo;
+
+import com.google.common.collect.ImmutableList;
+import control.DifferentiableTrajectory4d;
+import control.FiniteTrajectory4d;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A stateless view on the segments of a {@link Choreography}. The start times of the segments are
+ * kept in a prefix-sum array, so the segment of any point in time is found by a binary search
+ * instead of by stepping through the segments one at a time. The time argument is the time since
+ * the start of the choreography, and each segment is evaluated at the time since its own start.
+ *
+ * <p>The view does not latch a start time and does not consume its segments: it can be sampled at
+ * any point in time, in any order and as many times as needed, for instance by a visualizer or a
+ * validator next to the controller flying the choreography. The last segment that was looked up is
+ * cached, so that the monotonically increasing queries of a control loop find their segment in
+ * constant time.
+ *
+ * <p>Sampling is thread-safe if the trajectories of the segments are, which is the case for the
+ * trajectories built by {@link applications.trajectory.Trajectories} and for compiled trajectories.
+ * A nested {@link Choreography} latches its start time, so it should only be sampled in increasing
+ * time order.
+ *
+ * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
+ */
+public final class RandomAccessChoreography
+    implements FiniteTrajectory4d, DifferentiableTrajectory4d {
+  private final ImmutableList<Choreography.ChoreoSegment> segments;
+  private final DifferentiableTrajectory4d[] targets;
+  private final double[] segmentStartTimes;
+
+  /**
+   * The index of the last segment that was looked up. Concurrent readers may see a stale index,
+   * which is harmless because it is always validated before use.
+   */
+  private int cachedSegmentIndex;
+
+  RandomAccessChoreography(List<Choreography.ChoreoSegment> segments) {
+    this.segments = ImmutableList.copyOf(segments);
+    this.targets = new DifferentiableTrajectory4d[segments.size()];
+    this.segmentStartTimes = new double[segments.size() + 1];
+    for (int i = 0; i < segments.size(); i++) {
+      targets[i] = segments.get(i).getTarget();
+      segmentStartTimes[i + 1] = segmentStartTimes[i] + segments.get(i).getDuration();
+    }
+  }
+
+  /**
+   * Gets the number of segments of this choreography.
+   *
+   * @return the number of segments
+   */
+  public int getNumberOfSegments() {
+    return targets.length;
+  }
+
+  /**
+   * Gets the index of the segment which is executed at the given time. Before the start of the
+   * choreography, this is the first segment. After the end, it is the last segment.
+   *
+   * @param timeInSeconds the time since the start of the choreography
+   * @return the index of the segment
+   */
+  public int getSegmentIndex(double timeInSeconds) {
+    final int cached = cachedSegmentIndex;
+    if (isInSegment(cached, timeInSeconds)) {
+      return cached;
+    }
+    if (cached + 1 < targets.length && isInSegment(cached + 1, timeInSeconds)) {
+      cachedSegmentIndex = cached + 1;
+      return cached + 1;
+    }
+
+    final int index = searchSegmentIndex(timeInSeconds);
+    cachedSegmentIndex = index;
+    return index;
+  }
+
+  /**
+   * Gets the time at which a segment starts.
+   *
+   * @param segmentIndex the index of the segment
+   * @return the start time of the segment since the start of the choreography
+   */
+  public double getSegmentStartTime(int segmentIndex) {
+    return segmentStartTimes[segmentIndex];
+  }
+
+  /**
+   * Gets the trajectory of a segment, which is evaluated at the time since the start of that
+   * segment.
+   *
+   * @param segmentIndex the index of the segment
+   * @return the trajectory of the segment
+   */
+  public DifferentiableTrajectory4d getSegmentTrajectory(int segmentIndex) {
+    return targets[segmentIndex];
+  }
+
+  private boolean isInSegment(int segmentIndex, double timeInSeconds) {
+    return (segmentIndex == 0 || segmentStartTimes[segmentIndex] <= timeInSeconds)
+        && (segmentIndex == targets.length - 1
+            || timeInSeconds < segmentStartTimes[segmentIndex + 1]);
+  }
+
+  private int searchSegmentIndex(double timeInSeconds) {
+    final int position = Arrays.binarySearch(segmentStartTimes, 0, targets.length, timeInSeconds);
+    // a miss returns -(insertion point) - 1, and the segment is the one before the insertion point
+    int index = Math.max(0, position >= 0 ? position : -position - 2);
+    // skip segments without duration, which share their start time with the next segment
+    while (index + 1 < targets.length && segmentStartTimes[index + 1] <= timeInSeconds) {
+      index++;
+    }
+    return index;
+  }
+
+  @Override
+  public double getTrajectoryDuration() {
+    return segmentStartTimes[targets.length];
+  }
+
+  @Override
+  public double getDesiredPositionX(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredPositionX(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredPositionY(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredPositionY(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredPositionZ(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredPositionZ(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredAngleZ(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredAngleZ(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredVelocityX(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredVelocityX(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredVelocityY(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredVelocityY(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredVelocityZ(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredVelocityZ(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredAngularVelocityZ(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredAngularVelocityZ(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredAccelerationX(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredAccelerationX(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredAccelerationY(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredAccelerationY(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredAccelerationZ(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredAccelerationZ(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public double getDesiredAngularAccelerationZ(double timeInSeconds) {
+    final int index = getSegmentIndex(timeInSeconds);
+    return targets[index].getDesiredAngularAccelerationZ(timeInSeconds - segmentStartTimes[index]);
+  }
+
+  @Override
+  public String toString() {
+    return "RandomAccessChoreography{" + "Choreo segments=" + segments + '}';
+  }
+}
@@ -1,15 +1,23 @@
 package commands;
 
 import com.google.common.base.Optional;
+import commands.schedulers.EventDrivenTaskRunner;
 import commands.schedulers.PeriodicTaskRunner;
+import commands.schedulers.ReleaseAwareTask;
 import control.dto.DroneStateStamped;
 import control.localization.StateEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import services.rossubscribers.MessagesSubscriberService;
 import time.TimeProvider;
 
+import javax.annotation.Nullable;
+
 /**
- * Follow trajectory command.
+ * Follow trajectory command. By default, the control loop is executed at a fixed control rate. If a
+ * state update subscriber is given, the control loop is instead triggered by every new message of
+ * this subscriber, and is executed at the control rate only when no message arrives during one
+ * control period.
  *
  * @author Hoang Tung Dinh
  */
@@ -22,35 +30,60 @@ public abstract class AbstractFollowTrajectory implements Command {
   private final double controlRateInSeconds;
   private final double droneStateLifeDurationInSeconds;
   private final TimeProvider timeProvider;
+  @Nullable private final MessagesSubscriberService<?> stateUpdateSubscriber;
+  private final ControlLoopMetrics controlLoopMetrics = ControlLoopMetrics.create();
 
   protected AbstractFollowTrajectory(
       StateEstimator stateEstimator,
       double durationInSeconds,
       double controlRateInSeconds,
       double droneStateLifeDurationInSeconds,
-      TimeProvider timeProvider) {
+      TimeProvider timeProvider,
+      @Nullable MessagesSubscriberService<?> stateUpdateSubscriber) {
     this.stateEstimator = stateEstimator;
     this.durationInSeconds = durationInSeconds;
     this.controlRateInSeconds = controlRateInSeconds;
     this.droneStateLifeDurationInSeconds = droneStateLifeDurationInSeconds;
     this.timeProvider = timeProvider;
+    this.stateUpdateSubscriber = stateUpdateSubscriber;
   }
 
   @Override
   public final void execute() {
     logger.debug("Execute follow trajectory command.");
+    controlLoopMetrics.reset();
     final Runnable controlLoop = createControlLoop();
-    PeriodicTaskRunner.run(controlLoop, controlRateInSeconds, durationInSeconds);
+    if (stateUpdateSubscriber == null) {
+      PeriodicTaskRunner.run(controlLoop, controlRateInSeconds, durationInSeconds);
+    } else {
+      EventDrivenTaskRunner.run(
+          controlLoop, stateUpdateSubscriber, controlRateInSeconds, durationInSeconds);
+    }
+    logger.debug("Follow trajectory command finished. {}", controlLoopMetrics);
+  }
+
+  /**
+   * Gets the latency histograms of the control loop of this command. The histograms are cleared
+   * when the command is executed, and can be queried while the command is running.
+   *
+   * @return the metrics of the control loop
+   */
+  public final ControlLoopMetrics getControlLoopMetrics() {
+    return controlLoopMetrics;
   }
 
   protected abstract AbstractControlLoop createControlLoop();
 
-  protected abstract class AbstractControlLoop implements Runnable {
+  protected abstract class AbstractControlLoop implements ReleaseAwareTask {
     private final double startTimeInSeconds;
     private final int stateLifeDurationInNumberOfControlLoops;
     // assigned to 0
     private int counter;
     private double lastTimeStamp = Double.MIN_VALUE;
+    private long releaseTimeInNanoSeconds;
+    private boolean isReleased;
+    private long responseComputedInNanoSeconds;
+    private boolean isResponseComputedMarked;
 
     protected AbstractControlLoop() {
       this.startTimeInSeconds = timeProvider.getCurrentTimeSeconds();
@@ -58,12 +91,23 @@ public abstract class AbstractFollowTrajectory implements Command {
           (int) Math.ceil(droneStateLifeDurationInSeconds / controlRateInSeconds);
     }
 
+    @Override
+    public final void onRelease(long releaseTimeInNanoSeconds) {
+      this.releaseTimeInNanoSeconds = releaseTimeInNanoSeconds;
+      isReleased = true;
+    }
+
     @Override
     public void run() {
+      final long tickStartInNanoSeconds = System.nanoTime();
+      recordTickJitter(tickStartInNanoSeconds);
+
       logger.trace("Start a control loop.");
       final Optional<DroneStateStamped> currentState = stateEstimator.getCurrentState();
+      controlLoopMetrics.getStateFetch().record(System.nanoTime() - tickStartInNanoSeconds);
       if (!currentState.isPresent()) {
         logger.trace("Cannot get state. Haven't sent any velocity.");
+        controlLoopMetrics.getTotal().record(System.nanoTime() - tickStartInNanoSeconds);
         return;
       }
 
@@ -75,13 +119,60 @@ public abstract class AbstractFollowTrajectory implements Command {
         logger.trace("Got pose and velocity. Start computing the next velocity response.");
         final double currentTimeInSeconds =
             timeProvider.getCurrentTimeSeconds() - startTimeInSeconds;
+        isResponseComputedMarked = false;
+        final long responseStartInNanoSeconds = System.nanoTime();
         computeAndSendResponse(currentTimeInSeconds, currentState.get());
+        recordResponseTime(responseStartInNanoSeconds, System.nanoTime());
       }
+
+      controlLoopMetrics.getTotal().record(System.nanoTime() - tickStartInNanoSeconds);
     }
 
     protected abstract void computeAndSendResponse(
         double currentTimeInSeconds, DroneStateStamped currentState);
 
+    /**
+     * Marks the point in {@link #computeAndSendResponse(double, DroneStateStamped)} where the
+     * response has been computed and is about to be sent. The time before this point is recorded as
+     * controller time, the time after it as publish time. If this method is not called, the whole
+     * response time is recorded as controller time.
+     */
+    protected final void markResponseComputed() {
+      responseComputedInNanoSeconds = System.nanoTime();
+      isResponseComputedMarked = true;
+    }
+
+    /**
+     * Records the delay between the release of a tick by the scheduler and its start. The release
+     * time accounts for the releases skipped and for the period degraded by the overrun policy, so
+     * an overrun does not offset the jitter of the next ticks.
+     */
+    private void recordTickJitter(long tickStartInNanoSeconds) {
+      // triggered ticks have no schedule to deviate from
+      if (stateUpdateSubscriber != null || !isReleased) {
+        return;
+      }
+
+      controlLoopMetrics.getTickJitter().record(tickStartInNanoSeconds - releaseTimeInNanoSeconds);
+      isReleased = false;
+    }
+
+    private void recordResponseTime(
+        long responseStartInNanoSeconds, long responseEndInNanoSeconds) {
+      if (isResponseComputedMarked) {
+        controlLoopMetrics
+            .getController()
+            .record(responseComputedInNanoSeconds - responseStartInNanoSeconds);
+        controlLoopMetrics
+            .getPublish()
+            .record(responseEndInNanoSeconds - responseComputedInNanoSeconds);
+      } else {
+        controlLoopMetrics
+            .getController()
+            .record(responseEndInNanoSeconds - responseStartInNanoSeconds);
+      }
+    }
+
     private void setCounter(DroneStateStamped currentState) {
       final double currentTimeStamp = currentState.getTimeStampInSeconds();
       if (currentTimeStamp == lastTimeStamp) {
@@ -103,6 +194,7 @@ public abstract class AbstractFollowTrajectory implements Command {
     protected Double controlRateInSeconds;
     protected Double droneStateLifeDurationInSeconds;
     protected TimeProvider timeProvider;
+    @Nullable protected MessagesSubscriberService<?> stateUpdateSubscriber;
 
     protected AbstractBuilder() {
       controlRateInSeconds = DEFAULT_CONTROL_RATE_IN_SECONDS;
@@ -170,5 +262,20 @@ public abstract class AbstractFollowTrajectory implements Command {
       timeProvider = val;
       return self();
     }
+
+    /**
+     * Sets the {@code stateUpdateSubscriber} and returns a reference to this Builder so that the
+     * methods can be chained together. This parameter is optional. If it is set, the control loop
+     * is triggered by every new message of this subscriber, which should be the subscriber the
+     * state estimator gets its state from. The control rate is then only used as the fallback rate
+     * when no message arrives.
+     *
+     * @param val the {@code stateUpdateSubscriber} to set
+     * @return a reference to this Builder
+     */
+    public T withStateUpdateSubscriber(MessagesSubscriberService<?> val) {
+      stateUpdateSubscriber = val;
+      return self();
+    }
   }
 }
@@ -1,12 +1,19 @@
 package commands;
 
+import control.AllocationFreeVelocityController4d;
 import control.VelocityController4d;
 import control.dto.DroneStateStamped;
 import control.dto.InertialFrameVelocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
 import control.localization.StateEstimator;
+import services.AllocationFreeVelocity4dService;
 import services.Velocity4dService;
+import services.rossubscribers.MessagesSubscriberService;
 import time.TimeProvider;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -25,6 +32,7 @@ public abstract class AbstractParrotFollowTrajectory extends AbstractFollowTraje
       double controlRateInSeconds,
       double droneStateLifeDurationInSeconds,
       TimeProvider timeProvider,
+      @Nullable MessagesSubscriberService<?> stateUpdateSubscriber,
       VelocityController4d velocityController4d,
       Velocity4dService velocity4dService) {
     super(
@@ -32,7 +40,8 @@ public abstract class AbstractParrotFollowTrajectory extends AbstractFollowTraje
         durationInSeconds,
         controlRateInSeconds,
         droneStateLifeDurationInSeconds,
-        timeProvider);
+        timeProvider,
+        stateUpdateSubscriber);
 
     this.velocityController4d = velocityController4d;
     this.velocity4dService = velocity4dService;
@@ -43,17 +52,50 @@ public abstract class AbstractParrotFollowTrajectory extends AbstractFollowTraje
     return new ControlLoop();
   }
 
+  /**
+   * The control loop of the command. If both the controller and the velocity service support the
+   * allocation-free API, the state and the response are passed in holders which are reused at every
+   * tick.
+   */
   private final class ControlLoop extends AbstractFollowTrajectory.AbstractControlLoop {
+    private final MutablePose currentPose = MutablePose.create();
+    private final MutableVelocity currentVelocity = MutableVelocity.create();
+    private final MutableVelocity nextVelocity = MutableVelocity.create();
 
     private ControlLoop() {}
 
     @Override
     protected void computeAndSendResponse(
         double currentTimeInSeconds, DroneStateStamped currentState) {
-      final InertialFrameVelocity nextVelocity =
-          velocityController4d.computeNextResponse(
-              currentState.pose(), currentState.inertialFrameVelocity(), currentTimeInSeconds);
-      velocity4dService.sendInertialFrameVelocity(nextVelocity, currentState.pose());
+      if (velocityController4d instanceof AllocationFreeVelocityController4d
+          && velocity4dService instanceof AllocationFreeVelocity4dService) {
+        computeAndSendResponseWithoutAllocation(
+            (AllocationFreeVelocityController4d) velocityController4d,
+            (AllocationFreeVelocity4dService) velocity4dService,
+            currentTimeInSeconds,
+            currentState);
+      } else {
+        final InertialFrameVelocity nextResponse =
+            velocityController4d.computeNextResponse(
+                currentState.pose(), currentState.inertialFrameVelocity(), currentTimeInSeconds);
+        markResponseComputed();
+        velocity4dService.sendInertialFrameVelocity(nextResponse, currentState.pose());
+      }
+    }
+
+    private void computeAndSendResponseWithoutAllocation(
+        AllocationFreeVelocityController4d controller,
+        AllocationFreeVelocity4dService service,
+        double currentTimeInSeconds,
+        DroneStateStamped currentState) {
+      final InertialFrameVelocity velocity = currentState.inertialFrameVelocity();
+      currentPose.set(currentState.pose());
+      currentVelocity.set(
+          velocity.linearX(), velocity.linearY(), velocity.linearZ(), velocity.angularZ());
+      controller.computeNextResponse(
+          currentPose, currentVelocity, currentTimeInSeconds, nextVelocity);
+      markResponseComputed();
+      service.sendInertialFrameVelocity(nextVelocity, currentPose);
     }
   }
 
@@ -0,0 +1,70 @@
+package commands;
+
+import utils.metrics.LatencyHistogram;
+
+/**
+ * Latency and jitter histograms of the ticks of a control loop. Each tick is split into the
+ * following stages:
+ *
+ * <ul>
+ *   <li>tick jitter: the delay between the scheduled release of the tick and its actual start,
+ *   <li>state fetch: the time spent in getting the current state of the drone,
+ *   <li>controller: the time spent in computing the next response,
+ *   <li>publish: the time spent in sending the response to the drone,
+ *   <li>total: the time between the start and the end of the tick.
+ * </ul>
+ *
+ * <p>The histograms are written only by the control loop and can be read at any time by other
+ * threads.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class ControlLoopMetrics {
+
+  private final LatencyHistogram tickJitter = LatencyHistogram.create("tick jitter");
+  private final LatencyHistogram stateFetch = LatencyHistogram.create("state fetch");
+  private final LatencyHistogram controller = LatencyHistogram.create("controller");
+  private final LatencyHistogram publish = LatencyHistogram.create("publish");
+  private final LatencyHistogram total = LatencyHistogram.create("total");
+
+  private ControlLoopMetrics() {}
+
+  public static ControlLoopMetrics create() {
+    return new ControlLoopMetrics();
+  }
+
+  public LatencyHistogram getTickJitter() {
+    return tickJitter;
+  }
+
+  public LatencyHistogram getStateFetch() {
+    return stateFetch;
+  }
+
+  public LatencyHistogram getController() {
+    return controller;
+  }
+
+  public LatencyHistogram getPublish() {
+    return publish;
+  }
+
+  public LatencyHistogram getTotal() {
+    return total;
+  }
+
+  void reset() {
+    tickJitter.reset();
+    stateFetch.reset();
+    controller.reset();
+    publish.reset();
+    total.reset();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "Control loop metrics:%n  %s%n  %s%n  %s%n  %s%n  %s",
+        tickJitter, stateFetch, controller, publish, total);
+  }
+}
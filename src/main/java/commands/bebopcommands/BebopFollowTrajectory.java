@@ -4,8 +4,11 @@ import commands.AbstractParrotFollowTrajectory;
 import control.VelocityController4d;
 import control.localization.StateEstimator;
 import services.Velocity4dService;
+import services.rossubscribers.MessagesSubscriberService;
 import time.TimeProvider;
 
+import javax.annotation.Nullable;
+
 /**
  * Follow trajectory command for bebop.
  *
@@ -19,6 +22,7 @@ public final class BebopFollowTrajectory extends AbstractParrotFollowTrajectory
       double controlRateInSeconds,
       double droneStateLifeDurationInSeconds,
       TimeProvider timeProvider,
+      @Nullable MessagesSubscriberService<?> stateUpdateSubscriber,
       VelocityController4d velocityController4d,
       Velocity4dService velocity4dService) {
     super(
@@ -27,6 +31,7 @@ public final class BebopFollowTrajectory extends AbstractParrotFollowTrajectory
         controlRateInSeconds,
         droneStateLifeDurationInSeconds,
         timeProvider,
+        stateUpdateSubscriber,
         velocityController4d,
         velocity4dService);
   }
@@ -63,6 +68,7 @@ public final class BebopFollowTrajectory extends AbstractParrotFollowTrajectory
           controlRateInSeconds,
           droneStateLifeDurationInSeconds,
           timeProvider,
+          stateUpdateSubscriber,
           velocityController4d,
           velocity4dService);
     }
@@ -6,8 +6,11 @@ import control.Trajectory1d;
 import control.dto.DroneStateStamped;
 import control.localization.StateEstimator;
 import services.Velocity2dService;
+import services.rossubscribers.MessagesSubscriberService;
 import time.TimeProvider;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -31,6 +34,7 @@ public final class CratesFollowTrajectoryVel2d extends AbstractFollowTrajectory
       double controlRateInSeconds,
       double droneStateLifeDurationInSeconds,
       TimeProvider timeProvider,
+      @Nullable MessagesSubscriberService<?> stateUpdateSubscriber,
       Velocity2dService velocity2dService,
       LinearPidController1d pidControllerLinearX,
       LinearPidController1d pidControllerLinearY,
@@ -41,7 +45,8 @@ public final class CratesFollowTrajectoryVel2d extends AbstractFollowTrajectory
         durationInSeconds,
         controlRateInSeconds,
         droneStateLifeDurationInSeconds,
-        timeProvider);
+        timeProvider,
+        stateUpdateSubscriber);
     this.velocity2dService = velocity2dService;
     this.pidControllerLinearX = pidControllerLinearX;
     this.pidControllerLinearY = pidControllerLinearY;
@@ -79,6 +84,7 @@ public final class CratesFollowTrajectoryVel2d extends AbstractFollowTrajectory
               currentState.inertialFrameVelocity().linearY(),
               currentTimeInSeconds);
 
+      markResponseComputed();
       velocity2dService.sendVelocityHeightMessage(
           nextVelocityX,
           nextVelocityY,
@@ -186,6 +192,7 @@ public final class CratesFollowTrajectoryVel2d extends AbstractFollowTrajectory
           controlRateInSeconds,
           droneStateLifeDurationInSeconds,
           timeProvider,
+          stateUpdateSubscriber,
           velocity2dService,
           pidControllerLinearX,
           pidControllerLinearY,
@@ -6,8 +6,11 @@ import control.Trajectory1d;
 import control.dto.DroneStateStamped;
 import control.localization.StateEstimator;
 import services.Velocity3dService;
+import services.rossubscribers.MessagesSubscriberService;
 import time.TimeProvider;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -31,6 +34,7 @@ public final class CratesFollowTrajectoryVel3d extends AbstractFollowTrajectory
       double controlRateInSeconds,
       double droneStateLifeDurationInSeconds,
       TimeProvider timeProvider,
+      @Nullable MessagesSubscriberService<?> stateUpdateSubscriber,
       Velocity3dService velocity3dService,
       LinearPidController1d pidControllerLinearX,
       LinearPidController1d pidControllerLinearY,
@@ -41,7 +45,8 @@ public final class CratesFollowTrajectoryVel3d extends AbstractFollowTrajectory
         durationInSeconds,
         controlRateInSeconds,
         droneStateLifeDurationInSeconds,
-        timeProvider);
+        timeProvider,
+        stateUpdateSubscriber);
     this.velocity3dService = velocity3dService;
     this.pidControllerLinearX = pidControllerLinearX;
     this.pidControllerLinearY = pidControllerLinearY;
@@ -86,6 +91,7 @@ public final class CratesFollowTrajectoryVel3d extends AbstractFollowTrajectory
               currentState.inertialFrameVelocity().linearZ(),
               currentTimeInSeconds);
 
+      markResponseComputed();
       velocity3dService.sendVelocity3dMessage(
           nextVelocityX,
           nextVelocityY,
@@ -193,6 +199,7 @@ public final class CratesFollowTrajectoryVel3d extends AbstractFollowTrajectory
           controlRateInSeconds,
           droneStateLifeDurationInSeconds,
           timeProvider,
+          stateUpdateSubscriber,
           velocity3dService,
           pidControllerLinearX,
           pidControllerLinearY,
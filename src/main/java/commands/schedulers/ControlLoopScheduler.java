@@ -0,0 +1,385 @@
+package commands.schedulers;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A scheduler shared by all periodic control loops of the process. Instead of one thread per
+ * command, all loops are multiplexed on a small pool of daemon threads. Each loop has an explicit
+ * period and deadline, and an {@link OverrunPolicy} which defines what happens when a tick finishes
+ * after its deadline.
+ *
+ * <p>A loop reschedules itself after each tick, so a slow tick never causes concurrent executions
+ * of the same loop. A {@link ReleaseAwareTask} is told the release time of every tick.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class ControlLoopScheduler {
+
+  private static final Logger logger = LoggerFactory.getLogger(ControlLoopScheduler.class);
+
+  private static final int DEFAULT_NUMBER_OF_THREADS =
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+  private static final int MAX_DEGRADATION_FACTOR = 8;
+  private static final int NUMBER_OF_ON_TIME_TICKS_TO_RECOVER = 10;
+
+  private final ScheduledThreadPoolExecutor executor;
+  private final Set<ScheduledLoop> activeLoops =
+      Collections.newSetFromMap(new ConcurrentHashMap<ScheduledLoop, Boolean>());
+
+  private ControlLoopScheduler(int numberOfThreads) {
+    checkArgument(
+        numberOfThreads >= 1,
+        String.format("Number of threads must be at least 1, but it is %d.", numberOfThreads));
+    executor =
+        new ScheduledThreadPoolExecutor(
+            numberOfThreads,
+            new ThreadFactoryBuilder()
+                .setNameFormat("control-loop-scheduler-%d")
+                .setDaemon(true)
+                .build());
+    executor.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Creates a new scheduler with its own thread pool. Most users should use {@link #getDefault()}
+   * instead.
+   *
+   * @param numberOfThreads the number of threads executing the loops
+   * @return an instance of this class
+   */
+  public static ControlLoopScheduler create(int numberOfThreads) {
+    return new ControlLoopScheduler(numberOfThreads);
+  }
+
+  /**
+   * Gets the process-wide scheduler. Its pool has one thread per available processor, up to four
+   * threads.
+   *
+   * @return the process-wide scheduler
+   */
+  public static ControlLoopScheduler getDefault() {
+    return DefaultSchedulerHolder.INSTANCE;
+  }
+
+  private static long toNanos(double timeInSeconds) {
+    return (long) (timeInSeconds * 1.0e9);
+  }
+
+  /**
+   * Registers a periodic loop. The first tick is released immediately.
+   *
+   * @param task the task executed at every tick
+   * @param periodInSeconds the nominal period of the loop
+   * @param deadlineInSeconds the maximum time between the release of a tick and its completion
+   * @param overrunPolicy the policy applied when a tick misses its deadline
+   * @return a handle to control and monitor the registered loop
+   */
+  public ScheduledLoop schedule(
+      Runnable task,
+      double periodInSeconds,
+      double deadlineInSeconds,
+      OverrunPolicy overrunPolicy) {
+    checkArgument(
+        periodInSeconds > 0,
+        String.format("Period must be a positive value, but it is %f", periodInSeconds));
+    checkArgument(
+        deadlineInSeconds > 0,
+        String.format("Deadline must be a positive value, but it is %f", deadlineInSeconds));
+    checkState(!executor.isShutdown(), "The scheduler has been shut down.");
+
+    final ScheduledLoop loop =
+        new ScheduledLoop(
+            task, toNanos(periodInSeconds), toNanos(deadlineInSeconds), overrunPolicy);
+    activeLoops.add(loop);
+    loop.start();
+    return loop;
+  }
+
+  /**
+   * Gets the number of loops which are currently registered and not yet terminated.
+   *
+   * @return the number of active loops
+   */
+  public int getNumberOfActiveLoops() {
+    return activeLoops.size();
+  }
+
+  /**
+   * Cancels all registered loops and releases the threads of this scheduler. No loop can be
+   * registered after this method is called.
+   */
+  public void shutdown() {
+    for (final ScheduledLoop loop : activeLoops) {
+      loop.cancel();
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Blocks until all threads of this scheduler have terminated after a {@link #shutdown()}, or the
+   * timeout occurs.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the time unit of the timeout argument
+   * @return true if the scheduler terminated and false if the timeout elapsed before termination
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executor.awaitTermination(timeout, unit);
+  }
+
+  private static final class DefaultSchedulerHolder {
+    private static final ControlLoopScheduler INSTANCE =
+        new ControlLoopScheduler(DEFAULT_NUMBER_OF_THREADS);
+
+    private DefaultSchedulerHolder() {}
+  }
+
+  /** A loop registered to a {@link ControlLoopScheduler}. */
+  public final class ScheduledLoop {
+    private final Runnable task;
+    @Nullable private final ReleaseAwareTask releaseAwareTask;
+    private final Runnable tickRunner =
+        new Runnable() {
+          @Override
+          public void run() {
+            executeTick();
+          }
+        };
+    private final long nominalPeriodInNanoSeconds;
+    private final long deadlineInNanoSeconds;
+    private final OverrunPolicy overrunPolicy;
+    private final CountDownLatch terminationLatch = new CountDownLatch(1);
+    private final AtomicLong numberOfTicks = new AtomicLong();
+    private final AtomicLong numberOfOverruns = new AtomicLong();
+    private final AtomicLong numberOfSkippedReleases = new AtomicLong();
+
+    // only accessed by the thread executing the current tick
+    private long releaseTimeInNanoSeconds;
+    private int numberOfConsecutiveOnTimeTicks;
+
+    private volatile long currentPeriodInNanoSeconds;
+    private volatile boolean cancelled;
+    @Nullable private volatile Throwable failure;
+    @Nullable private Future<?> nextRun;
+    // guarded by this
+    private boolean tickInProgress;
+
+    private ScheduledLoop(
+        Runnable task,
+        long nominalPeriodInNanoSeconds,
+        long deadlineInNanoSeconds,
+        OverrunPolicy overrunPolicy) {
+      this.task = task;
+      this.releaseAwareTask = task instanceof ReleaseAwareTask ? (ReleaseAwareTask) task : null;
+      this.nominalPeriodInNanoSeconds = nominalPeriodInNanoSeconds;
+      this.deadlineInNanoSeconds = deadlineInNanoSeconds;
+      this.overrunPolicy = overrunPolicy;
+      this.currentPeriodInNanoSeconds = nominalPeriodInNanoSeconds;
+    }
+
+    private synchronized void start() {
+      releaseTimeInNanoSeconds = System.nanoTime();
+      submit(0);
+    }
+
+    private void executeTick() {
+      synchronized (this) {
+        if (cancelled) {
+          terminate();
+          return;
+        }
+        tickInProgress = true;
+      }
+
+      boolean failed = true;
+      try {
+        if (releaseAwareTask != null) {
+          releaseAwareTask.onRelease(releaseTimeInNanoSeconds);
+        }
+        task.run();
+        numberOfTicks.incrementAndGet();
+        failed = false;
+      } catch (Throwable e) {
+        logger.error("A control loop threw an exception. Stop executing the loop.", e);
+        failure = e;
+      }
+
+      synchronized (this) {
+        tickInProgress = false;
+        // a loop cancelled during the tick is only terminated once the tick has completed
+        if (failed || cancelled) {
+          terminate();
+          return;
+        }
+      }
+
+      scheduleNextTick(System.nanoTime());
+    }
+
+    private void scheduleNextTick(long nowInNanoSeconds) {
+      final boolean isOverrun = nowInNanoSeconds - releaseTimeInNanoSeconds > deadlineInNanoSeconds;
+      if (isOverrun) {
+        numberOfOverruns.incrementAndGet();
+      }
+
+      switch (overrunPolicy) {
+        case SKIP:
+          releaseTimeInNanoSeconds += currentPeriodInNanoSeconds;
+          if (releaseTimeInNanoSeconds <= nowInNanoSeconds) {
+            final long missedReleases =
+                (nowInNanoSeconds - releaseTimeInNanoSeconds) / currentPeriodInNanoSeconds + 1;
+            releaseTimeInNanoSeconds += missedReleases * currentPeriodInNanoSeconds;
+            numberOfSkippedReleases.addAndGet(missedReleases);
+          }
+          break;
+        case CATCH_UP:
+          releaseTimeInNanoSeconds += currentPeriodInNanoSeconds;
+          break;
+        case DEGRADE_RATE:
+          adaptPeriod(isOverrun);
+          releaseTimeInNanoSeconds =
+              Math.max(releaseTimeInNanoSeconds + currentPeriodInNanoSeconds, nowInNanoSeconds);
+          break;
+        default:
+          throw new IllegalStateException("Unknown overrun policy: " + overrunPolicy);
+      }
+
+      synchronized (this) {
+        if (cancelled) {
+          terminate();
+        } else {
+          submit(Math.max(0, releaseTimeInNanoSeconds - nowInNanoSeconds));
+        }
+      }
+    }
+
+    private void adaptPeriod(boolean isOverrun) {
+      if (isOverrun) {
+        numberOfConsecutiveOnTimeTicks = 0;
+        currentPeriodInNanoSeconds =
+            Math.min(
+                currentPeriodInNanoSeconds * 2,
+                nominalPeriodInNanoSeconds * MAX_DEGRADATION_FACTOR);
+      } else if (currentPeriodInNanoSeconds > nominalPeriodInNanoSeconds) {
+        numberOfConsecutiveOnTimeTicks++;
+        if (numberOfConsecutiveOnTimeTicks >= NUMBER_OF_ON_TIME_TICKS_TO_RECOVER) {
+          numberOfConsecutiveOnTimeTicks = 0;
+          currentPeriodInNanoSeconds =
+              Math.max(currentPeriodInNanoSeconds / 2, nominalPeriodInNanoSeconds);
+        }
+      }
+    }
+
+    private void submit(long delayInNanoSeconds) {
+      try {
+        nextRun = executor.schedule(tickRunner, delayInNanoSeconds, TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException e) {
+        logger.debug("The scheduler has been shut down. Stop executing the loop.");
+        terminate();
+      }
+    }
+
+    private void terminate() {
+      activeLoops.remove(this);
+      terminationLatch.countDown();
+    }
+
+    /**
+     * Cancels this loop. A tick which is currently being executed is not interrupted, but no tick
+     * will be released after it. The loop terminates when the tick in progress has completed.
+     */
+    public synchronized void cancel() {
+      cancelled = true;
+      // the tick in progress terminates the loop when it completes
+      if (!tickInProgress && nextRun != null && nextRun.cancel(false)) {
+        terminate();
+      }
+    }
+
+    /**
+     * Blocks until this loop has terminated (because it was cancelled or because its task threw an
+     * exception), or the timeout occurs.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @return true if the loop terminated and false if the timeout elapsed before termination
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return terminationLatch.await(timeout, unit);
+    }
+
+    /**
+     * Checks whether this loop has terminated.
+     *
+     * @return true if no tick of this loop will be executed anymore
+     */
+    public boolean isTerminated() {
+      return terminationLatch.getCount() == 0;
+    }
+
+    /**
+     * Gets the exception which terminated this loop.
+     *
+     * @return the exception thrown by the task, absent if the task never threw an exception
+     */
+    public Optional<Throwable> getFailure() {
+      return Optional.fromNullable(failure);
+    }
+
+    /**
+     * Gets the number of completed ticks.
+     *
+     * @return the number of completed ticks
+     */
+    public long getNumberOfTicks() {
+      return numberOfTicks.get();
+    }
+
+    /**
+     * Gets the number of ticks which finished after their deadline.
+     *
+     * @return the number of overrun ticks
+     */
+    public long getNumberOfOverruns() {
+      return numberOfOverruns.get();
+    }
+
+    /**
+     * Gets the number of releases dropped by the {@link OverrunPolicy#SKIP} policy.
+     *
+     * @return the number of skipped releases
+     */
+    public long getNumberOfSkippedReleases() {
+      return numberOfSkippedReleases.get();
+    }
+
+    /**
+     * Gets the period currently applied to this loop. It differs from the nominal period only with
+     * the {@link OverrunPolicy#DEGRADE_RATE} policy.
+     *
+     * @return the current period in seconds
+     */
+    public double getCurrentPeriodInSeconds() {
+      return currentPeriodInNanoSeconds / 1.0e9;
+    }
+  }
+}
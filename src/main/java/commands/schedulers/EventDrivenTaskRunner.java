@@ -0,0 +1,110 @@
+package commands.schedulers;
+
+import org.ros.internal.message.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import services.rossubscribers.MessageObserver;
+import services.rossubscribers.MessagesSubscriberService;
+
+import javax.annotation.Nullable;
+
+/**
+ * Runs a java task every time a new message arrives at a subscriber, so that the task reacts to the
+ * message without waiting for the next period of a fixed-rate loop. The task is executed in the
+ * thread delivering the message. If no message arrives during one fallback period, the task is
+ * executed at the fallback rate on the {@link ControlLoopScheduler} until messages arrive again.
+ *
+ * <p>The executions of the task are serialized, and every execution happens-before the next one.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class EventDrivenTaskRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(EventDrivenTaskRunner.class);
+
+  private EventDrivenTaskRunner() {}
+
+  /**
+   * Runs a java task triggered by the messages of a subscriber. This method blocks until the
+   * duration has elapsed, and returns only after the last execution of the task has completed.
+   *
+   * @param task the {@link Runnable} task
+   * @param triggerSubscriber the subscriber whose new messages trigger the task
+   * @param fallbackRateInSeconds the rate of executing the task when no message arrives
+   * @param durationInSeconds the duration in which the task will be executed
+   * @param <T> the type of the messages
+   */
+  public static <T extends Message> void run(
+      Runnable task,
+      MessagesSubscriberService<T> triggerSubscriber,
+      double fallbackRateInSeconds,
+      double durationInSeconds) {
+    final TriggeredTask<T> triggeredTask =
+        new TriggeredTask<>(task, (long) (fallbackRateInSeconds * 1.0e9));
+    triggerSubscriber.registerMessageObserver(triggeredTask);
+    try {
+      PeriodicTaskRunner.run(triggeredTask, fallbackRateInSeconds, durationInSeconds);
+    } finally {
+      triggerSubscriber.removeMessageObserver(triggeredTask);
+      triggeredTask.stop();
+    }
+  }
+
+  /**
+   * Executes the task on every new message, and, as the periodic fallback, only if no message
+   * arrived during the last fallback period.
+   */
+  private static final class TriggeredTask<T extends Message>
+      implements MessageObserver<T>, Runnable {
+    private final Runnable task;
+    private final long fallbackPeriodInNanoSeconds;
+
+    // guarded by this
+    private long lastTriggerTimeInNanoSeconds;
+    private boolean hasBeenTriggered;
+    private boolean stopped;
+    @Nullable private RuntimeException failure;
+
+    private TriggeredTask(Runnable task, long fallbackPeriodInNanoSeconds) {
+      this.task = task;
+      this.fallbackPeriodInNanoSeconds = fallbackPeriodInNanoSeconds;
+    }
+
+    @Override
+    public synchronized void onNewMessage(T message) {
+      if (stopped || failure != null) {
+        return;
+      }
+
+      lastTriggerTimeInNanoSeconds = System.nanoTime();
+      hasBeenTriggered = true;
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        logger.debug("A triggered execution threw an exception. Stop executing the task.", e);
+        failure = e;
+      }
+    }
+
+    @Override
+    public synchronized void run() {
+      if (failure != null) {
+        // terminates the fallback loop
+        throw new IllegalStateException("A triggered execution of the task failed.", failure);
+      }
+
+      if (stopped
+          || hasBeenTriggered
+              && System.nanoTime() - lastTriggerTimeInNanoSeconds < fallbackPeriodInNanoSeconds) {
+        return;
+      }
+
+      logger.trace("No new message during the last period. Execute the fallback.");
+      task.run();
+    }
+
+    private synchronized void stop() {
+      stopped = true;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package commands.schedulers;
+
+/**
+ * Defines how a loop registered to the {@link ControlLoopScheduler} behaves when one of its ticks
+ * finishes after its deadline.
+ *
+ * @author Hoang Tung Dinh
+ */
+public enum OverrunPolicy {
+  /**
+   * The missed releases are dropped. The next tick is released at the first point of the period
+   * grid that is still in the future. This is the default policy for control loops, where a late
+   * response is worthless once a newer one can be computed.
+   */
+  SKIP,
+
+  /**
+   * The missed releases are executed back to back until the loop is on schedule again. This is the
+   * behavior of {@link java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate}.
+   */
+  CATCH_UP,
+
+  /**
+   * The period of the loop is doubled (up to a bounded factor of the nominal period) every time a
+   * tick overruns its deadline, and is halved again after a number of consecutive on-time ticks.
+   */
+  DEGRADE_RATE
+}
@@ -1,13 +1,10 @@
 package commands.schedulers;
 
+import com.google.common.base.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 /** @author Hoang Tung Dinh */
 public final class PeriodicTaskRunner {
@@ -17,36 +14,53 @@ public final class PeriodicTaskRunner {
   private PeriodicTaskRunner() {}
 
   /**
-   * Runs a java task. Note that this task is a {@link Runnable} object, and is different from the
-   * {@link taskexecutor.Task} which defines a list of drone's commands.
+   * Runs a java task on the process-wide {@link ControlLoopScheduler} with the {@link
+   * OverrunPolicy#SKIP} policy. Note that this task is a {@link Runnable} object, and is different
+   * from the {@link taskexecutor.Task} which defines a list of drone's commands.
    *
    * @param task the {@link Runnable} task
    * @param rateInSeconds the rate of executing this task
    * @param durationInSeconds the duration in which the task will be executed
    */
   public static void run(Runnable task, double rateInSeconds, double durationInSeconds) {
-    final long initialDelay = 0;
-    final long rateInMilliSeconds = (long) (rateInSeconds * 1000);
+    run(task, rateInSeconds, durationInSeconds, OverrunPolicy.SKIP);
+  }
 
-    final Future<?> future =
-        Executors.newSingleThreadScheduledExecutor()
-            .scheduleAtFixedRate(task, initialDelay, rateInMilliSeconds, TimeUnit.MILLISECONDS);
+  /**
+   * Runs a java task on the process-wide {@link ControlLoopScheduler}. The deadline of each
+   * execution equals the rate of the task. This method blocks until the duration has elapsed, and
+   * returns only after the last execution of the task has completed.
+   *
+   * @param task the {@link Runnable} task
+   * @param rateInSeconds the rate of executing this task
+   * @param durationInSeconds the duration in which the task will be executed
+   * @param overrunPolicy the policy applied when an execution of the task misses its deadline
+   */
+  public static void run(
+      Runnable task, double rateInSeconds, double durationInSeconds, OverrunPolicy overrunPolicy) {
+    final ControlLoopScheduler.ScheduledLoop loop =
+        ControlLoopScheduler.getDefault()
+            .schedule(task, rateInSeconds, rateInSeconds, overrunPolicy);
 
     final long durationInMilliSeconds = (long) (durationInSeconds * 1000);
+    final long rateInMilliSeconds = (long) Math.ceil(rateInSeconds * 1000);
 
     try {
-      future.get(durationInMilliSeconds, TimeUnit.MILLISECONDS);
+      if (loop.awaitTermination(durationInMilliSeconds, TimeUnit.MILLISECONDS)) {
+        final Optional<Throwable> failure = loop.getFailure();
+        if (failure.isPresent()) {
+          logger.debug("An execution exception occurs.", failure.get());
+        }
+      } else {
+        logger.debug("The executing task is run out of time. Stop executing the task");
+        loop.cancel();
+        // wait for the execution in progress, so that it cannot interfere with the next command
+        loop.awaitTermination(rateInMilliSeconds, TimeUnit.MILLISECONDS);
+      }
     } catch (InterruptedException ignored) {
       logger.debug("The executing task is interrupted. Stop executing the task.");
-      // the task is cancelled if time ran out or the current thread is interrupted while
-      // waiting.
-      future.cancel(true);
+      loop.cancel();
       Thread.currentThread().interrupt();
-    } catch (TimeoutException ignored) {
-      logger.debug("The executing task is run out of time. Stop executing the task");
-      future.cancel(true);
-    } catch (ExecutionException e) {
-      logger.debug("An execution exception occurs.", e);
     }
   }
 }
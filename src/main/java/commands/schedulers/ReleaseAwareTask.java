@@ -0,0 +1,19 @@
+package commands.schedulers;
+
+/**
+ * A periodic task which is told when each of its executions was released by the {@link
+ * ControlLoopScheduler}. The release time is the point of the schedule the execution belongs to,
+ * after the releases dropped or delayed by the {@link OverrunPolicy}, so the delay between the
+ * release and the start of the execution is the jitter of the loop.
+ *
+ * @author Hoang Tung Dinh
+ */
+public interface ReleaseAwareTask extends Runnable {
+  /**
+   * Called by the scheduler right before {@link #run()}, on the thread executing the task.
+   *
+   * @param releaseTimeInNanoSeconds the {@link System#nanoTime()} at which the execution was
+   *     released
+   */
+  void onRelease(long releaseTimeInNanoSeconds);
+}
@@ -0,0 +1,32 @@
+package control;
+
+import control.dto.InertialFrameVelocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+import control.dto.Pose;
+
+/**
+ * A base class of the {@link AllocationFreeVelocityController4d}s which implements the immutable
+ * API as an adapter of the allocation-free one.
+ *
+ * @author Hoang Tung Dinh
+ */
+abstract class AbstractAllocationFreeVelocityController4d
+    implements AllocationFreeVelocityController4d {
+
+  @Override
+  public final InertialFrameVelocity computeNextResponse(
+      Pose currentPose, InertialFrameVelocity currentVelocity, double currentTimeInSeconds) {
+    final MutablePose pose = MutablePose.create();
+    pose.set(currentPose);
+    final MutableVelocity velocity = MutableVelocity.create();
+    velocity.set(
+        currentVelocity.linearX(),
+        currentVelocity.linearY(),
+        currentVelocity.linearZ(),
+        currentVelocity.angularZ());
+    final MutableVelocity nextResponse = MutableVelocity.create();
+    computeNextResponse(pose, velocity, currentTimeInSeconds, nextResponse);
+    return nextResponse.toVelocity();
+  }
+}
@@ -0,0 +1,34 @@
+package control;
+
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+
+/**
+ * A {@link VelocityController4d} which can compute its response without allocating objects. The
+ * state of the drone and the response are passed in reusable {@link MutablePose} and {@link
+ * MutableVelocity} holders instead of value objects, so that a control loop running at a high rate
+ * does not produce garbage at every tick.
+ *
+ * <p>Implementations provide {@link VelocityController4d#computeNextResponse(control.dto.Pose,
+ * control.dto.InertialFrameVelocity, double)} as an adapter of the allocation-free method. Both
+ * methods update the same internal state of the controller.
+ *
+ * @author Hoang Tung Dinh
+ */
+public interface AllocationFreeVelocityController4d extends VelocityController4d {
+  /**
+   * Compute the next velocity (response) of the control loop and writes it to {@code nextResponse}.
+   *
+   * @param currentPose the current pose of the drone
+   * @param currentVelocity the current velocity of the drone in the inertial frame
+   * @param currentTimeInSeconds the current time which will be used to get the desired position of
+   *     the drone
+   * @param nextResponse the output holder of the next velocity (response) of the drone in the
+   *     inertial frame
+   */
+  void computeNextResponse(
+      MutablePose currentPose,
+      MutableVelocity currentVelocity,
+      double currentTimeInSeconds,
+      MutableVelocity nextResponse);
+}
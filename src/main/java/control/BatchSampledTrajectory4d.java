@@ -0,0 +1,37 @@
+package control;
+
+/**
+ * A {@link Trajectory4d} which can evaluate its positions for many points in time at once. The
+ * positions of a uniform time grid are written to caller-provided arrays, so that dense sampling,
+ * e.g. for validation, collision checking or plotting, neither makes four virtual calls per point
+ * in time nor allocates a point per sample. Implementations evaluate the terms shared by the axes,
+ * such as the sine and cosine of a phase, only once per sample.
+ *
+ * <p>Use {@link applications.trajectory.TrajectoryUtils#sampleTrajectory(Trajectory4d, double,
+ * double, double[], double[], double[], double[])} to sample any trajectory, whether it implements
+ * this interface or not.
+ *
+ * @author Hoang Tung Dinh
+ */
+public interface BatchSampledTrajectory4d extends Trajectory4d {
+  /**
+   * Evaluates the positions of this trajectory at the points in time {@code startTimeInSeconds + i
+   * * timeStepInSeconds}, for every index {@code i} of the arrays. The values written at index
+   * {@code i} are equal to those returned by the methods of {@link Trajectory4d} for the same
+   * point in time.
+   *
+   * @param startTimeInSeconds the first point in time to be sampled
+   * @param timeStepInSeconds the time between two consecutive samples
+   * @param x the output array of the positions along the x axis
+   * @param y the output array of the positions along the y axis, as long as {@code x}
+   * @param z the output array of the positions along the z axis, as long as {@code x}
+   * @param yaw the output array of the yaw angles, as long as {@code x}
+   */
+  void getDesiredPositions(
+      double startTimeInSeconds,
+      double timeStepInSeconds,
+      double[] x,
+      double[] y,
+      double[] z,
+      double[] yaw);
+}
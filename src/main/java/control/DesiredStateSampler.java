@@ -0,0 +1,166 @@
+package control;
+
+import control.dto.DesiredState;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+
+import javax.annotation.Nullable;
+
+/**
+ * Samples the desired state (pose and velocity) of a {@link Trajectory4d}, and keeps the two most
+ * recent samples. All consumers of the desired state in one control loop (the controller, the
+ * filters and the logger) should share one sampler, so that the trajectory is evaluated only once
+ * per point in time and every consumer sees the same snapshot.
+ *
+ * <p>If the trajectory is a {@link DifferentiableTrajectory4d}, the desired velocity is its closed
+ * form derivative. Otherwise, it is the forward difference of the desired position over {@value
+ * #DELTA_TIME_IN_SECONDS} seconds, as in {@link LinearPidController1d}.
+ *
+ * <p>The samples are kept in reusable holders, so that sampling through {@link #sample(double,
+ * MutablePose, MutableVelocity)} does not allocate objects.
+ *
+ * <p>This class is not thread-safe. It is meant to be used by a single control loop.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class DesiredStateSampler {
+
+  static final double DELTA_TIME_IN_SECONDS = 0.1;
+
+  private final Trajectory4d trajectory;
+  private Sample mostRecentSample = new Sample();
+  private Sample secondMostRecentSample = new Sample();
+
+  private DesiredStateSampler(Trajectory4d trajectory) {
+    this.trajectory = trajectory;
+  }
+
+  /**
+   * Creates a sampler of a trajectory.
+   *
+   * @param trajectory the trajectory to be sampled
+   * @return an instance of this class
+   */
+  public static DesiredStateSampler create(Trajectory4d trajectory) {
+    return new DesiredStateSampler(trajectory);
+  }
+
+  /**
+   * Gets the sampled trajectory.
+   *
+   * @return the trajectory of this sampler
+   */
+  public Trajectory4d getTrajectory() {
+    return trajectory;
+  }
+
+  /**
+   * Gets the desired state at a point in time. The trajectory is evaluated only if the point in
+   * time differs from the ones of the two most recent samples.
+   *
+   * @param timeInSeconds the point in time
+   * @return the desired state at the point in time
+   */
+  public DesiredState sample(double timeInSeconds) {
+    return getSample(timeInSeconds).toDesiredState();
+  }
+
+  /**
+   * Gets the desired state at a point in time without allocating objects. The trajectory is
+   * evaluated only if the point in time differs from the ones of the two most recent samples.
+   *
+   * @param timeInSeconds the point in time
+   * @param desiredPose the output holder of the desired pose
+   * @param desiredVelocity the output holder of the desired velocity
+   */
+  public void sample(
+      double timeInSeconds, MutablePose desiredPose, MutableVelocity desiredVelocity) {
+    final Sample sample = getSample(timeInSeconds);
+    desiredPose.set(sample.pose);
+    desiredVelocity.set(sample.velocity);
+  }
+
+  private Sample getSample(double timeInSeconds) {
+    if (mostRecentSample.isAt(timeInSeconds)) {
+      return mostRecentSample;
+    }
+
+    // the least recent sample is either the requested one or the one to be overwritten
+    final Sample sample = secondMostRecentSample;
+    secondMostRecentSample = mostRecentSample;
+    mostRecentSample = sample;
+    if (!sample.isAt(timeInSeconds)) {
+      // keep the slot invalid if evaluating the trajectory fails
+      sample.isValid = false;
+      computeDesiredState(timeInSeconds, sample);
+    }
+    return sample;
+  }
+
+  private void computeDesiredState(double timeInSeconds, Sample sample) {
+    if (trajectory instanceof DifferentiableTrajectory4d) {
+      computeDesiredState((DifferentiableTrajectory4d) trajectory, timeInSeconds, sample);
+      return;
+    }
+
+    final double nextTimeInSeconds = timeInSeconds + DELTA_TIME_IN_SECONDS;
+    final double x = trajectory.getDesiredPositionX(timeInSeconds);
+    final double y = trajectory.getDesiredPositionY(timeInSeconds);
+    final double z = trajectory.getDesiredPositionZ(timeInSeconds);
+    final double yaw = trajectory.getDesiredAngleZ(timeInSeconds);
+
+    sample.pose.set(x, y, z, yaw);
+    sample.velocity.set(
+        (trajectory.getDesiredPositionX(nextTimeInSeconds) - x) / DELTA_TIME_IN_SECONDS,
+        (trajectory.getDesiredPositionY(nextTimeInSeconds) - y) / DELTA_TIME_IN_SECONDS,
+        (trajectory.getDesiredPositionZ(nextTimeInSeconds) - z) / DELTA_TIME_IN_SECONDS,
+        (trajectory.getDesiredAngleZ(nextTimeInSeconds) - yaw) / DELTA_TIME_IN_SECONDS);
+    sample.setTime(timeInSeconds);
+  }
+
+  private static void computeDesiredState(
+      DifferentiableTrajectory4d trajectory, double timeInSeconds, Sample sample) {
+    sample.pose.set(
+        trajectory.getDesiredPositionX(timeInSeconds),
+        trajectory.getDesiredPositionY(timeInSeconds),
+        trajectory.getDesiredPositionZ(timeInSeconds),
+        trajectory.getDesiredAngleZ(timeInSeconds));
+    sample.velocity.set(
+        trajectory.getDesiredVelocityX(timeInSeconds),
+        trajectory.getDesiredVelocityY(timeInSeconds),
+        trajectory.getDesiredVelocityZ(timeInSeconds),
+        trajectory.getDesiredAngularVelocityZ(timeInSeconds));
+    sample.setTime(timeInSeconds);
+  }
+
+  /**
+   * A reusable slot of the sampler. The immutable {@link DesiredState} is only created when it is
+   * requested, and then kept until the slot is overwritten.
+   */
+  private static final class Sample {
+    private final MutablePose pose = MutablePose.create();
+    private final MutableVelocity velocity = MutableVelocity.create();
+    private double timeInSeconds;
+    private boolean isValid;
+    @Nullable private DesiredState desiredState;
+
+    private Sample() {}
+
+    private boolean isAt(double time) {
+      return isValid && timeInSeconds == time;
+    }
+
+    private void setTime(double time) {
+      timeInSeconds = time;
+      isValid = true;
+      desiredState = null;
+    }
+
+    private DesiredState toDesiredState() {
+      if (desiredState == null) {
+        desiredState = DesiredState.create(pose.toPose(), velocity.toVelocity(), timeInSeconds);
+      }
+      return desiredState;
+    }
+  }
+}
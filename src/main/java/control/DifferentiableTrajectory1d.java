@@ -0,0 +1,24 @@
+package control;
+
+/**
+ * A {@link Trajectory1d} which also provides the time derivatives of its position in closed form.
+ *
+ * @author Hoang Tung Dinh
+ */
+public interface DifferentiableTrajectory1d extends Trajectory1d {
+  /**
+   * Gets the desired velocity, that is, the first time derivative of the desired position.
+   *
+   * @param timeInSeconds the point in time to get the velocity for
+   * @return the desired velocity at the given point in time
+   */
+  double getDesiredVelocity(double timeInSeconds);
+
+  /**
+   * Gets the desired acceleration, that is, the second time derivative of the desired position.
+   *
+   * @param timeInSeconds the point in time to get the acceleration for
+   * @return the desired acceleration at the given point in time
+   */
+  double getDesiredAcceleration(double timeInSeconds);
+}
@@ -0,0 +1,61 @@
+package control;
+
+/**
+ * A {@link Trajectory4d} which also provides the time derivatives of its position in closed form.
+ * Controllers use these derivatives as the desired velocity instead of estimating it with finite
+ * differences, which costs extra evaluations of the trajectory and lags behind fast motions.
+ *
+ * <p>The derivatives must be consistent with the positions of the trajectory, including the point
+ * in time at which a trajectory starts when it is evaluated for the first time.
+ *
+ * @author Hoang Tung Dinh
+ */
+public interface DifferentiableTrajectory4d extends Trajectory4d {
+  /**
+   * @param timeInSeconds the point in time to get the velocity for.
+   * @return the desired velocity along the x axis for the given point in time.
+   */
+  double getDesiredVelocityX(double timeInSeconds);
+
+  /**
+   * @param timeInSeconds the point in time to get the velocity for.
+   * @return the desired velocity along the y axis for the given point in time.
+   */
+  double getDesiredVelocityY(double timeInSeconds);
+
+  /**
+   * @param timeInSeconds the point in time to get the velocity for.
+   * @return the desired velocity along the z axis for the given point in time.
+   */
+  double getDesiredVelocityZ(double timeInSeconds);
+
+  /**
+   * @param timeInSeconds the point in time to get the velocity for.
+   * @return the desired angular velocity of the yaw for the given point in time.
+   */
+  double getDesiredAngularVelocityZ(double timeInSeconds);
+
+  /**
+   * @param timeInSeconds the point in time to get the acceleration for.
+   * @return the desired acceleration along the x axis for the given point in time.
+   */
+  double getDesiredAccelerationX(double timeInSeconds);
+
+  /**
+   * @param timeInSeconds the point in time to get the acceleration for.
+   * @return the desired acceleration along the y axis for the given point in time.
+   */
+  double getDesiredAccelerationY(double timeInSeconds);
+
+  /**
+   * @param timeInSeconds the point in time to get the acceleration for.
+   * @return the desired acceleration along the z axis for the given point in time.
+   */
+  double getDesiredAccelerationZ(double timeInSeconds);
+
+  /**
+   * @param timeInSeconds the point in time to get the acceleration for.
+   * @return the desired angular acceleration of the yaw for the given point in time.
+   */
+  double getDesiredAngularAccelerationZ(double timeInSeconds);
+}
@@ -1,9 +1,8 @@
 package control;
 
 import applications.trajectory.TrajectoryUtils;
-import control.dto.InertialFrameVelocity;
-import control.dto.Pose;
-import control.dto.Velocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -14,7 +13,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  *
  * @author Hoang Tung Dinh
  */
-public final class DroneVelocityController implements VelocityController4d {
+public final class DroneVelocityController extends AbstractAllocationFreeVelocityController4d {
 
   private final VelocityController1d controllerLinearX;
   private final VelocityController1d controllerLinearY;
@@ -60,11 +59,14 @@ public final class DroneVelocityController implements VelocityController4d {
    * @param currentVelocity the current velocity of the drone
    * @param currentTimeInSeconds the current time which will be used to get the desired position of
    *     the drone
-   * @return the next velocity (response) of the drone
+   * @param nextResponse the output holder of the next velocity (response) of the drone
    */
   @Override
-  public InertialFrameVelocity computeNextResponse(
-      Pose currentPose, InertialFrameVelocity currentVelocity, double currentTimeInSeconds) {
+  public void computeNextResponse(
+      MutablePose currentPose,
+      MutableVelocity currentVelocity,
+      double currentTimeInSeconds,
+      MutableVelocity nextResponse) {
     final double linearX =
         controllerLinearX.computeNextResponse(
             currentPose.x(), currentVelocity.linearX(), currentTimeInSeconds);
@@ -78,12 +80,7 @@ public final class DroneVelocityController implements VelocityController4d {
         controllerAngularZ.computeNextResponse(
             currentPose.yaw(), currentVelocity.angularZ(), currentTimeInSeconds);
 
-    return Velocity.builder()
-        .setLinearX(linearX)
-        .setLinearY(linearY)
-        .setLinearZ(linearZ)
-        .setAngularZ(angularZ)
-        .build();
+    nextResponse.set(linearX, linearY, linearZ, angularZ);
   }
 
   /** {@code DroneVelocityController} builder static inner class. */
@@ -0,0 +1,211 @@
+package control;
+
+import applications.trajectory.TrajectoryUtils;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+import utils.math.EulerAngle;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A four-dimensional PID controller for the drone which gets its desired states from a shared
+ * {@link DesiredStateSampler}. Its responses are the same as the ones of the {@link
+ * DroneVelocityController} built by {@link DroneVelocityController#pidBuilder()}, but the desired
+ * position and velocity of all four axes are sampled together, so that a control tick evaluates the
+ * trajectory at most twice per point in time instead of three times per axis. When the sampler is
+ * shared with a {@link VelocityController4dLogger}, the logger gets its desired state from the same
+ * snapshot.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class FusedPidController4d extends AbstractAllocationFreeVelocityController4d {
+
+  private final DesiredStateSampler desiredStateSampler;
+  private final PidParameters linearXParameters;
+  private final PidParameters linearYParameters;
+  private final PidParameters linearZParameters;
+  private final PidParameters angularZParameters;
+  private final LinearPidController1d controllerLinearX;
+  private final LinearPidController1d controllerLinearY;
+  private final LinearPidController1d controllerLinearZ;
+  private final LinearPidController1d controllerAngularZ;
+  private final MutablePose desiredPose = MutablePose.create();
+  private final MutableVelocity desiredVelocity = MutableVelocity.create();
+
+  private FusedPidController4d(Builder builder) {
+    desiredStateSampler = builder.desiredStateSampler;
+    linearXParameters = builder.linearXParameters;
+    linearYParameters = builder.linearYParameters;
+    linearZParameters = builder.linearZParameters;
+    angularZParameters = builder.angularZParameters;
+
+    final Trajectory4d trajectory = desiredStateSampler.getTrajectory();
+    controllerLinearX =
+        LinearPidController1d.create(
+            linearXParameters, TrajectoryUtils.getTrajectoryLinearX(trajectory));
+    controllerLinearY =
+        LinearPidController1d.create(
+            linearYParameters, TrajectoryUtils.getTrajectoryLinearY(trajectory));
+    controllerLinearZ =
+        LinearPidController1d.create(
+            linearZParameters, TrajectoryUtils.getTrajectoryLinearZ(trajectory));
+    controllerAngularZ =
+        LinearPidController1d.create(
+            angularZParameters, TrajectoryUtils.getTrajectoryAngularZ(trajectory));
+  }
+
+  /**
+   * Gets a builder of this class.
+   *
+   * @return a builder instance
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public void computeNextResponse(
+      MutablePose currentPose,
+      MutableVelocity currentVelocity,
+      double currentTimeInSeconds,
+      MutableVelocity nextResponse) {
+    final double desiredTimeX = currentTimeInSeconds + linearXParameters.lagTimeInSeconds();
+    desiredStateSampler.sample(desiredTimeX, desiredPose, desiredVelocity);
+    final double linearX =
+        controllerLinearX.computeNextResponse(
+            currentPose.x(),
+            currentVelocity.linearX(),
+            desiredTimeX,
+            desiredPose.x(),
+            desiredVelocity.linearX());
+
+    final double desiredTimeY = currentTimeInSeconds + linearYParameters.lagTimeInSeconds();
+    desiredStateSampler.sample(desiredTimeY, desiredPose, desiredVelocity);
+    final double linearY =
+        controllerLinearY.computeNextResponse(
+            currentPose.y(),
+            currentVelocity.linearY(),
+            desiredTimeY,
+            desiredPose.y(),
+            desiredVelocity.linearY());
+
+    final double desiredTimeZ = currentTimeInSeconds + linearZParameters.lagTimeInSeconds();
+    desiredStateSampler.sample(desiredTimeZ, desiredPose, desiredVelocity);
+    final double linearZ =
+        controllerLinearZ.computeNextResponse(
+            currentPose.z(),
+            currentVelocity.linearZ(),
+            desiredTimeZ,
+            desiredPose.z(),
+            desiredVelocity.linearZ());
+
+    final double angularZ =
+        computeAngularResponse(currentPose, currentVelocity, currentTimeInSeconds);
+    nextResponse.set(linearX, linearY, linearZ, angularZ);
+  }
+
+  /** Same as {@link AngularPidController1d}: the controller minimizes the angle distance. */
+  private double computeAngularResponse(
+      MutablePose currentPose, MutableVelocity currentVelocity, double currentTimeInSeconds) {
+    desiredStateSampler.sample(currentTimeInSeconds, desiredPose, desiredVelocity);
+    final double currentDesiredYaw = desiredPose.yaw();
+    final double angularError =
+        EulerAngle.computeAngleDistance(currentPose.yaw(), currentDesiredYaw);
+    final double adaptedCurrentYaw = currentDesiredYaw - angularError;
+
+    final double desiredTime = currentTimeInSeconds + angularZParameters.lagTimeInSeconds();
+    desiredStateSampler.sample(desiredTime, desiredPose, desiredVelocity);
+    return controllerAngularZ.computeNextResponse(
+        adaptedCurrentYaw,
+        currentVelocity.angularZ(),
+        desiredTime,
+        desiredPose.yaw(),
+        desiredVelocity.angularZ());
+  }
+
+  /** {@code FusedPidController4d} builder static inner class. */
+  public static final class Builder {
+    private DesiredStateSampler desiredStateSampler;
+    private PidParameters linearXParameters;
+    private PidParameters linearYParameters;
+    private PidParameters linearZParameters;
+    private PidParameters angularZParameters;
+
+    private Builder() {}
+
+    /**
+     * Sets the {@code desiredStateSampler} and returns a reference to this Builder so that the
+     * methods can be chained together.
+     *
+     * @param val the {@code desiredStateSampler} to set
+     * @return a reference to this Builder
+     */
+    public Builder withDesiredStateSampler(DesiredStateSampler val) {
+      desiredStateSampler = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code linearXParameters} and returns a reference to this Builder so that the
+     * methods can be chained together.
+     *
+     * @param val the {@code linearXParameters} to set
+     * @return a reference to this Builder
+     */
+    public Builder withLinearXParameters(PidParameters val) {
+      linearXParameters = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code linearYParameters} and returns a reference to this Builder so that the
+     * methods can be chained together.
+     *
+     * @param val the {@code linearYParameters} to set
+     * @return a reference to this Builder
+     */
+    public Builder withLinearYParameters(PidParameters val) {
+      linearYParameters = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code linearZParameters} and returns a reference to this Builder so that the
+     * methods can be chained together.
+     *
+     * @param val the {@code linearZParameters} to set
+     * @return a reference to this Builder
+     */
+    public Builder withLinearZParameters(PidParameters val) {
+      linearZParameters = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code angularZParameters} and returns a reference to this Builder so that the
+     * methods can be chained together.
+     *
+     * @param val the {@code angularZParameters} to set
+     * @return a reference to this Builder
+     */
+    public Builder withAngularZParameters(PidParameters val) {
+      angularZParameters = val;
+      return this;
+    }
+
+    /**
+     * Returns a {@code FusedPidController4d} built from the parameters previously set.
+     *
+     * @return a {@code FusedPidController4d} built with parameters of this {@code
+     *     FusedPidController4d.Builder}
+     */
+    public FusedPidController4d build() {
+      checkNotNull(desiredStateSampler, "missing desiredStateSampler");
+      checkNotNull(linearXParameters, "missing linearXParameters");
+      checkNotNull(linearYParameters, "missing linearYParameters");
+      checkNotNull(linearZParameters, "missing linearZParameters");
+      checkNotNull(angularZParameters, "missing angularZParameters");
+      return new FusedPidController4d(this);
+    }
+  }
+}
@@ -8,7 +8,7 @@ package control;
  */
 public final class LinearPidController1d implements VelocityController1d {
 
-  private static final double DELTA_TIME_IN_SECOND = 0.1;
+  private static final double DELTA_TIME_IN_SECOND = DesiredStateSampler.DELTA_TIME_IN_SECONDS;
   private final PidParameters parameters;
   private final Trajectory1d trajectory;
   private double lastTimeInSeconds = -1;
@@ -32,6 +32,10 @@ public final class LinearPidController1d implements VelocityController1d {
   }
 
   private static double getDesiredVelocity(Trajectory1d trajectory, double desiredTimeInSeconds) {
+    if (trajectory instanceof DifferentiableTrajectory1d) {
+      return ((DifferentiableTrajectory1d) trajectory).getDesiredVelocity(desiredTimeInSeconds);
+    }
+
     final double firstPoint = trajectory.getDesiredPosition(desiredTimeInSeconds);
     final double secondPoint =
         trajectory.getDesiredPosition(desiredTimeInSeconds + DELTA_TIME_IN_SECOND);
@@ -42,13 +46,30 @@ public final class LinearPidController1d implements VelocityController1d {
   public double computeNextResponse(
       double currentPosition, double currentVelocity, double currentTimeInSeconds) {
     final double desiredTimeInSeconds = currentTimeInSeconds + parameters.lagTimeInSeconds();
-    final double error = trajectory.getDesiredPosition(desiredTimeInSeconds) - currentPosition;
+    return computeNextResponse(
+        currentPosition,
+        currentVelocity,
+        desiredTimeInSeconds,
+        trajectory.getDesiredPosition(desiredTimeInSeconds),
+        getDesiredVelocity(trajectory, desiredTimeInSeconds));
+  }
+
+  /**
+   * Computes the next response from a desired position and velocity which have already been sampled
+   * at the desired time, that is, at the current time plus the lag time.
+   */
+  double computeNextResponse(
+      double currentPosition,
+      double currentVelocity,
+      double desiredTimeInSeconds,
+      double desiredPosition,
+      double desiredVelocity) {
+    final double error = desiredPosition - currentPosition;
 
     updateAccumulatedError(desiredTimeInSeconds, error);
 
     final double pTerm = parameters.kp() * error;
-    final double dTerm =
-        parameters.kd() * (getDesiredVelocity(trajectory, desiredTimeInSeconds) - currentVelocity);
+    final double dTerm = parameters.kd() * (desiredVelocity - currentVelocity);
     final double iTerm = parameters.ki() * accumulatedError;
 
     double outVelocity = pTerm + dTerm + iTerm;
@@ -1,21 +1,23 @@
 package control;
 
 import control.dto.InertialFrameVelocity;
-import control.dto.Pose;
-import control.dto.Velocity;
-
-import javax.annotation.Nullable;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
 
 /**
  * The controller output filter for a pid controller. TODO: test this class
  *
+ * <p>If the filtered controller is an {@link AllocationFreeVelocityController4d}, computing a
+ * response in {@link MutableVelocity} holders does not allocate objects.
+ *
  * @author Hoang Tung Dinh
  * @see <a href="http://controlguru.com/pid-with-controller-output-co-filter/">Equation</a>
  */
-public final class PidCoFilter4d implements VelocityController4d {
+public final class PidCoFilter4d extends AbstractAllocationFreeVelocityController4d {
   private final VelocityController4d pidController;
   private final double filterTimeConstance;
-  @Nullable private InertialFrameVelocity lastResponse;
+  private final MutableVelocity lastResponse = MutableVelocity.create();
+  private boolean hasLastResponse;
   private double lastTimeInSeconds;
 
   private PidCoFilter4d(VelocityController4d pidController, double filterTimeConstance) {
@@ -29,44 +31,42 @@ public final class PidCoFilter4d implements VelocityController4d {
   }
 
   @Override
-  public InertialFrameVelocity computeNextResponse(
-      Pose currentPose, InertialFrameVelocity currentVelocity, double currentTimeInSeconds) {
-    final InertialFrameVelocity rawControllerOutput =
-        pidController.computeNextResponse(currentPose, currentVelocity, currentTimeInSeconds);
-    if (lastResponse == null) {
-      lastResponse = rawControllerOutput;
+  public void computeNextResponse(
+      MutablePose currentPose,
+      MutableVelocity currentVelocity,
+      double currentTimeInSeconds,
+      MutableVelocity nextResponse) {
+    computeRawResponse(currentPose, currentVelocity, currentTimeInSeconds, nextResponse);
+    if (!hasLastResponse) {
+      hasLastResponse = true;
+      lastResponse.set(nextResponse);
       lastTimeInSeconds = currentTimeInSeconds;
-      return rawControllerOutput;
     } else {
-      return getFilteredResponse(rawControllerOutput, currentTimeInSeconds);
+      nextResponse.set(
+          getFilteredResponse(nextResponse.linearX(), currentTimeInSeconds, lastResponse.linearX()),
+          getFilteredResponse(nextResponse.linearY(), currentTimeInSeconds, lastResponse.linearY()),
+          getFilteredResponse(nextResponse.linearZ(), currentTimeInSeconds, lastResponse.linearZ()),
+          getFilteredResponse(
+              nextResponse.angularZ(), currentTimeInSeconds, lastResponse.angularZ()));
     }
   }
 
-  private InertialFrameVelocity getFilteredResponse(
-      InertialFrameVelocity rawControllerOutput, double currentTimeInSeconds) {
-
-    final double filteredLinearX =
-        getFilteredResponse(
-            rawControllerOutput.linearX(), currentTimeInSeconds, lastResponse.linearX());
-
-    final double filteredLinearY =
-        getFilteredResponse(
-            rawControllerOutput.linearY(), currentTimeInSeconds, lastResponse.linearY());
-
-    final double filteredLinearZ =
-        getFilteredResponse(
-            rawControllerOutput.linearZ(), currentTimeInSeconds, lastResponse.linearZ());
-
-    final double filteredAngularZ =
-        getFilteredResponse(
-            rawControllerOutput.angularZ(), currentTimeInSeconds, lastResponse.angularZ());
-
-    return Velocity.builder()
-        .setLinearX(filteredLinearX)
-        .setLinearY(filteredLinearY)
-        .setLinearZ(filteredLinearZ)
-        .setAngularZ(filteredAngularZ)
-        .build();
+  private void computeRawResponse(
+      MutablePose currentPose,
+      MutableVelocity currentVelocity,
+      double currentTimeInSeconds,
+      MutableVelocity rawControllerOutput) {
+    if (pidController instanceof AllocationFreeVelocityController4d) {
+      ((AllocationFreeVelocityController4d) pidController)
+          .computeNextResponse(
+              currentPose, currentVelocity, currentTimeInSeconds, rawControllerOutput);
+    } else {
+      final InertialFrameVelocity response =
+          pidController.computeNextResponse(
+              currentPose.toPose(), currentVelocity.toVelocity(), currentTimeInSeconds);
+      rawControllerOutput.set(
+          response.linearX(), response.linearY(), response.linearZ(), response.angularZ());
+    }
   }
 
   private double getFilteredResponse(
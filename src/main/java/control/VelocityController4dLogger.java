@@ -1,6 +1,9 @@
 package control;
 
+import control.dto.DesiredState;
 import control.dto.InertialFrameVelocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
 import control.dto.Pose;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,27 +12,29 @@ import time.TimeProvider;
 
 /**
  * A decorator for logging the state of a {@link VelocityController4d}. This class is assumed to be
- * used with Logback's <a href="http://logback.qos.ch/manual/appenders.html#SiftingAppender">SiftingAppender</a> and
- * <a href="http://logback.qos.ch/manual/mdc.html">Mapped Diagnostic Contexts</a>.
+ * used with Logback's <a
+ * href="http://logback.qos.ch/manual/appenders.html#SiftingAppender">SiftingAppender</a> and <a
+ * href="http://logback.qos.ch/manual/mdc.html">Mapped Diagnostic Contexts</a>. When the trace level
+ * is disabled, the decorator does not allocate objects on the allocation-free path.
  *
  * @author Hoang Tung Dinh
  */
-public final class VelocityController4dLogger implements VelocityController4d {
+public final class VelocityController4dLogger implements AllocationFreeVelocityController4d {
 
   private static final Logger logger = LoggerFactory.getLogger(VelocityController4dLogger.class);
 
   private final VelocityController4d velocityController4d;
-  private final Trajectory4d desiredTrajectory;
+  private final DesiredStateSampler desiredStateSampler;
   private final TimeProvider systemTimeProvider;
   private final String loggerName;
 
   private VelocityController4dLogger(
       VelocityController4d velocityController4d,
-      Trajectory4d desiredTrajectory,
+      DesiredStateSampler desiredStateSampler,
       TimeProvider systemTimeProvider,
       String loggerName) {
     this.velocityController4d = velocityController4d;
-    this.desiredTrajectory = desiredTrajectory;
+    this.desiredStateSampler = desiredStateSampler;
     this.systemTimeProvider = systemTimeProvider;
     this.loggerName = loggerName;
   }
@@ -40,41 +45,75 @@ public final class VelocityController4dLogger implements VelocityController4d {
       TimeProvider systemTimeProvider,
       String loggerName) {
     return new VelocityController4dLogger(
-        velocityController4d, desiredTrajectory, systemTimeProvider, loggerName);
+        velocityController4d,
+        DesiredStateSampler.create(desiredTrajectory),
+        systemTimeProvider,
+        loggerName);
+  }
+
+  /**
+   * Creates a logger which gets the desired states from a sampler. If the sampler is shared with
+   * the decorated controller (see {@link FusedPidController4d}), the logger does not evaluate the
+   * trajectory again.
+   *
+   * @param velocityController4d the decorated controller
+   * @param desiredStateSampler the sampler of the desired trajectory
+   * @param systemTimeProvider the provider of the time written in the logs
+   * @param loggerName the name of the log
+   * @return an instance of this class
+   */
+  public static VelocityController4dLogger create(
+      VelocityController4d velocityController4d,
+      DesiredStateSampler desiredStateSampler,
+      TimeProvider systemTimeProvider,
+      String loggerName) {
+    return new VelocityController4dLogger(
+        velocityController4d, desiredStateSampler, systemTimeProvider, loggerName);
   }
 
   @Override
   public InertialFrameVelocity computeNextResponse(
       Pose currentPose, InertialFrameVelocity currentVelocity, double currentTimeInSeconds) {
-    final double currentSystemTimeInSeconds = systemTimeProvider.getCurrentTimeSeconds();
-    logPose(currentPose, currentTimeInSeconds, currentSystemTimeInSeconds);
-    logVelocity(currentVelocity, currentTimeInSeconds, currentSystemTimeInSeconds);
+    if (logger.isTraceEnabled()) {
+      final double currentSystemTimeInSeconds = systemTimeProvider.getCurrentTimeSeconds();
+      final DesiredState desiredState = desiredStateSampler.sample(currentTimeInSeconds);
+      logPose(currentPose, desiredState.pose(), currentSystemTimeInSeconds);
+      logVelocity(currentVelocity, desiredState.velocity(), currentSystemTimeInSeconds);
+    }
     return velocityController4d.computeNextResponse(
         currentPose, currentVelocity, currentTimeInSeconds);
   }
 
+  @Override
+  public void computeNextResponse(
+      MutablePose currentPose,
+      MutableVelocity currentVelocity,
+      double currentTimeInSeconds,
+      MutableVelocity nextResponse) {
+    if (logger.isTraceEnabled()) {
+      final double currentSystemTimeInSeconds = systemTimeProvider.getCurrentTimeSeconds();
+      final DesiredState desiredState = desiredStateSampler.sample(currentTimeInSeconds);
+      logPose(currentPose.toPose(), desiredState.pose(), currentSystemTimeInSeconds);
+      logVelocity(
+          currentVelocity.toVelocity(), desiredState.velocity(), currentSystemTimeInSeconds);
+    }
+
+    if (velocityController4d instanceof AllocationFreeVelocityController4d) {
+      ((AllocationFreeVelocityController4d) velocityController4d)
+          .computeNextResponse(currentPose, currentVelocity, currentTimeInSeconds, nextResponse);
+    } else {
+      final InertialFrameVelocity response =
+          velocityController4d.computeNextResponse(
+              currentPose.toPose(), currentVelocity.toVelocity(), currentTimeInSeconds);
+      nextResponse.set(
+          response.linearX(), response.linearY(), response.linearZ(), response.angularZ());
+    }
+  }
+
   private void logVelocity(
       InertialFrameVelocity currentVelocity,
-      double currentTimeInSeconds,
+      InertialFrameVelocity desiredVelocity,
       double currentSystemTimeInSeconds) {
-    final double deltaTimeInSeconds = 0.1;
-    final double desiredVelocityX =
-        (desiredTrajectory.getDesiredPositionX(currentTimeInSeconds + deltaTimeInSeconds)
-                - desiredTrajectory.getDesiredPositionX(currentTimeInSeconds))
-            / deltaTimeInSeconds;
-    final double desiredVelocityY =
-        (desiredTrajectory.getDesiredPositionY(currentTimeInSeconds + deltaTimeInSeconds)
-                - desiredTrajectory.getDesiredPositionY(currentTimeInSeconds))
-            / deltaTimeInSeconds;
-    final double desiredVelocityZ =
-        (desiredTrajectory.getDesiredPositionZ(currentTimeInSeconds + deltaTimeInSeconds)
-                - desiredTrajectory.getDesiredPositionZ(currentTimeInSeconds))
-            / deltaTimeInSeconds;
-    final double desiredVelocityYaw =
-        (desiredTrajectory.getDesiredAngleZ(currentTimeInSeconds + deltaTimeInSeconds)
-                - desiredTrajectory.getDesiredAngleZ(currentTimeInSeconds))
-            / deltaTimeInSeconds;
-
     MDC.put("loggerName", loggerName + "_velocity");
     logger.trace(
         "{} {} {} {} {} {} {} {} {}",
@@ -83,14 +122,13 @@ public final class VelocityController4dLogger implements VelocityController4d {
         currentVelocity.linearY(),
         currentVelocity.linearZ(),
         currentVelocity.angularZ(),
-        desiredVelocityX,
-        desiredVelocityY,
-        desiredVelocityZ,
-        desiredVelocityYaw);
+        desiredVelocity.linearX(),
+        desiredVelocity.linearY(),
+        desiredVelocity.linearZ(),
+        desiredVelocity.angularZ());
   }
 
-  private void logPose(
-      Pose currentPose, double currentTimeInSeconds, double currentSystemTimeInSeconds) {
+  private void logPose(Pose currentPose, Pose desiredPose, double currentSystemTimeInSeconds) {
     MDC.put("loggerName", loggerName + "_pose");
     logger.trace(
         "{} {} {} {} {} {} {} {} {}",
@@ -99,9 +137,9 @@ public final class VelocityController4dLogger implements VelocityController4d {
         currentPose.y(),
         currentPose.z(),
         currentPose.yaw(),
-        desiredTrajectory.getDesiredPositionX(currentTimeInSeconds),
-        desiredTrajectory.getDesiredPositionY(currentTimeInSeconds),
-        desiredTrajectory.getDesiredPositionZ(currentTimeInSeconds),
-        desiredTrajectory.getDesiredAngleZ(currentTimeInSeconds));
+        desiredPose.x(),
+        desiredPose.y(),
+        desiredPose.z(),
+        desiredPose.yaw());
   }
 }
@@ -0,0 +1,33 @@
+package control.dto;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * The desired pose and velocity of a drone at a point in time, sampled from a trajectory.
+ *
+ * @author Hoang Tung Dinh
+ */
+@AutoValue
+public abstract class DesiredState {
+
+  DesiredState() {}
+
+  /**
+   * Creates a desired state.
+   *
+   * @param pose the desired pose
+   * @param velocity the desired velocity in the inertial frame
+   * @param timeInSeconds the point in time of the desired state
+   * @return a desired state instance
+   */
+  public static DesiredState create(
+      Pose pose, InertialFrameVelocity velocity, double timeInSeconds) {
+    return new AutoValue_DesiredState(pose, velocity, timeInSeconds);
+  }
+
+  public abstract Pose pose();
+
+  public abstract InertialFrameVelocity velocity();
+
+  public abstract double timeInSeconds();
+}
@@ -0,0 +1,112 @@
+package control.dto;
+
+/**
+ * A mutable holder of the pose of the drone. It is the counterpart of {@link Pose} for the
+ * allocation-free control path: a control loop allocates its holders once and overwrites them at
+ * every tick, instead of creating new value objects.
+ *
+ * <p>Holders passed as arguments are only valid during the call. A method must not keep a reference
+ * to them or modify them, unless the holder is documented as an output.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class MutablePose {
+  private double x;
+  private double y;
+  private double z;
+  private double yaw;
+
+  private MutablePose() {}
+
+  /**
+   * Creates a zero pose holder.
+   *
+   * @return a holder with all components equal to zero
+   */
+  public static MutablePose create() {
+    return new MutablePose();
+  }
+
+  /**
+   * Sets all components of this holder.
+   *
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @param yaw the yaw angle
+   */
+  public void set(double x, double y, double z, double yaw) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    this.yaw = yaw;
+  }
+
+  /**
+   * Copies all components of a pose into this holder.
+   *
+   * @param pose the pose to be copied
+   */
+  public void set(Pose pose) {
+    set(pose.x(), pose.y(), pose.z(), pose.yaw());
+  }
+
+  /**
+   * Copies all components of another holder into this holder.
+   *
+   * @param pose the holder to be copied
+   */
+  public void set(MutablePose pose) {
+    set(pose.x, pose.y, pose.z, pose.yaw);
+  }
+
+  /**
+   * Gets the x coordinate.
+   *
+   * @return the x coordinate
+   */
+  public double x() {
+    return x;
+  }
+
+  /**
+   * Gets the y coordinate.
+   *
+   * @return the y coordinate
+   */
+  public double y() {
+    return y;
+  }
+
+  /**
+   * Gets the z coordinate.
+   *
+   * @return the z coordinate
+   */
+  public double z() {
+    return z;
+  }
+
+  /**
+   * Gets the yaw angle.
+   *
+   * @return the yaw angle
+   */
+  public double yaw() {
+    return yaw;
+  }
+
+  /**
+   * Creates an immutable copy of this holder.
+   *
+   * @return a {@link Pose} instance with the current components of this holder
+   */
+  public Pose toPose() {
+    return Pose.builder().setX(x).setY(y).setZ(z).setYaw(yaw).build();
+  }
+
+  @Override
+  public String toString() {
+    return "MutablePose{" + "x=" + x + ", y=" + y + ", z=" + z + ", yaw=" + yaw + '}';
+  }
+}
@@ -0,0 +1,119 @@
+package control.dto;
+
+/**
+ * A mutable holder of a four-dimensional velocity (three linear components and the yaw rate). It is
+ * the counterpart of {@link Velocity} for the allocation-free control path: a control loop
+ * allocates its holders once and overwrites them at every tick, instead of creating new value
+ * objects. Whether the velocity is given in the inertial frame or in the body frame is defined by
+ * the method using the holder.
+ *
+ * <p>Holders passed as arguments are only valid during the call. A method must not keep a reference
+ * to them or modify them, unless the holder is documented as an output.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class MutableVelocity {
+  private double linearX;
+  private double linearY;
+  private double linearZ;
+  private double angularZ;
+
+  private MutableVelocity() {}
+
+  /**
+   * Creates a zero velocity holder.
+   *
+   * @return a holder with all components equal to zero
+   */
+  public static MutableVelocity create() {
+    return new MutableVelocity();
+  }
+
+  /**
+   * Sets all components of this holder.
+   *
+   * @param linearX the velocity in the x coordinate
+   * @param linearY the velocity in the y coordinate
+   * @param linearZ the velocity in the z coordinate
+   * @param angularZ the velocity of the z rotation (the yaw)
+   */
+  public void set(double linearX, double linearY, double linearZ, double angularZ) {
+    this.linearX = linearX;
+    this.linearY = linearY;
+    this.linearZ = linearZ;
+    this.angularZ = angularZ;
+  }
+
+  /**
+   * Copies all components of another holder into this holder.
+   *
+   * @param velocity the holder to be copied
+   */
+  public void set(MutableVelocity velocity) {
+    set(velocity.linearX, velocity.linearY, velocity.linearZ, velocity.angularZ);
+  }
+
+  /**
+   * Gets the velocity in the x coordinate.
+   *
+   * @return the velocity in the x coordinate
+   */
+  public double linearX() {
+    return linearX;
+  }
+
+  /**
+   * Gets the velocity in the y coordinate.
+   *
+   * @return the velocity in the y coordinate
+   */
+  public double linearY() {
+    return linearY;
+  }
+
+  /**
+   * Gets the velocity in the z coordinate.
+   *
+   * @return the velocity in the z coordinate
+   */
+  public double linearZ() {
+    return linearZ;
+  }
+
+  /**
+   * Gets the velocity of the z rotation (the yaw).
+   *
+   * @return the velocity of the z rotation (the yaw)
+   */
+  public double angularZ() {
+    return angularZ;
+  }
+
+  /**
+   * Creates an immutable copy of this holder.
+   *
+   * @return a {@link Velocity} instance with the current components of this holder
+   */
+  public Velocity toVelocity() {
+    return Velocity.builder()
+        .setLinearX(linearX)
+        .setLinearY(linearY)
+        .setLinearZ(linearZ)
+        .setAngularZ(angularZ)
+        .build();
+  }
+
+  @Override
+  public String toString() {
+    return "MutableVelocity{"
+        + "linearX="
+        + linearX
+        + ", linearY="
+        + linearY
+        + ", linearZ="
+        + linearZ
+        + ", angularZ="
+        + angularZ
+        + '}';
+  }
+}
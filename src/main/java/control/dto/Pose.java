@@ -37,8 +37,7 @@ public abstract class Pose {
         .setX(poseStamped.getPose().getPosition().getX())
         .setY(poseStamped.getPose().getPosition().getY())
         .setZ(poseStamped.getPose().getPosition().getZ())
-        .setYaw(
-            Transformations.quaternionToEulerAngle(poseStamped.getPose().getOrientation()).angleZ())
+        .setYaw(Transformations.quaternionToYaw(poseStamped.getPose().getOrientation()))
         .build();
   }
 
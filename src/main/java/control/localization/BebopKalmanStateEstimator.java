@@ -0,0 +1,355 @@
+package control.localization;
+
+import com.google.common.base.Optional;
+import control.dto.DroneStateStamped;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+import control.dto.Pose;
+import control.dto.Velocity;
+import geometry_msgs.Point;
+import geometry_msgs.PoseStamped;
+import geometry_msgs.Twist;
+import nav_msgs.Odometry;
+import services.rossubscribers.MessageObserver;
+import services.rossubscribers.MessagesSubscriberService;
+import utils.math.EulerAngle;
+import utils.math.Transformations;
+import utils.metrics.LatencyHistogram;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A localization that fuses the pose from ArMarker and, optionally, the velocity from odometry with
+ * a Kalman filter. Each of x, y, z and yaw is estimated by a {@link ConstantVelocityKalmanFilter}.
+ * The measurements are applied at their own time stamps: the filter is predicted to the time stamp
+ * of a pose before it is corrected, so that the estimated velocity does not lag behind the motion
+ * like an average of finite differences does.
+ *
+ * <p>Every message is processed once, when it arrives, and the resulting state is published for the
+ * readers of {@link #getCurrentState()}. The time of every update is recorded in {@link
+ * #getUpdateDuration()}.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class BebopKalmanStateEstimator implements StateEstimator {
+  private static final double INITIAL_VELOCITY_VARIANCE = 1;
+
+  private final ConstantVelocityKalmanFilter xFilter;
+  private final ConstantVelocityKalmanFilter yFilter;
+  private final ConstantVelocityKalmanFilter zFilter;
+  private final ConstantVelocityKalmanFilter yawFilter;
+  private final double positionVariance;
+  private final double yawVariance;
+  private final double velocityVariance;
+  private final double yawRateVariance;
+
+  private final MutablePose estimatedPose = MutablePose.create();
+  private final MutableVelocity measuredVelocity = MutableVelocity.create();
+  private final LatencyHistogram updateDuration = LatencyHistogram.create("kalman update");
+
+  private boolean initialized;
+  private double timeStampInSeconds;
+  @Nullable private volatile DroneStateStamped currentState;
+
+  private BebopKalmanStateEstimator(Builder builder) {
+    xFilter = ConstantVelocityKalmanFilter.create(builder.accelerationNoiseDensity);
+    yFilter = ConstantVelocityKalmanFilter.create(builder.accelerationNoiseDensity);
+    zFilter = ConstantVelocityKalmanFilter.create(builder.accelerationNoiseDensity);
+    yawFilter = ConstantVelocityKalmanFilter.create(builder.yawAccelerationNoiseDensity);
+    positionVariance = builder.positionNoiseDeviation * builder.positionNoiseDeviation;
+    yawVariance = builder.yawNoiseDeviation * builder.yawNoiseDeviation;
+    velocityVariance = builder.velocityNoiseDeviation * builder.velocityNoiseDeviation;
+    yawRateVariance = builder.yawRateNoiseDeviation * builder.yawRateNoiseDeviation;
+  }
+
+  /**
+   * Gets a builder of this class.
+   *
+   * @return a builder instance
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public Optional<DroneStateStamped> getCurrentState() {
+    return Optional.fromNullable(currentState);
+  }
+
+  /**
+   * Gets the histogram of the time taken by the filter to process a message.
+   *
+   * @return the update duration histogram
+   */
+  public LatencyHistogram getUpdateDuration() {
+    return updateDuration;
+  }
+
+  private void onNewPose(PoseStamped poseStamped) {
+    final Point position = poseStamped.getPose().getPosition();
+    final double yaw = Transformations.quaternionToYaw(poseStamped.getPose().getOrientation());
+    updateWithPose(
+        poseStamped.getHeader().getStamp().toSeconds(),
+        position.getX(),
+        position.getY(),
+        position.getZ(),
+        yaw);
+  }
+
+  private void onNewOdometry(Odometry odometry) {
+    final Twist twist = odometry.getTwist().getTwist();
+    updateWithBodyFrameVelocity(
+        odometry.getHeader().getStamp().toSeconds(),
+        twist.getLinear().getX(),
+        twist.getLinear().getY(),
+        twist.getLinear().getZ(),
+        twist.getAngular().getZ());
+  }
+
+  /** Processes a pose measured at the given time. */
+  synchronized void updateWithPose(double stamp, double x, double y, double z, double yaw) {
+    final long startTime = System.nanoTime();
+    if (!initialized) {
+      xFilter.reset(x, positionVariance, INITIAL_VELOCITY_VARIANCE);
+      yFilter.reset(y, positionVariance, INITIAL_VELOCITY_VARIANCE);
+      zFilter.reset(z, positionVariance, INITIAL_VELOCITY_VARIANCE);
+      yawFilter.reset(yaw, yawVariance, INITIAL_VELOCITY_VARIANCE);
+      timeStampInSeconds = stamp;
+      initialized = true;
+      publishState();
+      updateDuration.record(System.nanoTime() - startTime);
+      return;
+    }
+
+    // a pose older than the filter, or published twice, cannot be applied any more
+    if (stamp <= timeStampInSeconds) {
+      return;
+    }
+
+    predict(stamp);
+    xFilter.correctPosition(x - xFilter.position(), positionVariance);
+    yFilter.correctPosition(y - yFilter.position(), positionVariance);
+    zFilter.correctPosition(z - zFilter.position(), positionVariance);
+    // the yaw of the filter is continuous, only the published yaw is wrapped
+    yawFilter.correctPosition(
+        EulerAngle.computeAngleDistance(yawFilter.position(), yaw), yawVariance);
+    publishState();
+    updateDuration.record(System.nanoTime() - startTime);
+  }
+
+  /** Processes a velocity in the body frame measured at the given time. */
+  synchronized void updateWithBodyFrameVelocity(
+      double stamp, double linearX, double linearY, double linearZ, double angularZ) {
+    // the velocity is in the body frame, so it can only be used once the yaw is known
+    if (!initialized) {
+      return;
+    }
+
+    final long startTime = System.nanoTime();
+    // the velocity changes slowly compared with the delay between the pose and the odometry, so an
+    // odometry message older than the filter is applied at the time of the filter
+    if (stamp > timeStampInSeconds) {
+      predict(stamp);
+    }
+
+    measuredVelocity.set(linearX, linearY, linearZ, angularZ);
+    estimatedPose.set(0, 0, 0, yawFilter.position());
+    Transformations.bodyFrameVelocityToInertialFrameVelocity(
+        measuredVelocity, estimatedPose, measuredVelocity);
+
+    xFilter.correctVelocity(measuredVelocity.linearX(), velocityVariance);
+    yFilter.correctVelocity(measuredVelocity.linearY(), velocityVariance);
+    zFilter.correctVelocity(measuredVelocity.linearZ(), velocityVariance);
+    yawFilter.correctVelocity(measuredVelocity.angularZ(), yawRateVariance);
+    publishState();
+    updateDuration.record(System.nanoTime() - startTime);
+  }
+
+  private void predict(double stamp) {
+    final double timeDelta = stamp - timeStampInSeconds;
+    xFilter.predict(timeDelta);
+    yFilter.predict(timeDelta);
+    zFilter.predict(timeDelta);
+    yawFilter.predict(timeDelta);
+    timeStampInSeconds = stamp;
+  }
+
+  private void publishState() {
+    final Pose pose =
+        Pose.builder()
+            .setX(xFilter.position())
+            .setY(yFilter.position())
+            .setZ(zFilter.position())
+            .setYaw(EulerAngle.computeAngleDistance(0, yawFilter.position()))
+            .build();
+    final Velocity velocity =
+        Velocity.builder()
+            .setLinearX(xFilter.velocity())
+            .setLinearY(yFilter.velocity())
+            .setLinearZ(zFilter.velocity())
+            .setAngularZ(yawFilter.velocity())
+            .build();
+    currentState = DroneStateStamped.create(pose, velocity, timeStampInSeconds);
+  }
+
+  /** {@code BebopKalmanStateEstimator} builder static inner class. */
+  public static final class Builder {
+    @Nullable private MessagesSubscriberService<PoseStamped> poseSubscriber;
+    @Nullable private MessagesSubscriberService<Odometry> odometrySubscriber;
+    private double accelerationNoiseDensity = 1;
+    private double yawAccelerationNoiseDensity = 1;
+    private double positionNoiseDeviation = 0.05;
+    private double yawNoiseDeviation = 0.05;
+    private double velocityNoiseDeviation = 0.1;
+    private double yawRateNoiseDeviation = 0.1;
+
+    private Builder() {}
+
+    /**
+     * Sets the {@code poseSubscriber} and returns a reference to this Builder so that the methods
+     * can be chained together.
+     *
+     * @param val the {@code poseSubscriber} to set
+     * @return a reference to this Builder
+     */
+    public Builder withPoseSubscriber(MessagesSubscriberService<PoseStamped> val) {
+      poseSubscriber = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code odometrySubscriber} and returns a reference to this Builder so that the
+     * methods can be chained together. The odometry is optional: without it, the velocity is
+     * estimated from the poses only.
+     *
+     * @param val the {@code odometrySubscriber} to set
+     * @return a reference to this Builder
+     */
+    public Builder withOdometrySubscriber(MessagesSubscriberService<Odometry> val) {
+      odometrySubscriber = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code accelerationNoiseDensity} and returns a reference to this Builder so that the
+     * methods can be chained together. It is the spectral density of the linear acceleration of the
+     * drone, in m^2/s^3. The default value is 1.
+     *
+     * @param val the {@code accelerationNoiseDensity} to set
+     * @return a reference to this Builder
+     */
+    public Builder withAccelerationNoiseDensity(double val) {
+      accelerationNoiseDensity = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code yawAccelerationNoiseDensity} and returns a reference to this Builder so that
+     * the methods can be chained together. It is the spectral density of the angular acceleration
+     * of the yaw, in rad^2/s^3. The default value is 1.
+     *
+     * @param val the {@code yawAccelerationNoiseDensity} to set
+     * @return a reference to this Builder
+     */
+    public Builder withYawAccelerationNoiseDensity(double val) {
+      yawAccelerationNoiseDensity = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code positionNoiseDeviation} and returns a reference to this Builder so that the
+     * methods can be chained together. It is the standard deviation of the measured position, in
+     * meters. The default value is 0.05.
+     *
+     * @param val the {@code positionNoiseDeviation} to set
+     * @return a reference to this Builder
+     */
+    public Builder withPositionNoiseDeviation(double val) {
+      positionNoiseDeviation = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code yawNoiseDeviation} and returns a reference to this Builder so that the
+     * methods can be chained together. It is the standard deviation of the measured yaw, in
+     * radians. The default value is 0.05.
+     *
+     * @param val the {@code yawNoiseDeviation} to set
+     * @return a reference to this Builder
+     */
+    public Builder withYawNoiseDeviation(double val) {
+      yawNoiseDeviation = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code velocityNoiseDeviation} and returns a reference to this Builder so that the
+     * methods can be chained together. It is the standard deviation of the linear velocity measured
+     * by the odometry, in m/s. The default value is 0.1.
+     *
+     * @param val the {@code velocityNoiseDeviation} to set
+     * @return a reference to this Builder
+     */
+    public Builder withVelocityNoiseDeviation(double val) {
+      velocityNoiseDeviation = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code yawRateNoiseDeviation} and returns a reference to this Builder so that the
+     * methods can be chained together. It is the standard deviation of the yaw rate measured by the
+     * odometry, in rad/s. The default value is 0.1.
+     *
+     * @param val the {@code yawRateNoiseDeviation} to set
+     * @return a reference to this Builder
+     */
+    public Builder withYawRateNoiseDeviation(double val) {
+      yawRateNoiseDeviation = val;
+      return this;
+    }
+
+    /**
+     * Returns a {@code BebopKalmanStateEstimator} built from the parameters previously set. The
+     * state estimator registers itself as an observer of the pose topic and of the odometry topic,
+     * so only the messages received after the creation are used.
+     *
+     * @return a {@code BebopKalmanStateEstimator} built with parameters of this {@code
+     *     BebopKalmanStateEstimator.Builder}
+     */
+    public BebopKalmanStateEstimator build() {
+      checkNotNull(poseSubscriber, "The pose subscriber must be set.");
+      checkPositive(accelerationNoiseDensity, "Acceleration noise density");
+      checkPositive(yawAccelerationNoiseDensity, "Yaw acceleration noise density");
+      checkPositive(positionNoiseDeviation, "Position noise deviation");
+      checkPositive(yawNoiseDeviation, "Yaw noise deviation");
+      checkPositive(velocityNoiseDeviation, "Velocity noise deviation");
+      checkPositive(yawRateNoiseDeviation, "Yaw rate noise deviation");
+
+      final BebopKalmanStateEstimator stateEstimator = new BebopKalmanStateEstimator(this);
+      poseSubscriber.registerMessageObserver(
+          new MessageObserver<PoseStamped>() {
+            @Override
+            public void onNewMessage(PoseStamped message) {
+              stateEstimator.onNewPose(message);
+            }
+          });
+      if (odometrySubscriber != null) {
+        odometrySubscriber.registerMessageObserver(
+            new MessageObserver<Odometry>() {
+              @Override
+              public void onNewMessage(Odometry message) {
+                stateEstimator.onNewOdometry(message);
+              }
+            });
+      }
+      return stateEstimator;
+    }
+
+    private static void checkPositive(double value, String name) {
+      checkArgument(value > 0, String.format("%s must be positive, but it is %f.", name, value));
+    }
+  }
+}
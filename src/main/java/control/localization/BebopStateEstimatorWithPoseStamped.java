@@ -1,116 +1,104 @@
 package control.localization;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.EvictingQueue;
 import control.dto.DroneStateStamped;
-import control.dto.InertialFrameVelocity;
 import control.dto.Pose;
 import control.dto.Velocity;
+import control.localization.filters.MovingAverageFilter;
 import geometry_msgs.PoseStamped;
+import services.rossubscribers.MessageObserver;
 import services.rossubscribers.MessagesSubscriberService;
+import utils.math.EulerAngle;
 
 import javax.annotation.Nullable;
-import java.util.Collection;
 
 /**
- * A localization that gets both pose and velocity from ArMarker.
+ * A localization that gets both pose and velocity from ArMarker. Every pose message is converted
+ * once, when it arrives, and the resulting state is published for the readers of {@link
+ * #getCurrentState()}.
  *
  * @author Hoang Tung Dinh
  */
 public final class BebopStateEstimatorWithPoseStamped implements StateEstimator {
 
-  private final MessagesSubscriberService<PoseStamped> poseSubscriber;
-  private final EvictingQueue<InertialFrameVelocity> velocityQueue;
-  @Nullable private PoseStamped lastPoseStamped;
-
-  private BebopStateEstimatorWithPoseStamped(
-      MessagesSubscriberService<PoseStamped> poseSubscriber, int numOfVelocitiesToAverage) {
-    this.poseSubscriber = poseSubscriber;
-    velocityQueue = EvictingQueue.create(numOfVelocitiesToAverage);
+  private final MovingAverageFilter velocityX;
+  private final MovingAverageFilter velocityY;
+  private final MovingAverageFilter velocityZ;
+  private final MovingAverageFilter yawRate;
+  @Nullable private Pose lastPose;
+  private double lastTimeStampInSeconds;
+  @Nullable private volatile DroneStateStamped currentState;
+
+  private BebopStateEstimatorWithPoseStamped(int numOfVelocitiesToAverage) {
+    velocityX = MovingAverageFilter.create(numOfVelocitiesToAverage);
+    velocityY = MovingAverageFilter.create(numOfVelocitiesToAverage);
+    velocityZ = MovingAverageFilter.create(numOfVelocitiesToAverage);
+    yawRate = MovingAverageFilter.create(numOfVelocitiesToAverage);
   }
 
+  /**
+   * Creates a state estimator which registers itself as an observer of the pose topic. Only the
+   * poses received after the creation are used.
+   *
+   * @param poseSubscriber the subscriber to the pose topic
+   * @param numOfVelocitiesToAverage the number of most recent velocities averaged into the
+   *     velocity of the state
+   * @return an instance of this class
+   */
   public static BebopStateEstimatorWithPoseStamped create(
       MessagesSubscriberService<PoseStamped> poseSubscriber, int numOfVelocitiesToAverage) {
-    return new BebopStateEstimatorWithPoseStamped(poseSubscriber, numOfVelocitiesToAverage);
+    final BebopStateEstimatorWithPoseStamped stateEstimator =
+        new BebopStateEstimatorWithPoseStamped(numOfVelocitiesToAverage);
+    poseSubscriber.registerMessageObserver(stateEstimator.new PoseObserver());
+    return stateEstimator;
   }
 
   @Override
   public Optional<DroneStateStamped> getCurrentState() {
-    final Optional<PoseStamped> poseStamped = poseSubscriber.getMostRecentMessage();
+    return Optional.fromNullable(currentState);
+  }
 
-    // if there is no pose available yet
-    if (!poseStamped.isPresent()) {
-      return Optional.absent();
-    }
+  private synchronized void onNewPose(PoseStamped poseStamped) {
+    final double timeStampInSeconds = poseStamped.getHeader().getStamp().toSeconds();
 
     // if there is no pose stored yet
-    if (lastPoseStamped == null) {
-      lastPoseStamped = poseStamped.get();
-      return Optional.absent();
+    if (lastPose == null) {
+      lastPose = Pose.create(poseStamped);
+      lastTimeStampInSeconds = timeStampInSeconds;
+      return;
     }
 
-    // if there is at least one pose stored and the pose now is different from the most recent pose
-    if (!lastPoseStamped.getHeader().getStamp().equals(poseStamped.get().getHeader().getStamp())) {
-      // compute the velocity between two most recent pose
-      final double timeDelta =
-          poseStamped.get().getHeader().getStamp().toSeconds()
-              - lastPoseStamped.getHeader().getStamp().toSeconds();
-      final Pose mostRecentPose = Pose.create(poseStamped.get());
-      final Pose secondMostRecentPose = Pose.create(lastPoseStamped);
-      final InertialFrameVelocity inertialFrameVelocity =
-          getVelocity(mostRecentPose, secondMostRecentPose, timeDelta);
-      // put the velocity into the queue
-      velocityQueue.add(inertialFrameVelocity);
-      lastPoseStamped = poseStamped.get();
+    // the same pose may be published more than once
+    if (timeStampInSeconds == lastTimeStampInSeconds) {
+      return;
     }
 
-    if (velocityQueue.remainingCapacity() == 0) {
-      final InertialFrameVelocity currentVelocity = getAverageVelocity(velocityQueue);
-      return Optional.of(
-          DroneStateStamped.create(
-              Pose.create(lastPoseStamped),
-              currentVelocity,
-              lastPoseStamped.getHeader().getStamp().toSeconds()));
-    } else {
-      return Optional.absent();
+    // compute the velocity between two most recent pose
+    final Pose mostRecentPose = Pose.create(poseStamped);
+    final double timeDelta = timeStampInSeconds - lastTimeStampInSeconds;
+    velocityX.add((mostRecentPose.x() - lastPose.x()) / timeDelta);
+    velocityY.add((mostRecentPose.y() - lastPose.y()) / timeDelta);
+    velocityZ.add((mostRecentPose.z() - lastPose.z()) / timeDelta);
+    yawRate.add(EulerAngle.computeAngleDistance(lastPose.yaw(), mostRecentPose.yaw()) / timeDelta);
+    lastPose = mostRecentPose;
+    lastTimeStampInSeconds = timeStampInSeconds;
+
+    if (velocityX.isFull()) {
+      final Velocity currentVelocity =
+          Velocity.builder()
+              .setLinearX(velocityX.getAverage())
+              .setLinearY(velocityY.getAverage())
+              .setLinearZ(velocityZ.getAverage())
+              .setAngularZ(yawRate.getAverage())
+              .build();
+      currentState = DroneStateStamped.create(mostRecentPose, currentVelocity, timeStampInSeconds);
     }
   }
 
-  private static InertialFrameVelocity getAverageVelocity(
-      Collection<InertialFrameVelocity> velocities) {
-    double linearX = 0;
-    double linearY = 0;
-    double linearZ = 0;
-    double angularZ = 0;
-
-    for (final InertialFrameVelocity velocity : velocities) {
-      linearX += velocity.linearX();
-      linearY += velocity.linearY();
-      linearZ += velocity.linearZ();
-      angularZ += velocity.angularZ();
+  private final class PoseObserver implements MessageObserver<PoseStamped> {
+    @Override
+    public void onNewMessage(PoseStamped message) {
+      onNewPose(message);
     }
-
-    final int numberOfVelocities = velocities.size();
-
-    return Velocity.builder()
-        .setLinearX(linearX / numberOfVelocities)
-        .setLinearY(linearY / numberOfVelocities)
-        .setLinearZ(linearZ / numberOfVelocities)
-        .setAngularZ(angularZ / numberOfVelocities)
-        .build();
-  }
-
-  private static InertialFrameVelocity getVelocity(
-      Pose mostRecentPose, Pose secondMostRecentPose, double timeDelta) {
-    final double velLinearX = (mostRecentPose.x() - secondMostRecentPose.x()) / timeDelta;
-    final double velLinearY = (mostRecentPose.y() - secondMostRecentPose.y()) / timeDelta;
-    final double velLinearZ = (mostRecentPose.z() - secondMostRecentPose.z()) / timeDelta;
-    final double velAngularZ = (mostRecentPose.yaw() - secondMostRecentPose.yaw()) / timeDelta;
-    return Velocity.builder()
-        .setLinearX(velLinearX)
-        .setLinearY(velLinearY)
-        .setLinearZ(velLinearZ)
-        .setAngularZ(velAngularZ)
-        .build();
   }
 }
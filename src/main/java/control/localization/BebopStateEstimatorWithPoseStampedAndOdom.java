@@ -8,34 +8,32 @@ import control.dto.Pose;
 import control.dto.Velocity;
 import geometry_msgs.PoseStamped;
 import nav_msgs.Odometry;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import services.rossubscribers.MessageObserver;
 import services.rossubscribers.MessagesSubscriberService;
 import utils.math.Transformations;
 
+import javax.annotation.Nullable;
+
 /**
- * A localization that gets the pose from ArMarker and the velocity from odometry.
+ * A localization that gets the pose from ArMarker and the velocity from odometry. Every pose and
+ * odometry message is converted once, when it arrives, and fused with the most recent message of
+ * the other topic into the state returned by {@link #getCurrentState()}.
  *
  * @author Hoang Tung Dinh
  */
 public final class BebopStateEstimatorWithPoseStampedAndOdom implements StateEstimator {
 
-  private static final Logger logger =
-      LoggerFactory.getLogger(BebopStateEstimatorWithPoseStampedAndOdom.class);
-
-  private final MessagesSubscriberService<PoseStamped> poseSubscriber;
-  private final MessagesSubscriberService<Odometry> odometrySubscriber;
+  @Nullable private Pose lastPose;
+  private double lastTimeStampInSeconds;
+  @Nullable private BodyFrameVelocity lastBodyFrameVelocity;
+  @Nullable private volatile DroneStateStamped currentState;
 
-  private BebopStateEstimatorWithPoseStampedAndOdom(
-      MessagesSubscriberService<PoseStamped> poseSubscriber,
-      MessagesSubscriberService<Odometry> odometrySubscriber) {
-    this.poseSubscriber = poseSubscriber;
-    this.odometrySubscriber = odometrySubscriber;
-  }
+  private BebopStateEstimatorWithPoseStampedAndOdom() {}
 
   /**
    * Creates a state estimator for a bebop drone. The state estimator uses data from a pose topic
-   * and a odometry topic.
+   * and a odometry topic, and registers itself as an observer of both topics. Only the messages
+   * received after the creation are used.
    *
    * @param poseSubscriber the subscriber to the pose topic
    * @param odometrySubscriber the subscriber to the odometry topic
@@ -44,43 +42,52 @@ public final class BebopStateEstimatorWithPoseStampedAndOdom implements StateEst
   public static BebopStateEstimatorWithPoseStampedAndOdom create(
       MessagesSubscriberService<PoseStamped> poseSubscriber,
       MessagesSubscriberService<Odometry> odometrySubscriber) {
-    return new BebopStateEstimatorWithPoseStampedAndOdom(poseSubscriber, odometrySubscriber);
+    final BebopStateEstimatorWithPoseStampedAndOdom stateEstimator =
+        new BebopStateEstimatorWithPoseStampedAndOdom();
+    poseSubscriber.registerMessageObserver(stateEstimator.new PoseObserver());
+    odometrySubscriber.registerMessageObserver(stateEstimator.new OdometryObserver());
+    return stateEstimator;
   }
 
   @Override
   public Optional<DroneStateStamped> getCurrentState() {
-    final Optional<PoseStamped> poseStamped = poseSubscriber.getMostRecentMessage();
+    return Optional.fromNullable(currentState);
+  }
 
-    if (!poseStamped.isPresent()) {
-      return Optional.absent();
-    }
+  private synchronized void onNewPose(PoseStamped poseStamped) {
+    lastPose = Pose.create(poseStamped);
+    lastTimeStampInSeconds = poseStamped.getHeader().getStamp().toSeconds();
+    updateState();
+  }
 
-    final Pose pose = Pose.create(poseStamped.get());
-    final Optional<InertialFrameVelocity> inertialFrameVelocity = getVelocity(pose);
+  private synchronized void onNewOdometry(Odometry odometry) {
+    lastBodyFrameVelocity = Velocity.createLocalVelocityFrom(odometry.getTwist().getTwist());
+    updateState();
+  }
 
-    if (!inertialFrameVelocity.isPresent()) {
-      return Optional.absent();
+  /** Fuses the most recent pose and velocity. Must hold the lock of this estimator. */
+  private void updateState() {
+    if (lastPose == null || lastBodyFrameVelocity == null) {
+      return;
     }
 
-    final DroneStateStamped droneState =
-        DroneStateStamped.create(
-            pose,
-            inertialFrameVelocity.get(),
-            poseStamped.get().getHeader().getStamp().toSeconds());
-    return Optional.of(droneState);
+    final InertialFrameVelocity inertialFrameVelocity =
+        Transformations.bodyFrameVelocityToInertialFrameVelocity(lastBodyFrameVelocity, lastPose);
+    currentState =
+        DroneStateStamped.create(lastPose, inertialFrameVelocity, lastTimeStampInSeconds);
+  }
+
+  private final class PoseObserver implements MessageObserver<PoseStamped> {
+    @Override
+    public void onNewMessage(PoseStamped message) {
+      onNewPose(message);
+    }
   }
 
-  private Optional<InertialFrameVelocity> getVelocity(Pose pose) {
-    final Optional<Odometry> odometryOptional = odometrySubscriber.getMostRecentMessage();
-    if (odometryOptional.isPresent()) {
-      final BodyFrameVelocity bodyFrameVelocity =
-          Velocity.createLocalVelocityFrom(odometryOptional.get().getTwist().getTwist());
-      final InertialFrameVelocity inertialFrameVelocity =
-          Transformations.bodyFrameVelocityToInertialFrameVelocity(bodyFrameVelocity, pose);
-      return Optional.of(inertialFrameVelocity);
-    } else {
-      logger.debug("Cannot get Bebop odometry.");
-      return Optional.absent();
+  private final class OdometryObserver implements MessageObserver<Odometry> {
+    @Override
+    public void onNewMessage(Odometry message) {
+      onNewOdometry(message);
     }
   }
 }
@@ -0,0 +1,117 @@
+package control.localization;
+
+/**
+ * A Kalman filter estimating the position and the velocity along one axis with a constant velocity
+ * model, whose acceleration is white noise. The filter has two state variables, so the covariance
+ * is kept in three fields and every operation works on primitive fields only, without allocating
+ * objects.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Hoang Tung Dinh
+ */
+final class ConstantVelocityKalmanFilter {
+  private final double accelerationNoiseDensity;
+
+  private double position;
+  private double velocity;
+  // the symmetric covariance matrix [[p00, p01], [p01, p11]]
+  private double p00;
+  private double p01;
+  private double p11;
+
+  private ConstantVelocityKalmanFilter(double accelerationNoiseDensity) {
+    this.accelerationNoiseDensity = accelerationNoiseDensity;
+  }
+
+  /**
+   * Creates a filter at position zero with zero velocity.
+   *
+   * @param accelerationNoiseDensity the spectral density of the acceleration noise, in squared
+   *     units per cubed second
+   * @return a filter instance
+   */
+  static ConstantVelocityKalmanFilter create(double accelerationNoiseDensity) {
+    return new ConstantVelocityKalmanFilter(accelerationNoiseDensity);
+  }
+
+  /**
+   * Resets the state of the filter.
+   *
+   * @param initialPosition the initial position
+   * @param positionVariance the variance of the initial position
+   * @param velocityVariance the variance of the initial velocity, which is zero
+   */
+  void reset(double initialPosition, double positionVariance, double velocityVariance) {
+    position = initialPosition;
+    velocity = 0;
+    p00 = positionVariance;
+    p01 = 0;
+    p11 = velocityVariance;
+  }
+
+  /**
+   * Predicts the state after a time step.
+   *
+   * @param timeDelta the time step in seconds, non-negative
+   */
+  void predict(double timeDelta) {
+    final double dt2 = timeDelta * timeDelta;
+    final double q = accelerationNoiseDensity;
+    position += velocity * timeDelta;
+    p00 += timeDelta * (2 * p01 + timeDelta * p11) + q * dt2 * timeDelta / 3;
+    p01 += timeDelta * p11 + q * dt2 / 2;
+    p11 += q * timeDelta;
+  }
+
+  /**
+   * Corrects the state with a position measurement.
+   *
+   * @param innovation the measured position minus the estimated position
+   * @param measurementVariance the variance of the measurement
+   */
+  void correctPosition(double innovation, double measurementVariance) {
+    final double s = p00 + measurementVariance;
+    final double k0 = p00 / s;
+    final double k1 = p01 / s;
+    position += k0 * innovation;
+    velocity += k1 * innovation;
+    p11 -= k1 * p01;
+    p01 -= k0 * p01;
+    p00 -= k0 * p00;
+  }
+
+  /**
+   * Corrects the state with a velocity measurement.
+   *
+   * @param measuredVelocity the measured velocity
+   * @param measurementVariance the variance of the measurement
+   */
+  void correctVelocity(double measuredVelocity, double measurementVariance) {
+    final double innovation = measuredVelocity - velocity;
+    final double s = p11 + measurementVariance;
+    final double k0 = p01 / s;
+    final double k1 = p11 / s;
+    position += k0 * innovation;
+    velocity += k1 * innovation;
+    p00 -= k0 * p01;
+    p01 -= k1 * p01;
+    p11 -= k1 * p11;
+  }
+
+  double position() {
+    return position;
+  }
+
+  double velocity() {
+    return velocity;
+  }
+
+  double positionVariance() {
+    return p00;
+  }
+
+  double velocityVariance() {
+    return p11;
+  }
+}
@@ -1,19 +1,19 @@
 package control.localization;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
-import com.google.common.collect.EvictingQueue;
+import commands.schedulers.ControlLoopScheduler;
+import commands.schedulers.OverrunPolicy;
 import control.dto.DroneStateStamped;
 import control.dto.InertialFrameVelocity;
 import control.dto.Pose;
 import control.dto.Velocity;
+import control.localization.filters.MovingAverageFilter;
 import org.apache.commons.math3.random.GaussianRandomGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
-import java.util.Collection;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -25,7 +25,9 @@ import static com.google.common.base.Preconditions.checkArgument;
  * simulation purpose. This decorator assumes that the noise for all pose and velocity dimensions is
  * from the same Gaussian distribution.
  *
- * <p>TODO: test this class
+ * <p>The fake estimators of all drones are updated on a scheduler shared by the simulated sensors
+ * of the process, which has a single thread. To make the noise of a simulation run reproducible,
+ * every drone should get its own noise generator, e.g., from {@link NoiseStreams}.
  *
  * @author Hoang Tung Dinh
  */
@@ -37,13 +39,20 @@ public final class FakeStateEstimatorDecorator implements StateEstimator {
   private final GaussianRandomGenerator noiseGenerator;
   private final double noiseMean;
   private final double noiseDeviation;
-  private final EvictingQueue<DroneStateStamped> stateQueue;
-
-  @Nullable private DroneStateStamped currentState;
-
-  private FakeStateEstimatorDecorator(
-      final StateEstimator actualStateEstimator,
-      double localizationFrequency,
+  private final MovingAverageFilter x;
+  private final MovingAverageFilter y;
+  private final MovingAverageFilter z;
+  private final MovingAverageFilter yaw;
+  private final MovingAverageFilter linearX;
+  private final MovingAverageFilter linearY;
+  private final MovingAverageFilter linearZ;
+  private final MovingAverageFilter angularZ;
+
+  @Nullable private volatile DroneStateStamped currentState;
+
+  @VisibleForTesting
+  FakeStateEstimatorDecorator(
+      StateEstimator actualStateEstimator,
       GaussianRandomGenerator noiseGenerator,
       double noiseMean,
       double noiseDeviation,
@@ -54,14 +63,27 @@ public final class FakeStateEstimatorDecorator implements StateEstimator {
     this.noiseDeviation = noiseDeviation;
 
     checkArgument(numberOfAveragingPoses >= 1, "numberOfAveragingPoses must be at least one.");
-    this.stateQueue = EvictingQueue.create(numberOfAveragingPoses);
-
-    final long localizationRateInNanoSeconds = (long) (1000000000L / localizationFrequency);
-    Executors.newSingleThreadScheduledExecutor()
-        .scheduleAtFixedRate(
-            new StateGetter(), 0, localizationRateInNanoSeconds, TimeUnit.NANOSECONDS);
+    this.x = MovingAverageFilter.create(numberOfAveragingPoses);
+    this.y = MovingAverageFilter.create(numberOfAveragingPoses);
+    this.z = MovingAverageFilter.create(numberOfAveragingPoses);
+    this.yaw = MovingAverageFilter.createForAngles(numberOfAveragingPoses);
+    this.linearX = MovingAverageFilter.create(numberOfAveragingPoses);
+    this.linearY = MovingAverageFilter.create(numberOfAveragingPoses);
+    this.linearZ = MovingAverageFilter.create(numberOfAveragingPoses);
+    this.angularZ = MovingAverageFilter.create(numberOfAveragingPoses);
   }
 
+  /**
+   * Creates a fake state estimator updated on the scheduler shared by the simulated sensors.
+   *
+   * @param actualStateEstimator the precise state estimator
+   * @param localizationFrequency the number of updates per second
+   * @param noiseGenerator the generator of the noise, which must not be shared with another drone
+   * @param noiseMean the mean of the noise
+   * @param noiseDeviation the standard deviation of the noise
+   * @param numberOfAveragingPoses the number of most recent noisy states which are averaged
+   * @return a fake state estimator
+   */
   public static FakeStateEstimatorDecorator create(
       StateEstimator actualStateEstimator,
       double localizationFrequency,
@@ -69,131 +91,156 @@ public final class FakeStateEstimatorDecorator implements StateEstimator {
       double noiseMean,
       double noiseDeviation,
       int numberOfAveragingPoses) {
-    return new FakeStateEstimatorDecorator(
+    return create(
         actualStateEstimator,
         localizationFrequency,
         noiseGenerator,
         noiseMean,
         noiseDeviation,
-        numberOfAveragingPoses);
+        numberOfAveragingPoses,
+        SensorSchedulerHolder.INSTANCE);
+  }
+
+  /**
+   * Creates a fake state estimator updated on the given scheduler.
+   *
+   * @param actualStateEstimator the precise state estimator
+   * @param localizationFrequency the number of updates per second
+   * @param noiseGenerator the generator of the noise, which must not be shared with another drone
+   * @param noiseMean the mean of the noise
+   * @param noiseDeviation the standard deviation of the noise
+   * @param numberOfAveragingPoses the number of most recent noisy states which are averaged
+   * @param scheduler the scheduler on which the estimator is updated
+   * @return a fake state estimator
+   */
+  public static FakeStateEstimatorDecorator create(
+      StateEstimator actualStateEstimator,
+      double localizationFrequency,
+      GaussianRandomGenerator noiseGenerator,
+      double noiseMean,
+      double noiseDeviation,
+      int numberOfAveragingPoses,
+      ControlLoopScheduler scheduler) {
+    checkArgument(
+        localizationFrequency > 0,
+        String.format(
+            "Localization frequency must be positive, but it is %f.", localizationFrequency));
+    final FakeStateEstimatorDecorator stateEstimator =
+        new FakeStateEstimatorDecorator(
+            actualStateEstimator,
+            noiseGenerator,
+            noiseMean,
+            noiseDeviation,
+            numberOfAveragingPoses);
+    final double periodInSeconds = 1 / localizationFrequency;
+    scheduler.schedule(
+        new Runnable() {
+          @Override
+          public void run() {
+            stateEstimator.update();
+          }
+        },
+        periodInSeconds,
+        periodInSeconds,
+        OverrunPolicy.CATCH_UP);
+    return stateEstimator;
   }
 
   @Override
   public Optional<DroneStateStamped> getCurrentState() {
-    if (currentState == null) {
-      return Optional.absent();
-    } else {
-      return Optional.of(currentState);
-    }
+    return Optional.fromNullable(currentState);
   }
 
-  private final class StateGetter implements Runnable {
-
-    private StateGetter() {}
-
-    @Override
-    public void run() {
-      final Optional<DroneStateStamped> actualCurrentState = actualStateEstimator.getCurrentState();
-      if (actualCurrentState.isPresent()) {
-        final DroneStateStamped state = actualCurrentState.get();
-        logGroundTruthPose(state);
-        final DroneStateStamped newState = addNoiseToState(state);
-        currentState = getAveragedState(newState);
-      } else {
-        currentState = null;
-      }
+  /**
+   * Reads the state of the actual estimator, adds noise to it and publishes the average of the
+   * most recent noisy states. Every call draws eight numbers from the noise generator, so the
+   * sequence of published states only depends on the sequence of actual states and on the seed of
+   * the generator.
+   */
+  @VisibleForTesting
+  void update() {
+    final Optional<DroneStateStamped> actualCurrentState = actualStateEstimator.getCurrentState();
+    if (actualCurrentState.isPresent()) {
+      final DroneStateStamped state = actualCurrentState.get();
+      logGroundTruthPose(state);
+      final DroneStateStamped newState = addNoiseToState(state);
+      currentState = getAveragedState(newState);
+    } else {
+      currentState = null;
     }
+  }
 
-    private DroneStateStamped getAveragedState(DroneStateStamped newState) {
-      final double timeStamp = newState.getTimeStampInSeconds();
-      stateQueue.add(newState);
-      final Pose averagedPose = getAveragedPose(stateQueue);
-      final InertialFrameVelocity averagedVelocity = getAveragedVelocity(stateQueue);
-      return DroneStateStamped.create(averagedPose, averagedVelocity, timeStamp);
-    }
+  private DroneStateStamped getAveragedState(DroneStateStamped newState) {
+    final Pose pose = newState.pose();
+    x.add(pose.x());
+    y.add(pose.y());
+    z.add(pose.z());
+    yaw.add(pose.yaw());
+    final InertialFrameVelocity velocity = newState.inertialFrameVelocity();
+    linearX.add(velocity.linearX());
+    linearY.add(velocity.linearY());
+    linearZ.add(velocity.linearZ());
+    angularZ.add(velocity.angularZ());
+
+    final Pose averagedPose =
+        Pose.builder()
+            .setX(x.getAverage())
+            .setY(y.getAverage())
+            .setZ(z.getAverage())
+            .setYaw(yaw.getAverage())
+            .build();
+    final InertialFrameVelocity averagedVelocity =
+        Velocity.builder()
+            .setLinearX(linearX.getAverage())
+            .setLinearY(linearY.getAverage())
+            .setLinearZ(linearZ.getAverage())
+            .setAngularZ(angularZ.getAverage())
+            .build();
+    return DroneStateStamped.create(
+        averagedPose, averagedVelocity, newState.getTimeStampInSeconds());
+  }
 
-    private InertialFrameVelocity getAveragedVelocity(EvictingQueue<DroneStateStamped> stateQueue) {
-      double linearX = 0;
-      double linearY = 0;
-      double linearZ = 0;
-      double angularZ = 0;
-
-      for (final DroneStateStamped state : stateQueue) {
-        final InertialFrameVelocity velocity = state.inertialFrameVelocity();
-        linearX += velocity.linearX();
-        linearY += velocity.linearY();
-        linearZ += velocity.linearZ();
-        angularZ += velocity.angularZ();
-      }
-
-      final int queueSize = stateQueue.size();
-      return Velocity.builder()
-          .setLinearX(linearX / queueSize)
-          .setLinearY(linearY / queueSize)
-          .setLinearZ(linearZ / queueSize)
-          .setAngularZ(angularZ / queueSize)
-          .build();
-    }
+  private void logGroundTruthPose(DroneStateStamped state) {
+    logger.trace(
+        "{} {} {} {} {}",
+        state.getTimeStampInSeconds(),
+        state.pose().x(),
+        state.pose().y(),
+        state.pose().z(),
+        state.pose().yaw());
+  }
 
-    private Pose getAveragedPose(Collection<DroneStateStamped> stateQueue) {
-      double x = 0;
-      double y = 0;
-      double z = 0;
-      double yaw = 0;
-
-      for (final DroneStateStamped state : stateQueue) {
-        final Pose pose = state.pose();
-        x += pose.x();
-        y += pose.y();
-        z += pose.z();
-        yaw += pose.yaw();
-      }
-
-      final int queueSize = stateQueue.size();
-      return Pose.builder()
-          .setX(x / queueSize)
-          .setY(y / queueSize)
-          .setZ(z / queueSize)
-          .setYaw(yaw / queueSize)
-          .build();
-    }
+  private DroneStateStamped addNoiseToState(DroneStateStamped state) {
+    final Pose noisyPose = addNoiseToPose(state.pose());
+    final InertialFrameVelocity noisyVelocity = addNoiseToVelocity(state.inertialFrameVelocity());
+    return DroneStateStamped.create(noisyPose, noisyVelocity, state.getTimeStampInSeconds());
+  }
 
-    private void logGroundTruthPose(DroneStateStamped state) {
-      logger.trace(
-          "{} {} {} {} {}",
-          state.getTimeStampInSeconds(),
-          state.pose().x(),
-          state.pose().y(),
-          state.pose().z(),
-          state.pose().yaw());
-    }
+  private InertialFrameVelocity addNoiseToVelocity(InertialFrameVelocity inertialFrameVelocity) {
+    return Velocity.builder()
+        .setLinearX(inertialFrameVelocity.linearX() + generateNoise())
+        .setLinearY(inertialFrameVelocity.linearY() + generateNoise())
+        .setLinearZ(inertialFrameVelocity.linearZ() + generateNoise())
+        .setAngularZ(inertialFrameVelocity.angularZ() + generateNoise())
+        .build();
+  }
 
-    private DroneStateStamped addNoiseToState(DroneStateStamped state) {
-      final Pose noisyPose = addNoiseToPose(state.pose());
-      final InertialFrameVelocity noisyVelocity = addNoiseToVelocity(state.inertialFrameVelocity());
-      return DroneStateStamped.create(noisyPose, noisyVelocity, state.getTimeStampInSeconds());
-    }
+  private Pose addNoiseToPose(Pose pose) {
+    return Pose.builder()
+        .setX(pose.x() + generateNoise())
+        .setY(pose.y() + generateNoise())
+        .setZ(pose.z() + generateNoise())
+        .setYaw(pose.yaw() + generateNoise())
+        .build();
+  }
 
-    private InertialFrameVelocity addNoiseToVelocity(InertialFrameVelocity inertialFrameVelocity) {
-      return Velocity.builder()
-          .setLinearX(inertialFrameVelocity.linearX() + generateNoise())
-          .setLinearY(inertialFrameVelocity.linearY() + generateNoise())
-          .setLinearZ(inertialFrameVelocity.linearZ() + generateNoise())
-          .setAngularZ(inertialFrameVelocity.angularZ() + generateNoise())
-          .build();
-    }
+  private double generateNoise() {
+    return noiseGenerator.nextNormalizedDouble() * noiseDeviation + noiseMean;
+  }
 
-    private Pose addNoiseToPose(Pose pose) {
-      return Pose.builder()
-          .setX(pose.x() + generateNoise())
-          .setY(pose.y() + generateNoise())
-          .setZ(pose.z() + generateNoise())
-          .setYaw(pose.yaw() + generateNoise())
-          .build();
-    }
+  private static final class SensorSchedulerHolder {
+    private static final ControlLoopScheduler INSTANCE = ControlLoopScheduler.create(1);
 
-    private double generateNoise() {
-      return noiseGenerator.nextNormalizedDouble() * noiseDeviation + noiseMean;
-    }
+    private SensorSchedulerHolder() {}
   }
 }
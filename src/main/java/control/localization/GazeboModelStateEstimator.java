@@ -13,28 +13,30 @@ import services.rossubscribers.MessagesSubscriberService;
 import time.TimeProvider;
 import utils.math.Transformations;
 
+import javax.annotation.Nullable;
+
 /**
- * A state estimator that gets drone state directly from gazebo's ground truth.
+ * A state estimator that gets drone state directly from gazebo's ground truth. The state of the
+ * drone is extracted from every model state message once, when it arrives, and is stamped with the
+ * arrival time. The model state messages are received by a {@link GazeboModelStatesHub}, which can
+ * feed the state estimators of many drones from a single subscription.
  *
  * @author Hoang Tung Dinh
  */
 public final class GazeboModelStateEstimator implements StateEstimator {
-  private final MessagesSubscriberService<ModelStates> modelStateSubscriber;
-  private final String modelName;
-  private final TimeProvider timeProvider;
+  @Nullable private volatile DroneStateStamped currentState;
 
-  private GazeboModelStateEstimator(
-      MessagesSubscriberService<ModelStates> modelStateSubscriber,
-      String modelName,
-      TimeProvider timeProvider) {
-    this.modelStateSubscriber = modelStateSubscriber;
-    this.modelName = modelName;
-    this.timeProvider = timeProvider;
+  private GazeboModelStateEstimator() {}
+
+  static GazeboModelStateEstimator create() {
+    return new GazeboModelStateEstimator();
   }
 
   /**
    * Creates a state estimator that use the ModelStates topics in Gazebo to get the current state of
-   * the drone.
+   * the drone. The state estimator registers a {@link GazeboModelStatesHub} as an observer of the
+   * model state topic, so only the messages received after the creation are used. Use {@link
+   * GazeboModelStatesHub#createStateEstimator(String)} to share a subscription between drones.
    *
    * @param modelStateSubscriber the rostopic subscriber to a topic publishing model state messages
    * @param modelName the name of the drone model. A model state topic in Gazebo contains the states
@@ -46,7 +48,8 @@ public final class GazeboModelStateEstimator implements StateEstimator {
       MessagesSubscriberService<ModelStates> modelStateSubscriber,
       String modelName,
       TimeProvider timeProvider) {
-    return new GazeboModelStateEstimator(modelStateSubscriber, modelName, timeProvider);
+    return GazeboModelStatesHub.create(modelStateSubscriber, timeProvider)
+        .createStateEstimator(modelName);
   }
 
   private static InertialFrameVelocity getInertialFrameVelocity(
@@ -68,7 +71,7 @@ public final class GazeboModelStateEstimator implements StateEstimator {
   private static Pose convertGazeboPoseToDronePose(geometry_msgs.Pose gazeboPose) {
     final Point currentPoint = gazeboPose.getPosition();
     final Quaternion currentOrientation = gazeboPose.getOrientation();
-    final double currentYaw = Transformations.quaternionToEulerAngle(currentOrientation).angleZ();
+    final double currentYaw = Transformations.quaternionToYaw(currentOrientation);
     return Pose.builder()
         .setX(currentPoint.getX())
         .setY(currentPoint.getY())
@@ -77,24 +80,22 @@ public final class GazeboModelStateEstimator implements StateEstimator {
         .build();
   }
 
-  @Override
-  public Optional<DroneStateStamped> getCurrentState() {
-    final Optional<ModelStates> modelStateOptional = modelStateSubscriber.getMostRecentMessage();
-    if (!modelStateOptional.isPresent()) {
-      return Optional.absent();
-    }
-
-    final ModelStates modelStates = modelStateOptional.get();
-    final int index = modelStates.getName().indexOf(modelName);
-    if (index == -1) {
-      return Optional.absent();
-    }
-
+  /**
+   * Updates the state of the drone. Called by the thread delivering the model state messages.
+   *
+   * @param modelStates the model state message
+   * @param index the index of the drone in the message
+   * @param timeStampInSeconds the arrival time of the message
+   */
+  void update(ModelStates modelStates, int index, double timeStampInSeconds) {
     final Pose pose = getDronePose(modelStates, index);
     final InertialFrameVelocity inertialFrameVelocity =
         getInertialFrameVelocity(modelStates, index);
+    currentState = DroneStateStamped.create(pose, inertialFrameVelocity, timeStampInSeconds);
+  }
 
-    final double timeStampInSeconds = timeProvider.getCurrentTimeSeconds();
-    return Optional.of(DroneStateStamped.create(pose, inertialFrameVelocity, timeStampInSeconds));
+  @Override
+  public Optional<DroneStateStamped> getCurrentState() {
+    return Optional.fromNullable(currentState);
   }
 }
@@ -0,0 +1,132 @@
+package control.localization;
+
+import gazebo_msgs.ModelStates;
+import services.rossubscribers.MessageObserver;
+import services.rossubscribers.MessagesSubscriberService;
+import time.TimeProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A single observer of a Gazebo model state topic which feeds the state of every drone to its
+ * {@link GazeboModelStateEstimator}. The topic is subscribed to once, however many drones there
+ * are, so every message is deserialized once.
+ *
+ * <p>The index of each drone in the model list is resolved once and cached. The cached indices are
+ * checked against the names of every message and are resolved again only when the list of models
+ * changes, e.g., when a model is spawned or deleted. As long as a model is not found, the names of
+ * every message are compared with the names of the last resolution, so that the model is found as
+ * soon as it is spawned, even if another model is deleted at the same time.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class GazeboModelStatesHub implements MessageObserver<ModelStates> {
+  private static final int NOT_FOUND = -1;
+
+  private final TimeProvider timeProvider;
+  private final List<Entry> entries = new CopyOnWriteArrayList<>();
+  private int numberOfModels = NOT_FOUND;
+  private int numberOfResolvedEntries;
+  private int numberOfMissingEntries;
+  private List<String> resolvedNames = Collections.emptyList();
+
+  private GazeboModelStatesHub(TimeProvider timeProvider) {
+    this.timeProvider = timeProvider;
+  }
+
+  /**
+   * Creates a hub which registers itself as an observer of the model state topic.
+   *
+   * @param modelStateSubscriber the rostopic subscriber to a topic publishing model state messages
+   * @param timeProvider the time provider
+   * @return a hub instance
+   */
+  public static GazeboModelStatesHub create(
+      MessagesSubscriberService<ModelStates> modelStateSubscriber, TimeProvider timeProvider) {
+    final GazeboModelStatesHub hub = new GazeboModelStatesHub(timeProvider);
+    modelStateSubscriber.registerMessageObserver(hub);
+    return hub;
+  }
+
+  /**
+   * Creates a state estimator for a model in the simulation environment. The state estimator gets
+   * the state of the model from the model state messages received by this hub.
+   *
+   * @param modelName the name of the drone model
+   * @return a state estimator for the model
+   */
+  public GazeboModelStateEstimator createStateEstimator(String modelName) {
+    final GazeboModelStateEstimator stateEstimator = GazeboModelStateEstimator.create();
+    entries.add(new Entry(modelName, stateEstimator));
+    return stateEstimator;
+  }
+
+  @Override
+  public void onNewMessage(ModelStates modelStates) {
+    final List<String> names = modelStates.getName();
+    if (!indicesAreValid(names)) {
+      resolveIndices(names);
+    }
+
+    final double timeStampInSeconds = timeProvider.getCurrentTimeSeconds();
+    for (final Entry entry : entries) {
+      if (entry.index != NOT_FOUND) {
+        entry.stateEstimator.update(modelStates, entry.index, timeStampInSeconds);
+      }
+    }
+  }
+
+  private boolean indicesAreValid(List<String> names) {
+    // the index of a new model is resolved with the next message
+    if (names.size() != numberOfModels || entries.size() != numberOfResolvedEntries) {
+      return false;
+    }
+
+    for (final Entry entry : entries) {
+      if (entry.index != NOT_FOUND && !entry.modelName.equals(names.get(entry.index))) {
+        return false;
+      }
+    }
+    // a missing model may have replaced another one without changing the number of models
+    return numberOfMissingEntries == 0 || names.equals(resolvedNames);
+  }
+
+  private void resolveIndices(List<String> names) {
+    final Map<String, Integer> indices = new HashMap<>();
+    for (int i = 0; i < names.size(); i++) {
+      indices.put(names.get(i), i);
+    }
+
+    int numberOfEntries = 0;
+    int numberOfMissing = 0;
+    for (final Entry entry : entries) {
+      final Integer index = indices.get(entry.modelName);
+      entry.index = index == null ? NOT_FOUND : index;
+      numberOfEntries++;
+      if (index == null) {
+        numberOfMissing++;
+      }
+    }
+    numberOfModels = names.size();
+    numberOfResolvedEntries = numberOfEntries;
+    numberOfMissingEntries = numberOfMissing;
+    resolvedNames = new ArrayList<>(names);
+  }
+
+  /** A registered model. The index is only accessed by the thread delivering the messages. */
+  private static final class Entry {
+    final String modelName;
+    final GazeboModelStateEstimator stateEstimator;
+    int index = NOT_FOUND;
+
+    Entry(String modelName, GazeboModelStateEstimator stateEstimator) {
+      this.modelName = modelName;
+      this.stateEstimator = stateEstimator;
+    }
+  }
+}
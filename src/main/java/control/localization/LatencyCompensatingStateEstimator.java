@@ -0,0 +1,297 @@
+package control.localization;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Optional;
+import control.dto.DroneStateStamped;
+import control.dto.InertialFrameVelocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+import control.dto.Pose;
+import time.TimeProvider;
+import utils.math.EulerAngle;
+import utils.metrics.LatencyHistogram;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link StateEstimator} decorator which projects the state of another estimator forward to the
+ * current time, so that a controller acts on a state aligned with the time it sends its commands.
+ * The pose is extrapolated with the velocity of the state over the age of the state, which is
+ * measured from the time stamp of the state plus an additional latency not included in the stamp,
+ * e.g., the delay between the camera and the marker detection for a state stamped on arrival. The
+ * extrapolation is bounded by a maximum prediction horizon, so a drone whose messages stop arriving
+ * is not extrapolated far away.
+ *
+ * <p>The projected state keeps the time stamp of the state it is projected from, so that a reader
+ * can still tell whether the decorated estimator has received a new state since its last read.
+ *
+ * <p>The recent predictions are kept in a bounded {@link StateHistory}. When a newer state is
+ * received, it is compared with the prediction made for its time, and the error of every axis is
+ * accumulated in {@link #getPredictionError()}. The age of the states at use is recorded in {@link
+ * #getStateAge()}. Every read is thus taken as a use by the controller: other readers, such as a
+ * separation monitor, should read the decorated estimator.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class LatencyCompensatingStateEstimator implements StateEstimator {
+  private final StateEstimator stateEstimator;
+  private final TimeProvider timeProvider;
+  private final double additionalLatency;
+  private final double maximumPredictionHorizon;
+
+  private final StateHistory predictions;
+  private final MutablePose pastPose = MutablePose.create();
+  private final MutableVelocity pastVelocity = MutableVelocity.create();
+  private final MutablePose predictedPose = MutablePose.create();
+  private final MutableVelocity predictedVelocity = MutableVelocity.create();
+
+  private double lastSourceTime = Double.NEGATIVE_INFINITY;
+  private final double[] sumOfSquaredErrors = new double[4];
+  private long numberOfErrors;
+
+  private final LatencyHistogram stateAge = LatencyHistogram.create("state age");
+
+  private LatencyCompensatingStateEstimator(Builder builder) {
+    stateEstimator = builder.stateEstimator;
+    timeProvider = builder.timeProvider;
+    additionalLatency = builder.additionalLatencyInSeconds;
+    maximumPredictionHorizon = builder.maximumPredictionHorizonInSeconds;
+
+    predictions = StateHistory.create(builder.historySize);
+  }
+
+  /**
+   * Gets a builder of this class.
+   *
+   * @return a builder instance
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public synchronized Optional<DroneStateStamped> getCurrentState() {
+    final Optional<DroneStateStamped> currentState = stateEstimator.getCurrentState();
+    if (!currentState.isPresent()) {
+      return currentState;
+    }
+
+    final DroneStateStamped state = currentState.get();
+    final double sourceTime = state.getTimeStampInSeconds() - additionalLatency;
+    if (sourceTime > lastSourceTime) {
+      trackPredictionError(state, sourceTime);
+      lastSourceTime = sourceTime;
+    }
+
+    final double now = timeProvider.getCurrentTimeSeconds();
+    final double age = now - sourceTime;
+    stateAge.record((long) (Math.max(age, 0) * 1.0e9));
+
+    final double horizon = Math.min(Math.max(age, 0), maximumPredictionHorizon);
+    final Pose pose = state.pose();
+    final InertialFrameVelocity velocity = state.inertialFrameVelocity();
+    predictedPose.set(
+        pose.x() + velocity.linearX() * horizon,
+        pose.y() + velocity.linearY() * horizon,
+        pose.z() + velocity.linearZ() * horizon,
+        EulerAngle.computeAngleDistance(0, pose.yaw() + velocity.angularZ() * horizon));
+    predictedVelocity.set(
+        velocity.linearX(), velocity.linearY(), velocity.linearZ(), velocity.angularZ());
+    // the history is indexed by the time the prediction is made for
+    predictions.add(sourceTime + horizon, predictedPose, predictedVelocity);
+    return Optional.of(
+        DroneStateStamped.create(predictedPose.toPose(), velocity, state.getTimeStampInSeconds()));
+  }
+
+  /**
+   * Compares a new state with the prediction made for its time, interpolated between the
+   * predictions around that time, or extrapolated from the most recent prediction.
+   */
+  private void trackPredictionError(DroneStateStamped state, double sourceTime) {
+    double timeDelta = 0;
+    if (!predictions.getStateAt(sourceTime, pastPose, pastVelocity)) {
+      final Optional<DroneStateStamped> latestPrediction = predictions.getLatest();
+      if (!latestPrediction.isPresent()) {
+        return;
+      }
+      timeDelta = sourceTime - latestPrediction.get().getTimeStampInSeconds();
+      // a prediction older than the horizon is not a prediction of this state
+      if (timeDelta < 0 || timeDelta > maximumPredictionHorizon) {
+        return;
+      }
+      pastPose.set(latestPrediction.get().pose());
+      final InertialFrameVelocity velocity = latestPrediction.get().inertialFrameVelocity();
+      pastVelocity.set(
+          velocity.linearX(), velocity.linearY(), velocity.linearZ(), velocity.angularZ());
+    }
+
+    final Pose pose = state.pose();
+    final double[] errors = sumOfSquaredErrors;
+    errors[0] += square(pastPose.x() + pastVelocity.linearX() * timeDelta - pose.x());
+    errors[1] += square(pastPose.y() + pastVelocity.linearY() * timeDelta - pose.y());
+    errors[2] += square(pastPose.z() + pastVelocity.linearZ() * timeDelta - pose.z());
+    errors[3] +=
+        square(
+            EulerAngle.computeAngleDistance(
+                pose.yaw(), pastPose.yaw() + pastVelocity.angularZ() * timeDelta));
+    numberOfErrors++;
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+
+  /**
+   * Gets the histogram of the age of the states of the decorated estimator when they are used,
+   * i.e., the time between the measurement of a state and the call of {@link #getCurrentState()}.
+   *
+   * @return the state age histogram
+   */
+  public LatencyHistogram getStateAge() {
+    return stateAge;
+  }
+
+  /**
+   * Gets the root mean square error of the predictions of every axis, measured when newer states
+   * are received.
+   *
+   * @return the prediction error
+   */
+  public synchronized PredictionError getPredictionError() {
+    if (numberOfErrors == 0) {
+      return PredictionError.create(0, 0, 0, 0, 0);
+    }
+    return PredictionError.create(
+        Math.sqrt(sumOfSquaredErrors[0] / numberOfErrors),
+        Math.sqrt(sumOfSquaredErrors[1] / numberOfErrors),
+        Math.sqrt(sumOfSquaredErrors[2] / numberOfErrors),
+        Math.sqrt(sumOfSquaredErrors[3] / numberOfErrors),
+        numberOfErrors);
+  }
+
+  /** The root mean square error of the predictions of every axis. */
+  @AutoValue
+  public abstract static class PredictionError {
+    PredictionError() {}
+
+    static PredictionError create(double x, double y, double z, double yaw, long count) {
+      return new AutoValue_LatencyCompensatingStateEstimator_PredictionError(x, y, z, yaw, count);
+    }
+
+    /** @return the root mean square error of the x coordinate */
+    public abstract double x();
+
+    /** @return the root mean square error of the y coordinate */
+    public abstract double y();
+
+    /** @return the root mean square error of the z coordinate */
+    public abstract double z();
+
+    /** @return the root mean square error of the yaw */
+    public abstract double yaw();
+
+    /** @return the number of predictions compared with a newer state */
+    public abstract long count();
+  }
+
+  /** {@code LatencyCompensatingStateEstimator} builder static inner class. */
+  public static final class Builder {
+    @Nullable private StateEstimator stateEstimator;
+    @Nullable private TimeProvider timeProvider;
+    private double additionalLatencyInSeconds;
+    private double maximumPredictionHorizonInSeconds = 0.5;
+    private int historySize = 64;
+
+    private Builder() {}
+
+    /**
+     * Sets the {@code stateEstimator} and returns a reference to this Builder so that the methods
+     * can be chained together.
+     *
+     * @param val the {@code stateEstimator} to set
+     * @return a reference to this Builder
+     */
+    public Builder withStateEstimator(StateEstimator val) {
+      stateEstimator = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code timeProvider} and returns a reference to this Builder so that the methods can
+     * be chained together.
+     *
+     * @param val the {@code timeProvider} to set
+     * @return a reference to this Builder
+     */
+    public Builder withTimeProvider(TimeProvider val) {
+      timeProvider = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code additionalLatencyInSeconds} and returns a reference to this Builder so that
+     * the methods can be chained together. It is the latency which is not included in the time
+     * stamps of the states. The default value is 0.
+     *
+     * @param val the {@code additionalLatencyInSeconds} to set
+     * @return a reference to this Builder
+     */
+    public Builder withAdditionalLatencyInSeconds(double val) {
+      additionalLatencyInSeconds = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code maximumPredictionHorizonInSeconds} and returns a reference to this Builder so
+     * that the methods can be chained together. The default value is 0.5.
+     *
+     * @param val the {@code maximumPredictionHorizonInSeconds} to set
+     * @return a reference to this Builder
+     */
+    public Builder withMaximumPredictionHorizonInSeconds(double val) {
+      maximumPredictionHorizonInSeconds = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code historySize} and returns a reference to this Builder so that the methods can
+     * be chained together. It is the number of recent predictions kept to measure the prediction
+     * error, at least 2. The default value is 64.
+     *
+     * @param val the {@code historySize} to set
+     * @return a reference to this Builder
+     */
+    public Builder withHistorySize(int val) {
+      historySize = val;
+      return this;
+    }
+
+    /**
+     * Returns a {@code LatencyCompensatingStateEstimator} built from the parameters previously set.
+     *
+     * @return a {@code LatencyCompensatingStateEstimator} built with parameters of this {@code
+     *     LatencyCompensatingStateEstimator.Builder}
+     */
+    public LatencyCompensatingStateEstimator build() {
+      checkNotNull(stateEstimator, "The state estimator must be set.");
+      checkNotNull(timeProvider, "The time provider must be set.");
+      checkArgument(
+          additionalLatencyInSeconds >= 0,
+          String.format(
+              "Additional latency must be non-negative, but it is %f.",
+              additionalLatencyInSeconds));
+      checkArgument(
+          maximumPredictionHorizonInSeconds >= 0,
+          String.format(
+              "Maximum prediction horizon must be non-negative, but it is %f.",
+              maximumPredictionHorizonInSeconds));
+      checkArgument(
+          historySize >= 2,
+          String.format("History size must be at least 2, but it is %d.", historySize));
+      return new LatencyCompensatingStateEstimator(this);
+    }
+  }
+}
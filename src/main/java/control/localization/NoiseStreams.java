@@ -0,0 +1,64 @@
+package control.localization;
+
+import org.apache.commons.math3.random.GaussianRandomGenerator;
+import org.apache.commons.math3.random.MersenneTwister;
+
+/**
+ * A family of independent and reproducible streams of Gaussian noise derived from one seed. Every
+ * stream is identified by a name, e.g., the name of a drone, and is seeded from the seed of the
+ * family and the name only. A simulation run with the same seed therefore gives every drone the
+ * same noise, whatever the number of drones and the order in which their streams are created.
+ *
+ * <p>The seed of a stream is derived with the mixing function of SplitMix64, so that streams with
+ * similar names or families with consecutive seeds are not correlated.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class NoiseStreams {
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final long seed;
+
+  private NoiseStreams(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Creates a family of noise streams.
+   *
+   * @param seed the seed from which the streams are derived
+   * @return a family of noise streams
+   */
+  public static NoiseStreams create(long seed) {
+    return new NoiseStreams(seed);
+  }
+
+  /**
+   * Creates a new generator of the noise stream with the given name. Generators of the same stream
+   * generate the same sequence of numbers. A generator is not thread-safe and must not be shared
+   * between drones.
+   *
+   * @param streamName the name of the stream
+   * @return a new generator of the stream
+   */
+  public GaussianRandomGenerator createGenerator(String streamName) {
+    return new GaussianRandomGenerator(new MersenneTwister(getStreamSeed(streamName)));
+  }
+
+  /**
+   * Gets the seed of the stream with the given name.
+   *
+   * @param streamName the name of the stream
+   * @return the seed of the stream
+   */
+  public long getStreamSeed(String streamName) {
+    return mix(seed + GOLDEN_GAMMA * (mix(streamName.hashCode()) | 1));
+  }
+
+  private static long mix(long value) {
+    long z = value + GOLDEN_GAMMA;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,281 @@
+package control.localization;
+
+import com.google.common.base.Optional;
+import control.dto.DroneStateStamped;
+import control.dto.InertialFrameVelocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+import control.dto.Pose;
+import control.dto.Velocity;
+import utils.math.EulerAngle;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A history of the most recent states of a drone, ordered by time stamp, which answers where the
+ * drone was at a given time. The states are stored in primitive arrays used as a ring buffer, a
+ * state is found by binary search in O(log n), and the state between two recorded states is
+ * interpolated: linearly for the position and the velocity, and along the shortest arc for the
+ * yaw.
+ *
+ * <p>A history can be shared by several components, e.g., a state estimator recording its states
+ * and a logger or a monitor reading them. Adding states and reading them is thread-safe. The
+ * queries have an allocation-free variant writing into mutable holders.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class StateHistory {
+  private final int capacity;
+  private final double[] timeStamps;
+  private final double[] x;
+  private final double[] y;
+  private final double[] z;
+  private final double[] yaw;
+  private final double[] linearX;
+  private final double[] linearY;
+  private final double[] linearZ;
+  private final double[] angularZ;
+  private int oldest;
+  private int size;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private StateHistory(int capacity) {
+    this.capacity = capacity;
+    timeStamps = new double[capacity];
+    x = new double[capacity];
+    y = new double[capacity];
+    z = new double[capacity];
+    yaw = new double[capacity];
+    linearX = new double[capacity];
+    linearY = new double[capacity];
+    linearZ = new double[capacity];
+    angularZ = new double[capacity];
+  }
+
+  /**
+   * Creates an empty history.
+   *
+   * @param capacity the number of most recent states kept in the history
+   * @return an empty history
+   */
+  public static StateHistory create(int capacity) {
+    checkArgument(
+        capacity >= 2, String.format("Capacity must be at least 2, but it is %d.", capacity));
+    return new StateHistory(capacity);
+  }
+
+  /**
+   * Adds a state to the history, overwriting the oldest one if the history is full. A state with
+   * the same time stamp as the most recent state replaces it, and a state older than the most
+   * recent state is ignored.
+   *
+   * @param state the new state
+   * @return true if the state has been added
+   */
+  public boolean add(DroneStateStamped state) {
+    final Pose pose = state.pose();
+    final InertialFrameVelocity velocity = state.inertialFrameVelocity();
+    return add(
+        state.getTimeStampInSeconds(),
+        pose.x(),
+        pose.y(),
+        pose.z(),
+        pose.yaw(),
+        velocity.linearX(),
+        velocity.linearY(),
+        velocity.linearZ(),
+        velocity.angularZ());
+  }
+
+  /**
+   * Adds a state to the history without allocating objects. See {@link #add(DroneStateStamped)}.
+   *
+   * @param timeStampInSeconds the time stamp of the state
+   * @param pose the pose of the drone
+   * @param velocity the velocity of the drone in the inertial frame
+   * @return true if the state has been added
+   */
+  public boolean add(double timeStampInSeconds, MutablePose pose, MutableVelocity velocity) {
+    return add(
+        timeStampInSeconds,
+        pose.x(),
+        pose.y(),
+        pose.z(),
+        pose.yaw(),
+        velocity.linearX(),
+        velocity.linearY(),
+        velocity.linearZ(),
+        velocity.angularZ());
+  }
+
+  private boolean add(
+      double timeStamp,
+      double poseX,
+      double poseY,
+      double poseZ,
+      double poseYaw,
+      double velocityX,
+      double velocityY,
+      double velocityZ,
+      double velocityYaw) {
+    lock.writeLock().lock();
+    try {
+      final int i;
+      if (size > 0 && timeStamp <= timeStamps[indexOf(size - 1)]) {
+        if (timeStamp < timeStamps[indexOf(size - 1)]) {
+          return false;
+        }
+        i = indexOf(size - 1);
+      } else if (size < capacity) {
+        i = indexOf(size);
+        size++;
+      } else {
+        i = oldest;
+        oldest = indexOf(1);
+      }
+
+      timeStamps[i] = timeStamp;
+      x[i] = poseX;
+      y[i] = poseY;
+      z[i] = poseZ;
+      yaw[i] = poseYaw;
+      linearX[i] = velocityX;
+      linearY[i] = velocityY;
+      linearZ[i] = velocityZ;
+      angularZ[i] = velocityYaw;
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of states in the history.
+   *
+   * @return the number of states
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the most recent state.
+   *
+   * @return the most recent state, or absent if the history is empty
+   */
+  public Optional<DroneStateStamped> getLatest() {
+    lock.readLock().lock();
+    try {
+      if (size == 0) {
+        return Optional.absent();
+      }
+      final int i = indexOf(size - 1);
+      final Pose pose = Pose.builder().setX(x[i]).setY(y[i]).setZ(z[i]).setYaw(yaw[i]).build();
+      final Velocity velocity =
+          Velocity.builder()
+              .setLinearX(linearX[i])
+              .setLinearY(linearY[i])
+              .setLinearZ(linearZ[i])
+              .setAngularZ(angularZ[i])
+              .build();
+      return Optional.of(DroneStateStamped.create(pose, velocity, timeStamps[i]));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the state of the drone at a given time, interpolated between the two recorded states
+   * around that time.
+   *
+   * @param timeInSeconds the time of the state
+   * @return the state at {@code timeInSeconds}, or absent if the time is before the oldest state or
+   *     after the most recent state of the history
+   */
+  public Optional<DroneStateStamped> getStateAt(double timeInSeconds) {
+    final MutablePose pose = MutablePose.create();
+    final MutableVelocity velocity = MutableVelocity.create();
+    if (!getStateAt(timeInSeconds, pose, velocity)) {
+      return Optional.absent();
+    }
+    return Optional.of(
+        DroneStateStamped.create(pose.toPose(), velocity.toVelocity(), timeInSeconds));
+  }
+
+  /**
+   * Gets the state of the drone at a given time without allocating objects. See {@link
+   * #getStateAt(double)}.
+   *
+   * @param timeInSeconds the time of the state
+   * @param pose the output holder of the pose at {@code timeInSeconds}
+   * @param velocity the output holder of the velocity at {@code timeInSeconds}
+   * @return true if the state has been found, false if the holders have not been written
+   */
+  public boolean getStateAt(double timeInSeconds, MutablePose pose, MutableVelocity velocity) {
+    lock.readLock().lock();
+    try {
+      if (size == 0
+          || timeInSeconds < timeStamps[oldest]
+          || timeInSeconds > timeStamps[indexOf(size - 1)]) {
+        return false;
+      }
+
+      final int k = findLastAtOrBefore(timeInSeconds);
+      final int i = indexOf(k);
+      if (timeStamps[i] == timeInSeconds || k == size - 1) {
+        pose.set(x[i], y[i], z[i], yaw[i]);
+        velocity.set(linearX[i], linearY[i], linearZ[i], angularZ[i]);
+        return true;
+      }
+
+      final int j = indexOf(k + 1);
+      final double f = (timeInSeconds - timeStamps[i]) / (timeStamps[j] - timeStamps[i]);
+      pose.set(
+          interpolate(x[i], x[j], f),
+          interpolate(y[i], y[j], f),
+          interpolate(z[i], z[j], f),
+          EulerAngle.computeAngleDistance(
+              0, yaw[i] + f * EulerAngle.computeAngleDistance(yaw[i], yaw[j])));
+      velocity.set(
+          interpolate(linearX[i], linearX[j], f),
+          interpolate(linearY[i], linearY[j], f),
+          interpolate(linearZ[i], linearZ[j], f),
+          interpolate(angularZ[i], angularZ[j], f));
+      return true;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Finds the position of the last state not after the given time. Must hold the lock. */
+  private int findLastAtOrBefore(double timeInSeconds) {
+    int low = 0;
+    int high = size - 1;
+    while (low < high) {
+      final int middle = (low + high + 1) >>> 1;
+      if (timeStamps[indexOf(middle)] <= timeInSeconds) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  private static double interpolate(double first, double second, double fraction) {
+    return first + fraction * (second - first);
+  }
+
+  /** Converts a position in the history, from the oldest state, to an index in the arrays. */
+  private int indexOf(int position) {
+    return (oldest + position) % capacity;
+  }
+}
@@ -0,0 +1,99 @@
+package control.localization.filters;
+
+import utils.math.EulerAngle;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An exponential moving average of a signal: every new sample moves the value towards the sample
+ * by a fixed fraction of their difference. The first sample initializes the value.
+ *
+ * <p>A filter created with {@link #createForAngles(double)} filters angles in radians: the value
+ * moves along the shortest arc towards the new angle and stays in [-pi, pi].
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class ExponentialFilter {
+  private final double smoothingFactor;
+  private final boolean angular;
+  private boolean initialized;
+  private double value;
+
+  private ExponentialFilter(double smoothingFactor, boolean angular) {
+    this.smoothingFactor = smoothingFactor;
+    this.angular = angular;
+  }
+
+  /**
+   * Creates an exponential filter.
+   *
+   * @param smoothingFactor the weight of a new sample, in (0, 1]. A factor of one keeps the last
+   *     sample only.
+   * @return a filter without value
+   */
+  public static ExponentialFilter create(double smoothingFactor) {
+    checkSmoothingFactor(smoothingFactor);
+    return new ExponentialFilter(smoothingFactor, false);
+  }
+
+  /**
+   * Creates an exponential filter of angles in radians.
+   *
+   * @param smoothingFactor the weight of a new sample, in (0, 1]
+   * @return a filter without value
+   */
+  public static ExponentialFilter createForAngles(double smoothingFactor) {
+    checkSmoothingFactor(smoothingFactor);
+    return new ExponentialFilter(smoothingFactor, true);
+  }
+
+  private static void checkSmoothingFactor(double smoothingFactor) {
+    checkArgument(
+        smoothingFactor > 0 && smoothingFactor <= 1,
+        String.format("Smoothing factor must be in (0, 1], but it is %f.", smoothingFactor));
+  }
+
+  /**
+   * Adds a new sample.
+   *
+   * @param sample the new sample
+   */
+  public void add(double sample) {
+    if (!initialized) {
+      value = angular ? EulerAngle.computeAngleDistance(0, sample) : sample;
+      initialized = true;
+    } else if (angular) {
+      value =
+          EulerAngle.computeAngleDistance(
+              0, value + smoothingFactor * EulerAngle.computeAngleDistance(value, sample));
+    } else {
+      value += smoothingFactor * (sample - value);
+    }
+  }
+
+  /**
+   * Gets the filtered value.
+   *
+   * @return the filtered value, or zero if no sample has been added
+   */
+  public double getValue() {
+    return value;
+  }
+
+  /**
+   * Checks whether a sample has been added.
+   *
+   * @return true if the filter has a value
+   */
+  public boolean isInitialized() {
+    return initialized;
+  }
+
+  /** Forgets the value of the filter. */
+  public void reset() {
+    initialized = false;
+    value = 0;
+  }
+}
@@ -0,0 +1,134 @@
+package control.localization.filters;
+
+import utils.math.EulerAngle;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A moving average over the most recent samples of a signal. The sum of the samples in the window
+ * is updated with every new sample, so adding a sample and reading the average take constant time
+ * whatever the size of the window. The sum is recomputed from the samples once per window to
+ * discard the accumulated rounding errors.
+ *
+ * <p>A filter created with {@link #createForAngles(int)} averages angles in radians: every new
+ * angle is unwrapped to the value closest to the previous one, so that angles on both sides of pi
+ * are averaged as the neighbours they are, and the average is wrapped back into [-pi, pi].
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class MovingAverageFilter {
+  private final double[] samples;
+  private final boolean angular;
+  private int next;
+  private int size;
+  private double sum;
+
+  private MovingAverageFilter(int windowSize, boolean angular) {
+    this.samples = new double[windowSize];
+    this.angular = angular;
+  }
+
+  /**
+   * Creates a moving average filter.
+   *
+   * @param windowSize the number of most recent samples averaged
+   * @return an empty filter
+   */
+  public static MovingAverageFilter create(int windowSize) {
+    checkWindowSize(windowSize);
+    return new MovingAverageFilter(windowSize, false);
+  }
+
+  /**
+   * Creates a moving average filter of angles in radians.
+   *
+   * @param windowSize the number of most recent samples averaged
+   * @return an empty filter
+   */
+  public static MovingAverageFilter createForAngles(int windowSize) {
+    checkWindowSize(windowSize);
+    return new MovingAverageFilter(windowSize, true);
+  }
+
+  private static void checkWindowSize(int windowSize) {
+    checkArgument(
+        windowSize >= 1,
+        String.format("Window size must be at least 1, but it is %d.", windowSize));
+  }
+
+  /**
+   * Adds a new sample, replacing the oldest one if the window is full.
+   *
+   * @param sample the new sample
+   */
+  public void add(double sample) {
+    double value = sample;
+    if (angular && size > 0) {
+      value = UnwrappedAngles.unwrap(samples[(next - 1 + samples.length) % samples.length], sample);
+    }
+
+    if (size == samples.length) {
+      sum -= samples[next];
+    } else {
+      size++;
+    }
+    samples[next] = value;
+    sum += value;
+    next = (next + 1) % samples.length;
+
+    if (next == 0) {
+      recomputeSum();
+    }
+  }
+
+  private void recomputeSum() {
+    if (angular) {
+      UnwrappedAngles.rewrap(samples, size, samples[samples.length - 1]);
+    }
+    double newSum = 0;
+    for (int i = 0; i < size; i++) {
+      newSum += samples[i];
+    }
+    sum = newSum;
+  }
+
+  /**
+   * Gets the average of the samples in the window.
+   *
+   * @return the average, or zero if no sample has been added
+   */
+  public double getAverage() {
+    if (size == 0) {
+      return 0;
+    }
+    final double average = sum / size;
+    return angular ? EulerAngle.computeAngleDistance(0, average) : average;
+  }
+
+  /**
+   * Checks whether the window is full.
+   *
+   * @return true if as many samples as the window size have been added
+   */
+  public boolean isFull() {
+    return size == samples.length;
+  }
+
+  /**
+   * Gets the number of samples in the window.
+   *
+   * @return the number of samples
+   */
+  public int size() {
+    return size;
+  }
+
+  /** Removes all samples. */
+  public void reset() {
+    next = 0;
+    size = 0;
+    sum = 0;
+  }
+}
@@ -0,0 +1,187 @@
+package control.localization.filters;
+
+import org.ejml.simple.SimpleMatrix;
+import utils.math.EulerAngle;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A causal Savitzky-Golay filter: a polynomial is fitted by least squares to the most recent
+ * samples of a signal sampled at a fixed period, and the smoothed value and the first derivative of
+ * the signal are those of the polynomial at the most recent sample. Unlike a moving average of
+ * finite differences, the derivative of a signal whose derivatives above the order of the
+ * polynomial are zero is estimated without lag.
+ *
+ * <p>The fit is linear in the samples, so the filter weights of the value and of the derivative are
+ * computed once when the filter is created. Once the window is full, adding a sample computes the
+ * value and the derivative as dot products of the weights with the samples in the window, which
+ * takes time linear in the window size but does not allocate memory. Reading them takes constant
+ * time.
+ *
+ * <p>A filter created with {@link #createForAngles(int, int, double)} filters angles in radians,
+ * which are unwrapped like in {@link MovingAverageFilter#createForAngles(int)}.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class SavitzkyGolayFilter {
+  private final double[] samples;
+  private final double[] valueWeights;
+  private final double[] derivativeWeights;
+  private final boolean angular;
+  private int next;
+  private int size;
+  private double value;
+  private double derivative;
+
+  private SavitzkyGolayFilter(
+      int windowSize, int polynomialOrder, double samplePeriod, boolean angular) {
+    this.samples = new double[windowSize];
+    this.valueWeights = new double[windowSize];
+    this.derivativeWeights = new double[windowSize];
+    this.angular = angular;
+    computeWeights(polynomialOrder, samplePeriod);
+  }
+
+  /**
+   * Creates a Savitzky-Golay filter.
+   *
+   * @param windowSize the number of most recent samples to which the polynomial is fitted
+   * @param polynomialOrder the order of the polynomial, at least one and less than {@code
+   *     windowSize}
+   * @param samplePeriod the time between two samples, in seconds
+   * @return an empty filter
+   */
+  public static SavitzkyGolayFilter create(
+      int windowSize, int polynomialOrder, double samplePeriod) {
+    checkParameters(windowSize, polynomialOrder, samplePeriod);
+    return new SavitzkyGolayFilter(windowSize, polynomialOrder, samplePeriod, false);
+  }
+
+  /**
+   * Creates a Savitzky-Golay filter of angles in radians.
+   *
+   * @param windowSize the number of most recent samples to which the polynomial is fitted
+   * @param polynomialOrder the order of the polynomial, at least one and less than {@code
+   *     windowSize}
+   * @param samplePeriod the time between two samples, in seconds
+   * @return an empty filter
+   */
+  public static SavitzkyGolayFilter createForAngles(
+      int windowSize, int polynomialOrder, double samplePeriod) {
+    checkParameters(windowSize, polynomialOrder, samplePeriod);
+    return new SavitzkyGolayFilter(windowSize, polynomialOrder, samplePeriod, true);
+  }
+
+  private static void checkParameters(int windowSize, int polynomialOrder, double samplePeriod) {
+    checkArgument(
+        polynomialOrder >= 1,
+        String.format("Polynomial order must be at least 1, but it is %d.", polynomialOrder));
+    checkArgument(
+        windowSize > polynomialOrder,
+        String.format(
+            "Window size must be greater than the polynomial order %d, but it is %d.",
+            polynomialOrder, windowSize));
+    checkArgument(
+        samplePeriod > 0,
+        String.format("Sample period must be positive, but it is %f.", samplePeriod));
+  }
+
+  /**
+   * Computes the rows of the pseudo-inverse of the Vandermonde matrix of the sample times which
+   * give the constant and the linear coefficients of the polynomial. The most recent sample is at
+   * time zero and the weights are stored from the oldest sample to the most recent one.
+   */
+  private void computeWeights(int polynomialOrder, double samplePeriod) {
+    final int windowSize = samples.length;
+    final SimpleMatrix vandermonde = new SimpleMatrix(windowSize, polynomialOrder + 1);
+    for (int k = 0; k < windowSize; k++) {
+      final double time = k - (windowSize - 1);
+      double power = 1;
+      for (int j = 0; j <= polynomialOrder; j++) {
+        vandermonde.set(k, j, power);
+        power *= time;
+      }
+    }
+
+    final SimpleMatrix pseudoInverse =
+        vandermonde.transpose().mult(vandermonde).invert().mult(vandermonde.transpose());
+    for (int k = 0; k < windowSize; k++) {
+      valueWeights[k] = pseudoInverse.get(0, k);
+      derivativeWeights[k] = pseudoInverse.get(1, k) / samplePeriod;
+    }
+  }
+
+  /**
+   * Adds a new sample, replacing the oldest one if the window is full.
+   *
+   * @param sample the new sample
+   */
+  public void add(double sample) {
+    double newSample = sample;
+    if (angular && size > 0) {
+      newSample =
+          UnwrappedAngles.unwrap(samples[(next - 1 + samples.length) % samples.length], sample);
+    }
+
+    samples[next] = newSample;
+    next = (next + 1) % samples.length;
+    size = Math.min(size + 1, samples.length);
+
+    if (angular && next == 0) {
+      UnwrappedAngles.rewrap(samples, size, samples[samples.length - 1]);
+    }
+
+    if (isFull()) {
+      final double smoothed = dot(valueWeights);
+      value = angular ? EulerAngle.computeAngleDistance(0, smoothed) : smoothed;
+      derivative = dot(derivativeWeights);
+    }
+  }
+
+  /**
+   * Checks whether the window is full. The value and the derivative are only available when the
+   * window is full.
+   *
+   * @return true if as many samples as the window size have been added
+   */
+  public boolean isFull() {
+    return size == samples.length;
+  }
+
+  /**
+   * Gets the smoothed value of the signal at the most recent sample.
+   *
+   * @return the smoothed value, or zero if the window is not full yet
+   */
+  public double getValue() {
+    return value;
+  }
+
+  /**
+   * Gets the first derivative of the signal at the most recent sample.
+   *
+   * @return the derivative per second, or zero if the window is not full yet
+   */
+  public double getDerivative() {
+    return derivative;
+  }
+
+  private double dot(double[] weights) {
+    // when the window is full, next is the index of the oldest sample
+    double result = 0;
+    for (int k = 0; k < samples.length; k++) {
+      result += weights[k] * samples[(next + k) % samples.length];
+    }
+    return result;
+  }
+
+  /** Removes all samples. */
+  public void reset() {
+    next = 0;
+    size = 0;
+    value = 0;
+    derivative = 0;
+  }
+}
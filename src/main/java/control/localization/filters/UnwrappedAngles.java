@@ -0,0 +1,43 @@
+package control.localization.filters;
+
+import utils.math.EulerAngle;
+
+/**
+ * Helpers for the filters of angles in radians, which keep their samples unwrapped: every new
+ * angle is stored as the value closest to the previous sample, so that consecutive samples never
+ * jump by 2 pi.
+ *
+ * @author Hoang Tung Dinh
+ */
+final class UnwrappedAngles {
+
+  private UnwrappedAngles() {}
+
+  /**
+   * Unwraps an angle against the previous unwrapped sample.
+   *
+   * @param previous the previous unwrapped sample
+   * @param angle the new angle
+   * @return the angle plus the multiple of 2 pi which brings it closest to {@code previous}
+   */
+  static double unwrap(double previous, double angle) {
+    return previous + EulerAngle.computeAngleDistance(previous, angle);
+  }
+
+  /**
+   * Shifts the unwrapped samples by the multiple of 2 pi which brings the reference sample back
+   * into [-pi, pi]. The unwrapped angles of a spinning drone grow without bound, so the filters
+   * call this once per window to keep them around zero. The differences between the samples are
+   * kept.
+   *
+   * @param samples the unwrapped samples, shifted in place
+   * @param size the number of samples, from index zero
+   * @param reference the sample to bring back into [-pi, pi]
+   */
+  static void rewrap(double[] samples, int size, double reference) {
+    final double shift = reference - EulerAngle.computeAngleDistance(0, reference);
+    for (int i = 0; i < size; i++) {
+      samples[i] -= shift;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+/**
+ * This package contains streaming filters for smoothing and differentiating the states estimated
+ * by the localization. The filters keep their samples in primitive ring buffers and never allocate
+ * memory after their creation.
+ *
+ * @author Hoang Tung Dinh
+ */
+@ParametersAreNonnullByDefault
+package control.localization.filters;
+
+import javax.annotation.ParametersAreNonnullByDefault;
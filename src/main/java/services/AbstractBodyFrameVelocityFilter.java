@@ -2,20 +2,22 @@ package services;
 
 import control.dto.BodyFrameVelocity;
 import control.dto.InertialFrameVelocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
 import control.dto.Pose;
-import control.dto.Velocity;
-
-import javax.annotation.Nullable;
 
 /**
  * An abstract decorator filter for the {@link BodyFrameVelocity} of a {@link Velocity4dService}.
+ * Velocities sent in {@link MutableVelocity} holders are filtered without allocating objects, and
+ * are forwarded in holders if the decorated service is an {@link AllocationFreeVelocity4dService}.
  *
  * @author Hoang Tung Dinh
  */
-abstract class AbstractBodyFrameVelocityFilter implements Velocity4dService {
+abstract class AbstractBodyFrameVelocityFilter implements AllocationFreeVelocity4dService {
 
   private final Velocity4dService velocity4dService;
-  @Nullable private BodyFrameVelocity lastBodyFrameVelocity;
+  private final MutableVelocity lastBodyFrameVelocity = MutableVelocity.create();
+  private boolean hasLastBodyFrameVelocity;
 
   AbstractBodyFrameVelocityFilter(Velocity4dService velocity4dService) {
     this.velocity4dService = velocity4dService;
@@ -28,24 +30,52 @@ abstract class AbstractBodyFrameVelocityFilter implements Velocity4dService {
 
   @Override
   public void sendBodyFrameVelocity(BodyFrameVelocity bodyFrameVelocity) {
-    if (lastBodyFrameVelocity == null) {
-      lastBodyFrameVelocity = bodyFrameVelocity;
-      velocity4dService.sendBodyFrameVelocity(bodyFrameVelocity);
+    filter(
+        bodyFrameVelocity.linearX(),
+        bodyFrameVelocity.linearY(),
+        bodyFrameVelocity.linearZ(),
+        bodyFrameVelocity.angularZ());
+    velocity4dService.sendBodyFrameVelocity(lastBodyFrameVelocity.toVelocity());
+  }
+
+  @Override
+  public void sendInertialFrameVelocity(MutableVelocity inertialFrameVelocity, MutablePose pose) {
+    if (velocity4dService instanceof AllocationFreeVelocity4dService) {
+      ((AllocationFreeVelocity4dService) velocity4dService)
+          .sendInertialFrameVelocity(inertialFrameVelocity, pose);
     } else {
-      final BodyFrameVelocity filteredVelocity = filter(lastBodyFrameVelocity, bodyFrameVelocity);
-      velocity4dService.sendBodyFrameVelocity(filteredVelocity);
-      lastBodyFrameVelocity = filteredVelocity;
+      velocity4dService.sendInertialFrameVelocity(
+          inertialFrameVelocity.toVelocity(), pose.toPose());
     }
   }
 
-  private BodyFrameVelocity filter(
-      BodyFrameVelocity lastVelocity, BodyFrameVelocity currentVelocity) {
-    return Velocity.builder()
-        .setLinearX(filter(lastVelocity.linearX(), currentVelocity.linearX()))
-        .setLinearY(filter(lastVelocity.linearY(), currentVelocity.linearY()))
-        .setLinearZ(filter(lastVelocity.linearZ(), currentVelocity.linearZ()))
-        .setAngularZ(filter(lastVelocity.angularZ(), currentVelocity.angularZ()))
-        .build();
+  @Override
+  public void sendBodyFrameVelocity(MutableVelocity bodyFrameVelocity) {
+    filter(
+        bodyFrameVelocity.linearX(),
+        bodyFrameVelocity.linearY(),
+        bodyFrameVelocity.linearZ(),
+        bodyFrameVelocity.angularZ());
+    if (velocity4dService instanceof AllocationFreeVelocity4dService) {
+      ((AllocationFreeVelocity4dService) velocity4dService)
+          .sendBodyFrameVelocity(lastBodyFrameVelocity);
+    } else {
+      velocity4dService.sendBodyFrameVelocity(lastBodyFrameVelocity.toVelocity());
+    }
+  }
+
+  /** Filters a velocity and stores the filtered velocity as the last velocity. */
+  private void filter(double linearX, double linearY, double linearZ, double angularZ) {
+    if (hasLastBodyFrameVelocity) {
+      lastBodyFrameVelocity.set(
+          filter(lastBodyFrameVelocity.linearX(), linearX),
+          filter(lastBodyFrameVelocity.linearY(), linearY),
+          filter(lastBodyFrameVelocity.linearZ(), linearZ),
+          filter(lastBodyFrameVelocity.angularZ(), angularZ));
+    } else {
+      lastBodyFrameVelocity.set(linearX, linearY, linearZ, angularZ);
+      hasLastBodyFrameVelocity = true;
+    }
   }
 
   abstract double filter(double lastVelocity, double currentVelocity);
@@ -0,0 +1,30 @@
+package services;
+
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+
+/**
+ * A {@link Velocity4dService} which can send velocities given in reusable {@link MutableVelocity}
+ * holders. The service does not keep a reference to the holders, so the caller can overwrite them
+ * as soon as the method returns.
+ *
+ * @author Hoang Tung Dinh
+ */
+public interface AllocationFreeVelocity4dService extends Velocity4dService {
+  /**
+   * Sends an inertial frame velocity to the drone. See {@link
+   * Velocity4dService#sendInertialFrameVelocity(control.dto.InertialFrameVelocity,
+   * control.dto.Pose)}.
+   *
+   * @param inertialFrameVelocity the desired velocity in the inertial frame
+   * @param pose the current pose of the drone
+   */
+  void sendInertialFrameVelocity(MutableVelocity inertialFrameVelocity, MutablePose pose);
+
+  /**
+   * Sends a body frame velocity to the drone.
+   *
+   * @param bodyFrameVelocity the desired velocity in the body frame
+   */
+  void sendBodyFrameVelocity(MutableVelocity bodyFrameVelocity);
+}
@@ -2,13 +2,14 @@ package services.parrot;
 
 import control.dto.BodyFrameVelocity;
 import control.dto.InertialFrameVelocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
 import control.dto.Pose;
-import control.dto.Velocity;
 import geometry_msgs.Twist;
 import org.ros.node.topic.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import services.Velocity4dService;
+import services.AllocationFreeVelocity4dService;
 import time.TimeProvider;
 import utils.math.Transformations;
 
@@ -20,9 +21,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * minimum and maximum values for each dimension of the velocity. If the input in one dimension of
  * the velocity is out of the min/max range, the dimension will be set to the min/max value.
  *
+ * <p>Apart from the published message, sending a velocity given in {@link MutableVelocity} holders
+ * does not allocate objects.
+ *
  * @author Hoang Tung Dinh
  */
-final class ParrotVelocity4dService implements Velocity4dService {
+final class ParrotVelocity4dService implements AllocationFreeVelocity4dService {
   private static final Logger velocityLogger =
       LoggerFactory.getLogger(ParrotVelocity4dService.class.getName() + ".vel");
 
@@ -39,6 +43,8 @@ final class ParrotVelocity4dService implements Velocity4dService {
   private final double maxLinearZ;
   private final double maxAngularZ;
 
+  private final MutableVelocity transformedVelocity = MutableVelocity.create();
+
   private ParrotVelocity4dService(Builder builder) {
     publisher = builder.publisher;
     timeProvider = builder.timeProvider;
@@ -89,44 +95,66 @@ final class ParrotVelocity4dService implements Velocity4dService {
 
   @Override
   public void sendInertialFrameVelocity(InertialFrameVelocity inertialFrameVelocity, Pose pose) {
-    final BodyFrameVelocity bodyFrameVelocity =
-        Transformations.inertialFrameVelocityToBodyFrameVelocity(inertialFrameVelocity, pose);
-
-    sendBodyFrameVelocity(bodyFrameVelocity);
+    final MutableVelocity velocity = MutableVelocity.create();
+    velocity.set(
+        inertialFrameVelocity.linearX(),
+        inertialFrameVelocity.linearY(),
+        inertialFrameVelocity.linearZ(),
+        inertialFrameVelocity.angularZ());
+    final MutablePose mutablePose = MutablePose.create();
+    mutablePose.set(pose);
+    sendInertialFrameVelocity(velocity, mutablePose);
   }
 
   @Override
   public void sendBodyFrameVelocity(BodyFrameVelocity bodyFrameVelocity) {
-    final BodyFrameVelocity refinedVelocity = getRefinedVelocity(bodyFrameVelocity);
-
-    velocityLogger.trace(
-        "{} {} {} {} {}",
-        timeProvider.getCurrentTimeSeconds(),
-        refinedVelocity.linearX(),
-        refinedVelocity.linearY(),
-        refinedVelocity.linearZ(),
-        refinedVelocity.angularZ());
-
-    publisher.publish(newTwistMessage(refinedVelocity));
+    publishRefinedVelocity(
+        bodyFrameVelocity.linearX(),
+        bodyFrameVelocity.linearY(),
+        bodyFrameVelocity.linearZ(),
+        bodyFrameVelocity.angularZ());
   }
 
-  private Twist newTwistMessage(BodyFrameVelocity refinedVelocity) {
-    final Twist twist = publisher.newMessage();
-    twist.getLinear().setX(refinedVelocity.linearX());
-    twist.getLinear().setY(refinedVelocity.linearY());
-    twist.getLinear().setZ(refinedVelocity.linearZ());
-    twist.getAngular().setZ(refinedVelocity.angularZ());
+  @Override
+  public void sendInertialFrameVelocity(MutableVelocity inertialFrameVelocity, MutablePose pose) {
+    Transformations.inertialFrameVelocityToBodyFrameVelocity(
+        inertialFrameVelocity, pose, transformedVelocity);
+    sendBodyFrameVelocity(transformedVelocity);
+  }
 
-    return twist;
+  @Override
+  public void sendBodyFrameVelocity(MutableVelocity bodyFrameVelocity) {
+    publishRefinedVelocity(
+        bodyFrameVelocity.linearX(),
+        bodyFrameVelocity.linearY(),
+        bodyFrameVelocity.linearZ(),
+        bodyFrameVelocity.angularZ());
   }
 
-  private BodyFrameVelocity getRefinedVelocity(BodyFrameVelocity velocity) {
-    return Velocity.builder()
-        .setLinearX(getRefinedLinearX(velocity.linearX()))
-        .setLinearY(getRefinedLinearY(velocity.linearY()))
-        .setLinearZ(getRefinedLinearZ(velocity.linearZ()))
-        .setAngularZ(getRefinedAngularZ(velocity.angularZ()))
-        .build();
+  private void publishRefinedVelocity(
+      double linearX, double linearY, double linearZ, double angularZ) {
+    final double refinedLinearX = getRefinedLinearX(linearX);
+    final double refinedLinearY = getRefinedLinearY(linearY);
+    final double refinedLinearZ = getRefinedLinearZ(linearZ);
+    final double refinedAngularZ = getRefinedAngularZ(angularZ);
+
+    if (velocityLogger.isTraceEnabled()) {
+      velocityLogger.trace(
+          "{} {} {} {} {}",
+          timeProvider.getCurrentTimeSeconds(),
+          refinedLinearX,
+          refinedLinearY,
+          refinedLinearZ,
+          refinedAngularZ);
+    }
+
+    // the message is handed over to the ROS publisher, so it cannot be reused
+    final Twist twist = publisher.newMessage();
+    twist.getLinear().setX(refinedLinearX);
+    twist.getLinear().setY(refinedLinearY);
+    twist.getLinear().setZ(refinedLinearZ);
+    twist.getAngular().setZ(refinedAngularZ);
+    publisher.publish(twist);
   }
 
   private double getRefinedLinearX(double linearX) {
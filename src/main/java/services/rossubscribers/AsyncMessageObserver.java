@@ -0,0 +1,342 @@
+package services.rossubscribers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.ros.internal.message.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.metrics.LatencyHistogram;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A message observer which delivers the messages to another observer on an executor instead of on
+ * the thread delivering the messages. Every asynchronous observer has its own bounded queue, so a
+ * slow observer does not delay the messages of the other observers of the topic. When the queue is
+ * full, the {@link OverflowPolicy} decides what happens with a new message.
+ *
+ * <p>The messages are delivered to the observer in order and one at a time, but not always on the
+ * same thread. The asynchronous observers share a default executor unless another one is given.
+ *
+ * <p>The lag of every message, i.e. the time between its arrival and its delivery to the observer,
+ * is recorded in {@link #getLag()}.
+ *
+ * @param <T> the type of the messages
+ * @author Hoang Tung Dinh
+ */
+public final class AsyncMessageObserver<T extends Message> implements MessageObserver<T> {
+  private static final Logger logger = LoggerFactory.getLogger(AsyncMessageObserver.class);
+  private static final int DEFAULT_NUMBER_OF_THREADS = 2;
+
+  private final MessageObserver<T> observer;
+  private final Executor executor;
+  private final OverflowPolicy overflowPolicy;
+  private final int queueCapacity;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notFull = lock.newCondition();
+  private final Object[] messages;
+  private final long[] arrivalTimes;
+  private int head;
+  private int size;
+  private boolean draining;
+
+  private final LatencyHistogram lag = LatencyHistogram.create("observer lag");
+  private final AtomicLong droppedMessageCount = new AtomicLong();
+
+  private final Runnable drain =
+      new Runnable() {
+        @Override
+        public void run() {
+          drainQueue();
+        }
+      };
+
+  private AsyncMessageObserver(Builder<T> builder) {
+    observer = builder.observer;
+    executor = builder.executor;
+    overflowPolicy = builder.overflowPolicy;
+    queueCapacity = builder.queueCapacity;
+    messages = new Object[queueCapacity];
+    arrivalTimes = new long[queueCapacity];
+  }
+
+  /**
+   * Creates an asynchronous observer on the shared default executor.
+   *
+   * @param observer the observer receiving the messages
+   * @param overflowPolicy what to do with a new message when the queue is full
+   * @param queueCapacity the maximum number of messages waiting for the observer
+   * @param <U> the type of the messages
+   * @return an asynchronous observer
+   */
+  public static <U extends Message> AsyncMessageObserver<U> create(
+      MessageObserver<U> observer, OverflowPolicy overflowPolicy, int queueCapacity) {
+    return AsyncMessageObserver.<U>builder()
+        .withObserver(observer)
+        .withOverflowPolicy(overflowPolicy)
+        .withQueueCapacity(queueCapacity)
+        .build();
+  }
+
+  /**
+   * Gets a builder of this class.
+   *
+   * @param <U> the type of the messages
+   * @return a builder instance
+   */
+  public static <U extends Message> Builder<U> builder() {
+    return new Builder<>();
+  }
+
+  @Override
+  public void onNewMessage(T message) {
+    final long arrivalTime = System.nanoTime();
+    final boolean startDraining;
+    lock.lock();
+    try {
+      if (size == queueCapacity && !makeRoom()) {
+        return;
+      }
+      final int tail = (head + size) % queueCapacity;
+      messages[tail] = message;
+      arrivalTimes[tail] = arrivalTime;
+      size++;
+      startDraining = !draining;
+      draining = true;
+    } finally {
+      lock.unlock();
+    }
+
+    if (startDraining) {
+      execute();
+    }
+  }
+
+  /** Makes room in the full queue according to the overflow policy. Must hold the lock. */
+  private boolean makeRoom() {
+    switch (overflowPolicy) {
+      case CONFLATE:
+        droppedMessageCount.addAndGet(size);
+        while (size > 0) {
+          removeHead();
+        }
+        return true;
+      case DROP_OLDEST:
+        droppedMessageCount.incrementAndGet();
+        removeHead();
+        return true;
+      case BLOCK:
+        try {
+          while (size == queueCapacity) {
+            notFull.await();
+          }
+          return true;
+        } catch (InterruptedException e) {
+          logger.debug("Waiting for room in the queue of an observer is interrupted.", e);
+          droppedMessageCount.incrementAndGet();
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      default:
+        throw new IllegalStateException("Unknown overflow policy: " + overflowPolicy);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private T removeHead() {
+    final T message = (T) messages[head];
+    messages[head] = null;
+    head = (head + 1) % queueCapacity;
+    size--;
+    notFull.signal();
+    return message;
+  }
+
+  private void execute() {
+    try {
+      executor.execute(drain);
+    } catch (RejectedExecutionException e) {
+      logger.error("The executor of an asynchronous observer rejected the delivery.", e);
+      lock.lock();
+      try {
+        draining = false;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Delivers the waiting messages. After a queue full of messages, the delivery is submitted again
+   * to the executor, so that an observer receiving messages without pause does not keep a thread
+   * of the shared executor for itself.
+   */
+  private void drainQueue() {
+    for (int delivered = 0; delivered < queueCapacity; delivered++) {
+      final T message;
+      final long arrivalTime;
+      lock.lock();
+      try {
+        if (size == 0) {
+          draining = false;
+          return;
+        }
+        arrivalTime = arrivalTimes[head];
+        message = removeHead();
+      } finally {
+        lock.unlock();
+      }
+
+      lag.record(System.nanoTime() - arrivalTime);
+      try {
+        observer.onNewMessage(message);
+      } catch (RuntimeException e) {
+        logger.error("An asynchronous observer failed to handle a message.", e);
+      }
+    }
+    execute();
+  }
+
+  /**
+   * Gets the observer receiving the messages.
+   *
+   * @return the observer
+   */
+  public MessageObserver<T> getObserver() {
+    return observer;
+  }
+
+  /**
+   * Gets the histogram of the time between the arrival of a message and its delivery to the
+   * observer.
+   *
+   * @return the lag histogram
+   */
+  public LatencyHistogram getLag() {
+    return lag;
+  }
+
+  /**
+   * Gets the number of messages which were dropped because the queue was full.
+   *
+   * @return the number of dropped messages
+   */
+  public long getDroppedMessageCount() {
+    return droppedMessageCount.get();
+  }
+
+  /**
+   * Gets the number of messages waiting for the observer.
+   *
+   * @return the size of the queue
+   */
+  public int getQueueSize() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static final class DefaultExecutorHolder {
+    private static final Executor INSTANCE =
+        Executors.newFixedThreadPool(
+            DEFAULT_NUMBER_OF_THREADS,
+            new ThreadFactoryBuilder()
+                .setNameFormat("message-observer-%d")
+                .setDaemon(true)
+                .build());
+
+    private DefaultExecutorHolder() {}
+  }
+
+  /**
+   * {@code AsyncMessageObserver} builder static inner class.
+   *
+   * @param <T> the type of the messages
+   */
+  public static final class Builder<T extends Message> {
+    @Nullable private MessageObserver<T> observer;
+    @Nullable private Executor executor;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.CONFLATE;
+    private int queueCapacity = 1;
+
+    private Builder() {}
+
+    /**
+     * Sets the {@code observer} and returns a reference to this Builder so that the methods can be
+     * chained together.
+     *
+     * @param val the {@code observer} to set
+     * @return a reference to this Builder
+     */
+    public Builder<T> withObserver(MessageObserver<T> val) {
+      observer = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code executor} and returns a reference to this Builder so that the methods can be
+     * chained together. The default value is an executor shared by all asynchronous observers.
+     *
+     * @param val the {@code executor} to set
+     * @return a reference to this Builder
+     */
+    public Builder<T> withExecutor(Executor val) {
+      executor = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code overflowPolicy} and returns a reference to this Builder so that the methods
+     * can be chained together. The default value is {@link OverflowPolicy#CONFLATE}.
+     *
+     * @param val the {@code overflowPolicy} to set
+     * @return a reference to this Builder
+     */
+    public Builder<T> withOverflowPolicy(OverflowPolicy val) {
+      overflowPolicy = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code queueCapacity} and returns a reference to this Builder so that the methods
+     * can be chained together. The default value is 1.
+     *
+     * @param val the {@code queueCapacity} to set
+     * @return a reference to this Builder
+     */
+    public Builder<T> withQueueCapacity(int val) {
+      queueCapacity = val;
+      return this;
+    }
+
+    /**
+     * Returns a {@code AsyncMessageObserver} built from the parameters previously set.
+     *
+     * @return a {@code AsyncMessageObserver} built with parameters of this {@code
+     *     AsyncMessageObserver.Builder}
+     */
+    public AsyncMessageObserver<T> build() {
+      checkNotNull(observer, "The observer must be set.");
+      checkNotNull(overflowPolicy, "The overflow policy must be set.");
+      checkArgument(
+          queueCapacity >= 1,
+          String.format("Queue capacity must be at least 1, but it is %d.", queueCapacity));
+      if (executor == null) {
+        executor = DefaultExecutorHolder.INSTANCE;
+      }
+      return new AsyncMessageObserver<>(this);
+    }
+  }
+}
@@ -0,0 +1,229 @@
+package services.rossubscribers;
+
+import com.google.common.base.Optional;
+
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A lock-free ring buffer keeping the most recent messages of a topic. It has a single writer, the
+ * thread delivering the messages, and any number of readers which never block it.
+ *
+ * <p>Every message gets a sequence number, starting from zero, so that a reader can tell whether a
+ * message is new by comparing sequence numbers instead of header stamps. A message stays available
+ * until {@code capacity} newer messages have been added. The messages can be read one by one by
+ * their sequence number without allocating objects:
+ *
+ * <pre>{@code
+ * for (long i = buffer.getOldestSequenceNumber(); i <= buffer.getLatestSequenceNumber(); i++) {
+ *   final T message = buffer.get(i);
+ *   if (message != null) {
+ *     ...
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>or through a {@link #snapshot()}, which iterates over the buffer in place instead of copying
+ * it. A message overwritten by the writer during the read is skipped, it is never replaced by a
+ * newer message.
+ *
+ * @param <T> the type of the messages
+ * @author Hoang Tung Dinh
+ */
+public final class MessageRingBuffer<T> {
+  private final int capacity;
+  private final AtomicReferenceArray<T> slots;
+
+  /** The number of messages whose write has started. Written before the slot of the message. */
+  private volatile long claimed;
+  /** The number of messages whose write has completed. Written after the slot of the message. */
+  private volatile long published;
+
+  @Nullable private volatile T latest;
+
+  private MessageRingBuffer(int capacity) {
+    this.capacity = capacity;
+    this.slots = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Creates an empty buffer.
+   *
+   * @param capacity the number of most recent messages kept in the buffer
+   * @param <U> the type of the messages
+   * @return an empty buffer
+   */
+  public static <U> MessageRingBuffer<U> create(int capacity) {
+    checkArgument(
+        capacity >= 1, String.format("Capacity must be at least 1, but it is %d.", capacity));
+    return new MessageRingBuffer<>(capacity);
+  }
+
+  /**
+   * Adds a message to the buffer, overwriting the oldest one if the buffer is full. Must only be
+   * called by the single writer of this buffer.
+   *
+   * @param message the new message
+   */
+  void add(T message) {
+    final long sequenceNumber = published;
+    claimed = sequenceNumber + 1;
+    // ordered after the write of claimed, so that a reader seeing the new message also sees that
+    // the slot has been claimed
+    slots.lazySet(indexOf(sequenceNumber), message);
+    latest = message;
+    published = sequenceNumber + 1;
+  }
+
+  /**
+   * Gets the number of messages this buffer can keep.
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets the most recent message. This only reads a volatile field.
+   *
+   * @return the most recent message, or absent if no message has been received yet
+   */
+  public Optional<T> getLatest() {
+    return Optional.fromNullable(latest);
+  }
+
+  /**
+   * Gets the sequence number of the most recent message.
+   *
+   * @return the sequence number of the most recent message, or -1 if no message has been received
+   */
+  public long getLatestSequenceNumber() {
+    return published - 1;
+  }
+
+  /**
+   * Gets the sequence number of the oldest message still in the buffer.
+   *
+   * @return the sequence number of the oldest message, or 0 if no message has been received
+   */
+  public long getOldestSequenceNumber() {
+    return Math.max(0, published - capacity);
+  }
+
+  /**
+   * Gets a message by its sequence number.
+   *
+   * @param sequenceNumber the sequence number of the message
+   * @return the message, or null if it has not been received yet or has been overwritten
+   */
+  @Nullable
+  public T get(long sequenceNumber) {
+    if (sequenceNumber < 0 || sequenceNumber >= published) {
+      return null;
+    }
+    final T message = slots.get(indexOf(sequenceNumber));
+    // the slot is reused by the message which is capacity messages newer
+    if (claimed > sequenceNumber + capacity) {
+      return null;
+    }
+    return message;
+  }
+
+  /**
+   * Gets a view of the messages which are in the buffer now, from the oldest to the most recent.
+   * The messages are not copied: a message overwritten before it is reached by an iterator is
+   * skipped.
+   *
+   * @return a view of the messages in the buffer
+   */
+  public Snapshot<T> snapshot() {
+    final long end = published;
+    return new Snapshot<>(this, Math.max(0, end - capacity), end);
+  }
+
+  private int indexOf(long sequenceNumber) {
+    return (int) (sequenceNumber % capacity);
+  }
+
+  /**
+   * The messages of a buffer with the sequence numbers of a range, which was the content of the
+   * buffer when the snapshot was taken.
+   *
+   * @param <T> the type of the messages
+   */
+  public static final class Snapshot<T> implements Iterable<T> {
+    private final MessageRingBuffer<T> buffer;
+    private final long firstSequenceNumber;
+    private final long endSequenceNumber;
+
+    private Snapshot(
+        MessageRingBuffer<T> buffer, long firstSequenceNumber, long endSequenceNumber) {
+      this.buffer = buffer;
+      this.firstSequenceNumber = firstSequenceNumber;
+      this.endSequenceNumber = endSequenceNumber;
+    }
+
+    /**
+     * Gets the sequence number of the first message of this snapshot.
+     *
+     * @return the first sequence number
+     */
+    public long getFirstSequenceNumber() {
+      return firstSequenceNumber;
+    }
+
+    /**
+     * Gets the sequence number following the last message of this snapshot.
+     *
+     * @return the end sequence number, exclusive
+     */
+    public long getEndSequenceNumber() {
+      return endSequenceNumber;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+        private long sequenceNumber = firstSequenceNumber;
+        @Nullable private T next = advance();
+
+        @Nullable
+        private T advance() {
+          while (sequenceNumber < endSequenceNumber) {
+            final T message = buffer.get(sequenceNumber);
+            sequenceNumber++;
+            if (message != null) {
+              return message;
+            }
+          }
+          return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next != null;
+        }
+
+        @Override
+        public T next() {
+          if (next == null) {
+            throw new NoSuchElementException();
+          }
+          final T message = next;
+          next = advance();
+          return message;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException("Snapshots of a message buffer are read-only.");
+        }
+      };
+    }
+  }
+}
@@ -1,8 +1,6 @@
 package services.rossubscribers;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.EvictingQueue;
-import com.google.common.collect.Queues;
 import org.ros.internal.message.Message;
 import org.ros.message.MessageListener;
 import org.ros.node.topic.Subscriber;
@@ -10,17 +8,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import time.TimeProvider;
 
-import javax.annotation.Nullable;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
- * Message subscriber service listening to messages from a ROS topic and stored them in an {@link
- * EvictingQueue}.
+ * Message subscriber service listening to messages from a ROS topic and stored them in a {@link
+ * MessageRingBuffer}. Receiving a message takes no lock, and the messages can be read by any
+ * thread without blocking the delivery of new messages.
  *
  * @param <T> the type of the messages
  * @author mhct
@@ -69,12 +67,40 @@ public class MessagesSubscriberService<T extends Message> {
 
   /** Returns the most recent message received. */
   public Optional<T> getMostRecentMessage() {
-    return messagesListener.getMostRecentMessage();
+    return messagesListener.getMessageBuffer().getLatest();
   }
 
-  /** Returns the queue of most recent messages. */
+  /**
+   * Returns the sequence number of the most recent message received. The sequence number grows by
+   * one with every message, so a message is new if its sequence number differs from the one seen
+   * last time.
+   *
+   * @return the sequence number of the most recent message, or -1 if no message has been received
+   */
+  public long getMostRecentSequenceNumber() {
+    return messagesListener.getMessageBuffer().getLatestSequenceNumber();
+  }
+
+  /**
+   * Returns the buffer of most recent messages. The buffer can be read in place, by sequence number
+   * or through a snapshot, without copying the messages.
+   *
+   * @return the buffer of most recent messages
+   */
+  public MessageRingBuffer<T> getMessageBuffer() {
+    return messagesListener.getMessageBuffer();
+  }
+
+  /**
+   * Returns a copy of the queue of most recent messages. Use {@link #getMessageBuffer()} to read
+   * the messages without copying them.
+   */
   public Queue<T> getMessageQueue() {
-    return messagesListener.getMessageQueue();
+    final Queue<T> messageQueue = new LinkedList<>();
+    for (final T message : messagesListener.getMessageBuffer().snapshot()) {
+      messageQueue.add(message);
+    }
+    return messageQueue;
   }
 
   /**
@@ -87,7 +113,26 @@ public class MessagesSubscriberService<T extends Message> {
   }
 
   /**
-   * Removed a message observer.
+   * Registers a message observer which receives the messages on a shared executor instead of on
+   * the thread delivering the messages, so that it cannot delay the other observers.
+   *
+   * @param messageObserver the message observer to be registered
+   * @param overflowPolicy what to do with a new message when the queue of the observer is full
+   * @param queueCapacity the maximum number of messages waiting for the observer
+   * @return the asynchronous observer wrapping {@code messageObserver}, which gives access to its
+   *     lag metrics
+   */
+  public AsyncMessageObserver<T> registerAsyncMessageObserver(
+      MessageObserver<T> messageObserver, OverflowPolicy overflowPolicy, int queueCapacity) {
+    final AsyncMessageObserver<T> asyncMessageObserver =
+        AsyncMessageObserver.create(messageObserver, overflowPolicy, queueCapacity);
+    messagesListener.registerMessageObserver(asyncMessageObserver);
+    return asyncMessageObserver;
+  }
+
+  /**
+   * Removed a message observer. An observer registered with {@link
+   * #registerAsyncMessageObserver(MessageObserver, OverflowPolicy, int)} is removed as well.
    *
    * @param messageObserver the message observer to be removed
    */
@@ -97,13 +142,14 @@ public class MessagesSubscriberService<T extends Message> {
 
   private static final class MessagesListener<K extends Message> implements MessageListener<K> {
     private final Collection<MessageObserver<K>> messageObservers;
-    private final Queue<K> messageQueue;
-    @Nullable private K mostRecentMessage;
+    private final MessageRingBuffer<K> messageBuffer;
     private final TimeProvider timeProvider;
 
     private MessagesListener(int maxQueueSize, TimeProvider timeProvider) {
-      messageQueue = Queues.synchronizedQueue(EvictingQueue.<K>create(maxQueueSize));
-      messageObservers = new ArrayList<>();
+      // ROS delivers the messages of a subscriber on a single thread, the only writer of the buffer
+      messageBuffer = MessageRingBuffer.create(maxQueueSize);
+      // observers may be registered and removed while messages are being delivered
+      messageObservers = new CopyOnWriteArrayList<>();
       this.timeProvider = timeProvider;
     }
 
@@ -124,8 +170,7 @@ public class MessagesSubscriberService<T extends Message> {
     public void onNewMessage(K newMessage) {
       logger.trace(
           "{} {}", timeProvider.getCurrentTimeSeconds(), newMessage.toRawMessage().getType());
-      messageQueue.add(newMessage);
-      mostRecentMessage = newMessage;
+      messageBuffer.add(newMessage);
       notifyMessageObservers(newMessage);
     }
 
@@ -150,19 +195,19 @@ public class MessagesSubscriberService<T extends Message> {
      * @param messageObserver the message observer to be removed
      */
     public void removeMessageObserver(MessageObserver<K> messageObserver) {
-      messageObservers.remove(messageObserver);
-    }
-
-    Optional<K> getMostRecentMessage() {
-      if (mostRecentMessage == null) {
-        return Optional.absent();
-      } else {
-        return Optional.of(mostRecentMessage);
+      for (final MessageObserver<K> registeredObserver : messageObservers) {
+        if (registeredObserver.equals(messageObserver)
+            || registeredObserver instanceof AsyncMessageObserver
+                && ((AsyncMessageObserver<K>) registeredObserver)
+                    .getObserver()
+                    .equals(messageObserver)) {
+          messageObservers.remove(registeredObserver);
+        }
       }
     }
 
-    Queue<K> getMessageQueue() {
-      return new LinkedList<>(messageQueue);
+    MessageRingBuffer<K> getMessageBuffer() {
+      return messageBuffer;
     }
   }
 }
@@ -0,0 +1,24 @@
+package services.rossubscribers;
+
+/**
+ * What an {@link AsyncMessageObserver} does with a new message when the queue of its observer is
+ * full.
+ *
+ * @author Hoang Tung Dinh
+ */
+public enum OverflowPolicy {
+  /**
+   * Keeps only the most recent message: the waiting messages are replaced by the new one. Suits
+   * observers which only need the current value, such as a flying state.
+   */
+  CONFLATE,
+
+  /** Drops the oldest waiting message to make room for the new one. */
+  DROP_OLDEST,
+
+  /**
+   * Blocks the thread delivering the messages until there is room in the queue. No message is lost,
+   * but a slow observer then delays the other observers of the topic.
+   */
+  BLOCK
+}
@@ -0,0 +1,402 @@
+package taskexecutor.interruptors;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import control.dto.DroneStateStamped;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+import control.dto.Pose;
+import control.localization.StateEstimator;
+import control.localization.StateHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import taskexecutor.EmergencyNotifier;
+import taskexecutor.Task;
+import taskexecutor.TaskExecutor;
+import utils.math.SpatialHashGrid;
+import utils.metrics.LatencyHistogram;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * An emergency notifier which watches the actual distance between drones during a flight. The
+ * current states of all drones are read from their {@link StateEstimator}s at a fixed rate and
+ * binned in a {@link SpatialHashGrid} with cells as large as the minimum distance, so that only the
+ * drones in neighbouring cells are compared. As soon as two drones are closer than the minimum
+ * distance, the emergency task is submitted to all registered {@link TaskExecutor}s. The
+ * notification is sent only once. A violation found while no task executor is registered yet, e.g.
+ * drones parked close to each other before the flight, is not notified: it is checked again until
+ * there is a task executor to notify.
+ *
+ * <p>The states of the drones do not have the same time stamps. The recent states of every drone
+ * are kept in a {@link StateHistory}, and the drones are compared at the time of the least recent
+ * state, so that a drone whose localization lags is not compared with where the other drones are
+ * now. A drone lagging more than {@value #MAXIMUM_ALIGNMENT_IN_SECONDS} seconds does not hold back
+ * the others: it is compared at its most recent state.
+ *
+ * <p>The latency between reading the states which show the violation and submitting the last
+ * emergency task is recorded in {@link #getDetectionToSubmitLatency()}, and the duration of every
+ * check in {@link #getCheckDuration()}. A violation is thus notified at most one check period plus
+ * the detection-to-submit latency after the state estimators report it.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class SeparationMonitor implements EmergencyNotifier {
+  /** The default minimum distance between two drones, in meters. */
+  public static final double DEFAULT_MINIMUM_DISTANCE = 0.5;
+
+  private static final Logger logger = LoggerFactory.getLogger(SeparationMonitor.class);
+  private static final double MAXIMUM_ALIGNMENT_IN_SECONDS = 0.1;
+  private static final int HISTORY_SIZE = 32;
+
+  private final ImmutableList<StateEstimator> stateEstimators;
+  private final double minimumDistance;
+  private final long checkPeriodInNanoSeconds;
+  @Nullable private final Task defaultEmergencyTask;
+  private final Collection<Registration> registrations = new CopyOnWriteArrayList<>();
+
+  private final SpatialHashGrid grid;
+  private final double[] x;
+  private final double[] y;
+  private final double[] z;
+  private final boolean[] located;
+  private final double[] timeStamps;
+  private final List<StateHistory> histories;
+  private final MutablePose alignedPose = MutablePose.create();
+  private final MutableVelocity alignedVelocity = MutableVelocity.create();
+
+  private final LatencyHistogram checkDuration = LatencyHistogram.create("separation check");
+  private final LatencyHistogram detectionToSubmitLatency =
+      LatencyHistogram.create("detection to submit");
+
+  @Nullable private ScheduledExecutorService executor;
+  private volatile boolean triggered;
+
+  private SeparationMonitor(Builder builder) {
+    stateEstimators = builder.stateEstimators;
+    minimumDistance = builder.minimumDistance;
+    checkPeriodInNanoSeconds = (long) (builder.checkPeriodInSeconds * 1.0e9);
+    defaultEmergencyTask = builder.emergencyTask;
+
+    grid = new SpatialHashGrid(stateEstimators.size());
+    x = new double[stateEstimators.size()];
+    y = new double[stateEstimators.size()];
+    z = new double[stateEstimators.size()];
+    located = new boolean[stateEstimators.size()];
+    timeStamps = new double[stateEstimators.size()];
+    final ImmutableList.Builder<StateHistory> historiesBuilder = ImmutableList.builder();
+    for (int i = 0; i < stateEstimators.size(); i++) {
+      historiesBuilder.add(StateHistory.create(HISTORY_SIZE));
+    }
+    histories = historiesBuilder.build();
+  }
+
+  /**
+   * Gets a builder of this class.
+   *
+   * @return a builder instance
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Registers the {@code taskExecutor} for listening to the emergency notification. It will be
+   * submitted the emergency task of this monitor.
+   *
+   * @param taskExecutor the task executor to be registered
+   * @throws IllegalStateException if this monitor has no emergency task
+   */
+  @Override
+  public void registerTaskExecutor(TaskExecutor taskExecutor) {
+    checkState(
+        defaultEmergencyTask != null,
+        "This monitor has no emergency task, register the task executor with its own task.");
+    registerTaskExecutor(taskExecutor, defaultEmergencyTask);
+  }
+
+  /**
+   * Registers the {@code taskExecutor} for listening to the emergency notification with its own
+   * emergency task, e.g. landing the drone controlled by this task executor.
+   *
+   * @param taskExecutor the task executor to be registered
+   * @param emergencyTask the task to submit to {@code taskExecutor} in case of emergency
+   */
+  public void registerTaskExecutor(TaskExecutor taskExecutor, Task emergencyTask) {
+    registrations.add(new Registration(taskExecutor, emergencyTask));
+  }
+
+  @Override
+  public void removeTaskExecutor(TaskExecutor taskExecutor) {
+    for (final Registration registration : registrations) {
+      if (registration.taskExecutor.equals(taskExecutor)) {
+        registrations.remove(registration);
+      }
+    }
+  }
+
+  /** Starts checking the separation of the drones periodically on a dedicated thread. */
+  public synchronized void start() {
+    checkState(executor == null, "The monitor has already been started.");
+    executor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("separation-monitor-%d")
+                .setDaemon(true)
+                .build());
+    executor.scheduleAtFixedRate(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              check();
+            } catch (RuntimeException e) {
+              // an exception would cancel all the next checks
+              logger.error("Checking the separation of the drones failed.", e);
+            }
+          }
+        },
+        0,
+        checkPeriodInNanoSeconds,
+        TimeUnit.NANOSECONDS);
+  }
+
+  /** Stops checking the separation of the drones. */
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Checks the separation of the drones once, and notifies the task executors if two drones are
+   * too close to each other. Drones without a state estimate are ignored.
+   */
+  @VisibleForTesting
+  void check() {
+    if (triggered) {
+      return;
+    }
+    final long startTime = System.nanoTime();
+
+    double mostRecentTimeStamp = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < stateEstimators.size(); i++) {
+      final Optional<DroneStateStamped> state = stateEstimators.get(i).getCurrentState();
+      located[i] = state.isPresent();
+      if (located[i]) {
+        final Pose pose = state.get().pose();
+        x[i] = pose.x();
+        y[i] = pose.y();
+        z[i] = pose.z();
+        timeStamps[i] = state.get().getTimeStampInSeconds();
+        histories.get(i).add(state.get());
+        mostRecentTimeStamp = Math.max(mostRecentTimeStamp, timeStamps[i]);
+      }
+    }
+
+    final double alignedTime = getAlignedTime(mostRecentTimeStamp);
+    grid.clear(minimumDistance);
+    for (int i = 0; i < stateEstimators.size(); i++) {
+      if (located[i]) {
+        // a drone without a state at the aligned time is compared at its most recent state
+        if (histories.get(i).getStateAt(alignedTime, alignedPose, alignedVelocity)) {
+          x[i] = alignedPose.x();
+          y[i] = alignedPose.y();
+          z[i] = alignedPose.z();
+        }
+        grid.insert(i, x[i], y[i], z[i]);
+      }
+    }
+
+    if (hasViolation() && notifyEmergency()) {
+      detectionToSubmitLatency.record(System.nanoTime() - startTime);
+    }
+    checkDuration.record(System.nanoTime() - startTime);
+  }
+
+  /**
+   * Submits the emergency tasks to the registered task executors. The monitor is only triggered if
+   * at least one task executor has been submitted its emergency task.
+   *
+   * @return true if the emergency has been notified
+   */
+  private boolean notifyEmergency() {
+    boolean notified = false;
+    for (final Registration registration : registrations) {
+      registration.taskExecutor.submitTask(registration.emergencyTask);
+      notified = true;
+    }
+    if (notified) {
+      triggered = true;
+      logger.warn("Two drones are closer than {} m, notified the emergency.", minimumDistance);
+    }
+    return notified;
+  }
+
+  /** Gets the time of the least recent state which does not lag too much. */
+  private double getAlignedTime(double mostRecentTimeStamp) {
+    final double earliestAlignedTime = mostRecentTimeStamp - MAXIMUM_ALIGNMENT_IN_SECONDS;
+    double alignedTime = mostRecentTimeStamp;
+    for (int i = 0; i < stateEstimators.size(); i++) {
+      if (located[i] && timeStamps[i] >= earliestAlignedTime) {
+        alignedTime = Math.min(alignedTime, timeStamps[i]);
+      }
+    }
+    return alignedTime;
+  }
+
+  private boolean hasViolation() {
+    for (int i = 0; i < stateEstimators.size(); i++) {
+      if (!located[i]) {
+        continue;
+      }
+      for (long cellX = grid.getCellX(i) - 1; cellX <= grid.getCellX(i) + 1; cellX++) {
+        for (long cellY = grid.getCellY(i) - 1; cellY <= grid.getCellY(i) + 1; cellY++) {
+          for (long cellZ = grid.getCellZ(i) - 1; cellZ <= grid.getCellZ(i) + 1; cellZ++) {
+            for (int j = grid.getFirstInCell(cellX, cellY, cellZ);
+                j >= 0;
+                j = grid.getNextInCell(j)) {
+              if (j > i && isTooClose(i, j)) {
+                return true;
+              }
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean isTooClose(int i, int j) {
+    final double dx = x[i] - x[j];
+    final double dy = y[i] - y[j];
+    final double dz = z[i] - z[j];
+    return dx * dx + dy * dy + dz * dz < minimumDistance * minimumDistance;
+  }
+
+  /**
+   * Checks whether the emergency has been notified.
+   *
+   * @return true if two drones have been detected too close to each other
+   */
+  public boolean hasTriggered() {
+    return triggered;
+  }
+
+  /**
+   * Gets the histogram of the time between reading the states which show a violation and
+   * submitting the last emergency task.
+   *
+   * @return the detection-to-submit latency histogram
+   */
+  public LatencyHistogram getDetectionToSubmitLatency() {
+    return detectionToSubmitLatency;
+  }
+
+  /**
+   * Gets the histogram of the duration of the checks.
+   *
+   * @return the check duration histogram
+   */
+  public LatencyHistogram getCheckDuration() {
+    return checkDuration;
+  }
+
+  private static final class Registration {
+    private final TaskExecutor taskExecutor;
+    private final Task emergencyTask;
+
+    private Registration(TaskExecutor taskExecutor, Task emergencyTask) {
+      this.taskExecutor = taskExecutor;
+      this.emergencyTask = emergencyTask;
+    }
+  }
+
+  /** {@code SeparationMonitor} builder static inner class. */
+  public static final class Builder {
+    private ImmutableList<StateEstimator> stateEstimators = ImmutableList.of();
+    private double minimumDistance = DEFAULT_MINIMUM_DISTANCE;
+    private double checkPeriodInSeconds = 0.01;
+    @Nullable private Task emergencyTask;
+
+    private Builder() {}
+
+    /**
+     * Sets the {@code stateEstimators} and returns a reference to this Builder so that the methods
+     * can be chained together.
+     *
+     * @param val the state estimators of the drones to watch
+     * @return a reference to this Builder
+     */
+    public Builder withStateEstimators(List<? extends StateEstimator> val) {
+      stateEstimators = ImmutableList.copyOf(val);
+      return this;
+    }
+
+    /**
+     * Sets the {@code minimumDistance} and returns a reference to this Builder so that the methods
+     * can be chained together. The default value is {@link #DEFAULT_MINIMUM_DISTANCE}.
+     *
+     * @param val the {@code minimumDistance} to set
+     * @return a reference to this Builder
+     */
+    public Builder withMinimumDistance(double val) {
+      minimumDistance = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code checkPeriodInSeconds} and returns a reference to this Builder so that the
+     * methods can be chained together. It should not be longer than the period of the pose
+     * updates. The default value is 0.01 seconds.
+     *
+     * @param val the {@code checkPeriodInSeconds} to set
+     * @return a reference to this Builder
+     */
+    public Builder withCheckPeriodInSeconds(double val) {
+      checkPeriodInSeconds = val;
+      return this;
+    }
+
+    /**
+     * Sets the {@code emergencyTask} and returns a reference to this Builder so that the methods
+     * can be chained together. It is submitted to the task executors registered without their own
+     * emergency task.
+     *
+     * @param val the {@code emergencyTask} to set
+     * @return a reference to this Builder
+     */
+    public Builder withEmergencyTask(Task val) {
+      emergencyTask = checkNotNull(val);
+      return this;
+    }
+
+    /**
+     * Returns a {@code SeparationMonitor} built from the parameters previously set.
+     *
+     * @return a {@code SeparationMonitor} built with parameters of this {@code
+     *     SeparationMonitor.Builder}
+     */
+    public SeparationMonitor build() {
+      checkArgument(
+          minimumDistance > 0,
+          String.format("Minimum distance must be positive, but it is %f.", minimumDistance));
+      checkArgument(
+          checkPeriodInSeconds > 0,
+          String.format("Check period must be positive, but it is %f.", checkPeriodInSeconds));
+      return new SeparationMonitor(this);
+    }
+  }
+}
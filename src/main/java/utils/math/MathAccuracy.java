@@ -0,0 +1,20 @@
+package utils.math;
+
+/**
+ * The accuracy of the trigonometric functions used by a computation.
+ *
+ * @author Hoang Tung Dinh
+ */
+public enum MathAccuracy {
+  /**
+   * The functions of {@link StrictMath}, whose results are the same on every platform. Use this to
+   * reproduce a computation bit for bit, e.g., in tests and in simulations.
+   */
+  STRICT,
+
+  /**
+   * The functions of {@link Math}, which the JIT compiler may replace by faster intrinsics. The
+   * results are within one or two ulps of the strict ones but can differ between platforms.
+   */
+  FAST
+}
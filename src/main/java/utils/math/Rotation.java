@@ -0,0 +1,240 @@
+package utils.math;
+
+import applications.trajectory.geom.point.Point3D;
+
+/**
+ * An immutable rotation in three dimensions with fixed angles. The rotation matrix is computed once
+ * from the Euler angles and kept as nine primitive coefficients, so that rotating a point costs
+ * nine multiplications instead of the matrix allocations and multiplications of {@link
+ * Transformations#rotate(Point3D, double, double, double, RotationOrder)}. Use this class when the
+ * same rotation is applied to many points, e.g. every sample of a trajectory.
+ *
+ * <p>The rotation is also available as a unit quaternion.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class Rotation {
+  private static final Rotation IDENTITY = new Rotation(new double[] {1, 0, 0, 0, 1, 0, 0, 0, 1});
+
+  private final double m00;
+  private final double m01;
+  private final double m02;
+  private final double m10;
+  private final double m11;
+  private final double m12;
+  private final double m20;
+  private final double m21;
+  private final double m22;
+
+  private final double quaternionW;
+  private final double quaternionX;
+  private final double quaternionY;
+  private final double quaternionZ;
+
+  /** The coefficients of the matrix are given in row-major order. */
+  private Rotation(double[] matrix) {
+    m00 = matrix[0];
+    m01 = matrix[1];
+    m02 = matrix[2];
+    m10 = matrix[3];
+    m11 = matrix[4];
+    m12 = matrix[5];
+    m20 = matrix[6];
+    m21 = matrix[7];
+    m22 = matrix[8];
+
+    final double[] quaternion = toQuaternion();
+    final double sign = quaternion[0] < 0 ? -1 : 1;
+    quaternionW = sign * quaternion[0];
+    quaternionX = sign * quaternion[1];
+    quaternionY = sign * quaternion[2];
+    quaternionZ = sign * quaternion[3];
+  }
+
+  /**
+   * Gets the rotation which leaves every point unchanged.
+   *
+   * @return the identity rotation
+   */
+  public static Rotation identity() {
+    return IDENTITY;
+  }
+
+  /**
+   * Creates the extrinsic Euler rotation applied by {@link Transformations#rotate(Point3D, double,
+   * double, double, RotationOrder)} for the same angles and order.
+   *
+   * @param rotationAngleX the rotation angle about the x-axis according to the right hand rule
+   * @param rotationAngleY the rotation angle about the y-axis according to the right hand rule
+   * @param rotationAngleZ the rotation angle about the z-axis according to the right hand rule
+   * @param rotationOrder the rotation order of the transform
+   * @return the rotation
+   */
+  public static Rotation create(
+      double rotationAngleX,
+      double rotationAngleY,
+      double rotationAngleZ,
+      RotationOrder rotationOrder) {
+    return new Rotation(
+        rotationOrder.get3dRotationMatrix(
+            getRotationMatrixX(rotationAngleX),
+            getRotationMatrixY(rotationAngleY),
+            getRotationMatrixZ(rotationAngleZ)));
+  }
+
+  /**
+   * Creates the rotation which reverses the rotation applied by {@link
+   * Transformations#rotate(Point3D, double, double, double, RotationOrder)}, i.e. the rotation
+   * applied by {@link Transformations#reverseRotation(Point3D, double, double, double,
+   * RotationOrder)} for the same angles and order.
+   *
+   * @param rotationAngleX the initial rotation angle about the x-axis
+   * @param rotationAngleY the initial rotation angle about the y-axis
+   * @param rotationAngleZ the initial rotation angle about the z-axis
+   * @param initialRotationOrder the initial rotation order
+   * @return the reverse rotation
+   */
+  public static Rotation createReverse(
+      double rotationAngleX,
+      double rotationAngleY,
+      double rotationAngleZ,
+      RotationOrder initialRotationOrder) {
+    return create(rotationAngleX, rotationAngleY, rotationAngleZ, initialRotationOrder).inverse();
+  }
+
+  /**
+   * Gets the inverse of this rotation, which is the transpose of its matrix.
+   *
+   * @return the inverse rotation
+   */
+  public Rotation inverse() {
+    return new Rotation(new double[] {m00, m10, m20, m01, m11, m21, m02, m12, m22});
+  }
+
+  /**
+   * Rotates a point.
+   *
+   * @param point the point to be rotated
+   * @return a new 3D point representing the rotated point
+   */
+  public Point3D apply(Point3D point) {
+    return Point3D.create(
+        applyX(point.getX(), point.getY(), point.getZ()),
+        applyY(point.getX(), point.getY(), point.getZ()),
+        applyZ(point.getX(), point.getY(), point.getZ()));
+  }
+
+  /**
+   * Rotates a point given by its coordinates without allocating objects.
+   *
+   * @param x the x coordinate of the point
+   * @param y the y coordinate of the point
+   * @param z the z coordinate of the point
+   * @return the x coordinate of the rotated point
+   */
+  public double applyX(double x, double y, double z) {
+    return m00 * x + m01 * y + m02 * z;
+  }
+
+  /**
+   * Rotates a point given by its coordinates without allocating objects.
+   *
+   * @param x the x coordinate of the point
+   * @param y the y coordinate of the point
+   * @param z the z coordinate of the point
+   * @return the y coordinate of the rotated point
+   */
+  public double applyY(double x, double y, double z) {
+    return m10 * x + m11 * y + m12 * z;
+  }
+
+  /**
+   * Rotates a point given by its coordinates without allocating objects.
+   *
+   * @param x the x coordinate of the point
+   * @param y the y coordinate of the point
+   * @param z the z coordinate of the point
+   * @return the z coordinate of the rotated point
+   */
+  public double applyZ(double x, double y, double z) {
+    return m20 * x + m21 * y + m22 * z;
+  }
+
+  /**
+   * Gets the scalar part of the unit quaternion of this rotation. Of the two quaternions of a
+   * rotation, the one with a non-negative scalar part is used.
+   *
+   * @return the w component of the quaternion
+   */
+  public double getQuaternionW() {
+    return quaternionW;
+  }
+
+  /** @return the x component of the quaternion of this rotation */
+  public double getQuaternionX() {
+    return quaternionX;
+  }
+
+  /** @return the y component of the quaternion of this rotation */
+  public double getQuaternionY() {
+    return quaternionY;
+  }
+
+  /** @return the z component of the quaternion of this rotation */
+  public double getQuaternionZ() {
+    return quaternionZ;
+  }
+
+  /**
+   * Shepperd's method: the quaternion is derived from its largest component, which avoids the
+   * division by a small number.
+   */
+  private double[] toQuaternion() {
+    final double trace = m00 + m11 + m22;
+    if (trace > 0) {
+      final double s = 2 * Math.sqrt(trace + 1);
+      return new double[] {s / 4, (m21 - m12) / s, (m02 - m20) / s, (m10 - m01) / s};
+    } else if (m00 > m11 && m00 > m22) {
+      final double s = 2 * Math.sqrt(1 + m00 - m11 - m22);
+      return new double[] {(m21 - m12) / s, s / 4, (m01 + m10) / s, (m02 + m20) / s};
+    } else if (m11 > m22) {
+      final double s = 2 * Math.sqrt(1 + m11 - m00 - m22);
+      return new double[] {(m02 - m20) / s, (m01 + m10) / s, s / 4, (m12 + m21) / s};
+    } else {
+      final double s = 2 * Math.sqrt(1 + m22 - m00 - m11);
+      return new double[] {(m10 - m01) / s, (m02 + m20) / s, (m12 + m21) / s, s / 4};
+    }
+  }
+
+  private static double[] getRotationMatrixZ(double rotationAngle) {
+    final double sinZ = StrictMath.sin(rotationAngle);
+    final double cosZ = StrictMath.cos(rotationAngle);
+    return new double[] {cosZ, -sinZ, 0, sinZ, cosZ, 0, 0, 0, 1};
+  }
+
+  private static double[] getRotationMatrixY(double rotationAngle) {
+    final double sinY = StrictMath.sin(rotationAngle);
+    final double cosY = StrictMath.cos(rotationAngle);
+    return new double[] {cosY, 0, sinY, 0, 1, 0, -sinY, 0, cosY};
+  }
+
+  private static double[] getRotationMatrixX(double rotationAngle) {
+    final double sinX = StrictMath.sin(rotationAngle);
+    final double cosX = StrictMath.cos(rotationAngle);
+    return new double[] {1, 0, 0, 0, cosX, -sinX, 0, sinX, cosX};
+  }
+
+  @Override
+  public String toString() {
+    return "Rotation{"
+        + "quaternion=["
+        + quaternionW
+        + ", "
+        + quaternionX
+        + ", "
+        + quaternionY
+        + ", "
+        + quaternionZ
+        + "]}";
+  }
+}
@@ -10,6 +10,12 @@ public enum RotationOrder {
         SimpleMatrix rotationMatrixX, SimpleMatrix rotationMatrixY, SimpleMatrix rotationMatrixZ) {
       return rotationMatrixZ.mult(rotationMatrixY).mult(rotationMatrixX);
     }
+
+    @Override
+    double[] get3dRotationMatrix(
+        double[] rotationMatrixX, double[] rotationMatrixY, double[] rotationMatrixZ) {
+      return mult(mult(rotationMatrixZ, rotationMatrixY), rotationMatrixX);
+    }
   },
 
   ZYX {
@@ -18,11 +24,34 @@ public enum RotationOrder {
         SimpleMatrix rotationMatrixX, SimpleMatrix rotationMatrixY, SimpleMatrix rotationMatrixZ) {
       return rotationMatrixX.mult(rotationMatrixY).mult(rotationMatrixZ);
     }
+
+    @Override
+    double[] get3dRotationMatrix(
+        double[] rotationMatrixX, double[] rotationMatrixY, double[] rotationMatrixZ) {
+      return mult(mult(rotationMatrixX, rotationMatrixY), rotationMatrixZ);
+    }
   };
 
   abstract SimpleMatrix get3dRotationMatrix(
       SimpleMatrix rotationMatrixX, SimpleMatrix rotationMatrixY, SimpleMatrix rotationMatrixZ);
 
+  /** The 3x3 matrices are given as arrays of nine coefficients in row-major order. */
+  abstract double[] get3dRotationMatrix(
+      double[] rotationMatrixX, double[] rotationMatrixY, double[] rotationMatrixZ);
+
+  private static double[] mult(double[] first, double[] second) {
+    final double[] product = new double[9];
+    for (int row = 0; row < 3; row++) {
+      for (int column = 0; column < 3; column++) {
+        product[row * 3 + column] =
+            first[row * 3] * second[column]
+                + first[row * 3 + 1] * second[3 + column]
+                + first[row * 3 + 2] * second[6 + column];
+      }
+    }
+    return product;
+  }
+
   RotationOrder getInverseOrder() {
     switch (this) {
       case XYZ:
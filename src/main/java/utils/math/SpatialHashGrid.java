@@ -0,0 +1,157 @@
+package utils.math;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A uniform grid of cubic cells which bins a fixed number of items, identified by their index, by
+ * the cell of a point. Only the occupied cells are stored, in an open-addressing hash table keyed
+ * on the integer coordinates of the cells, so that the grid covers unbounded space. The items of a
+ * cell are kept in a singly linked list threaded through an array.
+ *
+ * <p>The grid is meant to be filled again at every time step. Clearing it only starts a new
+ * generation, so that neither clearing nor inserting allocates objects. The grid is not
+ * thread-safe.
+ *
+ * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
+ */
+public final class SpatialHashGrid {
+  private static final int NO_ITEM = -1;
+
+  private final int mask;
+  private final int[] slotGenerations;
+  private final long[] slotCellX;
+  private final long[] slotCellY;
+  private final long[] slotCellZ;
+  private final int[] slotHeads;
+
+  private final long[] itemCellX;
+  private final long[] itemCellY;
+  private final long[] itemCellZ;
+  private final int[] itemNext;
+
+  /** The slots of an empty grid are of generation zero, which is never the current generation. */
+  private int generation = 1;
+  private double cellSize = 1;
+
+  /**
+   * Creates an empty grid.
+   *
+   * @param numberOfItems the number of items, which are identified by the indices from zero up to
+   *     this number
+   */
+  public SpatialHashGrid(int numberOfItems) {
+    checkArgument(
+        numberOfItems >= 0,
+        String.format("Number of items must be non-negative, but it is %d.", numberOfItems));
+    // at least twice as many slots as items keeps the probe sequences short
+    final int numberOfSlots = Integer.highestOneBit(Math.max(1, numberOfItems) * 4 - 1);
+    this.mask = numberOfSlots - 1;
+    this.slotGenerations = new int[numberOfSlots];
+    this.slotCellX = new long[numberOfSlots];
+    this.slotCellY = new long[numberOfSlots];
+    this.slotCellZ = new long[numberOfSlots];
+    this.slotHeads = new int[numberOfSlots];
+    this.itemCellX = new long[numberOfItems];
+    this.itemCellY = new long[numberOfItems];
+    this.itemCellZ = new long[numberOfItems];
+    this.itemNext = new int[numberOfItems];
+  }
+
+  /**
+   * Removes all items from the grid and sets the edge length of the cells for the next insertions.
+   *
+   * @param newCellSize the edge length of the cells
+   */
+  public void clear(double newCellSize) {
+    checkArgument(
+        newCellSize > 0, String.format("Cell size must be positive, but it is %f.", newCellSize));
+    cellSize = newCellSize;
+    generation++;
+  }
+
+  /**
+   * Inserts an item in the cell containing a point. An item must be inserted at most once between
+   * two calls to {@link #clear(double)}.
+   *
+   * @param item the index of the item
+   * @param x the x coordinate of the point
+   * @param y the y coordinate of the point
+   * @param z the z coordinate of the point
+   */
+  public void insert(int item, double x, double y, double z) {
+    final long cellX = (long) Math.floor(x / cellSize);
+    final long cellY = (long) Math.floor(y / cellSize);
+    final long cellZ = (long) Math.floor(z / cellSize);
+    itemCellX[item] = cellX;
+    itemCellY[item] = cellY;
+    itemCellZ[item] = cellZ;
+
+    int slot = hash(cellX, cellY, cellZ);
+    while (slotGenerations[slot] == generation) {
+      if (slotCellX[slot] == cellX && slotCellY[slot] == cellY && slotCellZ[slot] == cellZ) {
+        itemNext[item] = slotHeads[slot];
+        slotHeads[slot] = item;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    slotGenerations[slot] = generation;
+    slotCellX[slot] = cellX;
+    slotCellY[slot] = cellY;
+    slotCellZ[slot] = cellZ;
+    itemNext[item] = NO_ITEM;
+    slotHeads[slot] = item;
+  }
+
+  /**
+   * Gets the first item of a cell. The other items of the cell are found with {@link
+   * #getNextInCell(int)}.
+   *
+   * @param cellX the x coordinate of the cell
+   * @param cellY the y coordinate of the cell
+   * @param cellZ the z coordinate of the cell
+   * @return the index of the first item, or a negative number if the cell is empty
+   */
+  public int getFirstInCell(long cellX, long cellY, long cellZ) {
+    int slot = hash(cellX, cellY, cellZ);
+    while (slotGenerations[slot] == generation) {
+      if (slotCellX[slot] == cellX && slotCellY[slot] == cellY && slotCellZ[slot] == cellZ) {
+        return slotHeads[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NO_ITEM;
+  }
+
+  /**
+   * Gets the item following an item in its cell.
+   *
+   * @param item the index of an item in the grid
+   * @return the index of the next item, or a negative number if it is the last item of its cell
+   */
+  public int getNextInCell(int item) {
+    return itemNext[item];
+  }
+
+  /** @return the x coordinate of the cell of an item in the grid */
+  public long getCellX(int item) {
+    return itemCellX[item];
+  }
+
+  /** @return the y coordinate of the cell of an item in the grid */
+  public long getCellY(int item) {
+    return itemCellY[item];
+  }
+
+  /** @return the z coordinate of the cell of an item in the grid */
+  public long getCellZ(int item) {
+    return itemCellZ[item];
+  }
+
+  private int hash(long cellX, long cellY, long cellZ) {
+    long hash = cellX * 0x9E3779B97F4A7C15L;
+    hash = (hash ^ cellY) * 0xC2B2AE3D27D4EB4FL;
+    hash = (hash ^ cellZ) * 0x165667B19E3779F9L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+}
@@ -4,11 +4,15 @@ import applications.trajectory.geom.point.Point3D;
 import applications.trajectory.geom.point.Point4D;
 import control.dto.BodyFrameVelocity;
 import control.dto.InertialFrameVelocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
 import control.dto.Pose;
 import control.dto.Velocity;
 import geometry_msgs.Quaternion;
 import org.ejml.simple.SimpleMatrix;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /** @author Hoang Tung Dinh */
 public final class Transformations {
 
@@ -35,6 +39,96 @@ public final class Transformations {
     return EulerAngle.builder().setAngleX(eulerX).setAngleY(eulerY).setAngleZ(eulerZ).build();
   }
 
+  /**
+   * Computes the yaw, i.e., the euler angle about the z-axis, of a quaternion without computing the
+   * other two angles. The result is the same as {@code
+   * quaternionToEulerAngle(quaternion).angleZ()}.
+   *
+   * @param quaternion the angle in quaternion representation
+   * @return the yaw in range [-pi, pi]
+   */
+  public static double quaternionToYaw(Quaternion quaternion) {
+    return quaternionToYaw(quaternion, MathAccuracy.STRICT);
+  }
+
+  /**
+   * Computes the yaw, i.e., the euler angle about the z-axis, of a quaternion without computing the
+   * other two angles.
+   *
+   * @param quaternion the angle in quaternion representation
+   * @param accuracy the accuracy of the computation
+   * @return the yaw in range [-pi, pi]
+   */
+  public static double quaternionToYaw(Quaternion quaternion, MathAccuracy accuracy) {
+    return quaternionToYaw(
+        quaternion.getW(), quaternion.getX(), quaternion.getY(), quaternion.getZ(), accuracy);
+  }
+
+  /**
+   * Computes the yaw, i.e., the euler angle about the z-axis, of a quaternion given by its
+   * components.
+   *
+   * @param w the scalar part of the quaternion
+   * @param x the x component of the quaternion
+   * @param y the y component of the quaternion
+   * @param z the z component of the quaternion
+   * @param accuracy the accuracy of the computation
+   * @return the yaw in range [-pi, pi]
+   */
+  public static double quaternionToYaw(
+      double w, double x, double y, double z, MathAccuracy accuracy) {
+    final double sinYaw = 2 * (w * z + x * y);
+    final double cosYaw = 1 - 2 * (y * y + z * z);
+    return accuracy == MathAccuracy.FAST
+        ? Math.atan2(sinYaw, cosYaw)
+        : StrictMath.atan2(sinYaw, cosYaw);
+  }
+
+  /**
+   * Computes the yaws of several quaternions at once. The quaternions are stored one after the
+   * other in {@code quaternions}, each as its four components w, x, y and z.
+   *
+   * @param quaternions the components of the quaternions
+   * @param yaws the output array of the yaws, in range [-pi, pi]. The yaw of the i-th quaternion is
+   *     stored at index i.
+   * @param numberOfQuaternions the number of quaternions to convert
+   * @param accuracy the accuracy of the computation
+   */
+  public static void quaternionsToYaws(
+      double[] quaternions, double[] yaws, int numberOfQuaternions, MathAccuracy accuracy) {
+    checkArgument(
+        numberOfQuaternions >= 0 && quaternions.length >= 4 * numberOfQuaternions,
+        String.format(
+            "The quaternion array of length %d does not contain %d quaternions.",
+            quaternions.length, numberOfQuaternions));
+    checkArgument(
+        yaws.length >= numberOfQuaternions,
+        String.format(
+            "The yaw array of length %d cannot contain %d yaws.",
+            yaws.length, numberOfQuaternions));
+
+    // the accuracy is checked once instead of once per quaternion
+    if (accuracy == MathAccuracy.FAST) {
+      for (int i = 0; i < numberOfQuaternions; i++) {
+        final int offset = 4 * i;
+        final double w = quaternions[offset];
+        final double x = quaternions[offset + 1];
+        final double y = quaternions[offset + 2];
+        final double z = quaternions[offset + 3];
+        yaws[i] = Math.atan2(2 * (w * z + x * y), 1 - 2 * (y * y + z * z));
+      }
+    } else {
+      for (int i = 0; i < numberOfQuaternions; i++) {
+        final int offset = 4 * i;
+        final double w = quaternions[offset];
+        final double x = quaternions[offset + 1];
+        final double y = quaternions[offset + 2];
+        final double z = quaternions[offset + 3];
+        yaws[i] = StrictMath.atan2(2 * (w * z + x * y), 1 - 2 * (y * y + z * z));
+      }
+    }
+  }
+
   /**
    * Transforms the velocity in the inertial frame to the velocity in the body frame.
    *
@@ -66,6 +160,31 @@ public final class Transformations {
         .build();
   }
 
+  /**
+   * Transforms the velocity in the inertial frame to the velocity in the body frame without
+   * allocating objects.
+   *
+   * @param inertialFrameVelocity the velocity in the inertial frame
+   * @param pose the pose associated with the velocity in the inertial frame
+   * @param bodyFrameVelocity the output holder of the velocity in the body frame. It can be the
+   *     same holder as {@code inertialFrameVelocity}.
+   */
+  public static void inertialFrameVelocityToBodyFrameVelocity(
+      MutableVelocity inertialFrameVelocity, MutablePose pose, MutableVelocity bodyFrameVelocity) {
+    final double theta = -pose.yaw();
+    final double sin = StrictMath.sin(theta);
+    final double cos = StrictMath.cos(theta);
+
+    final double linearX =
+        inertialFrameVelocity.linearX() * cos - inertialFrameVelocity.linearY() * sin;
+    final double linearY =
+        inertialFrameVelocity.linearX() * sin + inertialFrameVelocity.linearY() * cos;
+
+    // same linearZ and angularZ
+    bodyFrameVelocity.set(
+        linearX, linearY, inertialFrameVelocity.linearZ(), inertialFrameVelocity.angularZ());
+  }
+
   /**
    * Transforms the velocity in the body frame to the velocity in the inertial frame.
    *
@@ -96,6 +215,29 @@ public final class Transformations {
         .build();
   }
 
+  /**
+   * Transforms the velocity in the body frame to the velocity in the inertial frame without
+   * allocating objects.
+   *
+   * @param bodyFrameVelocity the velocity in the body frame
+   * @param pose the pose associated with the velocity
+   * @param inertialFrameVelocity the output holder of the velocity in the inertial frame. It can be
+   *     the same holder as {@code bodyFrameVelocity}.
+   */
+  public static void bodyFrameVelocityToInertialFrameVelocity(
+      MutableVelocity bodyFrameVelocity, MutablePose pose, MutableVelocity inertialFrameVelocity) {
+    final double theta = pose.yaw();
+    final double sin = StrictMath.sin(theta);
+    final double cos = StrictMath.cos(theta);
+
+    final double linearX = bodyFrameVelocity.linearX() * cos - bodyFrameVelocity.linearY() * sin;
+    final double linearY = bodyFrameVelocity.linearX() * sin + bodyFrameVelocity.linearY() * cos;
+
+    // same linearZ and angularZ
+    inertialFrameVelocity.set(
+        linearX, linearY, bodyFrameVelocity.linearZ(), bodyFrameVelocity.angularZ());
+  }
+
   /**
    * Translates a 3D point along the x-, y- and z-axes.
    *
@@ -147,10 +289,8 @@ public final class Transformations {
     // bottleneck. Currently,
     // three rotation matrices are computed separately and then multiplied all together after
     // that. This allows
-    // the rotation order to be changed later. However, if the rotation order is decided and
-    // fixed, all matrix
-    // multiplications can be hardcoded manually, which can improve the computational
-    // efficiency.
+    // the rotation order to be changed later. If the same angles are used for many points, use
+    // a precomputed Rotation instead.
     final SimpleMatrix rotationMatrixX = getRotationMatrixX(rotationAngleX);
     final SimpleMatrix rotationMatrixY = getRotationMatrixY(rotationAngleY);
     final SimpleMatrix rotationMatrixZ = getRotationMatrixZ(rotationAngleZ);
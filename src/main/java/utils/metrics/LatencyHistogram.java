@@ -0,0 +1,156 @@
+package utils.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A histogram of durations in nanoseconds with log-linear buckets: every power of two is split into
+ * {@value #NUMBER_OF_SUB_BUCKETS} linear sub-buckets, so a reported percentile is at most 12.5%
+ * larger than the recorded value. Recording a value never allocates memory.
+ *
+ * <p>The histogram has a single writer: {@link #record(long)} and {@link #reset()} must always be
+ * called by the same thread, or by threads which are ordered by a happens-before relation (such as
+ * the successive ticks of a control loop). The statistics can be read by any thread at any time.
+ *
+ * @author Hoang Tung Dinh
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int NUMBER_OF_SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int NUMBER_OF_BUCKETS =
+      (Long.SIZE - 1 - SUB_BUCKET_BITS + 1) * NUMBER_OF_SUB_BUCKETS;
+
+  private final String name;
+  private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  private LatencyHistogram(String name) {
+    this.name = name;
+  }
+
+  public static LatencyHistogram create(String name) {
+    return new LatencyHistogram(name);
+  }
+
+  private static int bucketIndexOf(long value) {
+    if (value < NUMBER_OF_SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    final int shift = exponent - SUB_BUCKET_BITS;
+    final int subBucket = (int) (value >>> shift) & (NUMBER_OF_SUB_BUCKETS - 1);
+    return (shift + 1) * NUMBER_OF_SUB_BUCKETS + subBucket;
+  }
+
+  private static long highestValueOf(int bucketIndex) {
+    if (bucketIndex < NUMBER_OF_SUB_BUCKETS) {
+      return bucketIndex;
+    }
+    final int shift = bucketIndex / NUMBER_OF_SUB_BUCKETS - 1;
+    final long subBucket = bucketIndex % NUMBER_OF_SUB_BUCKETS;
+    final long lowestValue = (NUMBER_OF_SUB_BUCKETS + subBucket) << shift;
+    return lowestValue + (1L << shift) - 1;
+  }
+
+  /**
+   * Records a duration. Negative durations are recorded as zero.
+   *
+   * @param durationInNanoSeconds the duration to record
+   */
+  public void record(long durationInNanoSeconds) {
+    final long value = Math.max(0, durationInNanoSeconds);
+    final int index = bucketIndexOf(value);
+    buckets.lazySet(index, buckets.get(index) + 1);
+    sum.lazySet(sum.get() + value);
+    if (value > max.get()) {
+      max.lazySet(value);
+    }
+    count.lazySet(count.get() + 1);
+  }
+
+  /** Clears all recorded values. Must be called by the writer of this histogram. */
+  public void reset() {
+    count.lazySet(0);
+    for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+      buckets.lazySet(i, 0);
+    }
+    sum.lazySet(0);
+    max.lazySet(0);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getMaxInNanoSeconds() {
+    return max.get();
+  }
+
+  /**
+   * Gets the mean of the recorded durations.
+   *
+   * @return the mean in nanoseconds, or zero if no duration has been recorded
+   */
+  public double getMeanInNanoSeconds() {
+    final long currentCount = count.get();
+    return currentCount == 0 ? 0 : (double) sum.get() / currentCount;
+  }
+
+  /**
+   * Gets an upper bound of the duration below which the given percentage of the recorded durations
+   * fall. The returned value is never larger than the maximum recorded duration.
+   *
+   * @param percentile the percentile, in the range [0, 100]
+   * @return the duration at the percentile in nanoseconds, or zero if no duration has been recorded
+   */
+  public long getValueAtPercentileInNanoSeconds(double percentile) {
+    checkArgument(
+        percentile >= 0 && percentile <= 100,
+        String.format("Percentile must be in the range [0, 100], but it is %f", percentile));
+    long total = 0;
+    for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+      total += buckets.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long cumulativeCount = 0;
+    for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+      cumulativeCount += buckets.get(i);
+      if (cumulativeCount >= rank) {
+        return Math.min(highestValueOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  private static double toMicroSeconds(double nanoSeconds) {
+    return nanoSeconds / TimeUnit.MICROSECONDS.toNanos(1);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s: count=%d, mean=%.1fus, p50=%.1fus, p90=%.1fus, p99=%.1fus, p99.9=%.1fus, max=%.1fus",
+        name,
+        getCount(),
+        toMicroSeconds(getMeanInNanoSeconds()),
+        toMicroSeconds(getValueAtPercentileInNanoSeconds(50)),
+        toMicroSeconds(getValueAtPercentileInNanoSeconds(90)),
+        toMicroSeconds(getValueAtPercentileInNanoSeconds(99)),
+        toMicroSeconds(getValueAtPercentileInNanoSeconds(99.9)),
+        toMicroSeconds(getMaxInNanoSeconds()));
+  }
+}
@@ -0,0 +1,9 @@
+/**
+ * This package contains classes for collecting runtime metrics.
+ *
+ * @author Hoang Tung Dinh
+ */
+@ParametersAreNonnullByDefault
+package utils.metrics;
+
+import javax.annotation.ParametersAreNonnullByDefault;
@@ -0,0 +1,108 @@
+package applications.trajectory;
+
+import applications.trajectory.geom.point.Point3D;
+import applications.trajectory.geom.point.Point4D;
+import choreo.Choreography;
+import control.BatchSampledTrajectory4d;
+import control.Trajectory4d;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+
+/** @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be> */
+public class BatchSampledTrajectoryTest {
+  private static final double START = 0.25;
+  private static final double STEP = 0.01;
+  private static final int SAMPLES = 2000;
+
+  private static void verifyBatchSamples(Trajectory4d trajectory) {
+    final double[] x = new double[SAMPLES];
+    final double[] y = new double[SAMPLES];
+    final double[] z = new double[SAMPLES];
+    final double[] yaw = new double[SAMPLES];
+    TrajectoryUtils.sampleTrajectory(trajectory, START, STEP, x, y, z, yaw);
+
+    for (int i = 0; i < SAMPLES; i++) {
+      final double t = START + i * STEP;
+      assertEquals("x at " + t, trajectory.getDesiredPositionX(t), x[i], 0);
+      assertEquals("y at " + t, trajectory.getDesiredPositionY(t), y[i], 0);
+      assertEquals("z at " + t, trajectory.getDesiredPositionZ(t), z[i], 0);
+      assertEquals("yaw at " + t, trajectory.getDesiredAngleZ(t), yaw[i], 0);
+    }
+  }
+
+  @Test
+  public void testCircleTrajectory() {
+    final Trajectory4d circle =
+        Trajectories.newCircleTrajectory4D(Point3D.create(1, 2, 3), 0.5, 0.2, Math.PI / 6);
+    assertThat(circle).isInstanceOf(BatchSampledTrajectory4d.class);
+    verifyBatchSamples(circle);
+  }
+
+  @Test
+  public void testSwingTrajectory() {
+    final Trajectory4d swing =
+        Trajectories.newPendulumSwingTrajectory(Point4D.create(1, 1, 1, 0), 0.8, 0.1, 0.5);
+    assertThat(swing).isInstanceOf(BatchSampledTrajectory4d.class);
+    verifyBatchSamples(swing);
+  }
+
+  @Test
+  public void testStraightLineTrajectory() {
+    final Trajectory4d line =
+        Trajectories.newStraightLineTrajectory(
+            Point4D.create(0, 0, 1, 0), Point4D.create(3, 4, 1, 1), 1);
+    assertThat(line).isInstanceOf(BatchSampledTrajectory4d.class);
+    verifyBatchSamples(line);
+  }
+
+  @Test
+  public void testHoldPositionTrajectory() {
+    final Trajectory4d hold = Trajectories.newHoldPositionTrajectory(Point4D.create(1, 2, 3, 4));
+    assertThat(hold).isInstanceOf(BatchSampledTrajectory4d.class);
+    verifyBatchSamples(hold);
+  }
+
+  @Test
+  public void testCorkscrewTrajectory() {
+    final Trajectory4d corkscrew =
+        Trajectories.corkscrewTrajectoryBuilder()
+            .setOrigin(Point4D.create(0, 0, 10, 0))
+            .setDestination(Point3D.create(3, 4, 5))
+            .setSpeed(1)
+            .setRadius(0.5)
+            .setFrequency(0.3)
+            .setPhase(0)
+            .build();
+    assertThat(corkscrew).isInstanceOf(BatchSampledTrajectory4d.class);
+    verifyBatchSamples(corkscrew);
+  }
+
+  @Test
+  public void testCompiledTrajectory() {
+    final Trajectory4d compiled =
+        TrajectoryCompiler.builder()
+            .build()
+            .compile(
+                Trajectories.newStraightLineTrajectory(
+                    Point4D.create(0, 0, 1, 0), Point4D.create(3, 4, 1, 0), 1));
+    assertThat(compiled).isInstanceOf(BatchSampledTrajectory4d.class);
+    verifyBatchSamples(compiled);
+  }
+
+  @Test
+  public void testFallbackForOtherTrajectories() {
+    final Trajectory4d choreography =
+        Choreography.builder()
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(1, 1, 1, 0)))
+            .forTime(5)
+            .withTrajectory(
+                Trajectories.newCircleTrajectory4D(Point3D.create(1, 1, 1), 0.5, 0.2, 0))
+            .forTime(20)
+            .build()
+            .asRandomAccess();
+    assertThat(choreography).isNotInstanceOf(BatchSampledTrajectory4d.class);
+    verifyBatchSamples(choreography);
+  }
+}
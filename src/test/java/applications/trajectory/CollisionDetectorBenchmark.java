@@ -0,0 +1,76 @@
+package applications.trajectory;
+
+import applications.trajectory.geom.point.Point3D;
+import choreo.Choreography;
+import com.google.common.collect.Lists;
+import control.FiniteTrajectory4d;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Timing benchmark of {@link CollisionDetector} for growing numbers of drones. It is excluded from
+ * the unit tests and runs with {@code gradle benchmark}. For every number of drones, it prints the
+ * duration of a full scan and the number of exact segment tests.
+ *
+ * @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be>
+ */
+public class CollisionDetectorBenchmark {
+
+  private static final int[] NUMBERS_OF_DRONES = {10, 50, 200};
+  private static final int NUMBER_OF_WARM_UP_SCANS = 3;
+  private static final int NUMBER_OF_MEASURED_SCANS = 5;
+  private static final double SPACING = 1.5;
+
+  @Test
+  public void benchmarkScalingWithTheNumberOfDrones() {
+    for (int numberOfDrones : NUMBERS_OF_DRONES) {
+      final CollisionDetector detector =
+          CollisionDetector.builder().withTrajectories(createCircleGrid(numberOfDrones)).build();
+      for (int i = 0; i < NUMBER_OF_WARM_UP_SCANS; i++) {
+        assertThat(detector.findCollisions()).isEmpty();
+      }
+
+      final long start = System.nanoTime();
+      for (int i = 0; i < NUMBER_OF_MEASURED_SCANS; i++) {
+        assertThat(detector.findCollisions()).isEmpty();
+      }
+      final double scanTimeInMilliSeconds =
+          (double) (System.nanoTime() - start)
+              / NUMBER_OF_MEASURED_SCANS
+              / TimeUnit.MILLISECONDS.toNanos(1);
+
+      System.out.println(
+          String.format(
+              "%d drones: %.1f ms per scan, %d segment tests per scan",
+              numberOfDrones,
+              scanTimeInMilliSeconds,
+              detector.getNumberOfSegmentChecks()));
+    }
+  }
+
+  /**
+   * Creates circles of 1 meter radius on a grid, flown in phase. Neighbours stay {@link #SPACING}
+   * apart: they never collide, but they often fall in neighbouring cells of the broad phase.
+   */
+  private static List<FiniteTrajectory4d> createCircleGrid(int numberOfDrones) {
+    final List<FiniteTrajectory4d> trajectories = Lists.newArrayList();
+    final int side = (int) Math.ceil(Math.sqrt(numberOfDrones));
+    for (int i = 0; i < numberOfDrones; i++) {
+      trajectories.add(
+          Choreography.builder()
+              .withTrajectory(
+                  Trajectories.circleTrajectoryBuilder()
+                      .setRadius(1)
+                      .setLocation(Point3D.create(SPACING * (i % side), SPACING * (i / side), 5))
+                      .setFrequency(0.1)
+                      .build())
+              .forTime(10)
+              .build());
+    }
+    return trajectories;
+  }
+}
@@ -5,12 +5,16 @@ import applications.trajectory.geom.point.Point4D;
 import choreo.Choreography;
 import com.google.common.collect.Lists;
 import control.FiniteTrajectory4d;
+import control.Trajectory4d;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static applications.trajectory.CollisionDetector.Collision;
+import static applications.trajectory.CollisionDetector.Conflict;
+import static com.google.common.truth.Truth.assertThat;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertFalse;
 
@@ -100,6 +104,266 @@ public class CollisionDetectorTest {
     assertFalse(isCollisionPresentFor(7.8, collisions));
   }
 
+  @Test
+  public void testConflictReportsClosestApproach() {
+    List<Conflict> conflicts =
+        new CollisionDetector(Lists.newArrayList(holdPos, lin1), 1).findConflicts();
+    assertThat(conflicts).hasSize(1);
+    Conflict conflict = conflicts.get(0);
+    assertThat(conflict.getFirstTrajectory()).isSameAs(holdPos);
+    assertThat(conflict.getSecondTrajectory()).isSameAs(lin1);
+    assertThat(conflict.getStartTime()).isWithin(0.02).of(8.0);
+    assertThat(conflict.getEndTime()).isWithin(TestUtils.EPSILON).of(10);
+    assertThat(conflict.getClosestApproachTime()).isWithin(0.02).of(10);
+    assertThat(conflict.getClosestApproachDistance()).isWithin(0.01).of(0);
+  }
+
+  @Test
+  public void testConflictLastingTheWholeFlight() {
+    List<Conflict> conflicts =
+        new CollisionDetector(Lists.newArrayList(circ1, circ1_phase), 2.5).findConflicts();
+    // the drones are 2 meters apart at all times
+    assertThat(conflicts).hasSize(1);
+    assertThat(conflicts.get(0).getStartTime()).isWithin(TestUtils.EPSILON).of(0);
+    assertThat(conflicts.get(0).getEndTime()).isWithin(TestUtils.EPSILON).of(100);
+    assertThat(conflicts.get(0).getClosestApproachDistance()).isWithin(0.01).of(2);
+  }
+
+  @Test
+  public void testParallelScanEqualsSequentialScan() {
+    List<FiniteTrajectory4d> trajectories =
+        Lists.newArrayList(holdPos, lin1, circ1, circ1_phase, circ2);
+    List<Collision> sequential =
+        CollisionDetector.builder()
+            .withTrajectories(trajectories)
+            .withMinimumDistance(1.5)
+            .withParallelism(1)
+            .withStepsPerWindow(Integer.MAX_VALUE)
+            .build()
+            .findCollisions();
+    List<Collision> parallel =
+        CollisionDetector.builder()
+            .withTrajectories(trajectories)
+            .withMinimumDistance(1.5)
+            .withParallelism(4)
+            .withStepsPerWindow(37)
+            .build()
+            .findCollisions();
+    assertThat(sequential).isNotEmpty();
+    assertThat(parallel).hasSize(sequential.size());
+    for (int i = 0; i < sequential.size(); i++) {
+      assertThat(parallel.get(i).getTimePoint())
+          .isWithin(TestUtils.EPSILON)
+          .of(sequential.get(i).getTimePoint());
+      assertThat(parallel.get(i).getFirstCollidingTrajectory())
+          .isSameAs(sequential.get(i).getFirstCollidingTrajectory());
+      assertThat(parallel.get(i).getSecondCollidingTrajectory())
+          .isSameAs(sequential.get(i).getSecondCollidingTrajectory());
+    }
+  }
+
+  @Test
+  public void testCloseDronesInNeighbouringCellsCollide() {
+    // the drones are binned in different cells of the broad phase, on both sides of zero
+    FiniteTrajectory4d left =
+        Choreography.builder()
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(-0.3, 0, 0, 0)))
+            .forTime(1)
+            .build();
+    FiniteTrajectory4d right =
+        Choreography.builder()
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(0.3, 0, 0, 0)))
+            .forTime(1)
+            .build();
+    CollisionDetector detector = new CollisionDetector(Lists.newArrayList(left, right), 1);
+    List<Collision> collisions = detector.findCollisions();
+    assertThat(collisions).isNotEmpty();
+    assertThat(collisions.get(0).getActualDistance()).isWithin(TestUtils.EPSILON).of(0.6);
+    // the only pair of drones is checked at each of the 100 time steps
+    assertThat(detector.getNumberOfSegmentChecks()).isEqualTo(100L);
+  }
+
+  /**
+   * Checks the detector on a grid of drones flying circles next to each other. The drones are three
+   * cells of the broad phase apart at all times, so no pair of drones needs the exact segment test.
+   */
+  @Test
+  public void testBroadPhaseDiscardsDistantPairs() {
+    final CollisionDetector detector =
+        CollisionDetector.builder().withTrajectories(createCircleGrid(200)).build();
+    assertThat(detector.findCollisions()).isEmpty();
+    assertThat(detector.getNumberOfSegmentChecks()).isEqualTo(0L);
+  }
+
+  private static List<FiniteTrajectory4d> createCircleGrid(int numberOfDrones) {
+    final List<FiniteTrajectory4d> trajectories = Lists.newArrayList();
+    final int side = (int) Math.ceil(Math.sqrt(numberOfDrones));
+    for (int i = 0; i < numberOfDrones; i++) {
+      trajectories.add(
+          Choreography.builder()
+              .withTrajectory(
+                  Trajectories.circleTrajectoryBuilder()
+                      .setRadius(1)
+                      .setLocation(Point3D.create(3 * (i % side), 3 * (i / side), 5))
+                      .setFrequency(0.1)
+                      .build())
+              .forTime(10)
+              .build());
+    }
+    return trajectories;
+  }
+
+  @Test
+  public void testConservativeAdvancementFindsTheSameCollisions() {
+    List<FiniteTrajectory4d> trajectories =
+        Lists.newArrayList(holdPos, lin1, circ1, circ1_phase, circ2);
+    List<Collision> everyStep =
+        CollisionDetector.builder()
+            .withTrajectories(trajectories)
+            .withMinimumDistance(1.5)
+            .build()
+            .findCollisions();
+    List<Collision> advancing =
+        CollisionDetector.builder()
+            .withTrajectories(trajectories)
+            .withMinimumDistance(1.5)
+            .withConservativeAdvancement(true)
+            .build()
+            .findCollisions();
+    assertThat(everyStep).isNotEmpty();
+    assertThat(advancing).hasSize(everyStep.size());
+    for (int i = 0; i < everyStep.size(); i++) {
+      assertThat(advancing.get(i).getTimePoint())
+          .isWithin(TestUtils.EPSILON)
+          .of(everyStep.get(i).getTimePoint());
+      assertThat(advancing.get(i).getActualDistance())
+          .isWithin(TestUtils.EPSILON)
+          .of(everyStep.get(i).getActualDistance());
+    }
+  }
+
+  @Test
+  public void testConservativeAdvancementSkipsSamplesOfSparseFormations() {
+    final List<SampleCountingTrajectory> trajectories = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      trajectories.add(
+          new SampleCountingTrajectory(
+              Trajectories.circleTrajectoryBuilder()
+                  .setRadius(1)
+                  .setLocation(Point3D.create(50 * i, 0, 5))
+                  .setFrequency(0.1)
+                  .build(),
+              100));
+    }
+    trajectories.add(
+        new SampleCountingTrajectory(
+            Trajectories.newHoldPositionTrajectory(Point4D.create(0, 1.5, 5, 0)), 100));
+
+    final List<Conflict> everyStep =
+        CollisionDetector.builder().withTrajectories(trajectories).build().findConflicts();
+    int everyStepSamples = 0;
+    for (SampleCountingTrajectory trajectory : trajectories) {
+      everyStepSamples += trajectory.resetSampleCount();
+    }
+
+    final CollisionDetector advancingDetector =
+        CollisionDetector.builder()
+            .withTrajectories(trajectories)
+            .withConservativeAdvancement(true)
+            .build();
+    final List<Conflict> advancing = advancingDetector.findConflicts();
+    int advancingSamples = 0;
+    for (SampleCountingTrajectory trajectory : trajectories) {
+      advancingSamples += trajectory.resetSampleCount();
+    }
+
+    // the drone holding its position is passed by the first circling drone every ten seconds
+    assertThat(everyStep).isNotEmpty();
+    assertThat(advancing).hasSize(everyStep.size());
+    for (int i = 0; i < everyStep.size(); i++) {
+      assertThat(advancing.get(i).getClosestApproachTime())
+          .isWithin(TestUtils.EPSILON)
+          .of(everyStep.get(i).getClosestApproachTime());
+    }
+    assertThat(advancingSamples * 10).isLessThan(everyStepSamples);
+    // only the drone holding its position and the first circling drone come close to each other,
+    // so the time steps of the 14 other pairs are all skipped
+    final long numberOfPairSteps = 15L * 10000;
+    assertThat(numberOfPairSteps - advancingDetector.getNumberOfSegmentChecks())
+        .isAtLeast(14L * 10000);
+  }
+
+  @Test
+  public void testMarginDependsOnMaximumSpeed() {
+    FiniteTrajectory4d left =
+        Choreography.builder()
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(0, 0, 0, 0)))
+            .forTime(1)
+            .build();
+    FiniteTrajectory4d right =
+        Choreography.builder()
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(0.95, 0, 0, 0)))
+            .forTime(1)
+            .build();
+    // the margin is 0.01 s at 3 m/s by default, and 0.01 s at 10 m/s with the custom speed
+    assertThat(new CollisionDetector(Lists.newArrayList(left, right), 1).findCollisions())
+        .isNotEmpty();
+    assertThat(
+            CollisionDetector.builder()
+                .withTrajectories(Lists.newArrayList(left, right))
+                .withMaximumSpeed(10)
+                .build()
+                .findCollisions())
+        .isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveMinimumDistanceIsRejected() {
+    CollisionDetector.builder().withMinimumDistance(0).build();
+  }
+
+  /** A finite trajectory which counts how many times its position along the x axis is sampled. */
+  private static final class SampleCountingTrajectory implements FiniteTrajectory4d {
+    private final Trajectory4d target;
+    private final double duration;
+    private final AtomicInteger sampleCount = new AtomicInteger();
+
+    SampleCountingTrajectory(Trajectory4d target, double duration) {
+      this.target = target;
+      this.duration = duration;
+    }
+
+    int resetSampleCount() {
+      return sampleCount.getAndSet(0);
+    }
+
+    @Override
+    public double getTrajectoryDuration() {
+      return duration;
+    }
+
+    @Override
+    public double getDesiredPositionX(double timeInSeconds) {
+      sampleCount.incrementAndGet();
+      return target.getDesiredPositionX(timeInSeconds);
+    }
+
+    @Override
+    public double getDesiredPositionY(double timeInSeconds) {
+      return target.getDesiredPositionY(timeInSeconds);
+    }
+
+    @Override
+    public double getDesiredPositionZ(double timeInSeconds) {
+      return target.getDesiredPositionZ(timeInSeconds);
+    }
+
+    @Override
+    public double getDesiredAngleZ(double timeInSeconds) {
+      return target.getDesiredAngleZ(timeInSeconds);
+    }
+  }
+
   private boolean isCollisionPresentFor(double timeT, List<CollisionDetector.Collision> coll) {
     for (Collision c : coll) {
       if (Math.abs(c.getTimePoint() - timeT) < TestUtils.EPSILON) {
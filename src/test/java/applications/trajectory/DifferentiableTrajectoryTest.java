@@ -0,0 +1,119 @@
+package applications.trajectory;
+
+import applications.trajectory.geom.point.Point3D;
+import applications.trajectory.geom.point.Point4D;
+import choreo.Choreography;
+import control.DifferentiableTrajectory4d;
+import control.Trajectory1d;
+import control.Trajectory4d;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+
+/** @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be> */
+public class DifferentiableTrajectoryTest {
+  private static final double STEP = 0.001;
+  private static final double VELOCITY_TOLERANCE = 0.001;
+  private static final double ACCELERATION_TOLERANCE = 0.01;
+
+  private static void verifyDerivatives(Trajectory4d trajectory, double endTime) {
+    assertThat(trajectory).isInstanceOf(DifferentiableTrajectory4d.class);
+    final DifferentiableTrajectory4d differentiable = (DifferentiableTrajectory4d) trajectory;
+    final Trajectory1d[] axes = {
+      TrajectoryUtils.getTrajectoryLinearX(differentiable),
+      TrajectoryUtils.getTrajectoryLinearY(differentiable),
+      TrajectoryUtils.getTrajectoryLinearZ(differentiable),
+      TrajectoryUtils.getTrajectoryAngularZ(differentiable)
+    };
+
+    differentiable.getDesiredPositionX(0);
+    for (double t = 0.5; t < endTime; t += 0.37) {
+      final double[] velocities = {
+        differentiable.getDesiredVelocityX(t),
+        differentiable.getDesiredVelocityY(t),
+        differentiable.getDesiredVelocityZ(t),
+        differentiable.getDesiredAngularVelocityZ(t)
+      };
+      final double[] accelerations = {
+        differentiable.getDesiredAccelerationX(t),
+        differentiable.getDesiredAccelerationY(t),
+        differentiable.getDesiredAccelerationZ(t),
+        differentiable.getDesiredAngularAccelerationZ(t)
+      };
+
+      for (int i = 0; i < axes.length; i++) {
+        final double before = axes[i].getDesiredPosition(t - STEP);
+        final double current = axes[i].getDesiredPosition(t);
+        final double after = axes[i].getDesiredPosition(t + STEP);
+        assertEquals(
+            "velocity of axis " + i + " at " + t,
+            (after - before) / (2 * STEP),
+            velocities[i],
+            VELOCITY_TOLERANCE);
+        assertEquals(
+            "acceleration of axis " + i + " at " + t,
+            (after - 2 * current + before) / (STEP * STEP),
+            accelerations[i],
+            ACCELERATION_TOLERANCE);
+      }
+    }
+  }
+
+  @Test
+  public void testCircleTrajectory() {
+    verifyDerivatives(
+        Trajectories.newCircleTrajectory4D(Point3D.create(1, 2, 3), 0.5, 0.2, Math.PI / 6), 10);
+  }
+
+  @Test
+  public void testConstantYawCircleTrajectory() {
+    verifyDerivatives(
+        Trajectories.newConstantYawCircleTrajectory4D(Point3D.origin(), 1, 0.1, 0.3, 1), 10);
+  }
+
+  @Test
+  public void testSwingTrajectory() {
+    verifyDerivatives(
+        Trajectories.newPendulumSwingTrajectory(Point4D.create(1, 1, 1, 0), 0.8, 0.1, 0.5), 10);
+  }
+
+  @Test
+  public void testStraightLineTrajectory() {
+    verifyDerivatives(
+        Trajectories.newStraightLineTrajectory(
+            Point4D.create(0, 0, 1, 0), Point4D.create(3, 4, 1, 0), 1),
+        4.8);
+  }
+
+  @Test
+  public void testCorkscrewTrajectory() {
+    verifyDerivatives(
+        Trajectories.corkscrewTrajectoryBuilder()
+            .setOrigin(Point4D.create(0, 0, 10, 0))
+            .setDestination(Point3D.create(3, 4, 5))
+            .setSpeed(1)
+            .setRadius(0.5)
+            .setFrequency(0.3)
+            .setPhase(0)
+            .build(),
+        8);
+  }
+
+  @Test
+  public void testChoreographyUsesDerivativesOfCurrentSegment() {
+    final Choreography choreography =
+        Choreography.builder()
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(1, 1, 1, 0)))
+            .forTime(5)
+            .withTrajectory(
+                Trajectories.newCircleTrajectory4D(Point3D.create(1, 1, 1), 0.5, 0.2, 0))
+            .forTime(5)
+            .build();
+
+    choreography.getDesiredPositionX(0);
+    assertEquals(0, choreography.getDesiredVelocityX(1), 0);
+    assertEquals(0, choreography.getDesiredAccelerationZ(1), 0);
+    assertThat(Math.abs(choreography.getDesiredVelocityY(6))).isGreaterThan(0d);
+  }
+}
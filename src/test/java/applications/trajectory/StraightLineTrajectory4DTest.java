@@ -115,19 +115,19 @@ public class StraightLineTrajectory4DTest {
   }
 
   @Test
-  public void testTrajectoryProgression() throws Exception {
-    double duration = 10492;
+  public void testTrajectoryIsIndependentOfEvaluationOrder() throws Exception {
     target = Trajectories.newStraightLineTrajectory(before, after, speed);
     target2 = Trajectories.newStraightLineTrajectory(before, afterNotOrigin, speed);
-    assertEquals(0, target.getDesiredPositionX(duration + 0), 0);
-    assertEquals(5, target.getDesiredPositionX(duration + 5), 0);
-    assertEquals(10, target.getDesiredPositionX(duration + 10), 0);
+    assertEquals(10, target.getDesiredPositionX(10492), 0);
+    assertEquals(10, target.getDesiredPositionX(10), 0);
+    assertEquals(5, target.getDesiredPositionX(5), 0);
+    assertEquals(0, target.getDesiredPositionX(0), 0);
 
-    double t = 0;
+    double t = 10;
     testPartialDistanceCovered(t);
     t = 5;
     testPartialDistanceCovered(t);
-    t = 10;
+    t = 0;
     testPartialDistanceCovered(t);
   }
 }
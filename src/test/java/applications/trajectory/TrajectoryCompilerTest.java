@@ -0,0 +1,249 @@
+package applications.trajectory;
+
+import applications.trajectory.geom.point.Point3D;
+import applications.trajectory.geom.point.Point4D;
+import choreo.Choreography;
+import com.google.common.collect.ImmutableList;
+import control.FiniteTrajectory4d;
+import control.Trajectory4d;
+import org.junit.Test;
+import utils.math.EulerAngle;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+
+/** @author Kristof Coninx <kristof.coninx AT cs.kuleuven.be> */
+public class TrajectoryCompilerTest {
+  private static final double EPSILON = 1.0e-6;
+
+  private static FiniteTrajectory4d newCorkscrew() {
+    return Trajectories.corkscrewTrajectoryBuilder()
+        .setOrigin(Point4D.create(0, 0, 10, 0))
+        .setDestination(Point3D.create(3, 4, 5))
+        .setSpeed(1)
+        .setRadius(0.5)
+        .setFrequency(0.3)
+        .setPhase(0)
+        .build();
+  }
+
+  private static void verifyCloseTo(
+      FiniteTrajectory4d expected, CompiledTrajectory4D actual, double endTime, double step) {
+    for (double t = 0; t <= endTime; t += step) {
+      final double dx = expected.getDesiredPositionX(t) - actual.getDesiredPositionX(t);
+      final double dy = expected.getDesiredPositionY(t) - actual.getDesiredPositionY(t);
+      final double dz = expected.getDesiredPositionZ(t) - actual.getDesiredPositionZ(t);
+      assertThat(Math.sqrt(dx * dx + dy * dy + dz * dz))
+          .isAtMost(actual.getMaximumPositionError() + EPSILON);
+      assertThat(
+              Math.abs(
+                  EulerAngle.computeAngleDistance(
+                      expected.getDesiredAngleZ(t), actual.getDesiredAngleZ(t))))
+          .isAtMost(actual.getMaximumAngleError() + EPSILON);
+    }
+  }
+
+  private static FiniteTrajectory4d newFiniteCircle() {
+    return Choreography.builder()
+        .withTrajectory(
+            Trajectories.newCircleTrajectory4D(Point3D.create(1, 2, 3), 0.5, 0.2, Math.PI / 6))
+        .forTime(10)
+        .build();
+  }
+
+  @Test
+  public void testCompiledCircleIsAccurate() {
+    final CompiledTrajectory4D compiled =
+        TrajectoryCompiler.builder().build().compile(newFiniteCircle());
+
+    assertEquals(10, compiled.getTrajectoryDuration(), EPSILON);
+    assertThat(compiled.getSampleIntervalInSeconds()).isAtMost(0.01);
+    assertThat(compiled.getMaximumPositionError()).isLessThan(1.0e-6);
+    assertThat(compiled.getMaximumAngleError()).isLessThan(1.0e-6);
+    verifyCloseTo(newFiniteCircle(), compiled, 10, 0.0137);
+  }
+
+  @Test
+  public void testCompiledCorkscrewIsWithinReportedError() {
+    final CompiledTrajectory4D compiled =
+        TrajectoryCompiler.builder().build().compile(newCorkscrew());
+
+    assertEquals(newCorkscrew().getTrajectoryDuration(), compiled.getTrajectoryDuration(), EPSILON);
+    // the corkscrew jumps from its last circle point to its destination just before its end, where
+    // no interpolation can follow it
+    assertThat(compiled.getMaximumPositionError()).isGreaterThan(0.1);
+    verifyCloseTo(newCorkscrew(), compiled, compiled.getTrajectoryDuration() - 0.1, 0.0137);
+  }
+
+  @Test
+  public void testCoarseCompilationReportsLargerError() {
+    final CompiledTrajectory4D fine =
+        TrajectoryCompiler.builder()
+            .withSampleIntervalInSeconds(0.05)
+            .build()
+            .compile(newCorkscrew());
+    final CompiledTrajectory4D coarse =
+        TrajectoryCompiler.builder()
+            .withSampleIntervalInSeconds(0.5)
+            .build()
+            .compile(newCorkscrew());
+
+    assertThat(coarse.getMaximumPositionError()).isGreaterThan(fine.getMaximumPositionError());
+    verifyCloseTo(newCorkscrew(), coarse, coarse.getTrajectoryDuration() - 1, 0.0137);
+  }
+
+  @Test
+  public void testSequenceIsCompiledInParallel() {
+    final Point4D first = Point4D.create(0, 0, 1, 0);
+    final Point4D second = Point4D.create(2, 0, 1, 0);
+    final Point4D third = Point4D.create(2, 3, 2, 1);
+    final Point4D fourth = Point4D.create(0, 0, 2, 1);
+    final CompiledTrajectory4D compiled =
+        TrajectoryCompiler.builder()
+            .withParallelism(3)
+            .build()
+            .compileSequence(
+                ImmutableList.of(
+                    Trajectories.newStraightLineTrajectory(first, second, 0.5),
+                    newCorkscrew(),
+                    Trajectories.newZDropLineTrajectory(third, fourth, 1, 3, 1)));
+
+    final double firstDuration = Point4D.distance(first, second) / 0.5;
+    final double secondDuration = newCorkscrew().getTrajectoryDuration();
+    assertEquals(0, compiled.getDesiredPositionX(0), EPSILON);
+    assertEquals(1, compiled.getDesiredPositionX(firstDuration / 2), EPSILON);
+    assertEquals(0.5, compiled.getDesiredVelocityX(firstDuration / 2), EPSILON);
+    assertEquals(0, compiled.getDesiredAccelerationX(firstDuration / 2), EPSILON);
+
+    final double corkscrewTime = 1.234;
+    final FiniteTrajectory4d corkscrew = newCorkscrew();
+    corkscrew.getDesiredPositionX(0);
+    assertEquals(
+        corkscrew.getDesiredPositionZ(corkscrewTime),
+        compiled.getDesiredPositionZ(firstDuration + corkscrewTime),
+        1.0e-4);
+
+    final FiniteTrajectory4d zDrop = Trajectories.newZDropLineTrajectory(third, fourth, 1, 3, 1);
+    final double endTime = compiled.getTrajectoryDuration();
+    assertEquals(firstDuration + secondDuration + zDrop.getTrajectoryDuration(), endTime, EPSILON);
+    assertEquals(
+        compiled.getDesiredPositionX(endTime), compiled.getDesiredPositionX(endTime + 1), EPSILON);
+    assertEquals(0, compiled.getDesiredVelocityX(endTime + 1), EPSILON);
+  }
+
+  @Test
+  public void testChoreographySegmentsAreCompiledInParallel() {
+    final ThreadRecordingTrajectory first = new ThreadRecordingTrajectory(1);
+    final ThreadRecordingTrajectory second = new ThreadRecordingTrajectory(2);
+    final Choreography choreography =
+        Choreography.builder()
+            .withTrajectory(first)
+            .forTime(1)
+            .withTrajectory(second)
+            .forTime(2)
+            .build();
+
+    final CompiledTrajectory4D compiled =
+        TrajectoryCompiler.builder().withParallelism(2).build().compile(choreography);
+
+    assertEquals(3, compiled.getTrajectoryDuration(), EPSILON);
+    assertEquals(1, compiled.getDesiredPositionX(0.5), EPSILON);
+    assertEquals(2, compiled.getDesiredPositionX(2), EPSILON);
+    assertThat(first.threads).hasSize(1);
+    assertThat(second.threads).hasSize(1);
+    assertThat(Collections.disjoint(first.threads, second.threads)).isTrue();
+  }
+
+  @Test
+  public void testHoldsFirstAndLastPoseOutsideDuration() {
+    final CompiledTrajectory4D compiled =
+        TrajectoryCompiler.builder()
+            .build()
+            .compile(
+                Trajectories.newStraightLineTrajectory(
+                    Point4D.create(1, 2, 3, 0), Point4D.create(2, 2, 3, 0), 1));
+
+    assertEquals(1, compiled.getDesiredPositionX(-1), EPSILON);
+    assertEquals(2, compiled.getDesiredPositionX(5), EPSILON);
+    assertEquals(0, compiled.getDesiredVelocityX(5), EPSILON);
+  }
+
+  @Test
+  public void testConcurrentLookups() throws Exception {
+    final CompiledTrajectory4D compiled =
+        TrajectoryCompiler.builder().build().compile(newCorkscrew());
+    final double[] expected = new double[1000];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = compiled.getDesiredPositionY(i * 0.007);
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final Callable<Boolean> reader =
+          new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+              for (int i = expected.length - 1; i >= 0; i--) {
+                if (compiled.getDesiredPositionY(i * 0.007) != expected[i]) {
+                  return false;
+                }
+              }
+              return true;
+            }
+          };
+      final ImmutableList.Builder<Future<Boolean>> futures = ImmutableList.builder();
+      for (int i = 0; i < 4; i++) {
+        futures.add(executor.submit(reader));
+      }
+      for (final Future<Boolean> future : futures.build()) {
+        assertThat(future.get()).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSameInstanceCannotBeCompiledTwice() {
+    final FiniteTrajectory4d corkscrew = newCorkscrew();
+    TrajectoryCompiler.builder().build().compileSequence(ImmutableList.of(corkscrew, corkscrew));
+  }
+
+  private static final class ThreadRecordingTrajectory implements Trajectory4d {
+    private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+    private final double positionX;
+
+    private ThreadRecordingTrajectory(double positionX) {
+      this.positionX = positionX;
+    }
+
+    @Override
+    public double getDesiredPositionX(double timeInSeconds) {
+      threads.add(Thread.currentThread());
+      return positionX;
+    }
+
+    @Override
+    public double getDesiredPositionY(double timeInSeconds) {
+      return 0;
+    }
+
+    @Override
+    public double getDesiredPositionZ(double timeInSeconds) {
+      return 1;
+    }
+
+    @Override
+    public double getDesiredAngleZ(double timeInSeconds) {
+      return 0;
+    }
+  }
+}
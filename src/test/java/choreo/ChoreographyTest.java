@@ -39,9 +39,6 @@ public class ChoreographyTest {
   @Test
   public void testTwoSegmentTrajectoryChoreo() {
     verifyTrajectoryPos4D(choreotarget, 2, Point4D.create(5, 5, 5, 2));
-    //First invocation past duration still get's old point. all following
-    // trigger change in segment for first call.
-    choreotarget.getDesiredPositionX(0d + duration);
     verifyTrajectoryPos4D(
         choreotarget, (1 / frequency) + duration, Point4D.create(radius, 0, 0, 0));
   }
@@ -77,9 +74,6 @@ public class ChoreographyTest {
     choreotarget.getDesiredPositionZ(timeShift);
 
     verifyTrajectoryPos4D(choreotarget, 2, Point4D.create(5, 5, 5, 2));
-    //First invocation past duration still get's old point. all following
-    // trigger change in segment for first call.
-    choreotarget.getDesiredPositionX(timeShift + 0d + duration);
     verifyTrajectoryPos4D(
         choreotarget, (1 / frequency) + timeShift + duration, Point4D.create(radius, 0, 0, 0));
   }
@@ -129,4 +123,63 @@ public class ChoreographyTest {
             .build();
     assertEquals(14, choreotarget.getTrajectoryDuration(), 0);
   }
+
+  @Test
+  public void testRandomAccessInAnyOrder() {
+    final Choreography choreography =
+        Choreography.builder()
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(1, 0, 0, 0)))
+            .forTime(2)
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(2, 0, 0, 0)))
+            .forTime(3)
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(3, 0, 0, 0)))
+            .forTime(4)
+            .build();
+    final RandomAccessChoreography randomAccess = choreography.asRandomAccess();
+
+    assertEquals(3, randomAccess.getNumberOfSegments());
+    assertEquals(9, randomAccess.getTrajectoryDuration(), 0);
+    assertEquals(3, randomAccess.getDesiredPositionX(8), 0);
+    assertEquals(1, randomAccess.getDesiredPositionX(1), 0);
+    assertEquals(2, randomAccess.getDesiredPositionX(2), 0);
+    assertEquals(3, randomAccess.getDesiredPositionX(5), 0);
+    assertEquals(1, randomAccess.getDesiredPositionX(-1), 0);
+    assertEquals(3, randomAccess.getDesiredPositionX(100), 0);
+    assertEquals(1, randomAccess.getSegmentIndex(4.999));
+    assertEquals(5, randomAccess.getSegmentStartTime(2), 0);
+  }
+
+  @Test
+  public void testChoreographyJumpsOverSegments() {
+    final Choreography choreography =
+        Choreography.builder()
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(1, 0, 0, 0)))
+            .forTime(2)
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(2, 0, 0, 0)))
+            .forTime(3)
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.create(3, 0, 0, 0)))
+            .forTime(4)
+            .build();
+
+    assertEquals(1, choreography.getDesiredPositionX(10), 0);
+    assertEquals(3, choreography.getDesiredPositionX(17), 0);
+  }
+
+  @Test
+  public void testSegmentsAreEvaluatedAtTheirOwnTime() {
+    final RandomAccessChoreography randomAccess =
+        Choreography.builder()
+            .withTrajectory(Trajectories.newHoldPositionTrajectory(Point4D.origin()))
+            .forTime(10)
+            .withTrajectory(
+                Trajectories.newStraightLineTrajectory(
+                    Point4D.origin(), Point4D.create(4, 0, 0, 0), 1))
+            .build()
+            .asRandomAccess();
+
+    assertEquals(14, randomAccess.getTrajectoryDuration(), 0);
+    assertEquals(0, randomAccess.getDesiredPositionX(10), 1.0e-9);
+    assertEquals(2, randomAccess.getDesiredPositionX(12), 1.0e-9);
+    assertEquals(4, randomAccess.getDesiredPositionX(14), 1.0e-9);
+  }
 }
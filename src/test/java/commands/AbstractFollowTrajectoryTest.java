@@ -0,0 +1,82 @@
+package commands;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Uninterruptibles;
+import commands.bebopcommands.BebopFollowTrajectory;
+import control.VelocityController4d;
+import control.dto.DroneStateStamped;
+import control.dto.InertialFrameVelocity;
+import control.dto.Pose;
+import control.dto.Velocity;
+import control.localization.StateEstimator;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import services.Velocity4dService;
+import time.TimeProvider;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** @author Hoang Tung Dinh */
+public class AbstractFollowTrajectoryTest {
+
+  private static final double CONTROL_RATE_IN_SECONDS = 0.05;
+
+  @Test
+  public void testTickJitterIsNotOffsetBySkippedReleases() {
+    final StateEstimator stateEstimator = mock(StateEstimator.class);
+    when(stateEstimator.getCurrentState())
+        .thenAnswer(
+            new Answer<Optional<DroneStateStamped>>() {
+              @Override
+              public Optional<DroneStateStamped> answer(InvocationOnMock invocation) {
+                // a new state at every tick, so that the state is never outdated
+                return Optional.of(
+                    DroneStateStamped.create(
+                        Pose.createZeroPose(),
+                        Velocity.createZeroVelocity(),
+                        System.nanoTime() / 1.0e9));
+              }
+            });
+
+    final VelocityController4d velocityController = mock(VelocityController4d.class);
+    when(velocityController.computeNextResponse(
+            any(Pose.class), any(InertialFrameVelocity.class), anyDouble()))
+        .thenAnswer(
+            new Answer<InertialFrameVelocity>() {
+              private boolean isFirstResponse = true;
+
+              @Override
+              public InertialFrameVelocity answer(InvocationOnMock invocation) {
+                // the first tick overruns by several periods, so that releases are skipped
+                if (isFirstResponse) {
+                  isFirstResponse = false;
+                  Uninterruptibles.sleepUninterruptibly(170, TimeUnit.MILLISECONDS);
+                }
+                return Velocity.createZeroVelocity();
+              }
+            });
+
+    final AbstractFollowTrajectory followTrajectory =
+        BebopFollowTrajectory.builder()
+            .withVelocity4dService(mock(Velocity4dService.class))
+            .withStateEstimator(stateEstimator)
+            .withTimeProvider(mock(TimeProvider.class))
+            .withDurationInSeconds(1)
+            .withControlRateInSeconds(CONTROL_RATE_IN_SECONDS)
+            .withVelocityController4d(velocityController)
+            .build();
+    followTrajectory.execute();
+
+    final ControlLoopMetrics metrics = followTrajectory.getControlLoopMetrics();
+    assertThat(metrics.getTickJitter().getCount()).isGreaterThan(5L);
+    assertThat(metrics.getTickJitter().getMaxInNanoSeconds())
+        .isLessThan((long) (CONTROL_RATE_IN_SECONDS * 1.0e9));
+  }
+}
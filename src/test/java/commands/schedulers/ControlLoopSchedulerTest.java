@@ -0,0 +1,241 @@
+package commands.schedulers;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** @author Hoang Tung Dinh */
+public class ControlLoopSchedulerTest {
+
+  private static final double PERIOD_IN_SECONDS = 0.01;
+
+  private ControlLoopScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    scheduler = ControlLoopScheduler.create(2);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    scheduler.shutdown();
+    assertThat(scheduler.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void testManyLoopsShareThePool() throws InterruptedException {
+    final int numberOfLoops = 20;
+    final AtomicInteger[] counters = new AtomicInteger[numberOfLoops];
+    final ControlLoopScheduler.ScheduledLoop[] loops =
+        new ControlLoopScheduler.ScheduledLoop[numberOfLoops];
+    for (int i = 0; i < numberOfLoops; i++) {
+      counters[i] = new AtomicInteger();
+      loops[i] =
+          scheduler.schedule(
+              new CountingTask(counters[i], 0),
+              PERIOD_IN_SECONDS,
+              PERIOD_IN_SECONDS,
+              OverrunPolicy.SKIP);
+    }
+
+    TimeUnit.MILLISECONDS.sleep(200);
+    assertThat(scheduler.getNumberOfActiveLoops()).isEqualTo(numberOfLoops);
+
+    for (int i = 0; i < numberOfLoops; i++) {
+      loops[i].cancel();
+      assertThat(loops[i].awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+      assertThat(counters[i].get()).isGreaterThan(5);
+    }
+    assertThat(scheduler.getNumberOfActiveLoops()).isEqualTo(0);
+  }
+
+  @Test
+  public void testNoTickAfterCancel() throws InterruptedException {
+    final AtomicInteger counter = new AtomicInteger();
+    final ControlLoopScheduler.ScheduledLoop loop =
+        scheduler.schedule(
+            new CountingTask(counter, 0), PERIOD_IN_SECONDS, PERIOD_IN_SECONDS, OverrunPolicy.SKIP);
+    TimeUnit.MILLISECONDS.sleep(50);
+    loop.cancel();
+    assertThat(loop.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+
+    final int numberOfTicks = counter.get();
+    TimeUnit.MILLISECONDS.sleep(50);
+    assertThat(counter.get()).isEqualTo(numberOfTicks);
+    assertThat(loop.isTerminated()).isTrue();
+  }
+
+  @Test
+  public void testSkipPolicyDropsMissedReleases() throws InterruptedException {
+    final AtomicInteger counter = new AtomicInteger();
+    final ControlLoopScheduler.ScheduledLoop loop =
+        scheduler.schedule(
+            new CountingTask(counter, 25),
+            PERIOD_IN_SECONDS,
+            PERIOD_IN_SECONDS,
+            OverrunPolicy.SKIP);
+    TimeUnit.MILLISECONDS.sleep(300);
+    loop.cancel();
+    assertThat(loop.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(loop.getNumberOfOverruns()).isGreaterThan(0L);
+    assertThat(loop.getNumberOfSkippedReleases()).isGreaterThan(0L);
+  }
+
+  @Test
+  public void testReleaseTimesSkipTheMissedReleases() throws InterruptedException {
+    final AtomicLong maximumDelayInNanoSeconds = new AtomicLong();
+    final AtomicInteger counter = new AtomicInteger();
+    final ReleaseAwareTask task =
+        new ReleaseAwareTask() {
+          private long releaseTimeInNanoSeconds;
+
+          @Override
+          public void onRelease(long releaseTimeInNanoSeconds) {
+            this.releaseTimeInNanoSeconds = releaseTimeInNanoSeconds;
+          }
+
+          @Override
+          public void run() {
+            final long delayInNanoSeconds = System.nanoTime() - releaseTimeInNanoSeconds;
+            // the first tick overruns by several periods
+            if (counter.getAndIncrement() == 0) {
+              Uninterruptibles.sleepUninterruptibly(35, TimeUnit.MILLISECONDS);
+            } else if (delayInNanoSeconds > maximumDelayInNanoSeconds.get()) {
+              maximumDelayInNanoSeconds.set(delayInNanoSeconds);
+            }
+          }
+        };
+    final ControlLoopScheduler.ScheduledLoop loop =
+        scheduler.schedule(task, PERIOD_IN_SECONDS, PERIOD_IN_SECONDS, OverrunPolicy.SKIP);
+    TimeUnit.MILLISECONDS.sleep(200);
+    loop.cancel();
+    assertThat(loop.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(loop.getNumberOfSkippedReleases()).isGreaterThan(0L);
+    assertThat(counter.get()).isGreaterThan(5);
+    assertThat(maximumDelayInNanoSeconds.get())
+        .isLessThan((long) (PERIOD_IN_SECONDS * 1.0e9));
+  }
+
+  @Test
+  public void testDegradeRatePolicyIncreasesPeriod() throws InterruptedException {
+    final AtomicInteger counter = new AtomicInteger();
+    final ControlLoopScheduler.ScheduledLoop loop =
+        scheduler.schedule(
+            new CountingTask(counter, 25),
+            PERIOD_IN_SECONDS,
+            PERIOD_IN_SECONDS,
+            OverrunPolicy.DEGRADE_RATE);
+    TimeUnit.MILLISECONDS.sleep(200);
+    assertThat(loop.getCurrentPeriodInSeconds()).isGreaterThan(PERIOD_IN_SECONDS);
+    loop.cancel();
+    assertThat(loop.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void testLoopTerminatesWhenTaskThrows() throws InterruptedException {
+    final ControlLoopScheduler.ScheduledLoop loop =
+        scheduler.schedule(
+            new Runnable() {
+              @Override
+              public void run() {
+                throw new IllegalStateException();
+              }
+            },
+            PERIOD_IN_SECONDS,
+            PERIOD_IN_SECONDS,
+            OverrunPolicy.CATCH_UP);
+    assertThat(loop.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(loop.getFailure().isPresent()).isTrue();
+  }
+
+  @Test
+  public void testLoopTerminatesWhenTaskThrowsAnError() throws InterruptedException {
+    final ControlLoopScheduler.ScheduledLoop loop =
+        scheduler.schedule(
+            new Runnable() {
+              @Override
+              public void run() {
+                throw new AssertionError();
+              }
+            },
+            PERIOD_IN_SECONDS,
+            PERIOD_IN_SECONDS,
+            OverrunPolicy.CATCH_UP);
+    assertThat(loop.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(loop.getFailure().get()).isInstanceOf(AssertionError.class);
+    assertThat(scheduler.getNumberOfActiveLoops()).isEqualTo(0);
+  }
+
+  @Test
+  public void testCancelWaitsForTheTickInProgress() throws InterruptedException {
+    final CountDownLatch tickStarted = new CountDownLatch(1);
+    final CountDownLatch releaseTick = new CountDownLatch(1);
+    final ControlLoopScheduler.ScheduledLoop loop =
+        scheduler.schedule(
+            new Runnable() {
+              @Override
+              public void run() {
+                tickStarted.countDown();
+                try {
+                  releaseTick.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+              }
+            },
+            PERIOD_IN_SECONDS,
+            PERIOD_IN_SECONDS,
+            OverrunPolicy.SKIP);
+    assertThat(tickStarted.await(1, TimeUnit.SECONDS)).isTrue();
+
+    loop.cancel();
+    assertThat(loop.awaitTermination(50, TimeUnit.MILLISECONDS)).isFalse();
+    assertThat(loop.isTerminated()).isFalse();
+
+    releaseTick.countDown();
+    assertThat(loop.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(loop.getNumberOfTicks()).isEqualTo(1L);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCannotScheduleAfterShutdown() {
+    scheduler.shutdown();
+    scheduler.schedule(
+        new CountingTask(new AtomicInteger(), 0),
+        PERIOD_IN_SECONDS,
+        PERIOD_IN_SECONDS,
+        OverrunPolicy.SKIP);
+  }
+
+  private static final class CountingTask implements Runnable {
+    private final AtomicInteger counter;
+    private final long executionTimeInMilliSeconds;
+
+    private CountingTask(AtomicInteger counter, long executionTimeInMilliSeconds) {
+      this.counter = counter;
+      this.executionTimeInMilliSeconds = executionTimeInMilliSeconds;
+    }
+
+    @Override
+    public void run() {
+      counter.incrementAndGet();
+      if (executionTimeInMilliSeconds > 0) {
+        try {
+          TimeUnit.MILLISECONDS.sleep(executionTimeInMilliSeconds);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+}
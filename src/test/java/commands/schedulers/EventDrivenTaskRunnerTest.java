@@ -0,0 +1,106 @@
+package commands.schedulers;
+
+import geometry_msgs.PoseStamped;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.ros.message.MessageListener;
+import org.ros.node.topic.Subscriber;
+import services.rossubscribers.MessagesSubscriberService;
+import time.TimeProvider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+/** @author Hoang Tung Dinh */
+public class EventDrivenTaskRunnerTest {
+
+  private static final double FALLBACK_RATE_IN_SECONDS = 0.05;
+  private static final double DURATION_IN_SECONDS = 0.5;
+  private static final int NUMBER_OF_MESSAGES = 40;
+
+  private MessagesSubscriberService<PoseStamped> subscriberService;
+  private MessageListener<PoseStamped> messageListener;
+  private final AtomicInteger numberOfTriggeredExecutions = new AtomicInteger();
+  private final AtomicInteger numberOfFallbackExecutions = new AtomicInteger();
+  private Thread messageThread;
+
+  @Before
+  public void setUp() {
+    final Subscriber<PoseStamped> subscriber = mock(Subscriber.class);
+    subscriberService = MessagesSubscriberService.create(subscriber, mock(TimeProvider.class));
+    final ArgumentCaptor<MessageListener> argumentCaptor =
+        ArgumentCaptor.forClass(MessageListener.class);
+    verify(subscriber).addMessageListener(argumentCaptor.capture());
+    messageListener = argumentCaptor.getValue();
+    messageThread = Thread.currentThread();
+  }
+
+  @Test
+  public void testTaskIsTriggeredByMessagesAndFallsBackToFixedRate() throws InterruptedException {
+    final Thread runnerThread = startRunner();
+    TimeUnit.MILLISECONDS.sleep(20);
+    final int numberOfFallbackExecutionsBeforeMessages = numberOfFallbackExecutions.get();
+
+    for (int i = 0; i < NUMBER_OF_MESSAGES; i++) {
+      messageListener.onNewMessage(createMessage());
+      TimeUnit.MILLISECONDS.sleep(5);
+    }
+
+    assertThat(numberOfTriggeredExecutions.get()).isEqualTo(NUMBER_OF_MESSAGES);
+    // messages arrive much faster than the fallback rate
+    assertThat(numberOfFallbackExecutions.get() - numberOfFallbackExecutionsBeforeMessages)
+        .isAtMost(1);
+
+    runnerThread.join();
+    assertThat(numberOfFallbackExecutions.get() - numberOfFallbackExecutionsBeforeMessages)
+        .isAtLeast(2);
+  }
+
+  @Test
+  public void testNoExecutionAfterRunnerReturns() throws InterruptedException {
+    startRunner().join();
+    final int numberOfExecutions =
+        numberOfTriggeredExecutions.get() + numberOfFallbackExecutions.get();
+
+    messageListener.onNewMessage(createMessage());
+    TimeUnit.MILLISECONDS.sleep(100);
+    assertThat(numberOfTriggeredExecutions.get() + numberOfFallbackExecutions.get())
+        .isEqualTo(numberOfExecutions);
+  }
+
+  private Thread startRunner() {
+    final Runnable task =
+        new Runnable() {
+          @Override
+          public void run() {
+            if (Thread.currentThread() == messageThread) {
+              numberOfTriggeredExecutions.incrementAndGet();
+            } else {
+              numberOfFallbackExecutions.incrementAndGet();
+            }
+          }
+        };
+    final Thread runnerThread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                EventDrivenTaskRunner.run(
+                    task, subscriberService, FALLBACK_RATE_IN_SECONDS, DURATION_IN_SECONDS);
+              }
+            });
+    runnerThread.start();
+    return runnerThread;
+  }
+
+  private static PoseStamped createMessage() {
+    return mock(PoseStamped.class, withSettings().defaultAnswer(RETURNS_MOCKS));
+  }
+}
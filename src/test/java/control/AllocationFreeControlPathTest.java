@@ -0,0 +1,327 @@
+package control;
+
+import applications.trajectory.Trajectories;
+import applications.trajectory.TrajectoryUtils;
+import applications.trajectory.geom.point.Point3D;
+import control.dto.InertialFrameVelocity;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+import control.dto.Pose;
+import control.dto.Velocity;
+import geometry_msgs.Twist;
+import geometry_msgs.Vector3;
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.internal.message.RawMessage;
+import org.ros.namespace.GraphName;
+import org.ros.node.ConnectedNode;
+import org.ros.node.topic.Publisher;
+import org.ros.node.topic.PublisherListener;
+import services.AllocationFreeVelocity4dService;
+import services.CascadeBodyFrameVelocityFilter;
+import services.MaxDiffBodyFrameVelocityFilter;
+import services.parrot.TumSimServiceFactory;
+import time.TimeProvider;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** @author Hoang Tung Dinh */
+public class AllocationFreeControlPathTest {
+
+  private static final double DELTA = 1.0e-12;
+  private static final double CONTROL_RATE_IN_SECONDS = 0.01;
+  private static final int NUMBER_OF_WARM_UP_TICKS = 10000;
+  private static final int NUMBER_OF_MEASURED_TICKS = 1000;
+
+  private final PidParameters parameters =
+      PidParameters.builder().setKp(0.5).setKd(1).setKi(0.1).setLagTimeInSeconds(0.2).build();
+  private AllocationFreeVelocityController4d controller;
+  private FakeVelocityPublisher publisher;
+  private AllocationFreeVelocity4dService service;
+  private int tick;
+
+  @Before
+  public void setUp() {
+    final DesiredStateSampler sampler =
+        DesiredStateSampler.create(
+            Trajectories.newCircleTrajectory4D(Point3D.create(1, 2, 3), 0.5, 0.2, Math.PI / 6));
+    controller =
+        VelocityController4dLogger.create(
+            PidCoFilter4d.create(
+                FusedPidController4d.builder()
+                    .withDesiredStateSampler(sampler)
+                    .withLinearXParameters(parameters)
+                    .withLinearYParameters(parameters)
+                    .withLinearZParameters(parameters)
+                    .withAngularZParameters(parameters)
+                    .build(),
+                0.1),
+            sampler,
+            mock(TimeProvider.class),
+            "allocation-test");
+    // the actual publishing service, on a publisher which reuses its message
+    publisher = new FakeVelocityPublisher();
+    final ConnectedNode connectedNode = mock(ConnectedNode.class);
+    when(connectedNode.<Twist>newPublisher("/cmd_vel", Twist._TYPE)).thenReturn(publisher);
+    final AllocationFreeVelocity4dService parrotService =
+        (AllocationFreeVelocity4dService)
+            TumSimServiceFactory.create(connectedNode).createVelocity4dService();
+    service =
+        MaxDiffBodyFrameVelocityFilter.create(
+            CascadeBodyFrameVelocityFilter.create(parrotService, 0.1), 1);
+  }
+
+  @Test
+  public void testControlTickDoesNotAllocate() {
+    final ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+    assumeTrue(threadMxBean instanceof com.sun.management.ThreadMXBean);
+    final com.sun.management.ThreadMXBean allocationCounter =
+        (com.sun.management.ThreadMXBean) threadMxBean;
+    assumeTrue(allocationCounter.isThreadAllocatedMemorySupported());
+    allocationCounter.setThreadAllocatedMemoryEnabled(true);
+    final long threadId = Thread.currentThread().getId();
+
+    final MutablePose currentPose = MutablePose.create();
+    final MutableVelocity currentVelocity = MutableVelocity.create();
+    final MutableVelocity nextVelocity = MutableVelocity.create();
+    runTicks(NUMBER_OF_WARM_UP_TICKS, currentPose, currentVelocity, nextVelocity);
+
+    // the cost of measuring itself
+    final long measurementStart = allocationCounter.getThreadAllocatedBytes(threadId);
+    final long measurementOverhead =
+        allocationCounter.getThreadAllocatedBytes(threadId) - measurementStart;
+
+    final long start = allocationCounter.getThreadAllocatedBytes(threadId);
+    runTicks(NUMBER_OF_MEASURED_TICKS, currentPose, currentVelocity, nextVelocity);
+    final long allocatedBytes =
+        allocationCounter.getThreadAllocatedBytes(threadId) - start - measurementOverhead;
+
+    assertThat(allocatedBytes).isEqualTo(0L);
+    // every tick publishes an inertial frame and a body frame velocity
+    assertThat(publisher.numberOfMessages).isEqualTo(2 * tick);
+  }
+
+  @Test
+  public void testMutablePathGivesTheResponsesOfTheImmutableControllers() {
+    final Trajectory4d trajectory =
+        Trajectories.newCircleTrajectory4D(Point3D.create(1, 2, 3), 0.5, 0.2, Math.PI / 6);
+    final double filterTimeConstant = 0.1;
+    final VelocityController1d[] referenceControllers = createControllers(trajectory);
+    final VelocityController1d[] controllers = createControllers(trajectory);
+    final AllocationFreeVelocityController4d mutableController =
+        PidCoFilter4d.create(
+            DroneVelocityController.compositionBuilder()
+                .withControllerLinearX(controllers[0])
+                .withControllerLinearY(controllers[1])
+                .withControllerLinearZ(controllers[2])
+                .withControllerAngularZ(controllers[3])
+                .build(),
+            filterTimeConstant);
+
+    final MutablePose currentPose = MutablePose.create();
+    final MutableVelocity currentVelocity = MutableVelocity.create();
+    final MutableVelocity nextVelocity = MutableVelocity.create();
+    final double[] firstResponse = new double[4];
+    for (int i = 0; i < 100; i++) {
+      final double timeInSeconds = i * CONTROL_RATE_IN_SECONDS;
+      final Pose pose =
+          Pose.builder()
+              .setX(Math.sin(timeInSeconds))
+              .setY(0.5)
+              .setZ(timeInSeconds)
+              .setYaw(3 - timeInSeconds)
+              .build();
+      final InertialFrameVelocity velocity =
+          Velocity.builder()
+              .setLinearX(0.1)
+              .setLinearY(-0.2)
+              .setLinearZ(0.3)
+              .setAngularZ(0.4)
+              .build();
+
+      // the immutable one dimensional controllers followed by the output filter, which keeps the
+      // first response as the last one
+      final double[] expected = {
+        referenceControllers[0].computeNextResponse(pose.x(), velocity.linearX(), timeInSeconds),
+        referenceControllers[1].computeNextResponse(pose.y(), velocity.linearY(), timeInSeconds),
+        referenceControllers[2].computeNextResponse(pose.z(), velocity.linearZ(), timeInSeconds),
+        referenceControllers[3].computeNextResponse(pose.yaw(), velocity.angularZ(), timeInSeconds)
+      };
+      if (i == 0) {
+        System.arraycopy(expected, 0, firstResponse, 0, expected.length);
+      } else {
+        for (int j = 0; j < expected.length; j++) {
+          expected[j] -= filterTimeConstant * ((expected[j] - firstResponse[j]) / timeInSeconds);
+        }
+      }
+
+      currentPose.set(pose);
+      currentVelocity.set(
+          velocity.linearX(), velocity.linearY(), velocity.linearZ(), velocity.angularZ());
+      mutableController.computeNextResponse(
+          currentPose, currentVelocity, timeInSeconds, nextVelocity);
+
+      assertThat(nextVelocity.linearX()).isWithin(DELTA).of(expected[0]);
+      assertThat(nextVelocity.linearY()).isWithin(DELTA).of(expected[1]);
+      assertThat(nextVelocity.linearZ()).isWithin(DELTA).of(expected[2]);
+      assertThat(nextVelocity.angularZ()).isWithin(DELTA).of(expected[3]);
+    }
+  }
+
+  private VelocityController1d[] createControllers(Trajectory4d trajectory) {
+    return new VelocityController1d[] {
+      LinearPidController1d.create(parameters, TrajectoryUtils.getTrajectoryLinearX(trajectory)),
+      LinearPidController1d.create(parameters, TrajectoryUtils.getTrajectoryLinearY(trajectory)),
+      LinearPidController1d.create(parameters, TrajectoryUtils.getTrajectoryLinearZ(trajectory)),
+      AngularPidController1d.create(parameters, TrajectoryUtils.getTrajectoryAngularZ(trajectory))
+    };
+  }
+
+  private void runTicks(
+      int numberOfTicks,
+      MutablePose currentPose,
+      MutableVelocity currentVelocity,
+      MutableVelocity nextVelocity) {
+    for (int i = 0; i < numberOfTicks; i++) {
+      final double timeInSeconds = tick * CONTROL_RATE_IN_SECONDS;
+      tick++;
+      currentPose.set(Math.sin(timeInSeconds), 0.5, 3, timeInSeconds);
+      currentVelocity.set(0.1, -0.2, 0.3, 0.4);
+      controller.computeNextResponse(currentPose, currentVelocity, timeInSeconds, nextVelocity);
+      service.sendInertialFrameVelocity(nextVelocity, currentPose);
+      service.sendBodyFrameVelocity(nextVelocity);
+    }
+  }
+
+  /** A publisher which hands out the same message again and again, so that it never allocates. */
+  private static final class FakeVelocityPublisher implements Publisher<Twist> {
+    private final GraphName topicName = GraphName.of("/cmd_vel");
+    private final Twist twist = new FakeTwist();
+    private int numberOfMessages;
+
+    @Override
+    public Twist newMessage() {
+      return twist;
+    }
+
+    @Override
+    public void publish(Twist message) {
+      numberOfMessages++;
+    }
+
+    @Override
+    public GraphName getTopicName() {
+      return topicName;
+    }
+
+    @Override
+    public String getTopicMessageType() {
+      return Twist._TYPE;
+    }
+
+    @Override
+    public void setLatchMode(boolean enabled) {}
+
+    @Override
+    public boolean getLatchMode() {
+      return false;
+    }
+
+    @Override
+    public boolean hasSubscribers() {
+      return true;
+    }
+
+    @Override
+    public int getNumberOfSubscribers() {
+      return 1;
+    }
+
+    @Override
+    public void addListener(PublisherListener<Twist> listener) {}
+
+    @Override
+    public void shutdown(long timeout, TimeUnit unit) {}
+
+    @Override
+    public void shutdown() {}
+  }
+
+  private static final class FakeTwist implements Twist {
+    private Vector3 linear = new FakeVector3();
+    private Vector3 angular = new FakeVector3();
+
+    @Override
+    public Vector3 getLinear() {
+      return linear;
+    }
+
+    @Override
+    public void setLinear(Vector3 value) {
+      linear = value;
+    }
+
+    @Override
+    public Vector3 getAngular() {
+      return angular;
+    }
+
+    @Override
+    public void setAngular(Vector3 value) {
+      angular = value;
+    }
+
+    @Override
+    public RawMessage toRawMessage() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static final class FakeVector3 implements Vector3 {
+    private double x;
+    private double y;
+    private double z;
+
+    @Override
+    public double getX() {
+      return x;
+    }
+
+    @Override
+    public void setX(double value) {
+      x = value;
+    }
+
+    @Override
+    public double getY() {
+      return y;
+    }
+
+    @Override
+    public void setY(double value) {
+      y = value;
+    }
+
+    @Override
+    public double getZ() {
+      return z;
+    }
+
+    @Override
+    public void setZ(double value) {
+      z = value;
+    }
+
+    @Override
+    public RawMessage toRawMessage() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
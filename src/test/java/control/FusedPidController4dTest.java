@@ -0,0 +1,140 @@
+package control;
+
+import control.dto.InertialFrameVelocity;
+import control.dto.Pose;
+import control.dto.Velocity;
+import org.junit.Before;
+import org.junit.Test;
+import time.TimeProvider;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+/** @author Hoang Tung Dinh */
+public class FusedPidController4dTest {
+
+  private static final double DELTA = 1.0e-12;
+  private static final double CONTROL_RATE_IN_SECONDS = 0.01;
+
+  private final PidParameters linearParameters =
+      PidParameters.builder().setKp(0.5).setKd(1).setKi(0.1).build();
+  private final PidParameters angularParameters =
+      PidParameters.builder().setKp(1.5).setKd(0.5).setKi(0).setLagTimeInSeconds(0.2).build();
+  private CountingTrajectory trajectory;
+
+  @Before
+  public void setUp() {
+    trajectory = new CountingTrajectory();
+  }
+
+  @Test
+  public void testSameResponsesAsDroneVelocityController() {
+    final VelocityController4d expectedController =
+        DroneVelocityController.pidBuilder()
+            .withTrajectory4d(trajectory)
+            .withLinearXParameters(linearParameters)
+            .withLinearYParameters(linearParameters)
+            .withLinearZParameters(linearParameters)
+            .withAngularZParameters(angularParameters)
+            .build();
+    final VelocityController4d fusedController =
+        FusedPidController4d.builder()
+            .withDesiredStateSampler(DesiredStateSampler.create(trajectory))
+            .withLinearXParameters(linearParameters)
+            .withLinearYParameters(linearParameters)
+            .withLinearZParameters(linearParameters)
+            .withAngularZParameters(angularParameters)
+            .build();
+
+    for (int i = 0; i < 200; i++) {
+      final double timeInSeconds = i * CONTROL_RATE_IN_SECONDS;
+      final Pose currentPose =
+          Pose.builder()
+              .setX(Math.sin(timeInSeconds))
+              .setY(0.5)
+              .setZ(timeInSeconds)
+              .setYaw(3 - timeInSeconds)
+              .build();
+      final InertialFrameVelocity currentVelocity =
+          Velocity.builder()
+              .setLinearX(0.1)
+              .setLinearY(-0.2)
+              .setLinearZ(0.3)
+              .setAngularZ(0)
+              .build();
+
+      final InertialFrameVelocity expected =
+          expectedController.computeNextResponse(currentPose, currentVelocity, timeInSeconds);
+      final InertialFrameVelocity actual =
+          fusedController.computeNextResponse(currentPose, currentVelocity, timeInSeconds);
+      assertThat(actual.linearX()).isWithin(DELTA).of(expected.linearX());
+      assertThat(actual.linearY()).isWithin(DELTA).of(expected.linearY());
+      assertThat(actual.linearZ()).isWithin(DELTA).of(expected.linearZ());
+      assertThat(actual.angularZ()).isWithin(DELTA).of(expected.angularZ());
+    }
+  }
+
+  @Test
+  public void testControllerAndLoggerShareTheDesiredStates() {
+    final DesiredStateSampler sampler = DesiredStateSampler.create(trajectory);
+    final VelocityController4d controller =
+        VelocityController4dLogger.create(
+            FusedPidController4d.builder()
+                .withDesiredStateSampler(sampler)
+                .withLinearXParameters(linearParameters)
+                .withLinearYParameters(linearParameters)
+                .withLinearZParameters(linearParameters)
+                .withAngularZParameters(angularParameters)
+                .build(),
+            sampler,
+            mock(TimeProvider.class),
+            "test");
+
+    controller.computeNextResponse(Pose.createZeroPose(), Velocity.createZeroVelocity(), 1);
+    // one snapshot at the current time and one at the lagged time, each of them evaluates the
+    // position of the four axes at two points in time
+    assertThat(trajectory.numberOfEvaluations).isEqualTo(16);
+  }
+
+  @Test
+  public void testSamplerReusesRecentSamples() {
+    final DesiredStateSampler sampler = DesiredStateSampler.create(trajectory);
+    assertThat(sampler.sample(1)).isSameAs(sampler.sample(1));
+    sampler.sample(2);
+    sampler.sample(1);
+    sampler.sample(2);
+    assertThat(trajectory.numberOfEvaluations).isEqualTo(16);
+
+    sampler.sample(3);
+    assertThat(trajectory.numberOfEvaluations).isEqualTo(24);
+    assertThat(sampler.sample(3).pose().x()).isWithin(DELTA).of(trajectory.getDesiredPositionX(3));
+  }
+
+  private static final class CountingTrajectory implements Trajectory4d {
+    private int numberOfEvaluations;
+
+    @Override
+    public double getDesiredPositionX(double timeInSeconds) {
+      numberOfEvaluations++;
+      return Math.cos(timeInSeconds);
+    }
+
+    @Override
+    public double getDesiredPositionY(double timeInSeconds) {
+      numberOfEvaluations++;
+      return Math.sin(timeInSeconds);
+    }
+
+    @Override
+    public double getDesiredPositionZ(double timeInSeconds) {
+      numberOfEvaluations++;
+      return 0.5 * timeInSeconds;
+    }
+
+    @Override
+    public double getDesiredAngleZ(double timeInSeconds) {
+      numberOfEvaluations++;
+      return 2 * timeInSeconds;
+    }
+  }
+}
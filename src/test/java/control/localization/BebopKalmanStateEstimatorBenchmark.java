@@ -0,0 +1,56 @@
+package control.localization;
+
+import org.junit.Test;
+import services.rossubscribers.MessagesSubscriberService;
+import utils.metrics.LatencyHistogram;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Timing benchmark of the updates of {@link BebopKalmanStateEstimator}. It is excluded from the
+ * unit tests and runs with {@code gradle benchmark}. It prints the update duration histogram,
+ * including the mean and the 99th percentile, after a warm-up.
+ *
+ * @author Hoang Tung Dinh
+ */
+public class BebopKalmanStateEstimatorBenchmark {
+
+  private static final double PERIOD = 1.0 / 30;
+  private static final int NUMBER_OF_WARM_UP_ITERATIONS = 100000;
+  private static final int NUMBER_OF_MEASURED_ITERATIONS = 100000;
+
+  @Test
+  public void benchmarkUpdateDuration() {
+    final BebopKalmanStateEstimator stateEstimator =
+        BebopKalmanStateEstimator.builder()
+            .withPoseSubscriber(mock(MessagesSubscriberService.class))
+            .withOdometrySubscriber(mock(MessagesSubscriberService.class))
+            .build();
+    runIterations(stateEstimator, 0, NUMBER_OF_WARM_UP_ITERATIONS);
+    final LatencyHistogram updateDuration = stateEstimator.getUpdateDuration();
+    updateDuration.reset();
+    runIterations(
+        stateEstimator,
+        NUMBER_OF_WARM_UP_ITERATIONS,
+        NUMBER_OF_WARM_UP_ITERATIONS + NUMBER_OF_MEASURED_ITERATIONS);
+
+    // every iteration updates the filter with one pose and one odometry message
+    System.out.println(
+        String.format(
+            "%d pose and %d odometry updates. %s",
+            NUMBER_OF_MEASURED_ITERATIONS,
+            NUMBER_OF_MEASURED_ITERATIONS,
+            updateDuration));
+    assertThat(updateDuration.getCount()).isEqualTo(2L * NUMBER_OF_MEASURED_ITERATIONS);
+  }
+
+  private static void runIterations(
+      BebopKalmanStateEstimator stateEstimator, int firstIteration, int lastIteration) {
+    for (int i = firstIteration; i < lastIteration; i++) {
+      final double time = i * PERIOD;
+      stateEstimator.updateWithPose(time, Math.sin(time), Math.cos(time), 1, 0.1 * time);
+      stateEstimator.updateWithBodyFrameVelocity(time, Math.cos(time), 0, 0, 0.1);
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package control.localization;
+
+import com.google.common.base.Optional;
+import control.dto.DroneStateStamped;
+import geometry_msgs.PoseStamped;
+import nav_msgs.Odometry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import services.rossubscribers.MessageObserver;
+import services.rossubscribers.MessagesSubscriberService;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** @author Hoang Tung Dinh */
+public class BebopKalmanStateEstimatorTest {
+
+  private static final double DELTA = 0.000001;
+  private static final double PERIOD = 1.0 / 30;
+
+  private MessagesSubscriberService<PoseStamped> poseSubscriber;
+  private MessagesSubscriberService<Odometry> odometrySubscriber;
+  private BebopKalmanStateEstimator stateEstimator;
+
+  @Before
+  public void setUp() {
+    poseSubscriber = mock(MessagesSubscriberService.class);
+    odometrySubscriber = mock(MessagesSubscriberService.class);
+    stateEstimator =
+        BebopKalmanStateEstimator.builder()
+            .withPoseSubscriber(poseSubscriber)
+            .withOdometrySubscriber(odometrySubscriber)
+            .build();
+  }
+
+  private static DroneStateStamped getState(StateEstimator stateEstimator) {
+    final Optional<DroneStateStamped> state = stateEstimator.getCurrentState();
+    assertThat(state).isPresent();
+    return state.get();
+  }
+
+  @Test
+  public void testMessagesFromTheObservers() {
+    final ArgumentCaptor<MessageObserver> poseObserverCaptor =
+        ArgumentCaptor.forClass(MessageObserver.class);
+    verify(poseSubscriber).registerMessageObserver(poseObserverCaptor.capture());
+    final MessageObserver<PoseStamped> poseObserver = poseObserverCaptor.getValue();
+    final ArgumentCaptor<MessageObserver> odometryObserverCaptor =
+        ArgumentCaptor.forClass(MessageObserver.class);
+    verify(odometrySubscriber).registerMessageObserver(odometryObserverCaptor.capture());
+    final MessageObserver<Odometry> odometryObserver = odometryObserverCaptor.getValue();
+
+    // the odometry is ignored until the first pose
+    final Odometry odometry = mock(Odometry.class, RETURNS_DEEP_STUBS);
+    when(odometry.getHeader().getStamp().toSeconds()).thenReturn(1.0);
+    when(odometry.getTwist().getTwist().getLinear().getX()).thenReturn(1.0);
+    odometryObserver.onNewMessage(odometry);
+    assertThat(stateEstimator.getCurrentState()).isAbsent();
+
+    final PoseStamped poseStamped = mock(PoseStamped.class, RETURNS_DEEP_STUBS);
+    when(poseStamped.getHeader().getStamp().toSeconds()).thenReturn(1.0);
+    when(poseStamped.getPose().getPosition().getX()).thenReturn(1.0);
+    when(poseStamped.getPose().getPosition().getY()).thenReturn(2.0);
+    when(poseStamped.getPose().getPosition().getZ()).thenReturn(3.0);
+    when(poseStamped.getPose().getOrientation().getW()).thenReturn(1.0);
+    poseObserver.onNewMessage(poseStamped);
+
+    DroneStateStamped state = getState(stateEstimator);
+    assertThat(state.getTimeStampInSeconds()).isWithin(DELTA).of(1.0);
+    assertThat(state.pose().x()).isWithin(DELTA).of(1.0);
+    assertThat(state.pose().y()).isWithin(DELTA).of(2.0);
+    assertThat(state.pose().z()).isWithin(DELTA).of(3.0);
+    assertThat(state.inertialFrameVelocity().linearX()).isWithin(DELTA).of(0);
+
+    odometryObserver.onNewMessage(odometry);
+    state = getState(stateEstimator);
+    assertThat(state.inertialFrameVelocity().linearX()).isGreaterThan(0.9);
+  }
+
+  @Test
+  public void testConstantVelocityIsTrackedFromPosesOnly() {
+    final BebopKalmanStateEstimator poseOnlyEstimator =
+        BebopKalmanStateEstimator.builder().withPoseSubscriber(poseSubscriber).build();
+    for (int i = 0; i <= 60; i++) {
+      final double time = i * PERIOD;
+      poseOnlyEstimator.updateWithPose(time, time, -2 * time, 1, 0);
+    }
+
+    final DroneStateStamped state = getState(poseOnlyEstimator);
+    assertThat(state.pose().x()).isWithin(0.01).of(2);
+    assertThat(state.inertialFrameVelocity().linearX()).isWithin(0.05).of(1);
+    assertThat(state.inertialFrameVelocity().linearY()).isWithin(0.1).of(-2);
+    assertThat(state.inertialFrameVelocity().linearZ()).isWithin(0.01).of(0);
+  }
+
+  @Test
+  public void testLessLagThanMovingAverage() {
+    // the drone hovers for one second, then flies at 1 m/s
+    double x = 0;
+    for (int i = 0; i <= 30; i++) {
+      stateEstimator.updateWithPose(i * PERIOD, x, 0, 1, 0);
+      stateEstimator.updateWithBodyFrameVelocity(i * PERIOD, 0, 0, 0, 0);
+    }
+    for (int i = 31; i <= 32; i++) {
+      x += PERIOD;
+      stateEstimator.updateWithPose(i * PERIOD, x, 0, 1, 0);
+      stateEstimator.updateWithBodyFrameVelocity(i * PERIOD, 1, 0, 0, 0);
+    }
+
+    // after two new poses, an average of the five last finite differences would be 0.4 m/s
+    assertThat(getState(stateEstimator).inertialFrameVelocity().linearX()).isGreaterThan(0.9);
+  }
+
+  @Test
+  public void testOdometryIsRotatedToTheInertialFrame() {
+    stateEstimator.updateWithPose(0, 0, 0, 1, Math.PI / 2);
+    for (int i = 1; i <= 10; i++) {
+      stateEstimator.updateWithBodyFrameVelocity(i * PERIOD, 1, 0, 0, 0);
+    }
+
+    final DroneStateStamped state = getState(stateEstimator);
+    assertThat(state.inertialFrameVelocity().linearX()).isWithin(0.05).of(0);
+    assertThat(state.inertialFrameVelocity().linearY()).isWithin(0.05).of(1);
+  }
+
+  @Test
+  public void testYawAcrossPi() {
+    stateEstimator.updateWithPose(0, 0, 0, 1, 3.1);
+    stateEstimator.updateWithPose(PERIOD, 0, 0, 1, -3.1);
+
+    final DroneStateStamped state = getState(stateEstimator);
+    // the yaw turned by 0.083 rad counterclockwise, not by 6.2 rad clockwise
+    assertThat(Math.abs(state.pose().yaw())).isGreaterThan(3.1);
+    assertThat(state.pose().yaw()).isAtMost(Math.PI);
+    assertThat(state.inertialFrameVelocity().angularZ()).isGreaterThan(0.0);
+  }
+
+  @Test
+  public void testOldPosesAreIgnored() {
+    stateEstimator.updateWithPose(1, 0, 0, 1, 0);
+    stateEstimator.updateWithPose(0.5, 5, 0, 1, 0);
+    stateEstimator.updateWithPose(1, 5, 0, 1, 0);
+    assertThat(getState(stateEstimator).pose().x()).isWithin(DELTA).of(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNoise() {
+    BebopKalmanStateEstimator.builder()
+        .withPoseSubscriber(poseSubscriber)
+        .withPositionNoiseDeviation(0)
+        .build();
+  }
+
+  @Test
+  public void testEveryUpdateIsRecorded() {
+    final int numberOfUpdates = 1000;
+    for (int i = 0; i < numberOfUpdates; i++) {
+      final double time = i * PERIOD;
+      stateEstimator.updateWithPose(time, Math.sin(time), Math.cos(time), 1, 0.1 * time);
+      stateEstimator.updateWithBodyFrameVelocity(time, Math.cos(time), 0, 0, 0.1);
+    }
+
+    assertThat(stateEstimator.getUpdateDuration().getCount()).isEqualTo(2 * numberOfUpdates);
+  }
+}
@@ -12,6 +12,8 @@ import nav_msgs.Odometry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import services.rossubscribers.MessageObserver;
 import services.rossubscribers.MessagesSubscriberService;
 import utils.TestUtils;
 
@@ -19,6 +21,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.RETURNS_MOCKS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /** @author Hoang Tung Dinh */
@@ -28,6 +31,8 @@ public class BebopStateEstimatorWithPoseStampedAndOdomTest {
   private MessagesSubscriberService<PoseStamped> poseSubscriber;
   private MessagesSubscriberService<Odometry> odometrySubscriber;
   private StateEstimator bebopStateEstimator;
+  private MessageObserver<PoseStamped> poseObserver;
+  private MessageObserver<Odometry> odometryObserver;
 
   private static Odometry createMockOdometry(BodyFrameVelocity bodyFrameVelocity) {
     final Odometry odometry = mock(Odometry.class, RETURNS_DEEP_STUBS);
@@ -59,20 +64,27 @@ public class BebopStateEstimatorWithPoseStampedAndOdomTest {
     odometrySubscriber = mock(MessagesSubscriberService.class);
     bebopStateEstimator =
         BebopStateEstimatorWithPoseStampedAndOdom.create(poseSubscriber, odometrySubscriber);
+
+    final ArgumentCaptor<MessageObserver> poseObserverCaptor =
+        ArgumentCaptor.forClass(MessageObserver.class);
+    verify(poseSubscriber).registerMessageObserver(poseObserverCaptor.capture());
+    poseObserver = poseObserverCaptor.getValue();
+
+    final ArgumentCaptor<MessageObserver> odometryObserverCaptor =
+        ArgumentCaptor.forClass(MessageObserver.class);
+    verify(odometrySubscriber).registerMessageObserver(odometryObserverCaptor.capture());
+    odometryObserver = odometryObserverCaptor.getValue();
   }
 
   @Test
   public void testGetCurrentState_noPoseReceived() {
-    when(poseSubscriber.getMostRecentMessage()).thenReturn(Optional.<PoseStamped>absent());
-    when(odometrySubscriber.getMostRecentMessage()).thenReturn(Optional.of(mock(Odometry.class)));
+    odometryObserver.onNewMessage(mock(Odometry.class, RETURNS_MOCKS));
     assertThat(bebopStateEstimator.getCurrentState()).isAbsent();
   }
 
   @Test
   public void testGetCurrentState_noVelocityReceived() {
-    when(poseSubscriber.getMostRecentMessage())
-        .thenReturn(Optional.of(mock(PoseStamped.class, RETURNS_MOCKS)));
-    when(odometrySubscriber.getMostRecentMessage()).thenReturn(Optional.<Odometry>absent());
+    poseObserver.onNewMessage(mock(PoseStamped.class, RETURNS_MOCKS));
     assertThat(bebopStateEstimator.getCurrentState()).isAbsent();
   }
 
@@ -88,11 +100,12 @@ public class BebopStateEstimatorWithPoseStampedAndOdomTest {
         createMockPoseStamped(pose, quaternionAngle, timeStampInSeconds);
     final Odometry odometry = createMockOdometry(bodyFrameVelocity);
 
-    when(poseSubscriber.getMostRecentMessage()).thenReturn(Optional.of(poseStamped));
-    when(odometrySubscriber.getMostRecentMessage()).thenReturn(Optional.of(odometry));
+    poseObserver.onNewMessage(poseStamped);
+    odometryObserver.onNewMessage(odometry);
 
-    final DroneStateStamped droneStateStamped =
-        DroneStateStamped.create(pose, inertialFrameVelocity, timeStampInSeconds);
+    final Optional<DroneStateStamped> currentState = bebopStateEstimator.getCurrentState();
+    assertThat(currentState).isPresent();
+    final DroneStateStamped droneStateStamped = currentState.get();
 
     TestUtils.assertPoseEqual(pose, droneStateStamped.pose());
     TestUtils.assertVelocityEqual(inertialFrameVelocity, droneStateStamped.inertialFrameVelocity());
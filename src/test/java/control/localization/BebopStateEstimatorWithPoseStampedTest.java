@@ -5,11 +5,14 @@ import control.dto.DroneStateStamped;
 import geometry_msgs.PoseStamped;
 import geometry_msgs.Quaternion;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import services.rossubscribers.MessageObserver;
 import services.rossubscribers.MessagesSubscriberService;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -27,9 +30,12 @@ public class BebopStateEstimatorWithPoseStampedTest {
         mock(MessagesSubscriberService.class);
     final StateEstimator stateEstimator =
         BebopStateEstimatorWithPoseStamped.create(poseSubscriber, 1);
+    final ArgumentCaptor<MessageObserver> observerCaptor =
+        ArgumentCaptor.forClass(MessageObserver.class);
+    verify(poseSubscriber).registerMessageObserver(observerCaptor.capture());
+    final MessageObserver<PoseStamped> poseObserver = observerCaptor.getValue();
 
     // when there is no pose message yet
-    when(poseSubscriber.getMostRecentMessage()).thenReturn(Optional.<PoseStamped>absent());
     assertThat(stateEstimator.getCurrentState()).isAbsent();
     assertThat(stateEstimator.getCurrentState()).isAbsent();
     assertThat(stateEstimator.getCurrentState()).isAbsent();
@@ -43,7 +49,7 @@ public class BebopStateEstimatorWithPoseStampedTest {
     when(firstPose.getPose().getOrientation())
         .thenReturn(mock(Quaternion.class, RETURNS_DEEP_STUBS));
 
-    when(poseSubscriber.getMostRecentMessage()).thenReturn(Optional.of(firstPose));
+    poseObserver.onNewMessage(firstPose);
     assertThat(stateEstimator.getCurrentState()).isAbsent();
     assertThat(stateEstimator.getCurrentState()).isAbsent();
     assertThat(stateEstimator.getCurrentState()).isAbsent();
@@ -57,7 +63,7 @@ public class BebopStateEstimatorWithPoseStampedTest {
     when(secondPose.getPose().getOrientation())
         .thenReturn(mock(Quaternion.class, RETURNS_DEEP_STUBS));
 
-    when(poseSubscriber.getMostRecentMessage()).thenReturn(Optional.of(secondPose));
+    poseObserver.onNewMessage(secondPose);
     testCorrectFirstState(stateEstimator);
     // test twice
     testCorrectFirstState(stateEstimator);
@@ -71,10 +77,14 @@ public class BebopStateEstimatorWithPoseStampedTest {
     when(thirdPose.getPose().getOrientation())
         .thenReturn(mock(Quaternion.class, RETURNS_DEEP_STUBS));
 
-    when(poseSubscriber.getMostRecentMessage()).thenReturn(Optional.of(thirdPose));
+    poseObserver.onNewMessage(thirdPose);
     testCorrectSecondState(stateEstimator);
     // test twice
     testCorrectSecondState(stateEstimator);
+
+    // when the third pose is received again
+    poseObserver.onNewMessage(thirdPose);
+    testCorrectSecondState(stateEstimator);
   }
 
   private static void testCorrectSecondState(StateEstimator stateEstimator) {
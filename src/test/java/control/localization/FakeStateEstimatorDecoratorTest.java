@@ -0,0 +1,102 @@
+package control.localization;
+
+import com.google.common.base.Optional;
+import commands.schedulers.ControlLoopScheduler;
+import control.dto.DroneStateStamped;
+import control.dto.Pose;
+import control.dto.Velocity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** @author Hoang Tung Dinh */
+public class FakeStateEstimatorDecoratorTest {
+
+  private static final double DELTA = 0.000001;
+  private static final long SEED = 42;
+
+  private StateEstimator actualStateEstimator;
+
+  @Before
+  public void setUp() {
+    actualStateEstimator = mock(StateEstimator.class);
+    final Pose pose = Pose.builder().setX(1).setY(2).setZ(3).setYaw(0.5).build();
+    when(actualStateEstimator.getCurrentState())
+        .thenReturn(
+            Optional.of(DroneStateStamped.create(pose, Velocity.createZeroVelocity(), 10)));
+  }
+
+  private FakeStateEstimatorDecorator createStateEstimator(
+      String droneName, double noiseDeviation, int numberOfAveragingPoses) {
+    return new FakeStateEstimatorDecorator(
+        actualStateEstimator,
+        NoiseStreams.create(SEED).createGenerator(droneName),
+        0,
+        noiseDeviation,
+        numberOfAveragingPoses);
+  }
+
+  @Test
+  public void testNoStateBeforeTheFirstUpdate() {
+    final FakeStateEstimatorDecorator stateEstimator = createStateEstimator("drone", 0, 1);
+    assertThat(stateEstimator.getCurrentState()).isAbsent();
+    when(actualStateEstimator.getCurrentState()).thenReturn(Optional.<DroneStateStamped>absent());
+    stateEstimator.update();
+    assertThat(stateEstimator.getCurrentState()).isAbsent();
+  }
+
+  @Test
+  public void testStateWithoutNoise() {
+    final FakeStateEstimatorDecorator stateEstimator = createStateEstimator("drone", 0, 3);
+    stateEstimator.update();
+    final DroneStateStamped state = stateEstimator.getCurrentState().get();
+    assertThat(state.getTimeStampInSeconds()).isWithin(DELTA).of(10);
+    assertThat(state.pose().x()).isWithin(DELTA).of(1);
+    assertThat(state.pose().y()).isWithin(DELTA).of(2);
+    assertThat(state.pose().z()).isWithin(DELTA).of(3);
+    assertThat(state.pose().yaw()).isWithin(DELTA).of(0.5);
+    assertThat(state.inertialFrameVelocity().linearX()).isWithin(DELTA).of(0);
+  }
+
+  @Test
+  public void testNoiseIsReproducible() {
+    final FakeStateEstimatorDecorator firstRun = createStateEstimator("drone_0", 0.1, 2);
+    final FakeStateEstimatorDecorator otherDrone = createStateEstimator("drone_1", 0.1, 2);
+    final FakeStateEstimatorDecorator secondRun = createStateEstimator("drone_0", 0.1, 2);
+    for (int i = 0; i < 10; i++) {
+      firstRun.update();
+      otherDrone.update();
+      secondRun.update();
+      assertThat(secondRun.getCurrentState()).isEqualTo(firstRun.getCurrentState());
+      assertThat(otherDrone.getCurrentState()).isNotEqualTo(firstRun.getCurrentState());
+    }
+  }
+
+  @Test
+  public void testStateIsUpdatedOnTheScheduler() throws InterruptedException {
+    final ControlLoopScheduler scheduler = ControlLoopScheduler.create(1);
+    try {
+      final FakeStateEstimatorDecorator stateEstimator =
+          FakeStateEstimatorDecorator.create(
+              actualStateEstimator,
+              100,
+              NoiseStreams.create(SEED).createGenerator("drone"),
+              0,
+              0,
+              1,
+              scheduler);
+      assertThat(scheduler.getNumberOfActiveLoops()).isEqualTo(1);
+      for (int i = 0; i < 100 && !stateEstimator.getCurrentState().isPresent(); i++) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      assertThat(stateEstimator.getCurrentState().get().pose().x()).isWithin(DELTA).of(1);
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+}
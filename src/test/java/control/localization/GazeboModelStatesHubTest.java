@@ -0,0 +1,132 @@
+package control.localization;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import control.dto.DroneStateStamped;
+import gazebo_msgs.ModelStates;
+import geometry_msgs.Pose;
+import geometry_msgs.Twist;
+import org.junit.Before;
+import org.junit.Test;
+import services.rossubscribers.MessagesSubscriberService;
+import time.TimeProvider;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** @author Hoang Tung Dinh */
+public class GazeboModelStatesHubTest {
+
+  private static final double DELTA = 0.000001;
+
+  private MessagesSubscriberService<ModelStates> modelStateSubscriber;
+  private GazeboModelStatesHub hub;
+
+  /** Creates a message in which the model at index i is at x = i. */
+  private static ModelStates createModelStates(String... names) {
+    final List<Pose> poses = Lists.newArrayList();
+    final List<Twist> twists = Lists.newArrayList();
+    for (int i = 0; i < names.length; i++) {
+      final Pose pose = mock(Pose.class, RETURNS_DEEP_STUBS);
+      when(pose.getPosition().getX()).thenReturn((double) i);
+      when(pose.getOrientation().getW()).thenReturn(1.0);
+      poses.add(pose);
+      twists.add(mock(Twist.class, RETURNS_DEEP_STUBS));
+    }
+
+    final ModelStates modelStates = mock(ModelStates.class);
+    when(modelStates.getName()).thenReturn(Lists.newArrayList(names));
+    when(modelStates.getPose()).thenReturn(poses);
+    when(modelStates.getTwist()).thenReturn(twists);
+    return modelStates;
+  }
+
+  private static void assertX(StateEstimator stateEstimator, double x) {
+    final Optional<DroneStateStamped> state = stateEstimator.getCurrentState();
+    assertThat(state).isPresent();
+    assertThat(state.get().pose().x()).isWithin(DELTA).of(x);
+  }
+
+  @Before
+  public void setUp() {
+    modelStateSubscriber = mock(MessagesSubscriberService.class);
+    final TimeProvider timeProvider = mock(TimeProvider.class);
+    when(timeProvider.getCurrentTimeSeconds()).thenReturn(1.0);
+    hub = GazeboModelStatesHub.create(modelStateSubscriber, timeProvider);
+  }
+
+  @Test
+  public void testHubIsRegisteredOnce() {
+    hub.createStateEstimator("first");
+    hub.createStateEstimator("second");
+    verify(modelStateSubscriber).registerMessageObserver(hub);
+  }
+
+  @Test
+  public void testStatesAreFannedOut() {
+    final StateEstimator first = hub.createStateEstimator("first");
+    final StateEstimator second = hub.createStateEstimator("second");
+    assertThat(first.getCurrentState()).isAbsent();
+
+    hub.onNewMessage(createModelStates("ground", "second", "first"));
+    assertX(first, 2);
+    assertX(second, 1);
+    assertThat(first.getCurrentState().get().getTimeStampInSeconds()).isWithin(DELTA).of(1.0);
+  }
+
+  @Test
+  public void testIndicesAreResolvedAgainWhenTheModelsChange() {
+    final StateEstimator first = hub.createStateEstimator("first");
+    final StateEstimator second = hub.createStateEstimator("second");
+    hub.onNewMessage(createModelStates("first", "second"));
+    assertX(first, 0);
+    assertX(second, 1);
+
+    // same number of models in another order
+    hub.onNewMessage(createModelStates("second", "first"));
+    assertX(first, 1);
+    assertX(second, 0);
+
+    // a model is spawned
+    hub.onNewMessage(createModelStates("ground", "second", "first"));
+    assertX(first, 2);
+    assertX(second, 1);
+  }
+
+  @Test
+  public void testModelNotInTheSimulation() {
+    final StateEstimator missing = hub.createStateEstimator("missing");
+    hub.onNewMessage(createModelStates("first", "second"));
+    assertThat(missing.getCurrentState()).isAbsent();
+
+    // the model is spawned later
+    hub.onNewMessage(createModelStates("first", "second", "missing"));
+    assertX(missing, 2);
+  }
+
+  @Test
+  public void testModelSpawnedWhileAnotherIsDeleted() {
+    final StateEstimator missing = hub.createStateEstimator("missing");
+    hub.onNewMessage(createModelStates("first", "second"));
+    assertThat(missing.getCurrentState()).isAbsent();
+
+    // the number of models does not change
+    hub.onNewMessage(createModelStates("first", "missing"));
+    assertX(missing, 1);
+  }
+
+  @Test
+  public void testStateEstimatorCreatedAfterTheFirstMessage() {
+    final StateEstimator first = hub.createStateEstimator("first");
+    hub.onNewMessage(createModelStates("first", "second"));
+    final StateEstimator second = hub.createStateEstimator("second");
+    hub.onNewMessage(createModelStates("first", "second"));
+    assertX(first, 0);
+    assertX(second, 1);
+  }
+}
@@ -0,0 +1,143 @@
+package control.localization;
+
+import com.google.common.base.Optional;
+import control.dto.DroneStateStamped;
+import control.dto.Pose;
+import control.dto.Velocity;
+import org.junit.Before;
+import org.junit.Test;
+import time.TimeProvider;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** @author Hoang Tung Dinh */
+public class LatencyCompensatingStateEstimatorTest {
+
+  private static final double DELTA = 0.000001;
+
+  private StateEstimator stateEstimator;
+  private TimeProvider timeProvider;
+
+  private static Optional<DroneStateStamped> createState(
+      double time, double x, double yaw, double linearX, double angularZ) {
+    final Pose pose = Pose.builder().setX(x).setY(2).setZ(1).setYaw(yaw).build();
+    final Velocity velocity =
+        Velocity.builder()
+            .setLinearX(linearX)
+            .setLinearY(0)
+            .setLinearZ(0)
+            .setAngularZ(angularZ)
+            .build();
+    return Optional.of(DroneStateStamped.create(pose, velocity, time));
+  }
+
+  @Before
+  public void setUp() {
+    stateEstimator = mock(StateEstimator.class);
+    timeProvider = mock(TimeProvider.class);
+  }
+
+  private LatencyCompensatingStateEstimator.Builder createBuilder() {
+    return LatencyCompensatingStateEstimator.builder()
+        .withStateEstimator(stateEstimator)
+        .withTimeProvider(timeProvider);
+  }
+
+  @Test
+  public void testNoState() {
+    when(stateEstimator.getCurrentState()).thenReturn(Optional.<DroneStateStamped>absent());
+    assertThat(createBuilder().build().getCurrentState()).isAbsent();
+  }
+
+  @Test
+  public void testStateIsProjectedToNow() {
+    final LatencyCompensatingStateEstimator compensatingEstimator = createBuilder().build();
+    when(stateEstimator.getCurrentState()).thenReturn(createState(1, 0, 0, 1, 0));
+    when(timeProvider.getCurrentTimeSeconds()).thenReturn(1.1);
+
+    final DroneStateStamped state = compensatingEstimator.getCurrentState().get();
+    assertThat(state.getTimeStampInSeconds()).isWithin(DELTA).of(1);
+    assertThat(state.pose().x()).isWithin(DELTA).of(0.1);
+    assertThat(state.pose().y()).isWithin(DELTA).of(2);
+    assertThat(state.inertialFrameVelocity().linearX()).isWithin(DELTA).of(1);
+
+    assertThat(compensatingEstimator.getStateAge().getCount()).isEqualTo(1);
+    assertThat((double) compensatingEstimator.getStateAge().getMaxInNanoSeconds())
+        .isWithin(1.0e6)
+        .of(1.0e8);
+  }
+
+  @Test
+  public void testAdditionalLatency() {
+    final LatencyCompensatingStateEstimator compensatingEstimator =
+        createBuilder().withAdditionalLatencyInSeconds(0.05).build();
+    when(stateEstimator.getCurrentState()).thenReturn(createState(1, 0, 0, 1, 0));
+    when(timeProvider.getCurrentTimeSeconds()).thenReturn(1.1);
+    assertThat(compensatingEstimator.getCurrentState().get().pose().x()).isWithin(DELTA).of(0.15);
+  }
+
+  @Test
+  public void testPredictionHorizonIsBounded() {
+    final LatencyCompensatingStateEstimator compensatingEstimator =
+        createBuilder().withMaximumPredictionHorizonInSeconds(0.5).build();
+    when(stateEstimator.getCurrentState()).thenReturn(createState(1, 0, 0, 1, 0));
+    when(timeProvider.getCurrentTimeSeconds()).thenReturn(3.0);
+
+    final DroneStateStamped state = compensatingEstimator.getCurrentState().get();
+    assertThat(state.pose().x()).isWithin(DELTA).of(0.5);
+  }
+
+  @Test
+  public void testProjectedStateKeepsTheTimeStampOfItsSource() {
+    final LatencyCompensatingStateEstimator compensatingEstimator = createBuilder().build();
+    when(stateEstimator.getCurrentState()).thenReturn(createState(1, 0, 0, 1, 0));
+    when(timeProvider.getCurrentTimeSeconds()).thenReturn(1.05);
+    final DroneStateStamped first = compensatingEstimator.getCurrentState().get();
+    when(timeProvider.getCurrentTimeSeconds()).thenReturn(1.1);
+    final DroneStateStamped second = compensatingEstimator.getCurrentState().get();
+
+    // the same state projected to a later time is not a new state
+    assertThat(second.getTimeStampInSeconds()).isEqualTo(first.getTimeStampInSeconds());
+    assertThat(second.pose().x()).isWithin(DELTA).of(0.1);
+  }
+
+  @Test
+  public void testYawIsWrapped() {
+    final LatencyCompensatingStateEstimator compensatingEstimator = createBuilder().build();
+    when(stateEstimator.getCurrentState()).thenReturn(createState(1, 0, 3.1, 0, 1));
+    when(timeProvider.getCurrentTimeSeconds()).thenReturn(1.1);
+    assertThat(compensatingEstimator.getCurrentState().get().pose().yaw())
+        .isWithin(DELTA)
+        .of(3.2 - 2 * Math.PI);
+  }
+
+  @Test
+  public void testPredictionError() {
+    final LatencyCompensatingStateEstimator compensatingEstimator = createBuilder().build();
+    when(stateEstimator.getCurrentState()).thenReturn(createState(1, 0, 0, 1, 0));
+    when(timeProvider.getCurrentTimeSeconds()).thenReturn(1.02);
+    compensatingEstimator.getCurrentState();
+    assertThat(compensatingEstimator.getPredictionError().count()).isEqualTo(0);
+
+    // the prediction for 1.033 is 0.033, but the drone slowed down
+    when(stateEstimator.getCurrentState()).thenReturn(createState(1.033, 0.023, 0, 0.5, 0));
+    when(timeProvider.getCurrentTimeSeconds()).thenReturn(1.04);
+    compensatingEstimator.getCurrentState();
+    // the same state polled again is not compared twice
+    compensatingEstimator.getCurrentState();
+
+    final LatencyCompensatingStateEstimator.PredictionError error =
+        compensatingEstimator.getPredictionError();
+    assertThat(error.count()).isEqualTo(1);
+    assertThat(error.x()).isWithin(DELTA).of(0.01);
+    assertThat(error.y()).isWithin(DELTA).of(0);
+    assertThat(error.yaw()).isWithin(DELTA).of(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidHistorySize() {
+    createBuilder().withHistorySize(0).build();
+  }
+}
@@ -0,0 +1,30 @@
+package control.localization;
+
+import org.apache.commons.math3.random.GaussianRandomGenerator;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** @author Hoang Tung Dinh */
+public class NoiseStreamsTest {
+
+  @Test
+  public void testStreamsAreReproducible() {
+    final GaussianRandomGenerator first = NoiseStreams.create(42).createGenerator("drone_1");
+    // streams of other drones created in between do not change the stream of the first drone
+    NoiseStreams.create(42).createGenerator("drone_0").nextNormalizedDouble();
+    final GaussianRandomGenerator second = NoiseStreams.create(42).createGenerator("drone_1");
+    for (int i = 0; i < 100; i++) {
+      assertThat(second.nextNormalizedDouble()).isEqualTo(first.nextNormalizedDouble());
+    }
+  }
+
+  @Test
+  public void testStreamsAreDifferent() {
+    final NoiseStreams noiseStreams = NoiseStreams.create(42);
+    assertThat(noiseStreams.getStreamSeed("drone_0"))
+        .isNotEqualTo(noiseStreams.getStreamSeed("drone_1"));
+    assertThat(noiseStreams.getStreamSeed("drone_0"))
+        .isNotEqualTo(NoiseStreams.create(43).getStreamSeed("drone_0"));
+  }
+}
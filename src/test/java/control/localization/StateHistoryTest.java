@@ -0,0 +1,109 @@
+package control.localization;
+
+import com.google.common.base.Optional;
+import control.dto.DroneStateStamped;
+import control.dto.MutablePose;
+import control.dto.MutableVelocity;
+import control.dto.Pose;
+import control.dto.Velocity;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** @author Hoang Tung Dinh */
+public class StateHistoryTest {
+
+  private static final double DELTA = 0.000001;
+
+  private static DroneStateStamped createState(double time, double x, double yaw) {
+    final Pose pose = Pose.builder().setX(x).setY(-x).setZ(1).setYaw(yaw).build();
+    final Velocity velocity =
+        Velocity.builder().setLinearX(x).setLinearY(0).setLinearZ(0).setAngularZ(0).build();
+    return DroneStateStamped.create(pose, velocity, time);
+  }
+
+  @Test
+  public void testEmptyHistory() {
+    final StateHistory history = StateHistory.create(4);
+    assertThat(history.size()).isEqualTo(0);
+    assertThat(history.getLatest()).isAbsent();
+    assertThat(history.getStateAt(0)).isAbsent();
+  }
+
+  @Test
+  public void testLinearInterpolation() {
+    final StateHistory history = StateHistory.create(4);
+    history.add(createState(1, 0, 0));
+    history.add(createState(2, 2, 0));
+    history.add(createState(4, 4, 0));
+
+    final DroneStateStamped state = history.getStateAt(1.5).get();
+    assertThat(state.getTimeStampInSeconds()).isWithin(DELTA).of(1.5);
+    assertThat(state.pose().x()).isWithin(DELTA).of(1);
+    assertThat(state.pose().y()).isWithin(DELTA).of(-1);
+    assertThat(state.pose().z()).isWithin(DELTA).of(1);
+    assertThat(state.inertialFrameVelocity().linearX()).isWithin(DELTA).of(1);
+
+    assertThat(history.getStateAt(3).get().pose().x()).isWithin(DELTA).of(3);
+    assertThat(history.getStateAt(2).get().pose().x()).isWithin(DELTA).of(2);
+    assertThat(history.getStateAt(4).get().pose().x()).isWithin(DELTA).of(4);
+    assertThat(history.getStateAt(0.5)).isAbsent();
+    assertThat(history.getStateAt(4.5)).isAbsent();
+  }
+
+  @Test
+  public void testYawIsInterpolatedAlongTheShortestArc() {
+    final StateHistory history = StateHistory.create(4);
+    history.add(createState(0, 0, 3.0));
+    history.add(createState(1, 0, -3.0));
+
+    // the yaw goes through pi, not through zero
+    final double yaw = history.getStateAt(0.5).get().pose().yaw();
+    assertThat(Math.abs(yaw)).isWithin(DELTA).of(Math.PI);
+    assertThat(history.getStateAt(0.25).get().pose().yaw())
+        .isWithin(DELTA)
+        .of(3.0 + (2 * Math.PI - 6.0) / 4);
+  }
+
+  @Test
+  public void testOldestStatesAreOverwritten() {
+    final StateHistory history = StateHistory.create(3);
+    for (int i = 0; i < 5; i++) {
+      assertThat(history.add(createState(i, i, 0))).isTrue();
+    }
+
+    assertThat(history.size()).isEqualTo(3);
+    assertThat(history.getStateAt(1.5)).isAbsent();
+    assertThat(history.getStateAt(2.5).get().pose().x()).isWithin(DELTA).of(2.5);
+    assertThat(history.getStateAt(3.75).get().pose().x()).isWithin(DELTA).of(3.75);
+    final Optional<DroneStateStamped> latest = history.getLatest();
+    assertThat(latest.get().getTimeStampInSeconds()).isWithin(DELTA).of(4);
+  }
+
+  @Test
+  public void testOlderStatesAreIgnoredAndSameTimeStampReplaces() {
+    final StateHistory history = StateHistory.create(3);
+    history.add(createState(1, 0, 0));
+    assertThat(history.add(createState(0.5, 5, 0))).isFalse();
+    assertThat(history.add(createState(1, 1, 0))).isTrue();
+    assertThat(history.size()).isEqualTo(1);
+    assertThat(history.getLatest().get().pose().x()).isWithin(DELTA).of(1);
+  }
+
+  @Test
+  public void testAllocationFreeQuery() {
+    final StateHistory history = StateHistory.create(8);
+    final MutablePose pose = MutablePose.create();
+    final MutableVelocity velocity = MutableVelocity.create();
+    for (int i = 0; i < 8; i++) {
+      pose.set(i, 0, 0, 0);
+      velocity.set(1, 0, 0, 0);
+      history.add(i, pose, velocity);
+    }
+
+    assertThat(history.getStateAt(6.5, pose, velocity)).isTrue();
+    assertThat(pose.x()).isWithin(DELTA).of(6.5);
+    assertThat(velocity.linearX()).isWithin(DELTA).of(1);
+    assertThat(history.getStateAt(8.5, pose, velocity)).isFalse();
+  }
+}
@@ -0,0 +1,45 @@
+package control.localization.filters;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** @author Hoang Tung Dinh */
+public class ExponentialFilterTest {
+
+  private static final double DELTA = 0.000001;
+
+  @Test
+  public void testFirstSampleInitializesTheValue() {
+    final ExponentialFilter filter = ExponentialFilter.create(0.25);
+    assertThat(filter.isInitialized()).isFalse();
+    filter.add(8);
+    assertThat(filter.isInitialized()).isTrue();
+    assertThat(filter.getValue()).isWithin(DELTA).of(8);
+    filter.add(0);
+    assertThat(filter.getValue()).isWithin(DELTA).of(6);
+  }
+
+  @Test
+  public void testAnglesMoveAlongTheShortestArc() {
+    final ExponentialFilter filter = ExponentialFilter.createForAngles(0.5);
+    filter.add(Math.PI - 0.1);
+    filter.add(-Math.PI + 0.1);
+    assertThat(Math.abs(filter.getValue())).isWithin(DELTA).of(Math.PI);
+  }
+
+  @Test
+  public void testReset() {
+    final ExponentialFilter filter = ExponentialFilter.create(0.5);
+    filter.add(2);
+    filter.reset();
+    assertThat(filter.isInitialized()).isFalse();
+    filter.add(4);
+    assertThat(filter.getValue()).isWithin(DELTA).of(4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSmoothingFactor() {
+    ExponentialFilter.create(1.5);
+  }
+}
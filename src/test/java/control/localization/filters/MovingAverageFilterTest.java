@@ -0,0 +1,85 @@
+package control.localization.filters;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** @author Hoang Tung Dinh */
+public class MovingAverageFilterTest {
+
+  private static final double DELTA = 0.000001;
+
+  @Test
+  public void testAverageOfThePartialWindow() {
+    final MovingAverageFilter filter = MovingAverageFilter.create(3);
+    assertThat(filter.getAverage()).isWithin(DELTA).of(0);
+    filter.add(1);
+    filter.add(2);
+    assertThat(filter.isFull()).isFalse();
+    assertThat(filter.size()).isEqualTo(2);
+    assertThat(filter.getAverage()).isWithin(DELTA).of(1.5);
+  }
+
+  @Test
+  public void testOldestSampleLeavesTheWindow() {
+    final MovingAverageFilter filter = MovingAverageFilter.create(3);
+    filter.add(1);
+    filter.add(2);
+    filter.add(3);
+    assertThat(filter.isFull()).isTrue();
+    assertThat(filter.getAverage()).isWithin(DELTA).of(2);
+    filter.add(10);
+    assertThat(filter.size()).isEqualTo(3);
+    assertThat(filter.getAverage()).isWithin(DELTA).of(5);
+  }
+
+  @Test
+  public void testManySamples() {
+    final MovingAverageFilter filter = MovingAverageFilter.create(7);
+    for (int i = 0; i < 100000; i++) {
+      filter.add(i * 0.1);
+    }
+    // the average of the last seven samples is the sample in the middle of the window
+    assertThat(filter.getAverage()).isWithin(DELTA).of(99996 * 0.1);
+  }
+
+  @Test
+  public void testAnglesAroundPi() {
+    final MovingAverageFilter filter = MovingAverageFilter.createForAngles(2);
+    filter.add(Math.PI - 0.1);
+    filter.add(-Math.PI + 0.1);
+    assertThat(Math.abs(filter.getAverage())).isWithin(DELTA).of(Math.PI);
+    filter.add(-Math.PI + 0.3);
+    assertThat(filter.getAverage()).isWithin(DELTA).of(-Math.PI + 0.2);
+  }
+
+  @Test
+  public void testAnglesOfASpinningDrone() {
+    final MovingAverageFilter filter = MovingAverageFilter.createForAngles(4);
+    double angle = 0;
+    for (int i = 0; i < 10000; i++) {
+      angle += 0.5;
+      filter.add(angle);
+    }
+    final double expected = angle - 0.75;
+    assertThat(filter.getAverage())
+        .isWithin(DELTA)
+        .of(Math.atan2(Math.sin(expected), Math.cos(expected)));
+  }
+
+  @Test
+  public void testReset() {
+    final MovingAverageFilter filter = MovingAverageFilter.create(2);
+    filter.add(4);
+    filter.add(6);
+    filter.reset();
+    assertThat(filter.size()).isEqualTo(0);
+    filter.add(1);
+    assertThat(filter.getAverage()).isWithin(DELTA).of(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyWindow() {
+    MovingAverageFilter.create(0);
+  }
+}
@@ -0,0 +1,66 @@
+package control.localization.filters;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** @author Hoang Tung Dinh */
+public class SavitzkyGolayFilterTest {
+
+  private static final double DELTA = 0.000001;
+  private static final double SAMPLE_PERIOD = 0.05;
+
+  @Test
+  public void testNoValueBeforeTheWindowIsFull() {
+    final SavitzkyGolayFilter filter = SavitzkyGolayFilter.create(5, 2, SAMPLE_PERIOD);
+    for (int i = 0; i < 4; i++) {
+      filter.add(i);
+      assertThat(filter.isFull()).isFalse();
+    }
+    assertThat(filter.getDerivative()).isWithin(DELTA).of(0);
+    filter.add(4);
+    assertThat(filter.isFull()).isTrue();
+  }
+
+  @Test
+  public void testDerivativeOfAQuadraticSignalHasNoLag() {
+    final SavitzkyGolayFilter filter = SavitzkyGolayFilter.create(7, 2, SAMPLE_PERIOD);
+    for (int i = 0; i < 50; i++) {
+      final double time = i * SAMPLE_PERIOD;
+      filter.add(3 * time * time - time + 2);
+      if (filter.isFull()) {
+        assertThat(filter.getValue()).isWithin(DELTA).of(3 * time * time - time + 2);
+        assertThat(filter.getDerivative()).isWithin(DELTA).of(6 * time - 1);
+      }
+    }
+  }
+
+  @Test
+  public void testLinearFitSmoothesNoise() {
+    final SavitzkyGolayFilter filter = SavitzkyGolayFilter.create(4, 1, 1);
+    filter.add(0);
+    filter.add(2);
+    filter.add(2);
+    filter.add(4);
+    // least squares line through (-3, 0), (-2, 2), (-1, 2) and (0, 4)
+    assertThat(filter.getDerivative()).isWithin(DELTA).of(1.2);
+    assertThat(filter.getValue()).isWithin(DELTA).of(3.8);
+  }
+
+  @Test
+  public void testAnglesOfASpinningDrone() {
+    final SavitzkyGolayFilter filter = SavitzkyGolayFilter.createForAngles(5, 1, SAMPLE_PERIOD);
+    double angle = 0;
+    for (int i = 0; i < 1000; i++) {
+      angle += 0.3;
+      filter.add(Math.atan2(Math.sin(angle), Math.cos(angle)));
+    }
+    assertThat(filter.getDerivative()).isWithin(DELTA).of(0.3 / SAMPLE_PERIOD);
+    assertThat(filter.getValue()).isWithin(DELTA).of(Math.atan2(Math.sin(angle), Math.cos(angle)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWindowTooSmallForThePolynomial() {
+    SavitzkyGolayFilter.create(3, 3, SAMPLE_PERIOD);
+  }
+}
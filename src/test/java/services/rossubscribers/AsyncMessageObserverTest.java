@@ -0,0 +1,148 @@
+package services.rossubscribers;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.internal.message.Message;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+/** @author Hoang Tung Dinh */
+public class AsyncMessageObserverTest {
+
+  private final List<Runnable> pendingTasks = Lists.newArrayList();
+  private final Executor manualExecutor =
+      new Executor() {
+        @Override
+        public synchronized void execute(Runnable command) {
+          pendingTasks.add(command);
+        }
+      };
+  private final List<Message> receivedMessages = Lists.newArrayList();
+  private final MessageObserver<Message> recordingObserver =
+      new MessageObserver<Message>() {
+        @Override
+        public void onNewMessage(Message message) {
+          receivedMessages.add(message);
+        }
+      };
+  private Message firstMessage;
+  private Message secondMessage;
+  private Message thirdMessage;
+
+  @Before
+  public void setUp() {
+    firstMessage = mock(Message.class);
+    secondMessage = mock(Message.class);
+    thirdMessage = mock(Message.class);
+  }
+
+  private AsyncMessageObserver<Message> createObserver(OverflowPolicy policy, int capacity) {
+    return AsyncMessageObserver.<Message>builder()
+        .withObserver(recordingObserver)
+        .withExecutor(manualExecutor)
+        .withOverflowPolicy(policy)
+        .withQueueCapacity(capacity)
+        .build();
+  }
+
+  private void runPendingTasks() {
+    while (true) {
+      final Runnable task;
+      synchronized (manualExecutor) {
+        if (pendingTasks.isEmpty()) {
+          return;
+        }
+        task = pendingTasks.remove(0);
+      }
+      task.run();
+    }
+  }
+
+  @Test
+  public void testMessagesAreDeliveredInOrderOnTheExecutor() {
+    final AsyncMessageObserver<Message> observer = createObserver(OverflowPolicy.BLOCK, 3);
+    observer.onNewMessage(firstMessage);
+    observer.onNewMessage(secondMessage);
+    assertThat(receivedMessages).isEmpty();
+    assertThat(observer.getQueueSize()).isEqualTo(2);
+    // the delivery is submitted once for all the waiting messages
+    assertThat(pendingTasks).hasSize(1);
+
+    runPendingTasks();
+    assertThat(receivedMessages).containsExactly(firstMessage, secondMessage).inOrder();
+    assertThat(observer.getLag().getCount()).isEqualTo(2);
+    assertThat(observer.getDroppedMessageCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testConflateKeepsTheLatestMessage() {
+    final AsyncMessageObserver<Message> observer = createObserver(OverflowPolicy.CONFLATE, 1);
+    observer.onNewMessage(firstMessage);
+    observer.onNewMessage(secondMessage);
+    observer.onNewMessage(thirdMessage);
+    runPendingTasks();
+    assertThat(receivedMessages).containsExactly(thirdMessage);
+    assertThat(observer.getDroppedMessageCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testDropOldest() {
+    final AsyncMessageObserver<Message> observer = createObserver(OverflowPolicy.DROP_OLDEST, 2);
+    observer.onNewMessage(firstMessage);
+    observer.onNewMessage(secondMessage);
+    observer.onNewMessage(thirdMessage);
+    runPendingTasks();
+    assertThat(receivedMessages).containsExactly(secondMessage, thirdMessage).inOrder();
+    assertThat(observer.getDroppedMessageCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testBlockWaitsForRoomInTheQueue() throws InterruptedException {
+    final AsyncMessageObserver<Message> observer = createObserver(OverflowPolicy.BLOCK, 1);
+    observer.onNewMessage(firstMessage);
+    final Thread deliveringThread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                observer.onNewMessage(secondMessage);
+              }
+            });
+    deliveringThread.start();
+    TimeUnit.MILLISECONDS.sleep(100);
+    assertThat(deliveringThread.isAlive()).isTrue();
+
+    runPendingTasks();
+    deliveringThread.join();
+    runPendingTasks();
+    assertThat(receivedMessages).containsExactly(firstMessage, secondMessage).inOrder();
+    assertThat(observer.getDroppedMessageCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFailingObserverDoesNotStopTheDelivery() {
+    final AsyncMessageObserver<Message> observer =
+        AsyncMessageObserver.<Message>builder()
+            .withObserver(
+                new MessageObserver<Message>() {
+                  @Override
+                  public void onNewMessage(Message message) {
+                    receivedMessages.add(message);
+                    throw new IllegalStateException("failing observer");
+                  }
+                })
+            .withExecutor(manualExecutor)
+            .withQueueCapacity(2)
+            .build();
+    observer.onNewMessage(firstMessage);
+    observer.onNewMessage(secondMessage);
+    runPendingTasks();
+    assertThat(receivedMessages).containsExactly(firstMessage, secondMessage).inOrder();
+  }
+}
@@ -0,0 +1,101 @@
+package services.rossubscribers;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** @author Hoang Tung Dinh */
+public class MessageRingBufferTest {
+
+  @Test
+  public void testEmptyBuffer() {
+    final MessageRingBuffer<String> buffer = MessageRingBuffer.create(3);
+    assertThat(buffer.getLatest()).isAbsent();
+    assertThat(buffer.getLatestSequenceNumber()).isEqualTo(-1);
+    assertThat(buffer.get(0)).isNull();
+    assertThat(buffer.snapshot()).isEmpty();
+  }
+
+  @Test
+  public void testSequenceNumbersAndOverwrite() {
+    final MessageRingBuffer<String> buffer = MessageRingBuffer.create(3);
+    buffer.add("first");
+    assertThat(buffer.getLatest()).hasValue("first");
+    assertThat(buffer.getLatestSequenceNumber()).isEqualTo(0);
+
+    buffer.add("second");
+    buffer.add("third");
+    buffer.add("fourth");
+    assertThat(buffer.getLatest()).hasValue("fourth");
+    assertThat(buffer.getLatestSequenceNumber()).isEqualTo(3);
+    assertThat(buffer.getOldestSequenceNumber()).isEqualTo(1);
+    assertThat(buffer.get(0)).isNull();
+    assertThat(buffer.get(1)).isEqualTo("second");
+    assertThat(buffer.get(3)).isEqualTo("fourth");
+    assertThat(buffer.get(4)).isNull();
+    assertThat(buffer.snapshot()).containsExactly("second", "third", "fourth").inOrder();
+  }
+
+  @Test
+  public void testSnapshotSkipsOverwrittenMessages() {
+    final MessageRingBuffer<String> buffer = MessageRingBuffer.create(2);
+    buffer.add("first");
+    buffer.add("second");
+    final MessageRingBuffer.Snapshot<String> snapshot = buffer.snapshot();
+    buffer.add("third");
+    // the first message has been overwritten by the third one, which is not in the snapshot
+    assertThat(snapshot).containsExactly("second");
+    assertThat(snapshot.getEndSequenceNumber()).isEqualTo(2);
+  }
+
+  @Test
+  public void testConcurrentReadersNeverSeeAnotherMessage() throws InterruptedException {
+    final int numberOfMessages = 200000;
+    final MessageRingBuffer<Long> buffer = MessageRingBuffer.create(4);
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<String> failure = new AtomicReference<>();
+
+    final List<Thread> readers = Lists.newArrayList();
+    for (int i = 0; i < 2; i++) {
+      readers.add(
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  long lastSeen = -1;
+                  while (!done.get()) {
+                    final long latest = buffer.getLatestSequenceNumber();
+                    if (latest < lastSeen) {
+                      failure.set("Sequence number went back from " + lastSeen + " to " + latest);
+                    }
+                    lastSeen = latest;
+                    for (long j = buffer.getOldestSequenceNumber(); j <= latest; j++) {
+                      final Long message = buffer.get(j);
+                      if (message != null && message != j) {
+                        failure.set("Message " + message + " read as message " + j);
+                      }
+                    }
+                  }
+                }
+              }));
+    }
+    for (Thread reader : readers) {
+      reader.start();
+    }
+    for (long i = 0; i < numberOfMessages; i++) {
+      buffer.add(i);
+    }
+    done.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    assertThat(failure.get()).isNull();
+    assertThat(buffer.getLatestSequenceNumber()).isEqualTo(numberOfMessages - 1);
+  }
+}
@@ -45,6 +45,24 @@ public abstract class MessagesSubscriberServiceTest<T extends Message> {
     testAddFourMessages(messagesSubscriberService, argumentCaptor);
   }
 
+  @Test
+  public void testRemoveAsyncMessageObserver() {
+    final MessagesSubscriberService<T> messagesSubscriberService =
+        MessagesSubscriberService.create(subscriber, mock(TimeProvider.class));
+    final ArgumentCaptor<MessageListener> argumentCaptor = getMessageListenerArgumentCaptor();
+    verify(subscriber).addMessageListener(argumentCaptor.capture());
+    final MessageObserver<T> messageObserver = mock(MessageObserver.class);
+    final AsyncMessageObserver<T> asyncMessageObserver =
+        messagesSubscriberService.registerAsyncMessageObserver(
+            messageObserver, OverflowPolicy.CONFLATE, 1);
+    assertThat(asyncMessageObserver.getObserver()).isSameAs(messageObserver);
+
+    messagesSubscriberService.removeMessageObserver(messageObserver);
+    argumentCaptor.getValue().onNewMessage(createNewMessage("message"));
+    assertThat(asyncMessageObserver.getQueueSize()).isEqualTo(0);
+    assertThat(asyncMessageObserver.getLag().getCount()).isEqualTo(0);
+  }
+
   private void testAddFourMessages(
       MessagesSubscriberService<T> messagesSubscriberService,
       ArgumentCaptor<MessageListener> argumentCaptor) {
@@ -57,6 +75,8 @@ public abstract class MessagesSubscriberServiceTest<T extends Message> {
     argumentCaptor.getValue().onNewMessage(thirdMessage);
     argumentCaptor.getValue().onNewMessage(fourthMessage);
     assertThat(messagesSubscriberService.getMostRecentMessage()).hasValue(fourthMessage);
+    // one message was received before the four messages
+    assertThat(messagesSubscriberService.getMostRecentSequenceNumber()).isEqualTo(4);
     assertThat(messagesSubscriberService.getMessageQueue())
         .containsExactly(secondMessage, thirdMessage, fourthMessage)
         .inOrder();
@@ -67,6 +87,7 @@ public abstract class MessagesSubscriberServiceTest<T extends Message> {
       ArgumentCaptor<MessageListener> argumentCaptor) {
     verify(subscriber).addMessageListener(argumentCaptor.capture());
     assertThat(messagesSubscriberService.getMostRecentMessage()).isAbsent();
+    assertThat(messagesSubscriberService.getMostRecentSequenceNumber()).isEqualTo(-1);
   }
 
   private ArgumentCaptor<MessageListener> getMessageListenerArgumentCaptor() {
@@ -0,0 +1,174 @@
+package taskexecutor.interruptors;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import commands.Command;
+import control.dto.DroneStateStamped;
+import control.dto.Pose;
+import control.dto.Velocity;
+import control.localization.StateEstimator;
+import org.junit.Before;
+import org.junit.Test;
+import taskexecutor.Task;
+import taskexecutor.TaskExecutor;
+import taskexecutor.TaskType;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** @author Hoang Tung Dinh */
+public class SeparationMonitorTest {
+
+  private final Task firstTask =
+      Task.create(ImmutableList.<Command>of(), TaskType.FIRST_ORDER_EMERGENCY);
+  private final Task secondTask =
+      Task.create(ImmutableList.<Command>of(), TaskType.FIRST_ORDER_EMERGENCY);
+  private StateEstimator firstStateEstimator;
+  private StateEstimator secondStateEstimator;
+  private StateEstimator thirdStateEstimator;
+  private TaskExecutor firstTaskExecutor;
+  private TaskExecutor secondTaskExecutor;
+  private SeparationMonitor separationMonitor;
+
+  private static Optional<DroneStateStamped> createState(double x, double y, double z) {
+    return createState(x, y, z, 0);
+  }
+
+  private static Optional<DroneStateStamped> createState(
+      double x, double y, double z, double timeStamp) {
+    final Pose pose = Pose.builder().setX(x).setY(y).setZ(z).setYaw(0).build();
+    return Optional.of(DroneStateStamped.create(pose, Velocity.createZeroVelocity(), timeStamp));
+  }
+
+  @Before
+  public void setUp() {
+    firstStateEstimator = mock(StateEstimator.class);
+    secondStateEstimator = mock(StateEstimator.class);
+    thirdStateEstimator = mock(StateEstimator.class);
+    when(firstStateEstimator.getCurrentState()).thenReturn(createState(0, 0, 1));
+    when(secondStateEstimator.getCurrentState()).thenReturn(createState(2, 0, 1));
+    when(thirdStateEstimator.getCurrentState()).thenReturn(createState(0, 2, 1));
+
+    separationMonitor =
+        SeparationMonitor.builder()
+            .withStateEstimators(
+                ImmutableList.of(firstStateEstimator, secondStateEstimator, thirdStateEstimator))
+            .withMinimumDistance(1)
+            .build();
+    firstTaskExecutor = mock(TaskExecutor.class);
+    secondTaskExecutor = mock(TaskExecutor.class);
+    separationMonitor.registerTaskExecutor(firstTaskExecutor, firstTask);
+    separationMonitor.registerTaskExecutor(secondTaskExecutor, secondTask);
+  }
+
+  @Test
+  public void testDronesFarApart() {
+    separationMonitor.check();
+    verify(firstTaskExecutor, never()).submitTask(any(Task.class));
+    verify(secondTaskExecutor, never()).submitTask(any(Task.class));
+    assertThat(separationMonitor.hasTriggered()).isFalse();
+    assertThat(separationMonitor.getCheckDuration().getCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testDronesTooCloseInNeighbouringCells() {
+    // both drones are close to the border of their cells
+    when(firstStateEstimator.getCurrentState()).thenReturn(createState(-0.2, 0, 1));
+    when(secondStateEstimator.getCurrentState()).thenReturn(createState(0.2, 0, 1));
+    separationMonitor.check();
+    verify(firstTaskExecutor).submitTask(firstTask);
+    verify(secondTaskExecutor).submitTask(secondTask);
+    assertThat(separationMonitor.hasTriggered()).isTrue();
+    assertThat(separationMonitor.getDetectionToSubmitLatency().getCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testEmergencyIsNotifiedOnce() {
+    when(thirdStateEstimator.getCurrentState()).thenReturn(createState(1.5, 0.5, 1));
+    separationMonitor.check();
+    separationMonitor.check();
+    verify(firstTaskExecutor, times(1)).submitTask(firstTask);
+    verify(secondTaskExecutor, times(1)).submitTask(secondTask);
+  }
+
+  @Test
+  public void testViolationBeforeRegistrationIsNotifiedOnceRegistered() {
+    final SeparationMonitor monitor =
+        SeparationMonitor.builder()
+            .withStateEstimators(ImmutableList.of(firstStateEstimator, secondStateEstimator))
+            .withMinimumDistance(1)
+            .build();
+    when(secondStateEstimator.getCurrentState()).thenReturn(createState(0.5, 0, 1));
+    monitor.check();
+    assertThat(monitor.hasTriggered()).isFalse();
+
+    monitor.registerTaskExecutor(firstTaskExecutor, firstTask);
+    monitor.check();
+    verify(firstTaskExecutor).submitTask(firstTask);
+    assertThat(monitor.hasTriggered()).isTrue();
+  }
+
+  @Test
+  public void testDronesWithoutStateAreIgnored() {
+    when(secondStateEstimator.getCurrentState()).thenReturn(Optional.<DroneStateStamped>absent());
+    when(thirdStateEstimator.getCurrentState()).thenReturn(Optional.<DroneStateStamped>absent());
+    separationMonitor.check();
+    verify(firstTaskExecutor, never()).submitTask(any(Task.class));
+  }
+
+  @Test
+  public void testRemoveTaskExecutor() {
+    separationMonitor.removeTaskExecutor(firstTaskExecutor);
+    when(secondStateEstimator.getCurrentState()).thenReturn(createState(0.5, 0, 1));
+    separationMonitor.check();
+    verify(firstTaskExecutor, never()).submitTask(any(Task.class));
+    verify(secondTaskExecutor).submitTask(secondTask);
+  }
+
+  @Test
+  public void testDronesAreComparedAtTheSameTime() {
+    final SeparationMonitor monitor =
+        SeparationMonitor.builder()
+            .withStateEstimators(ImmutableList.of(firstStateEstimator, secondStateEstimator))
+            .withMinimumDistance(1)
+            .withEmergencyTask(firstTask)
+            .build();
+    final TaskExecutor taskExecutor = mock(TaskExecutor.class);
+    monitor.registerTaskExecutor(taskExecutor);
+
+    when(firstStateEstimator.getCurrentState()).thenReturn(createState(-5, 0, 1, 0.9));
+    when(secondStateEstimator.getCurrentState()).thenReturn(createState(0.5, 0, 1, 0.95));
+    monitor.check();
+    verify(taskExecutor, never()).submitTask(any(Task.class));
+
+    // the localization of the first drone lags: at 0.95 the drones were too close to each other,
+    // even though the most recent state of the second drone is far away
+    when(firstStateEstimator.getCurrentState()).thenReturn(createState(0, 0, 1, 0.95));
+    when(secondStateEstimator.getCurrentState()).thenReturn(createState(2, 0, 1, 1.0));
+    monitor.check();
+    verify(taskExecutor).submitTask(firstTask);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRegisterWithoutEmergencyTask() {
+    separationMonitor.registerTaskExecutor(mock(TaskExecutor.class));
+  }
+
+  @Test
+  public void testRegisterWithEmergencyTask() {
+    final SeparationMonitor monitor =
+        SeparationMonitor.builder()
+            .withStateEstimators(ImmutableList.of(firstStateEstimator, firstStateEstimator))
+            .withEmergencyTask(firstTask)
+            .build();
+    final TaskExecutor taskExecutor = mock(TaskExecutor.class);
+    monitor.registerTaskExecutor(taskExecutor);
+    monitor.check();
+    verify(taskExecutor).submitTask(firstTask);
+  }
+}
@@ -0,0 +1,65 @@
+package utils.math;
+
+import applications.trajectory.geom.point.Point3D;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Timing benchmark of {@link Rotation} against the {@code SimpleMatrix}-based {@link
+ * Transformations#reverseRotation(Point3D, double, double, double, RotationOrder)}, which is the
+ * path the corkscrew trajectory used before. It is excluded from the unit tests and runs with
+ * {@code gradle benchmark}. It prints the time per rotated point of both paths and the speedup.
+ *
+ * @author Hoang Tung Dinh
+ */
+public class RotationBenchmark {
+
+  private static final double ANGLE_X = 0.3;
+  private static final double ANGLE_Y = -1.2;
+  private static final int NUMBER_OF_WARM_UP_ROUNDS = 5;
+  private static final int NUMBER_OF_POINTS = 200000;
+
+  @Test
+  public void benchmarkPrecomputedRotationAgainstMatrixPath() {
+    final Rotation rotation = Rotation.createReverse(ANGLE_X, ANGLE_Y, 0, RotationOrder.XYZ);
+    long matrixTimeInNanoSeconds = 0;
+    long rotationTimeInNanoSeconds = 0;
+    double checksum = 0;
+    for (int round = 0; round <= NUMBER_OF_WARM_UP_ROUNDS; round++) {
+      final long matrixStart = System.nanoTime();
+      for (int i = 0; i < NUMBER_OF_POINTS; i++) {
+        final Point3D rotated =
+            Transformations.reverseRotation(
+                Point3D.create(0.01 * i, 0.005 * i, -0.0025 * i),
+                ANGLE_X,
+                ANGLE_Y,
+                0,
+                RotationOrder.XYZ);
+        checksum += rotated.getX() + rotated.getY() + rotated.getZ();
+      }
+      matrixTimeInNanoSeconds = System.nanoTime() - matrixStart;
+
+      final long rotationStart = System.nanoTime();
+      for (int i = 0; i < NUMBER_OF_POINTS; i++) {
+        final double x = 0.01 * i;
+        final double y = 0.005 * i;
+        final double z = -0.0025 * i;
+        checksum -=
+            rotation.applyX(x, y, z) + rotation.applyY(x, y, z) + rotation.applyZ(x, y, z);
+      }
+      rotationTimeInNanoSeconds = System.nanoTime() - rotationStart;
+    }
+
+    System.out.println(
+        String.format(
+            "Rotation of %d points: matrix path %.1f ns/point, precomputed rotation %.1f "
+                + "ns/point, speedup %.1fx",
+            NUMBER_OF_POINTS,
+            (double) matrixTimeInNanoSeconds / NUMBER_OF_POINTS,
+            (double) rotationTimeInNanoSeconds / NUMBER_OF_POINTS,
+            (double) matrixTimeInNanoSeconds / rotationTimeInNanoSeconds));
+    // both paths rotate the same points, so that neither loop can be optimized away
+    assertThat(checksum).isWithin(1.0e-3 * NUMBER_OF_POINTS).of(0);
+  }
+}
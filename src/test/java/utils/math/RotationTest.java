@@ -0,0 +1,136 @@
+package utils.math;
+
+import applications.trajectory.geom.point.Point3D;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** @author Hoang Tung Dinh */
+@RunWith(JUnitParamsRunner.class)
+public class RotationTest {
+
+  private static final double DELTA = 1.0e-12;
+  private static final int NUMBER_OF_GRID_POINTS = 100;
+
+  private static void assertPoint3DEqual(Point3D p0, Point3D p1) {
+    assertThat(p0.getX()).isWithin(DELTA).of(p1.getX());
+    assertThat(p0.getY()).isWithin(DELTA).of(p1.getY());
+    assertThat(p0.getZ()).isWithin(DELTA).of(p1.getZ());
+  }
+
+  private Object[] rotationAngles() {
+    return new Object[] {
+      new Object[] {0, 0, 0, RotationOrder.XYZ},
+      new Object[] {0.3, -1.2, 2.5, RotationOrder.XYZ},
+      new Object[] {StrictMath.PI / 2, StrictMath.PI / 2, StrictMath.PI / 2, RotationOrder.XYZ},
+      new Object[] {StrictMath.PI, 0.1, -0.4, RotationOrder.XYZ},
+      new Object[] {0.3, -1.2, 2.5, RotationOrder.ZYX},
+      new Object[] {-2.9, 0.7, StrictMath.PI, RotationOrder.ZYX}
+    };
+  }
+
+  private static Point3D[] testPoints() {
+    return new Point3D[] {
+      Point3D.create(1, 0, 0),
+      Point3D.create(0, 1, 0),
+      Point3D.create(0, 0, 1),
+      Point3D.create(1.5, -2.25, 3.75)
+    };
+  }
+
+  /** Rotates a point as the quaternion product q * p * conj(q). */
+  private static Point3D rotateWithQuaternion(Rotation rotation, Point3D point) {
+    final double w = rotation.getQuaternionW();
+    final double x = rotation.getQuaternionX();
+    final double y = rotation.getQuaternionY();
+    final double z = rotation.getQuaternionZ();
+    // t = 2 * (q_vec x p)
+    final double tx = 2 * (y * point.getZ() - z * point.getY());
+    final double ty = 2 * (z * point.getX() - x * point.getZ());
+    final double tz = 2 * (x * point.getY() - y * point.getX());
+    // p' = p + w * t + q_vec x t
+    return Point3D.create(
+        point.getX() + w * tx + (y * tz - z * ty),
+        point.getY() + w * ty + (z * tx - x * tz),
+        point.getZ() + w * tz + (x * ty - y * tx));
+  }
+
+  @Test
+  @Parameters(method = "rotationAngles")
+  public void testRotationEqualsTransformationsRotate(
+      double angleX, double angleY, double angleZ, RotationOrder order) {
+    final Rotation rotation = Rotation.create(angleX, angleY, angleZ, order);
+    for (Point3D point : testPoints()) {
+      assertPoint3DEqual(
+          rotation.apply(point), Transformations.rotate(point, angleX, angleY, angleZ, order));
+    }
+  }
+
+  @Test
+  @Parameters(method = "rotationAngles")
+  public void testReverseEqualsTransformationsReverseRotation(
+      double angleX, double angleY, double angleZ, RotationOrder order) {
+    final Rotation reverse = Rotation.createReverse(angleX, angleY, angleZ, order);
+    for (Point3D point : testPoints()) {
+      assertPoint3DEqual(
+          reverse.apply(point),
+          Transformations.reverseRotation(point, angleX, angleY, angleZ, order));
+      assertPoint3DEqual(
+          reverse.apply(Rotation.create(angleX, angleY, angleZ, order).apply(point)), point);
+    }
+  }
+
+  @Test
+  @Parameters(method = "rotationAngles")
+  public void testQuaternionIsEquivalentToMatrix(
+      double angleX, double angleY, double angleZ, RotationOrder order) {
+    final Rotation rotation = Rotation.create(angleX, angleY, angleZ, order);
+    final double norm =
+        rotation.getQuaternionW() * rotation.getQuaternionW()
+            + rotation.getQuaternionX() * rotation.getQuaternionX()
+            + rotation.getQuaternionY() * rotation.getQuaternionY()
+            + rotation.getQuaternionZ() * rotation.getQuaternionZ();
+    assertThat(norm).isWithin(DELTA).of(1);
+    assertThat(rotation.getQuaternionW()).isAtLeast(0d);
+    for (Point3D point : testPoints()) {
+      assertPoint3DEqual(rotateWithQuaternion(rotation, point), rotation.apply(point));
+    }
+  }
+
+  @Test
+  public void testIdentity() {
+    for (Point3D point : testPoints()) {
+      assertPoint3DEqual(Rotation.identity().apply(point), point);
+    }
+    assertThat(Rotation.identity().getQuaternionW()).isWithin(DELTA).of(1);
+  }
+
+  /**
+   * Checks the per-axis methods against the {@link
+   * Transformations#reverseRotation(Point3D, double, double, double, RotationOrder)} path, which
+   * builds and multiplies the rotation matrices for every point.
+   */
+  @Test
+  public void testApplyPerAxisEqualsMatrixPath() {
+    final double angleX = 0.3;
+    final double angleY = -1.2;
+    final Rotation rotation = Rotation.createReverse(angleX, angleY, 0, RotationOrder.XYZ);
+    for (int i = 0; i < NUMBER_OF_GRID_POINTS; i++) {
+      final Point3D point = Point3D.create(0.01 * i, 0.005 * i, -0.0025 * i);
+      final Point3D rotated =
+          Transformations.reverseRotation(point, angleX, angleY, 0, RotationOrder.XYZ);
+      assertThat(rotation.applyX(point.getX(), point.getY(), point.getZ()))
+          .isWithin(DELTA)
+          .of(rotated.getX());
+      assertThat(rotation.applyY(point.getX(), point.getY(), point.getZ()))
+          .isWithin(DELTA)
+          .of(rotated.getY());
+      assertThat(rotation.applyZ(point.getX(), point.getY(), point.getZ()))
+          .isWithin(DELTA)
+          .of(rotated.getZ());
+    }
+  }
+}
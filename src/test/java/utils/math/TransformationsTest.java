@@ -11,6 +11,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import utils.TestUtils;
 
+import java.util.Random;
+
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -133,4 +135,75 @@ public class TransformationsTest {
             rotatedPoint, rotationAngleX, rotationAngleY, rotationAngleZ, RotationOrder.XYZ);
     assertPoint3DEqual(p, initialPoint);
   }
+
+  private static Quaternion createQuaternion(double w, double x, double y, double z) {
+    final Quaternion quaternion = mock(Quaternion.class);
+    when(quaternion.getW()).thenReturn(w);
+    when(quaternion.getX()).thenReturn(x);
+    when(quaternion.getY()).thenReturn(y);
+    when(quaternion.getZ()).thenReturn(z);
+    return quaternion;
+  }
+
+  private static double[] createRandomQuaternions(int numberOfQuaternions) {
+    final Random random = new Random(42);
+    final double[] quaternions = new double[4 * numberOfQuaternions];
+    for (int i = 0; i < numberOfQuaternions; i++) {
+      double norm = 0;
+      for (int j = 0; j < 4; j++) {
+        quaternions[4 * i + j] = random.nextGaussian();
+        norm += quaternions[4 * i + j] * quaternions[4 * i + j];
+      }
+      norm = Math.sqrt(norm);
+      for (int j = 0; j < 4; j++) {
+        quaternions[4 * i + j] /= norm;
+      }
+    }
+    return quaternions;
+  }
+
+  @Test
+  public void testQuaternionToYawIsTheEulerAngleZ() {
+    final int numberOfQuaternions = 1000;
+    final double[] quaternions = createRandomQuaternions(numberOfQuaternions);
+    for (int i = 0; i < numberOfQuaternions; i++) {
+      final Quaternion quaternion =
+          createQuaternion(
+              quaternions[4 * i],
+              quaternions[4 * i + 1],
+              quaternions[4 * i + 2],
+              quaternions[4 * i + 3]);
+      final double expectedYaw = Transformations.quaternionToEulerAngle(quaternion).angleZ();
+      assertThat(Transformations.quaternionToYaw(quaternion)).isEqualTo(expectedYaw);
+      assertThat(Transformations.quaternionToYaw(quaternion, MathAccuracy.FAST))
+          .isWithin(1.0e-12)
+          .of(expectedYaw);
+    }
+  }
+
+  @Test
+  public void testQuaternionsToYaws() {
+    final int numberOfQuaternions = 100;
+    final double[] quaternions = createRandomQuaternions(numberOfQuaternions);
+    final double[] yaws = new double[numberOfQuaternions + 1];
+    for (final MathAccuracy accuracy : MathAccuracy.values()) {
+      Transformations.quaternionsToYaws(quaternions, yaws, numberOfQuaternions, accuracy);
+      for (int i = 0; i < numberOfQuaternions; i++) {
+        assertThat(yaws[i])
+            .isEqualTo(
+                Transformations.quaternionToYaw(
+                    quaternions[4 * i],
+                    quaternions[4 * i + 1],
+                    quaternions[4 * i + 2],
+                    quaternions[4 * i + 3],
+                    accuracy));
+      }
+      assertThat(yaws[numberOfQuaternions]).isEqualTo(0.0);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testQuaternionsToYawsWithTooShortArray() {
+    Transformations.quaternionsToYaws(new double[7], new double[2], 2, MathAccuracy.STRICT);
+  }
 }
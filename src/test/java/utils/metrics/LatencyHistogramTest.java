@@ -0,0 +1,75 @@
+package utils.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** @author Hoang Tung Dinh */
+public class LatencyHistogramTest {
+
+  private LatencyHistogram histogram;
+
+  @Before
+  public void setUp() {
+    histogram = LatencyHistogram.create("test");
+  }
+
+  @Test
+  public void testEmptyHistogram() {
+    assertThat(histogram.getCount()).isEqualTo(0L);
+    assertThat(histogram.getMeanInNanoSeconds()).isWithin(0).of(0);
+    assertThat(histogram.getValueAtPercentileInNanoSeconds(99)).isEqualTo(0L);
+  }
+
+  @Test
+  public void testSmallValuesAreExact() {
+    for (long i = 0; i < 8; i++) {
+      histogram.record(i);
+    }
+    assertThat(histogram.getCount()).isEqualTo(8L);
+    assertThat(histogram.getMaxInNanoSeconds()).isEqualTo(7L);
+    assertThat(histogram.getValueAtPercentileInNanoSeconds(50)).isEqualTo(3L);
+    assertThat(histogram.getMeanInNanoSeconds()).isWithin(1.0e-9).of(3.5);
+  }
+
+  @Test
+  public void testPercentilesWithinRelativeError() {
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000);
+    }
+    assertThat(histogram.getCount()).isEqualTo(1000L);
+    assertThat(histogram.getMaxInNanoSeconds()).isEqualTo(1000000L);
+    assertThat((double) histogram.getValueAtPercentileInNanoSeconds(50))
+        .isWithin(500000 * 0.125)
+        .of(500000);
+    assertThat((double) histogram.getValueAtPercentileInNanoSeconds(99))
+        .isWithin(990000 * 0.125)
+        .of(990000);
+    assertThat(histogram.getValueAtPercentileInNanoSeconds(50)).isAtLeast(500000L);
+    assertThat(histogram.getValueAtPercentileInNanoSeconds(100)).isEqualTo(1000000L);
+  }
+
+  @Test
+  public void testLargeAndNegativeValues() {
+    histogram.record(Long.MAX_VALUE);
+    histogram.record(-10);
+    assertThat(histogram.getCount()).isEqualTo(2L);
+    assertThat(histogram.getValueAtPercentileInNanoSeconds(0)).isEqualTo(0L);
+    assertThat(histogram.getValueAtPercentileInNanoSeconds(100)).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void testReset() {
+    histogram.record(100);
+    histogram.reset();
+    assertThat(histogram.getCount()).isEqualTo(0L);
+    assertThat(histogram.getMaxInNanoSeconds()).isEqualTo(0L);
+    assertThat(histogram.getValueAtPercentileInNanoSeconds(50)).isEqualTo(0L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPercentile() {
+    histogram.getValueAtPercentileInNanoSeconds(101);
+  }
+}